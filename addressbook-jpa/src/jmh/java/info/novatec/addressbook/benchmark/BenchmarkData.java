@@ -0,0 +1,128 @@
+package info.novatec.addressbook.benchmark;
+
+import info.novatec.addressbook.Application;
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Creates the application context and the deterministic test data for benchmarks. 
+ * Person <code>i</code> is named <code>First{i} Last{i}</code>, is <code>i % 80</code> 
+ * years old and lives in <code>City{i % CITIES}</code>, every second person has a 
+ * second address.
+ */
+public final class BenchmarkData {
+	
+	/**
+	 * Number of distinct cities.
+	 */
+	public static final int CITIES = 1000;
+	
+	private static final int IMPORT_CHUNK_SIZE = 100000;
+	
+	private static final int MAX_AGE = 80;
+	
+	private static final Country[] COUNTRIES = Country.values();
+
+	private BenchmarkData() {
+		super();
+	}
+
+	/**
+	 * Starts the application without web environment on a private in-memory database.
+	 * @param name name of the in-memory database
+	 * @param properties additional properties
+	 * @return the application context
+	 */
+	public static ConfigurableApplicationContext start(final String name, 
+			final String... properties) {
+		String[] defaults = {"spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", 
+				"logging.level.root=WARN", "spring.jpa.show-sql=false"};
+		return new SpringApplicationBuilder(Application.class).web(false)
+				.properties(defaults).properties(properties).run();
+	}
+
+	/**
+	 * Imports the given number of persons in chunks, one transaction per chunk.
+	 * @param service the {@link PersonManagementService}
+	 * @param count number of persons
+	 */
+	public static void seed(final PersonManagementService service, final int count) {
+		for (int start = 0; start < count; start += IMPORT_CHUNK_SIZE) {
+			service.importPersons(persons(start, Math.min(count, start + IMPORT_CHUNK_SIZE)));
+		}
+	}
+
+	/**
+	 * Lazily creates the persons with index <code>start</code> (inclusive) to 
+	 * <code>end</code> (exclusive).
+	 * @param start index of first person
+	 * @param end index after last person
+	 * @return the persons
+	 */
+	public static Iterable<Person> persons(final int start, final int end) {
+		return new Iterable<Person>() {
+			@Override
+			public Iterator<Person> iterator() {
+				return new Iterator<Person>() {
+					private int next = start;
+
+					@Override
+					public boolean hasNext() {
+						return next < end;
+					}
+
+					@Override
+					public Person next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						return person(next++);
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Creates the person with the given index.
+	 * @param i the index
+	 * @return the person
+	 */
+	public static Person person(final int i) {
+		Calendar cal = Calendar.getInstance();
+		cal.add(Calendar.YEAR, -(i % MAX_AGE));
+		cal.add(Calendar.DAY_OF_YEAR, -1 - (i % 300));
+		Person person = new Person("First" + i, "Last" + i, cal.getTime(), new HashSet<Address>());
+		addAddress(person, "Hauptstr. " + i, city(i), COUNTRIES[i % COUNTRIES.length]);
+		if (i % 2 == 0) {
+			addAddress(person, "Nebenstr. " + i, city(i + 1), COUNTRIES[(i + 1) % COUNTRIES.length]);
+		}
+		return person;
+	}
+
+	/**
+	 * Returns the name of the city with the given index.
+	 * @param i the index
+	 * @return the city
+	 */
+	public static String city(final int i) {
+		return "City" + (i % CITIES);
+	}
+
+	private static void addAddress(final Person person, final String street, final String city, 
+			final Country country) {
+		Address address = new Address(person, street, null, 
+				String.valueOf(10000 + Math.abs(city.hashCode() % 89999)), city, country);
+		person.addAddress(address);
+	}
+}
@@ -0,0 +1,109 @@
+package info.novatec.addressbook.benchmark;
+
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.monitoring.PersistenceContextMonitor;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Benchmarks a long transaction creating {@link Person}s and querying in between, with
+ * the persistence context growing without bound and cleared by the
+ * {@link PersistenceContextMonitor}. Every query flushes and thereby dirty checks all
+ * managed entities. Run with <code>-prof gc</code> to compare the allocated heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PersistenceContextBenchmark {
+	private static final int PERSONS_PER_QUERY = 100;
+
+	/**
+	 * Number of persons created per transaction, overridden by <code>-p persons=...</code>.
+	 */
+	@Param({"10000"})
+	private int persons;
+
+	/**
+	 * Managed entities from which the persistence context is cleared, 0 to never clear.
+	 */
+	@Param({"0", "1000"})
+	private int clearThreshold;
+
+	private ConfigurableApplicationContext context;
+
+	private PersonManagementService service;
+
+	private TransactionTemplate transactionTemplate;
+
+	private int offset;
+
+	/**
+	 * Starts the application.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkData.start("persistence-context-benchmark-" + clearThreshold,
+				"addressbook.persistence-context.clear-threshold=" + clearThreshold,
+				"addressbook.persistence-context.warn-threshold=0");
+		service = context.getBean(PersonManagementService.class);
+		transactionTemplate = new TransactionTemplate(
+				context.getBean(PlatformTransactionManager.class));
+	}
+
+	/**
+	 * Shuts down the application.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	/**
+	 * Creates the persons one by one in a single transaction, counting them after every
+	 * {@value #PERSONS_PER_QUERY} persons.
+	 * @return the number of persons at the end of the transaction
+	 */
+	@Benchmark
+	public long createPersonsInOneTransaction() {
+		final int start = offset;
+		offset += persons;
+		return transactionTemplate.execute(new TransactionCallback<Long>() {
+			@Override
+			public Long doInTransaction(final TransactionStatus status) {
+				long count = 0;
+				for (Person person : BenchmarkData.persons(start, start + persons)) {
+					service.createPerson(person.getFirstName(), person.getLastName(),
+							person.getBirthDate(), person.getAddresses().toArray(new Address[0]));
+					if (++count % PERSONS_PER_QUERY == 0) {
+						service.count();
+					}
+				}
+				return service.count();
+			}
+		});
+	}
+}
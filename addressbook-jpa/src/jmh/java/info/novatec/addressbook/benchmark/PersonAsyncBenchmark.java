@@ -0,0 +1,158 @@
+package info.novatec.addressbook.benchmark;
+
+import info.novatec.addressbook.boundary.AsyncPersonManagementService;
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Person;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Compares the blocking {@link PersonManagementService} driven by one thread per client 
+ * with the {@link AsyncPersonManagementService} under a burst of concurrent clients. 
+ * Each invocation issues one lookup per client and waits for all of them, so the sampled 
+ * times give both the throughput and the tail latency (p99) of a burst.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonAsyncBenchmark {
+
+	/**
+	 * Number of persons in the database, overridden by <code>-p persons=...</code>.
+	 */
+	@Param({"10000"})
+	private int persons;
+	
+	/**
+	 * Number of concurrent clients per burst.
+	 */
+	@Param({"1024"})
+	private int clients;
+	
+	private ConfigurableApplicationContext context;
+	
+	private PersonManagementService service;
+	
+	private AsyncPersonManagementService asyncService;
+	
+	private ExecutorService clientThreads;
+	
+	private long[] ids;
+
+	/**
+	 * Starts the application and seeds the database.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkData.start("async-benchmark");
+		service = context.getBean(PersonManagementService.class);
+		asyncService = context.getBean(AsyncPersonManagementService.class);
+		BenchmarkData.seed(service, persons);
+		clientThreads = Executors.newFixedThreadPool(clients);
+		
+		ids = new long[persons];
+		service.streamAll(new Consumer<Person>() {
+			private int i;
+
+			@Override
+			public void accept(final Person person) {
+				ids[i++] = person.getId();
+			}
+		});
+	}
+
+	/**
+	 * Shuts down the client threads and the application.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		clientThreads.shutdownNow();
+		context.close();
+	}
+
+	/**
+	 * One platform thread per client, each blocking on the connection pool.
+	 * @return number of persons found
+	 * @throws InterruptedException if interrupted while waiting
+	 * @throws ExecutionException if a lookup failed
+	 */
+	@Benchmark
+	public int blocking() throws InterruptedException, ExecutionException {
+		List<Future<Person>> results = new ArrayList<Future<Person>>(clients);
+		for (int i = 0; i < clients; i++) {
+			final long id = randomId();
+			results.add(clientThreads.submit(() -> service.findOne(id)));
+		}
+		int found = 0;
+		for (Future<Person> result : results) {
+			if (result.get() != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Clients submit to the bounded async worker pool without holding a thread.
+	 * @return number of persons found
+	 */
+	@Benchmark
+	public int async() {
+		List<CompletableFuture<Person>> results = 
+				new ArrayList<CompletableFuture<Person>>(clients);
+		for (int i = 0; i < clients; i++) {
+			results.add(asyncService.findOne(randomId()));
+		}
+		int found = 0;
+		for (CompletableFuture<Person> result : results) {
+			if (result.join() != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Loads a batch of persons by id with parallel shards.
+	 * @return number of persons found
+	 */
+	@Benchmark
+	public int asyncFindAll() {
+		List<Long> batch = new ArrayList<Long>(clients);
+		for (int i = 0; i < clients; i++) {
+			batch.add(randomId());
+		}
+		return asyncService.findAll(batch).join().size();
+	}
+
+	private long randomId() {
+		return ids[ThreadLocalRandom.current().nextInt(persons)];
+	}
+}
@@ -0,0 +1,96 @@
+package info.novatec.addressbook.benchmark;
+
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.repository.BulkSaveResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Benchmarks saving a batch of {@link Person}s with addresses, comparing the plain 
+ * <code>createPerson</code> path with the bulk import.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PersonBulkSaveBenchmark {
+	
+	/**
+	 * Number of persons saved per invocation, overridden by <code>-p persons=...</code>.
+	 */
+	@Param({"10000"})
+	private int persons;
+	
+	private ConfigurableApplicationContext context;
+	
+	private PersonManagementService service;
+	
+	private int offset;
+
+	/**
+	 * Starts the application.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkData.start("bulk-save-benchmark");
+		service = context.getBean(PersonManagementService.class);
+	}
+
+	/**
+	 * Shuts down the application.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	/**
+	 * Saves the persons one by one, each in its own transaction.
+	 * @return the saved persons
+	 */
+	@Benchmark
+	public List<Person> createPerson() {
+		List<Person> saved = new ArrayList<Person>(persons);
+		for (Person person : nextPersons()) {
+			saved.add(service.createPerson(person.getFirstName(), person.getLastName(), 
+					person.getBirthDate(), person.getAddresses().toArray(new Address[0])));
+		}
+		return saved;
+	}
+
+	/**
+	 * Saves the persons by a bulk import in a single transaction.
+	 * @return the result of the import
+	 */
+	@Benchmark
+	public BulkSaveResult importPersons() {
+		return service.importPersons(nextPersons());
+	}
+
+	private Iterable<Person> nextPersons() {
+		int start = offset;
+		offset += persons;
+		return BenchmarkData.persons(start, start + persons);
+	}
+}
@@ -0,0 +1,129 @@
+package info.novatec.addressbook.benchmark;
+
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.entity.QPerson;
+import info.novatec.addressbook.repository.PersonRepository;
+import info.novatec.addressbook.repository.PersonSpecifications;
+import info.novatec.addressbook.scan.PersonScanExecutor;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Benchmarks full scans by the {@link PersonScanExecutor} with different numbers of
+ * threads, compared with a single query streamed in one transaction. The scans reduce
+ * all {@link Person}s as a report would, one of them accessing their addresses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersonPartitionedScanBenchmark {
+
+	/**
+	 * Number of persons in the database, overridden by <code>-p persons=...</code>.
+	 */
+	@Param({"200000"})
+	private int persons;
+
+	/**
+	 * Number of threads scanning partitions, overridden by <code>-p parallelism=...</code>.
+	 */
+	@Param({"1", "2", "4", "8"})
+	private int parallelism;
+
+	private ConfigurableApplicationContext context;
+
+	private PersonScanExecutor executor;
+
+	private PersonRepository repository;
+
+	private TransactionTemplate transactionTemplate;
+
+	/**
+	 * Starts the application and seeds the database.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkData.start("partitioned-scan-benchmark-" + parallelism,
+				"addressbook.scan.parallelism=" + parallelism);
+		BenchmarkData.seed(context.getBean(PersonManagementService.class), persons);
+		executor = context.getBean(PersonScanExecutor.class);
+		repository = context.getBean(PersonRepository.class);
+		transactionTemplate = new TransactionTemplate(
+				context.getBean(PlatformTransactionManager.class));
+		transactionTemplate.setReadOnly(true);
+	}
+
+	/**
+	 * Shuts down the application.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	/**
+	 * Counts the persons per birth year over all partitions.
+	 * @return persons per birth year
+	 */
+	@Benchmark
+	public Map<Integer, Long> countByBirthYear() {
+		return executor.scan(QPerson.person.birthDate.before(new Date()),
+				Collectors.groupingBy(PersonPartitionedScanBenchmark::birthYear,
+						Collectors.counting()));
+	}
+
+	/**
+	 * Counts the addresses of all persons over all partitions, loading them by batch.
+	 * @return number of addresses
+	 */
+	@Benchmark
+	public long countAddresses() {
+		return executor.scan(PersonSpecifications.isOfAge(),
+				Collectors.summingLong(person -> person.getAddresses().size()));
+	}
+
+	/**
+	 * Counts the addresses of all persons in a single stream, the baseline for
+	 * {@link #countAddresses()}. Independent of the parallelism.
+	 * @return number of addresses
+	 */
+	@Benchmark
+	public long countAddressesSequential() {
+		return transactionTemplate.execute(status -> {
+			try (Stream<Person> stream = repository.streamAll(PersonSpecifications.isOfAge())) {
+				return stream.collect(Collectors.summingLong(
+						person -> person.getAddresses().size()));
+			}
+		});
+	}
+
+	@SuppressWarnings("deprecation")
+	private static Integer birthYear(final Person person) {
+		return person.getBirthDate().getYear() + 1900;
+	}
+}
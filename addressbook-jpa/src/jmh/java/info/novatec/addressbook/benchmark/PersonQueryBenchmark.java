@@ -0,0 +1,220 @@
+package info.novatec.addressbook.benchmark;
+
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.repository.PersonName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Benchmarks the query paths of {@link PersonManagementService} against a seeded 
+ * in-memory database: derived finder, <code>@Query</code>, Criteria specification, 
+ * QueryDSL predicate, batched lookups and the three variants of loading a person with addresses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonQueryBenchmark {
+	private static final int CITIES_PER_REQUEST = 100;
+	
+	private static final int NAMES_PER_REQUEST = 1000;
+
+	/**
+	 * Number of persons in the database, overridden by <code>-p persons=...</code>.
+	 */
+	@Param({"10000"})
+	private int persons;
+	
+	private ConfigurableApplicationContext context;
+	
+	private PersonManagementService service;
+	
+	private long[] ids;
+
+	/**
+	 * Starts the application and seeds the database.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkData.start("query-benchmark");
+		service = context.getBean(PersonManagementService.class);
+		BenchmarkData.seed(service, persons);
+		
+		ids = new long[persons];
+		service.streamAll(new Consumer<Person>() {
+			private int i;
+
+			@Override
+			public void accept(final Person person) {
+				ids[i++] = person.getId();
+			}
+		});
+	}
+
+	/**
+	 * Shuts down the application.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	/**
+	 * Derived finder by first and last name.
+	 * @return the found person
+	 */
+	@Benchmark
+	public Person findByFirstNameAndLastName() {
+		int i = randomIndex();
+		return service.findByFirstNameAndLastName("First" + i, "Last" + i);
+	}
+
+	/**
+	 * Persons matching a batch of records, one query per name.
+	 * @return number of found persons
+	 */
+	@Benchmark
+	public int findByFirstNameAndLastNamePerName() {
+		int found = 0;
+		for (PersonName name : randomNames()) {
+			if (service.findByFirstNameAndLastName(name.getFirstName(), name.getLastName()) != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Persons matching a batch of records with one query per 256 names.
+	 * @return the found persons per name
+	 */
+	@Benchmark
+	public Map<PersonName, Person> findAllByFirstNameAndLastName() {
+		return service.findAllByFirstNameAndLastName(randomNames());
+	}
+
+	/**
+	 * <code>@Query</code> testing addresses by city with a semi-join.
+	 * @return the found persons
+	 */
+	@Benchmark
+	public List<Person> findAllLivingInCity() {
+		return service.findAllLivingInCity(BenchmarkData.city(randomIndex()));
+	}
+
+	/**
+	 * Persons living in several cities, one query per city.
+	 * @return number of found persons
+	 */
+	@Benchmark
+	public int findAllLivingInCityPerCity() {
+		int found = 0;
+		for (String city : randomCities()) {
+			found += service.findAllLivingInCity(city).size();
+		}
+		return found;
+	}
+
+	/**
+	 * Persons living in several cities with a single query.
+	 * @return the found persons per city
+	 */
+	@Benchmark
+	public Map<String, List<Person>> findAllLivingInCities() {
+		return service.findAllLivingInCities(randomCities());
+	}
+
+	/**
+	 * Criteria API based specification.
+	 * @return the found persons
+	 */
+	@Benchmark
+	public List<Person> findAllMinors() {
+		return service.findAllMinors();
+	}
+
+	/**
+	 * QueryDSL based predicate.
+	 * @return the found persons
+	 */
+	@Benchmark
+	public List<Person> findAllOfAge() {
+		return service.findAllOfAge();
+	}
+
+	/**
+	 * Person with addresses by fetch join.
+	 * @return the found person
+	 */
+	@Benchmark
+	public int findOneWithAddresses() {
+		return service.findOneWithAddresses(randomId()).getAddresses().size();
+	}
+
+	/**
+	 * Person with addresses by ad-hoc entity graph.
+	 * @return the found person
+	 */
+	@Benchmark
+	public int findOneById() {
+		return service.findOneById(randomId()).getAddresses().size();
+	}
+
+	/**
+	 * Person with addresses by named entity graph.
+	 * @return the found person
+	 */
+	@Benchmark
+	public int getOneById() {
+		return service.getOneById(randomId()).getAddresses().size();
+	}
+
+	private int randomIndex() {
+		return ThreadLocalRandom.current().nextInt(persons);
+	}
+
+	private List<String> randomCities() {
+		int start = randomIndex();
+		List<String> cities = new ArrayList<String>(CITIES_PER_REQUEST);
+		for (int i = 0; i < CITIES_PER_REQUEST; i++) {
+			cities.add(BenchmarkData.city(start + i));
+		}
+		return cities;
+	}
+
+	private List<PersonName> randomNames() {
+		List<PersonName> names = new ArrayList<PersonName>(NAMES_PER_REQUEST);
+		for (int i = 0; i < NAMES_PER_REQUEST; i++) {
+			int index = randomIndex();
+			names.add(new PersonName("First" + index, "Last" + index));
+		}
+		return names;
+	}
+
+	private long randomId() {
+		return ids[randomIndex()];
+	}
+}
@@ -0,0 +1,115 @@
+package info.novatec.addressbook.benchmark;
+
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.readmodel.PersonReadModel;
+import info.novatec.addressbook.readmodel.PersonRecord;
+import info.novatec.addressbook.readmodel.PersonSnapshot;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Benchmarks the lookups of the {@link PersonReadModel}, to be compared with the
+ * database queries of the same name in {@link PersonQueryBenchmark}. The setup logs the
+ * estimated size of the snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonReadModelBenchmark {
+	private static final Logger LOG = LoggerFactory.getLogger(PersonReadModelBenchmark.class);
+
+	/**
+	 * Number of persons in the database, overridden by <code>-p persons=...</code>.
+	 */
+	@Param({"10000"})
+	private int persons;
+
+	private ConfigurableApplicationContext context;
+
+	private PersonReadModel readModel;
+
+	/**
+	 * Starts the application, seeds the database and loads the read model.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkData.start("read-model-benchmark", "addressbook.read-model.enabled=true");
+		BenchmarkData.seed(context.getBean(PersonManagementService.class), persons);
+		readModel = context.getBean(PersonReadModel.class);
+		readModel.rebuild();
+		PersonSnapshot snapshot = readModel.getSnapshot();
+		LOG.info("Read model of {} persons and {} addresses: {} bytes", snapshot.size(),
+				snapshot.getAddressCount(), snapshot.estimateBytes());
+	}
+
+	/**
+	 * Shuts down the application.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	/**
+	 * Lookup by first and last name in the hash index.
+	 * @return the found person
+	 */
+	@Benchmark
+	public PersonRecord findByFirstNameAndLastName() {
+		int i = randomIndex();
+		return readModel.findByFirstNameAndLastName("First" + i, "Last" + i);
+	}
+
+	/**
+	 * Persons of a city from the city index, materialized.
+	 * @return number of found persons
+	 */
+	@Benchmark
+	public int findAllLivingInCity() {
+		int found = 0;
+		for (PersonRecord person : readModel.findAllLivingInCity(BenchmarkData.city(randomIndex()))) {
+			found += person.getAddresses().size();
+		}
+		return found;
+	}
+
+	/**
+	 * Persons of age from the birth day index, materialized.
+	 * @return the found persons
+	 */
+	@Benchmark
+	public int findAllOfAge() {
+		List<PersonRecord> found = readModel.findAllOfAge();
+		int addresses = 0;
+		for (PersonRecord person : found) {
+			addresses += person.getAddresses().size();
+		}
+		return addresses;
+	}
+
+	private int randomIndex() {
+		return ThreadLocalRandom.current().nextInt(persons);
+	}
+}
@@ -0,0 +1,109 @@
+package info.novatec.addressbook.benchmark;
+
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.sharding.ShardedPersonRepository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Benchmarks queries over all shards of the {@link ShardedPersonRepository}, comparing
+ * different numbers of in-memory shards holding the same {@link Person}s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersonShardedScanBenchmark {
+
+	/**
+	 * Number of persons in all shards, overridden by <code>-p persons=...</code>.
+	 */
+	@Param({"100000"})
+	private int persons;
+
+	/**
+	 * Number of shards, overridden by <code>-p shards=...</code>.
+	 */
+	@Param({"1", "2", "4"})
+	private int shards;
+
+	private ConfigurableApplicationContext context;
+
+	private ShardedPersonRepository repository;
+
+	/**
+	 * Starts the application with the shards and imports the persons.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		StringBuilder urls = new StringBuilder();
+		for (int shard = 0; shard < shards; shard++) {
+			if (shard > 0) {
+				urls.append(',');
+			}
+			urls.append("jdbc:h2:mem:sharded-scan-benchmark-").append(shard)
+					.append(";DB_CLOSE_DELAY=-1");
+		}
+		context = BenchmarkData.start("sharded-scan-benchmark",
+				"addressbook.sharding.urls=" + urls);
+		repository = context.getBean(ShardedPersonRepository.class);
+		repository.importPersons(BenchmarkData.persons(0, persons), 50);
+	}
+
+	/**
+	 * Shuts down the application.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	/**
+	 * Reads all persons of all shards merged in name order.
+	 * @return number of persons read
+	 */
+	@Benchmark
+	public long findAll() {
+		try (Stream<Person> persons = repository.findAll()) {
+			return persons.count();
+		}
+	}
+
+	/**
+	 * Reads the persons living in one city from all shards merged in name order.
+	 * @return number of persons read
+	 */
+	@Benchmark
+	public long findAllLivingInCity() {
+		try (Stream<Person> persons = repository.findAllLivingInCity(BenchmarkData.city(0))) {
+			return persons.count();
+		}
+	}
+
+	/**
+	 * Counts the persons of all shards.
+	 * @return number of persons
+	 */
+	@Benchmark
+	public long count() {
+		return repository.count();
+	}
+}
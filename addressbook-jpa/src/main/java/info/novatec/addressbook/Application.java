@@ -1,35 +1,75 @@
 package info.novatec.addressbook;
 
+import java.time.Clock;
 import java.util.Date;
 import java.util.HashSet;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.annotation.ScopedProxyMode;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.data.rest.webmvc.config.RepositoryRestMvcConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
 
+import info.novatec.addressbook.boundary.AsyncPersonManagementService;
+import info.novatec.addressbook.boundary.AsyncPersonManagementServiceImpl;
 import info.novatec.addressbook.boundary.PersonManagementService;
 import info.novatec.addressbook.boundary.PersonManagementServiceImpl;
+import info.novatec.addressbook.boundary.PersonNameLoader;
+import info.novatec.addressbook.boundary.importer.PersonFileImporter;
 import info.novatec.addressbook.control.PersonService;
 import info.novatec.addressbook.control.PersonServiceImpl;
 import info.novatec.addressbook.entity.Address;
 import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.monitoring.InstrumentedDataSourcePostProcessor;
+import info.novatec.addressbook.monitoring.MethodMetricsAdvisor;
+import info.novatec.addressbook.monitoring.OptimisticLockMetrics;
+import info.novatec.addressbook.monitoring.PersistenceContextMonitor;
+import info.novatec.addressbook.repository.PersonAgeSpecifications;
 import info.novatec.addressbook.repository.PersonRepository;
+import info.novatec.addressbook.scan.PersonScanExecutor;
+import info.novatec.addressbook.search.PersonSearchIndex;
+import info.novatec.addressbook.search.PersonSearchIndexUpdater;
+import info.novatec.addressbook.statistics.PersonStatistics;
 
 /**
  * Main application configuration.
  */
 @SpringBootApplication
+@EnableScheduling
 @EnableJpaRepositories("info.novatec.addressbook.repository")
 @Import(RepositoryRestMvcConfiguration.class)
 public class Application {
 
 	private PersonRepository personRepository;
 	
+	private int importBatchSize;
+	
+	private int bulkDeleteBatchSize;
+	
+	private int updateChunkSize;
+	
+	private int maxUpdateAttempts;
+	
+	private long updateRetryBackoff;
+	
+	private PlatformTransactionManager transactionManager;
+	
+	private long statisticsReconcileInterval;
+	
 	/**
 	 * Main entry point.
 	 * @param args cmdline args
@@ -52,6 +92,18 @@ public class Application {
     public PersonService createPersonService() {
     	PersonServiceImpl personServiceImpl = new PersonServiceImpl();
     	personServiceImpl.setPersonRepository(personRepository);
+    	personServiceImpl.setImportBatchSize(importBatchSize);
+    	personServiceImpl.setBulkDeleteBatchSize(bulkDeleteBatchSize);
+    	personServiceImpl.setUpdateChunkSize(updateChunkSize);
+    	personServiceImpl.setMaxUpdateAttempts(maxUpdateAttempts);
+    	personServiceImpl.setUpdateRetryBackoff(updateRetryBackoff);
+    	personServiceImpl.setOptimisticLockMetrics(createOptimisticLockMetrics());
+    	TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    	transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    	personServiceImpl.setTransactionTemplate(transactionTemplate);
+    	personServiceImpl.setPersonSearchIndex(createPersonSearchIndex());
+    	personServiceImpl.setAgeSpecifications(createPersonAgeSpecifications());
+    	personServiceImpl.setPersonStatistics(createPersonStatistics());
     	return personServiceImpl;
     }
 
@@ -66,6 +118,224 @@ public class Application {
     	return personManagementServiceImpl;
     }
 
+    /**
+     * Bean configuration for {@link OptimisticLockMetrics}.
+     * @return {@link OptimisticLockMetrics}
+     */
+    @Bean
+    public OptimisticLockMetrics createOptimisticLockMetrics() {
+    	return new OptimisticLockMetrics();
+    }
+
+    /**
+     * Bean configuration for {@link PersonAgeSpecifications} based on the system clock.
+     * @return {@link PersonAgeSpecifications}
+     */
+    @Bean
+    public PersonAgeSpecifications createPersonAgeSpecifications() {
+    	return new PersonAgeSpecifications(Clock.systemDefaultZone());
+    }
+
+    /**
+     * Bean configuration for {@link PersonStatistics}, reconciled at least every 
+     * <code>addressbook.statistics.reconcile-interval</code> milliseconds.
+     * @return {@link PersonStatistics}
+     */
+    @Bean
+    public PersonStatistics createPersonStatistics() {
+    	TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    	transactionTemplate.setReadOnly(true);
+    	PersonStatistics personStatistics = new PersonStatistics(Clock.systemDefaultZone());
+    	personStatistics.setPersonRepository(personRepository);
+    	personStatistics.setTransactionTemplate(transactionTemplate);
+    	personStatistics.setReconcileInterval(statisticsReconcileInterval);
+    	return personStatistics;
+    }
+
+    /**
+     * Bean configuration for {@link PersonSearchIndex}.
+     * @return {@link PersonSearchIndex}
+     */
+    @Bean
+    public PersonSearchIndex createPersonSearchIndex() {
+    	return new PersonSearchIndex();
+    }
+
+    /**
+     * Bean configuration for {@link PersonSearchIndexUpdater}.
+     * @param transactionManager the {@link PlatformTransactionManager}
+     * @param pageSize number of {@link Person}s loaded per page when rebuilding the index
+     * @return {@link PersonSearchIndexUpdater}
+     */
+    @Bean
+    public PersonSearchIndexUpdater createPersonSearchIndexUpdater(
+    		final PlatformTransactionManager transactionManager,
+    		@Value("${addressbook.search.rebuild-page-size:1000}") final int pageSize) {
+    	TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    	transactionTemplate.setReadOnly(true);
+    	transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    	PersonSearchIndexUpdater updater = new PersonSearchIndexUpdater();
+    	updater.setPersonSearchIndex(createPersonSearchIndex());
+    	updater.setPersonManagementService(createPersonManagementService());
+    	updater.setTransactionTemplate(transactionTemplate);
+    	updater.setPageSize(pageSize);
+    	return updater;
+    }
+
+    /**
+     * Bean configuration for the worker pool of {@link AsyncPersonManagementService}. 
+     * Its size defaults to the maximum size of the connection pool, so workers never 
+     * wait for connections.
+     * @param concurrency number of worker threads
+     * @param queueCapacity number of operations waiting for a worker before rejecting
+     * @return {@link ThreadPoolTaskExecutor}
+     */
+    @Bean
+    public ThreadPoolTaskExecutor createPersonTaskExecutor(
+    		@Value("${addressbook.async.concurrency:${spring.datasource.max-active:100}}") 
+    		final int concurrency, 
+    		@Value("${addressbook.async.queue-capacity:10000}") final int queueCapacity) {
+    	ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    	executor.setCorePoolSize(concurrency);
+    	executor.setMaxPoolSize(concurrency);
+    	executor.setQueueCapacity(queueCapacity);
+    	executor.setThreadNamePrefix("person-async-");
+    	return executor;
+    }
+
+    /**
+     * Bean configuration for {@link AsyncPersonManagementService}.
+     * @param personTaskExecutor worker pool running the operations
+     * @param shardSize number of ids resolved per shard
+     * @return {@link AsyncPersonManagementService}
+     */
+    @Bean
+    public AsyncPersonManagementService createAsyncPersonManagementService(
+    		final ThreadPoolTaskExecutor personTaskExecutor,
+    		@Value("${addressbook.async.shard-size:100}") final int shardSize) {
+    	AsyncPersonManagementServiceImpl asyncPersonManagementService = 
+    			new AsyncPersonManagementServiceImpl();
+    	asyncPersonManagementService.setPersonManagementService(createPersonManagementService());
+    	asyncPersonManagementService.setExecutor(personTaskExecutor);
+    	asyncPersonManagementService.setShardSize(shardSize);
+    	return asyncPersonManagementService;
+    }
+
+    /**
+     * Bean configuration for the {@link PersonNameLoader} of the current HTTP request, 
+     * coalescing the lookups by name of a request into batched queries.
+     * @param personTaskExecutor worker pool running batches dispatched by the window timer
+     * @param maxBatchSize number of names resolved per query
+     * @param batchWindow how long a name waits for further names in milliseconds
+     * @return {@link PersonNameLoader}
+     */
+    @Bean
+    @Scope(value = WebApplicationContext.SCOPE_REQUEST, proxyMode = ScopedProxyMode.TARGET_CLASS)
+    public PersonNameLoader createPersonNameLoader(
+    		final ThreadPoolTaskExecutor personTaskExecutor,
+    		@Value("${addressbook.lookup.max-batch-size:256}") final int maxBatchSize,
+    		@Value("${addressbook.lookup.batch-window:2}") final long batchWindow) {
+    	PersonNameLoader loader = new PersonNameLoader(createPersonManagementService(), 
+    			personTaskExecutor);
+    	loader.setMaxBatchSize(maxBatchSize);
+    	loader.setBatchWindow(batchWindow);
+    	return loader;
+    }
+
+    /**
+     * Bean configuration for {@link PersonScanExecutor}. The number of threads defaults to 
+     * the number of processors, and should not exceed the size of the connection pool.
+     * @param parallelism number of partitions scanned concurrently, 0 for one per processor
+     * @param partitions number of partitions a scan is split into, 0 for four per thread
+     * @return {@link PersonScanExecutor}
+     */
+    @Bean
+    public PersonScanExecutor createPersonScanExecutor(
+    		@Value("${addressbook.scan.parallelism:0}") final int parallelism,
+    		@Value("${addressbook.scan.partitions:0}") final int partitions) {
+    	PersonScanExecutor executor = new PersonScanExecutor(personRepository, transactionManager, 
+    			parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    	if (partitions > 0) {
+    		executor.setPartitions(partitions);
+    	}
+    	return executor;
+    }
+
+    /**
+     * Bean configuration for {@link PersonFileImporter}, configured by the 
+     * <code>addressbook.import.*</code> properties.
+     * @return {@link PersonFileImporter}
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "addressbook.import")
+    public PersonFileImporter createPersonFileImporter() {
+    	PersonFileImporter personFileImporter = new PersonFileImporter();
+    	personFileImporter.setPersonManagementService(createPersonManagementService());
+    	return personFileImporter;
+    }
+
+    /**
+     * Bean configuration instrumenting the connection pool.
+     * @return {@link BeanPostProcessor} wrapping the data source
+     */
+    @Bean
+    public static BeanPostProcessor createInstrumentedDataSourcePostProcessor() {
+    	return new InstrumentedDataSourcePostProcessor();
+    }
+
+    /**
+     * Bean configuration for metrics of {@link PersonRepository} methods. Calls exceeding 
+     * <code>addressbook.metrics.slow-query-threshold</code> are logged. The advisors are 
+     * static so they exist before the repository injected into this configuration.
+     * @param slowQueryThreshold threshold for the slow query log in milliseconds
+     * @return {@link MethodMetricsAdvisor}
+     */
+    @Bean
+    public static MethodMetricsAdvisor createRepositoryMetricsAdvisor(
+    		@Value("${addressbook.metrics.slow-query-threshold:250}") final long slowQueryThreshold) {
+    	MethodMetricsAdvisor advisor = new MethodMetricsAdvisor("repository", PersonRepository.class);
+    	advisor.setSlowThresholdMillis(slowQueryThreshold);
+    	return advisor;
+    }
+
+    /**
+     * Bean configuration for metrics of {@link PersonService} methods.
+     * @return {@link MethodMetricsAdvisor}
+     */
+    @Bean
+    public static MethodMetricsAdvisor createControlMetricsAdvisor() {
+    	return new MethodMetricsAdvisor("control", PersonService.class);
+    }
+
+    /**
+     * Bean configuration for monitoring the persistence context of transactions calling 
+     * {@link PersonService} methods. Transactions exceeding 
+     * <code>addressbook.persistence-context.warn-threshold</code> managed entities are logged, 
+     * from <code>addressbook.persistence-context.clear-threshold</code> the persistence 
+     * context is flushed and cleared.
+     * @param warnThreshold number of entities to warn about, 0 to disable
+     * @param clearThreshold number of entities to clear at, 0 to disable
+     * @return {@link PersistenceContextMonitor}
+     */
+    @Bean
+    public static PersistenceContextMonitor createPersistenceContextMonitor(
+    		@Value("${addressbook.persistence-context.warn-threshold:10000}") final int warnThreshold,
+    		@Value("${addressbook.persistence-context.clear-threshold:0}") final int clearThreshold) {
+    	PersistenceContextMonitor monitor = new PersistenceContextMonitor(PersonService.class);
+    	monitor.setWarnThreshold(warnThreshold);
+    	monitor.setClearThreshold(clearThreshold);
+    	return monitor;
+    }
+
+    /**
+     * Bean configuration for metrics of {@link PersonManagementService} methods.
+     * @return {@link MethodMetricsAdvisor}
+     */
+    @Bean
+    public static MethodMetricsAdvisor createBoundaryMetricsAdvisor() {
+    	return new MethodMetricsAdvisor("boundary", PersonManagementService.class);
+    }
+
     /**
      * Sets the {@link PersonRepository}.
      * @param personRepository the repository
@@ -75,4 +345,67 @@ public class Application {
     	this.personRepository = personRepository;
     }
 
+    /**
+     * Sets the {@link PlatformTransactionManager}.
+     * @param transactionManager the transaction manager
+     */
+    @Autowired
+    public void setTransactionManager(final PlatformTransactionManager transactionManager) {
+    	this.transactionManager = transactionManager;
+    }
+
+    /**
+     * Sets the maximum time between two reconciliations of {@link PersonStatistics}.
+     * @param statisticsReconcileInterval the interval in milliseconds
+     */
+    @Value("${addressbook.statistics.reconcile-interval:3600000}")
+    public void setStatisticsReconcileInterval(final long statisticsReconcileInterval) {
+    	this.statisticsReconcileInterval = statisticsReconcileInterval;
+    }
+
+    /**
+     * Sets the number of {@link Person}s to save before flushing during imports.
+     * @param importBatchSize the import batch size
+     */
+    @Value("${addressbook.import.batch-size:50}")
+    public void setImportBatchSize(final int importBatchSize) {
+    	this.importBatchSize = importBatchSize;
+    }
+
+    /**
+     * Sets the number of {@link Person}s removed per statement during bulk deletes.
+     * @param bulkDeleteBatchSize the bulk delete batch size
+     */
+    @Value("${addressbook.bulk.delete-batch-size:500}")
+    public void setBulkDeleteBatchSize(final int bulkDeleteBatchSize) {
+    	this.bulkDeleteBatchSize = bulkDeleteBatchSize;
+    }
+
+    /**
+     * Sets the number of {@link Person}s updated per transaction by batched updates.
+     * @param updateChunkSize the chunk size
+     */
+    @Value("${addressbook.update.chunk-size:100}")
+    public void setUpdateChunkSize(final int updateChunkSize) {
+    	this.updateChunkSize = updateChunkSize;
+    }
+
+    /**
+     * Sets how often batched updates try to update a conflicting {@link Person}.
+     * @param maxUpdateAttempts the maximum number of attempts
+     */
+    @Value("${addressbook.update.max-attempts:5}")
+    public void setMaxUpdateAttempts(final int maxUpdateAttempts) {
+    	this.maxUpdateAttempts = maxUpdateAttempts;
+    }
+
+    /**
+     * Sets the random backoff of batched updates before retrying conflicting {@link Person}s.
+     * @param updateRetryBackoff the backoff in milliseconds
+     */
+    @Value("${addressbook.update.retry-backoff:10}")
+    public void setUpdateRetryBackoff(final long updateRetryBackoff) {
+    	this.updateRetryBackoff = updateRetryBackoff;
+    }
+
 }
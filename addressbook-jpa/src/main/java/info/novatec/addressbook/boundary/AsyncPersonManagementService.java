@@ -0,0 +1,75 @@
+package info.novatec.addressbook.boundary;
+
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Person;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link PersonManagementService}. Every operation runs in its 
+ * own transaction on a worker pool whose size is bounded by the number of database 
+ * connections, so callers never block on JDBC. If the pool and its queue are exhausted 
+ * the returned future completes exceptionally with a 
+ * {@link java.util.concurrent.RejectedExecutionException}.
+ */
+public interface AsyncPersonManagementService {
+
+	/**
+	 * Creates a new {@link Person} for given parameters and {@link Address}es.
+	 * @param firstName first name
+	 * @param lastName last name
+	 * @param birthDate birth date
+	 * @param address {@link Address}es for {@link Person} to create
+	 * @return the created {@link Person}
+	 * @see PersonManagementService#createPerson(String, String, Date, Address...)
+	 */
+	CompletableFuture<Person> createPerson(String firstName, String lastName, Date birthDate, 
+			Address... address);
+
+	/**
+	 * Returns the number of {@link Person}s available.
+	 * @return the number of {@link Person}s
+	 */
+	CompletableFuture<Long> count();
+
+	/**
+	 * Retrieves a {@link Person} by its id.
+	 * @param id must not be {@literal null}.
+	 * @return the {@link Person} with the given id or {@literal null} if none found
+	 */
+	CompletableFuture<Person> findOne(Long id);
+
+	/**
+	 * Retrieves a {@link Person} by its id together with {@link Address}es.
+	 * @param id must not be {@literal null}.
+	 * @return the {@link Person} with the given id or {@literal null} if none found
+	 */
+	CompletableFuture<Person> findOneWithAddresses(Long id);
+
+	/**
+	 * Retrieves a {@link Person} for given first name and last name.
+	 * @param firstName first name
+	 * @param lastName last name
+	 * @return the {@link Person} or {@literal null} if none found
+	 */
+	CompletableFuture<Person> findByFirstNameAndLastName(String firstName, String lastName);
+
+	/**
+	 * Retrieves a list of {@link Person}s living in given city.
+	 * @param city city {@link Person}s are living in
+	 * @return the list of {@link Person}s or {@literal empty} if none found
+	 */
+	CompletableFuture<List<Person>> findAllLivingInCity(String city);
+
+	/**
+	 * Retrieves all {@link Person}s with the given ids. The ids are split into shards 
+	 * that are resolved in parallel, each in its own read-only transaction, and the 
+	 * results are concatenated in shard order.
+	 * @param ids ids for {@link Person}s
+	 * @return all {@link Person}s having given ids
+	 */
+	CompletableFuture<List<Person>> findAll(Iterable<Long> ids);
+
+}
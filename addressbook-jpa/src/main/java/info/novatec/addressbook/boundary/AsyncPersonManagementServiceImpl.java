@@ -0,0 +1,127 @@
+package info.novatec.addressbook.boundary;
+
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Person;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import org.springframework.util.Assert;
+
+/**
+ * Standard implementation for {@link AsyncPersonManagementService} delegating to the 
+ * transactional {@link PersonManagementService} on a bounded {@link Executor}.
+ */
+public class AsyncPersonManagementServiceImpl implements AsyncPersonManagementService {
+	private static final int DEFAULT_SHARD_SIZE = 100;
+	
+	private PersonManagementService personManagementService;
+	
+	private Executor executor;
+	
+	private int shardSize = DEFAULT_SHARD_SIZE;
+
+	@Override
+	public CompletableFuture<Person> createPerson(final String firstName, final String lastName,
+			final Date birthDate, final Address... address) {
+		return supply(() -> personManagementService.createPerson(firstName, lastName, birthDate, 
+				address));
+	}
+
+	@Override
+	public CompletableFuture<Long> count() {
+		return supply(() -> personManagementService.count());
+	}
+
+	@Override
+	public CompletableFuture<Person> findOne(final Long id) {
+		return supply(() -> personManagementService.findOne(id));
+	}
+
+	@Override
+	public CompletableFuture<Person> findOneWithAddresses(final Long id) {
+		return supply(() -> personManagementService.findOneWithAddresses(id));
+	}
+
+	@Override
+	public CompletableFuture<Person> findByFirstNameAndLastName(final String firstName, 
+			final String lastName) {
+		return supply(() -> personManagementService.findByFirstNameAndLastName(firstName, lastName));
+	}
+
+	@Override
+	public CompletableFuture<List<Person>> findAllLivingInCity(final String city) {
+		return supply(() -> personManagementService.findAllLivingInCity(city));
+	}
+
+	@Override
+	public CompletableFuture<List<Person>> findAll(final Iterable<Long> ids) {
+		final List<CompletableFuture<List<Person>>> shards = 
+				new ArrayList<CompletableFuture<List<Person>>>();
+		List<Long> shard = new ArrayList<Long>(shardSize);
+		for (Long id : ids) {
+			shard.add(id);
+			if (shard.size() == shardSize) {
+				shards.add(findShard(shard));
+				shard = new ArrayList<Long>(shardSize);
+			}
+		}
+		if (!shard.isEmpty()) {
+			shards.add(findShard(shard));
+		}
+		
+		return CompletableFuture.allOf(shards.toArray(new CompletableFuture<?>[shards.size()]))
+				.thenApply(done -> {
+					List<Person> persons = new ArrayList<Person>();
+					for (CompletableFuture<List<Person>> result : shards) {
+						persons.addAll(result.join());
+					}
+					return persons;
+				});
+	}
+
+	private CompletableFuture<List<Person>> findShard(final List<Long> ids) {
+		return supply(() -> personManagementService.findAll(ids));
+	}
+
+	private <T> CompletableFuture<T> supply(final Supplier<T> operation) {
+		try {
+			return CompletableFuture.supplyAsync(operation, executor);
+		} catch (RejectedExecutionException ex) {
+			CompletableFuture<T> rejected = new CompletableFuture<T>();
+			rejected.completeExceptionally(ex);
+			return rejected;
+		}
+	}
+
+	/**
+	 * Sets the transactional {@link PersonManagementService} to delegate to.
+	 * @param personManagementService the {@link PersonManagementService}
+	 */
+	public void setPersonManagementService(final PersonManagementService personManagementService) {
+		this.personManagementService = personManagementService;
+	}
+
+	/**
+	 * Sets the {@link Executor} running the operations. Its concurrency should not exceed 
+	 * the size of the connection pool.
+	 * @param executor the {@link Executor}
+	 */
+	public void setExecutor(final Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets the number of ids resolved per shard by {@link #findAll(Iterable)}.
+	 * @param shardSize the shard size
+	 */
+	public void setShardSize(final int shardSize) {
+		Assert.isTrue(shardSize > 0, "Shard size must be positive");
+		this.shardSize = shardSize;
+	}
+}
@@ -0,0 +1,79 @@
+package info.novatec.addressbook.boundary;
+
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.outbox.PersonChange;
+import info.novatec.addressbook.outbox.PersonChangeLog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.rest.webmvc.RepositoryRestController;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resources;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Adds a change feed to the <code>/person</code> resource exported by Spring Data REST,
+ * so consumers fetch the changes since the offset they processed last instead of
+ * polling all {@link Person}s. Each page links to the next one, the last page to itself
+ * for polling.
+ */
+@RepositoryRestController
+public class PersonChangeController {
+	private static final int MAX_PAGE_SIZE = 1000;
+
+	private PersonChangeLog personChangeLog;
+
+	/**
+	 * Retrieves the changes following an offset.
+	 * @param after offset of the last change processed, 0 for all changes
+	 * @param size the page size
+	 * @return the changes in offset order
+	 */
+	@RequestMapping(value = "/person/changes", method = RequestMethod.GET)
+	@ResponseBody
+	public ResponseEntity<Resources<PersonChange>> findChanges(
+			@RequestParam(value = "after", defaultValue = "0") final long after,
+			@RequestParam(value = "size", defaultValue = "100") final int size) {
+		if (after < 0) {
+			throw new IllegalArgumentException("Offset must not be negative");
+		}
+		List<PersonChange> changes = personChangeLog.read(after,
+				Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+		long last = changes.isEmpty() ? after : changes.get(changes.size() - 1).getOffset();
+
+		List<Link> links = new ArrayList<Link>();
+		links.add(new Link(ServletUriComponentsBuilder.fromCurrentRequest().build().toUriString()));
+		links.add(new Link(ServletUriComponentsBuilder.fromCurrentRequest()
+				.replaceQueryParam("after", last).build().toUriString(), Link.REL_NEXT));
+		return ResponseEntity.ok(new Resources<PersonChange>(changes, links));
+	}
+
+	/**
+	 * Maps invalid parameters to <code>400 Bad Request</code>.
+	 * @param ex the exception
+	 * @return the error response
+	 */
+	@ExceptionHandler(IllegalArgumentException.class)
+	@ResponseBody
+	public ResponseEntity<String> handleIllegalArgument(final IllegalArgumentException ex) {
+		return new ResponseEntity<String>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+	}
+
+	/**
+	 * Sets the {@link PersonChangeLog} to read changes from.
+	 * @param personChangeLog the {@link PersonChangeLog}
+	 */
+	@Autowired
+	public void setPersonChangeLog(final PersonChangeLog personChangeLog) {
+		this.personChangeLog = personChangeLog;
+	}
+}
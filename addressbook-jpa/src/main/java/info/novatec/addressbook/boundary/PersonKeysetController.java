@@ -0,0 +1,170 @@
+package info.novatec.addressbook.boundary;
+
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.repository.KeysetOrder;
+import info.novatec.addressbook.repository.KeysetSlice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.rest.webmvc.PersistentEntityResource;
+import org.springframework.data.rest.webmvc.PersistentEntityResourceAssembler;
+import org.springframework.data.rest.webmvc.RepositoryRestController;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resources;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Adds keyset paginated search resources to the <code>/person</code> resource 
+ * exported by Spring Data REST. Each page links to the next one with an opaque 
+ * continuation token instead of a page number.
+ */
+@RepositoryRestController
+@RequestMapping(value = "/person/search/keyset", method = RequestMethod.GET)
+public class PersonKeysetController {
+	private static final String CONTINUATION = "continuation";
+	
+	private static final int MAX_PAGE_SIZE = 1000;
+	
+	private PersonManagementService personManagementService;
+
+	/**
+	 * Retrieves a page of all {@link Person}s.
+	 * @param order the {@link KeysetOrder}
+	 * @param continuation the continuation token of the previous page
+	 * @param size the page size
+	 * @param assembler assembler for {@link Person} resources
+	 * @return the page of {@link Person}s
+	 */
+	@RequestMapping
+	@ResponseBody
+	public ResponseEntity<Resources<PersistentEntityResource>> findAll(
+			@RequestParam(value = "order", defaultValue = "ID") final KeysetOrder order,
+			@RequestParam(value = CONTINUATION, required = false) final String continuation,
+			@RequestParam(value = "size", defaultValue = "20") final int size,
+			final PersistentEntityResourceAssembler assembler) {
+		return toResponse(personManagementService.findAll(order, continuation, pageSize(size)), 
+				assembler);
+	}
+
+	/**
+	 * Retrieves a page of {@link Person}s that are 'of age'.
+	 * @param continuation the continuation token of the previous page
+	 * @param size the page size
+	 * @param assembler assembler for {@link Person} resources
+	 * @return the page of {@link Person}s
+	 */
+	@RequestMapping("/ofAge")
+	@ResponseBody
+	public ResponseEntity<Resources<PersistentEntityResource>> findAllOfAge(
+			@RequestParam(value = CONTINUATION, required = false) final String continuation,
+			@RequestParam(value = "size", defaultValue = "20") final int size,
+			final PersistentEntityResourceAssembler assembler) {
+		return toResponse(personManagementService.findAllOfAge(continuation, pageSize(size)), 
+				assembler);
+	}
+
+	/**
+	 * Retrieves a page of {@link Person}s that are 'minor'.
+	 * @param continuation the continuation token of the previous page
+	 * @param size the page size
+	 * @param assembler assembler for {@link Person} resources
+	 * @return the page of {@link Person}s
+	 */
+	@RequestMapping("/minors")
+	@ResponseBody
+	public ResponseEntity<Resources<PersistentEntityResource>> findAllMinors(
+			@RequestParam(value = CONTINUATION, required = false) final String continuation,
+			@RequestParam(value = "size", defaultValue = "20") final int size,
+			final PersistentEntityResourceAssembler assembler) {
+		return toResponse(personManagementService.findAllMinors(continuation, pageSize(size)), 
+				assembler);
+	}
+
+	/**
+	 * Retrieves a page of {@link Person}s living in given city.
+	 * @param city the city
+	 * @param continuation the continuation token of the previous page
+	 * @param size the page size
+	 * @param assembler assembler for {@link Person} resources
+	 * @return the page of {@link Person}s
+	 */
+	@RequestMapping("/livingInCity")
+	@ResponseBody
+	public ResponseEntity<Resources<PersistentEntityResource>> findAllLivingInCity(
+			@RequestParam("city") final String city,
+			@RequestParam(value = CONTINUATION, required = false) final String continuation,
+			@RequestParam(value = "size", defaultValue = "20") final int size,
+			final PersistentEntityResourceAssembler assembler) {
+		return toResponse(personManagementService.findAllLivingInCity(city, continuation, 
+				pageSize(size)), assembler);
+	}
+
+	/**
+	 * Retrieves a page of {@link Person}s living in any of the given cities.
+	 * @param cities the cities
+	 * @param continuation the continuation token of the previous page
+	 * @param size the page size
+	 * @param assembler assembler for {@link Person} resources
+	 * @return the page of {@link Person}s
+	 */
+	@RequestMapping("/livingInCities")
+	@ResponseBody
+	public ResponseEntity<Resources<PersistentEntityResource>> findAllLivingInCities(
+			@RequestParam("city") final List<String> cities,
+			@RequestParam(value = CONTINUATION, required = false) final String continuation,
+			@RequestParam(value = "size", defaultValue = "20") final int size,
+			final PersistentEntityResourceAssembler assembler) {
+		return toResponse(personManagementService.findAllLivingInCities(cities, continuation, 
+				pageSize(size)), assembler);
+	}
+
+	/**
+	 * Maps invalid continuation tokens and parameters to <code>400 Bad Request</code>.
+	 * @param ex the exception
+	 * @return the error response
+	 */
+	@ExceptionHandler(IllegalArgumentException.class)
+	@ResponseBody
+	public ResponseEntity<String> handleIllegalArgument(final IllegalArgumentException ex) {
+		return new ResponseEntity<String>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+	}
+
+	private static int pageSize(final int size) {
+		return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+	}
+
+	private static ResponseEntity<Resources<PersistentEntityResource>> toResponse(
+			final KeysetSlice slice, final PersistentEntityResourceAssembler assembler) {
+		List<PersistentEntityResource> content = new ArrayList<PersistentEntityResource>();
+		for (Person person : slice.getContent()) {
+			content.add(assembler.toResource(person));
+		}
+		
+		List<Link> links = new ArrayList<Link>();
+		links.add(new Link(ServletUriComponentsBuilder.fromCurrentRequest().build().toUriString()));
+		if (slice.hasNext()) {
+			links.add(new Link(ServletUriComponentsBuilder.fromCurrentRequest()
+					.replaceQueryParam(CONTINUATION, slice.getContinuationToken())
+					.build().toUriString(), Link.REL_NEXT));
+		}
+		return ResponseEntity.ok(new Resources<PersistentEntityResource>(content, links));
+	}
+
+	/**
+	 * Sets the {@link PersonManagementService}.
+	 * @param personManagementService the {@link PersonManagementService}
+	 */
+	@Autowired
+	public void setPersonManagementService(final PersonManagementService personManagementService) {
+		this.personManagementService = personManagementService;
+	}
+}
@@ -1,10 +1,24 @@
 package info.novatec.addressbook.boundary;
 
+import info.novatec.addressbook.control.BatchUpdateResult;
 import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
 import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.projection.PersonSummary;
+import info.novatec.addressbook.projection.PersonWithCity;
+import info.novatec.addressbook.repository.BulkDeleteResult;
+import info.novatec.addressbook.repository.BulkSaveResult;
+import info.novatec.addressbook.repository.KeysetOrder;
+import info.novatec.addressbook.repository.KeysetSlice;
+import info.novatec.addressbook.repository.PersonName;
+import info.novatec.addressbook.search.PersonSearchHit;
+import info.novatec.addressbook.statistics.AgeBucket;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import org.springframework.transaction.annotation.Transactional;
 
@@ -34,6 +48,24 @@ public interface PersonManagementService {
 	@Transactional
 	Person createPerson(String firstName, String lastName, Date birthDate, Address... address);
 	
+	/**
+	 * Imports the given {@link Person}s together with their {@link Address}es in bulk mode.
+	 * Memory consumption is bounded by the import batch size as long as the given 
+	 * {@link Iterable} produces its elements lazily.
+	 * <p>
+	 * The persistence context is flushed and cleared in chunks, so when joining a 
+	 * surrounding transaction every entity it loaded before becomes detached: changes 
+	 * made before the import are written, changes made to those entities afterwards 
+	 * are lost unless they are merged again. Call it outside other work or reload 
+	 * entities needed after the import.
+	 * </p>
+	 * 
+	 * @param persons {@link Person}s to import
+	 * @return the {@link BulkSaveResult} reporting number of rows and throughput
+	 */
+	@Transactional
+	BulkSaveResult importPersons(Iterable<Person> persons);
+	
 	/**
 	 * Deletes a given {@link Person}.
 	 * 
@@ -41,6 +73,78 @@ public interface PersonManagementService {
 	 */	
 	@Transactional
 	void delete(Person person);
+
+	/**
+	 * Applies a change to the {@link Person}s with the given ids in chunks. Every chunk 
+	 * commits in its own transaction, conflicts with concurrent writers are resolved by 
+	 * retrying only the conflicting {@link Person}s.
+	 * 
+	 * @param ids ids of the {@link Person}s to update
+	 * @param change the change to apply, must derive the new state from the loaded one
+	 * @return the {@link BatchUpdateResult} reporting updated and failed {@link Person}s
+	 */
+	BatchUpdateResult updateAll(Iterable<Long> ids, Consumer<? super Person> change);
+
+	/**
+	 * Deletes the {@link Person}s with the given ids together with their {@link Address}es 
+	 * without loading them. Unknown ids are ignored.
+	 * <p>
+	 * When joining a surrounding transaction, {@link Person}s and {@link Address}es it 
+	 * loaded before are only affected if deleted: those become detached. Other entities 
+	 * stay managed.
+	 * </p>
+	 * 
+	 * @param ids ids of the {@link Person}s to delete
+	 * @return the {@link BulkDeleteResult} reporting the affected rows
+	 */
+	@Transactional
+	BulkDeleteResult deleteAllById(Iterable<Long> ids);
+
+	/**
+	 * Deletes all {@link Person}s living in given city together with all of their 
+	 * {@link Address}es without loading them.
+	 * <p>
+	 * When joining a surrounding transaction, {@link Person}s and {@link Address}es it 
+	 * loaded before are only affected if deleted: those become detached. Other entities 
+	 * stay managed.
+	 * </p>
+	 * 
+	 * @param city city {@link Person}s are living in
+	 * @return the {@link BulkDeleteResult} reporting the affected rows
+	 */
+	@Transactional
+	BulkDeleteResult deleteAllLivingInCity(String city);
+
+	/**
+	 * Deletes all {@link Person}s born within the given period together with their 
+	 * {@link Address}es without loading them.
+	 * <p>
+	 * When joining a surrounding transaction, {@link Person}s and {@link Address}es it 
+	 * loaded before are only affected if deleted: those become detached. Other entities 
+	 * stay managed.
+	 * </p>
+	 * 
+	 * @param from earliest birth date (inclusive)
+	 * @param to latest birth date (inclusive)
+	 * @return the {@link BulkDeleteResult} reporting the affected rows
+	 */
+	@Transactional
+	BulkDeleteResult deleteAllBornBetween(Date from, Date to);
+
+	/**
+	 * Moves all {@link Address}es in the given city to another city without loading them.
+	 * <p>
+	 * When joining a surrounding transaction, its pending changes are written first and 
+	 * {@link Address}es of the city it loaded before are refreshed to the new city. Other 
+	 * entities stay managed.
+	 * </p>
+	 * 
+	 * @param city the current city
+	 * @param newCity the new city
+	 * @return number of updated {@link Address}es
+	 */
+	@Transactional
+	int updateCity(String city, String newCity);
 	
 	/**
 	 * Returns the number of {@link Person}s available.
@@ -67,6 +171,132 @@ public interface PersonManagementService {
 	@Transactional(readOnly = true)
 	List<Person> findAll();
 
+	/**
+	 * Returns all instances of the {@link Person} type with the given IDs.
+	 * 
+	 * @param ids ids for {@link Person}s
+	 * @return all {@link Person}s having given ids
+	 */
+	@Transactional(readOnly = true)
+	List<Person> findAll(Iterable<Long> ids);
+
+	/**
+	 * Returns a page of {@link Person}s in the given order. Pages are retrieved by seeking 
+	 * to the key of the previous page, so deep pages are as cheap as the first one.
+	 * 
+	 * @param order the {@link KeysetOrder}
+	 * @param continuationToken token of the previous page or {@literal null} for the first page
+	 * @param size the page size
+	 * @return the {@link KeysetSlice}
+	 */
+	@Transactional(readOnly = true)
+	KeysetSlice findAll(KeysetOrder order, String continuationToken, int size);
+
+	/**
+	 * Returns read-only summaries of all {@link Person}s ordered by name. Only the 
+	 * summarized columns are selected and no entities are managed, so this is the 
+	 * preferred way to populate lists.
+	 * 
+	 * @return all {@link PersonSummary}s
+	 */
+	@Transactional(readOnly = true)
+	List<PersonSummary> findAllSummaries();
+
+	/**
+	 * Returns read-only summaries of all {@link Person}s that are 'of age' ordered by name.
+	 * 
+	 * @return all {@link PersonSummary}s of {@link Person}s that are 'of age'
+	 */
+	@Transactional(readOnly = true)
+	List<PersonSummary> findAllOfAgeSummaries();
+
+	/**
+	 * Returns read-only, flattened projections of all {@link Person}s living in given city 
+	 * ordered by name.
+	 * 
+	 * @param city city {@link Person}s are living in
+	 * @return all {@link PersonWithCity}s
+	 */
+	@Transactional(readOnly = true)
+	List<PersonWithCity> findAllWithCityLivingIn(String city);
+
+	/**
+	 * Returns all instances of the {@link Person} type together with their {@link Address}es.
+	 * Unlike {@link #findAll()} accessing the {@link Address}es does not issue further queries.
+	 * 
+	 * @return all {@link Person}s
+	 */
+	@Transactional(readOnly = true)
+	List<Person> findAllWithAddresses();
+
+	/**
+	 * Returns all instances of the {@link Person} type that are 'of age' together with 
+	 * their {@link Address}es.
+	 * 
+	 * @return all {@link Person}s that are 'of age'
+	 */
+	@Transactional(readOnly = true)
+	List<Person> findAllOfAgeWithAddresses();
+
+	/**
+	 * Returns all instances of the {@link Person} type that are 'minor' together with 
+	 * their {@link Address}es.
+	 * 
+	 * @return all {@link Person}s that are 'minor'
+	 */
+	@Transactional(readOnly = true)
+	List<Person> findAllMinorsWithAddresses();
+
+	/**
+	 * Retrieves a list of {@link Person}s living in given city together with all of their 
+	 * {@link Address}es.
+	 * 
+	 * @param city city {@link Person}s are living in
+	 * @return the list of {@link Person}s or {@literal empty} if none found
+	 */
+	@Transactional(readOnly = true)
+	List<Person> findAllLivingInCityWithAddresses(String city);
+
+	/**
+	 * Passes all instances of the {@link Person} type ordered by id to the given action. 
+	 * {@link Person}s are read with a database cursor and detached after the action 
+	 * returned, so a full scan runs in constant memory.
+	 * 
+	 * @param action action to perform for each {@link Person}
+	 */
+	@Transactional(readOnly = true)
+	void streamAll(Consumer<? super Person> action);
+
+	/**
+	 * Passes all instances of the {@link Person} type that are 'of age' ordered by id to 
+	 * the given action.
+	 * 
+	 * @param action action to perform for each {@link Person}
+	 * @see #streamAll(Consumer)
+	 */
+	@Transactional(readOnly = true)
+	void streamAllOfAge(Consumer<? super Person> action);
+
+	/**
+	 * Passes all instances of the {@link Person} type that are 'minor' ordered by id to 
+	 * the given action.
+	 * 
+	 * @param action action to perform for each {@link Person}
+	 * @see #streamAll(Consumer)
+	 */
+	@Transactional(readOnly = true)
+	void streamAllMinors(Consumer<? super Person> action);
+
+	/**
+	 * Passes all {@link Person}s living in given city ordered by id to the given action.
+	 * 
+	 * @param city city {@link Person}s are living in
+	 * @param action action to perform for each {@link Person}
+	 * @see #streamAll(Consumer)
+	 */
+	@Transactional(readOnly = true)
+	void streamAllLivingInCity(String city, Consumer<? super Person> action);
+
 	/**
 	 * Returns all instances of the {@link Person} type that are 'of age', i.e. older than 18 years.
 	 * 
@@ -74,6 +304,16 @@ public interface PersonManagementService {
 	 */
 	@Transactional(readOnly = true)
 	List<Person> findAllOfAge();
+
+	/**
+	 * Returns a page of {@link Person}s that are 'of age' ordered by name.
+	 * 
+	 * @param continuationToken token of the previous page or {@literal null} for the first page
+	 * @param size the page size
+	 * @return the {@link KeysetSlice}
+	 */
+	@Transactional(readOnly = true)
+	KeysetSlice findAllOfAge(String continuationToken, int size);
 	
 	/**
 	 * Returns all instances of the {@link Person} type that are 'minor', 
@@ -83,6 +323,16 @@ public interface PersonManagementService {
 	 */
 	@Transactional(readOnly = true)
 	List<Person> findAllMinors();	
+
+	/**
+	 * Returns a page of {@link Person}s that are 'minor' ordered by name.
+	 * 
+	 * @param continuationToken token of the previous page or {@literal null} for the first page
+	 * @param size the page size
+	 * @return the {@link KeysetSlice}
+	 */
+	@Transactional(readOnly = true)
+	KeysetSlice findAllMinors(String continuationToken, int size);
 	
 	/**
 	 * Returns all instances of the {@link Person} type that are 'of age', i.e. older than 18 years 
@@ -122,6 +372,17 @@ public interface PersonManagementService {
 	@Transactional(readOnly = true)
 	Person findByFirstNameAndLastName(String firstName, String lastName);
 
+	/**
+	 * Retrieves the {@link Person}s with the given names with one query per 256 names 
+	 * instead of one query per name, e.g. to match a batch of records.
+	 * 
+	 * @param names the names
+	 * @return the {@link Person}s per name, without entries for names nobody has
+	 * @see PersonNameLoader
+	 */
+	@Transactional(readOnly = true)
+	Map<PersonName, Person> findAllByFirstNameAndLastName(Collection<PersonName> names);
+
 	/**
 	 * Retrieves a list of {@link Person}s living in given city.
 	 * 
@@ -131,6 +392,87 @@ public interface PersonManagementService {
 	@Transactional(readOnly = true)
 	List<Person> findAllLivingInCity(String city);
 
+	/**
+	 * Retrieves the {@link Person}s living in each of the given cities with a single query 
+	 * instead of one query per city.
+	 * 
+	 * @param cities the cities
+	 * @return the {@link Person}s per city ordered by name, empty for cities nobody lives in
+	 */
+	@Transactional(readOnly = true)
+	Map<String, List<Person>> findAllLivingInCities(Collection<String> cities);
+
+	/**
+	 * Returns the number of {@link Person}s per {@link AgeBucket} from in-memory aggregates.
+	 * 
+	 * @return counts for all {@link AgeBucket}s
+	 */
+	Map<AgeBucket, Long> countByAgeBucket();
+
+	/**
+	 * Returns the number of {@link Person}s that are <em>of age</em> from in-memory aggregates.
+	 * 
+	 * @return number of {@link Person}s of age
+	 */
+	long countOfAge();
+
+	/**
+	 * Returns the number of {@link Person}s that are <em>minor</em> from in-memory aggregates.
+	 * 
+	 * @return number of minors
+	 */
+	long countMinors();
+
+	/**
+	 * Returns the number of {@link Person}s having an address per {@link Country} from 
+	 * in-memory aggregates.
+	 * 
+	 * @return counts for all {@link Country}s
+	 */
+	Map<Country, Long> countByCountry();
+
+	/**
+	 * Returns the number of {@link Person}s living in given city from in-memory aggregates.
+	 * 
+	 * @param city city {@link Person}s are living in
+	 * @return number of {@link Person}s
+	 */
+	long countLivingInCity(String city);
+
+	/**
+	 * Retrieves a page of {@link Person}s living in given city ordered by name.
+	 * 
+	 * @param city city {@link Person}s are living in
+	 * @param continuationToken token of the previous page or {@literal null} for the first page
+	 * @param size the page size
+	 * @return the {@link KeysetSlice}
+	 */
+	@Transactional(readOnly = true)
+	KeysetSlice findAllLivingInCity(String city, String continuationToken, int size);
+
+	/**
+	 * Retrieves a page of {@link Person}s living in any of the given cities ordered by name.
+	 * 
+	 * @param cities the cities
+	 * @param continuationToken token of the previous page or {@literal null} for the first page
+	 * @param size the page size
+	 * @return the {@link KeysetSlice}
+	 */
+	@Transactional(readOnly = true)
+	KeysetSlice findAllLivingInCities(Collection<String> cities, String continuationToken, 
+			int size);
+
+	/**
+	 * Searches {@link Person}s by possibly misspelled or partial first name, last name, 
+	 * city or street. The search is answered from an in-memory index reflecting 
+	 * committed changes, so it needs no transaction.
+	 * 
+	 * @param query the search words
+	 * @param maxResults maximum number of hits
+	 * @return hits ordered by descending relevance
+	 */
+	List<PersonSearchHit> search(String query, int maxResults);
+
 	/**
 	 * Get {@link Person} with addresses.
 	 * @param id id of person
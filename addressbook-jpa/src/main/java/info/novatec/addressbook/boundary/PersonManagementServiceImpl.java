@@ -1,12 +1,27 @@
 package info.novatec.addressbook.boundary;
 
+import info.novatec.addressbook.control.BatchUpdateResult;
 import info.novatec.addressbook.control.PersonService;
 import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
 import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.projection.PersonSummary;
+import info.novatec.addressbook.projection.PersonWithCity;
+import info.novatec.addressbook.repository.BulkDeleteResult;
+import info.novatec.addressbook.repository.BulkSaveResult;
+import info.novatec.addressbook.repository.KeysetOrder;
+import info.novatec.addressbook.repository.KeysetSlice;
+import info.novatec.addressbook.repository.PersonName;
+import info.novatec.addressbook.search.PersonSearchHit;
+import info.novatec.addressbook.statistics.AgeBucket;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Standard implementation for {@link PersonManagementService}.
@@ -28,16 +43,46 @@ public class PersonManagementServiceImpl implements PersonManagementService {
 		Person person = new Person(firstName, lastName, birthDate, new HashSet<Address>());
 		for (int i = 0; i < address.length; i++) {
 			person.addAddress(address[i]);
-			address[i].setPerson(person);
 		}
 		return personService.save(person);
 	}
 
+	@Override
+	public BulkSaveResult importPersons(final Iterable<Person> persons) {
+		return personService.importPersons(persons);
+	}
+
 	@Override
 	public void delete(final Person person) {
 		personService.delete(person);
 	}
 
+	@Override
+	public BatchUpdateResult updateAll(final Iterable<Long> ids, 
+			final Consumer<? super Person> change) {
+		return personService.updateAll(ids, change);
+	}
+
+	@Override
+	public BulkDeleteResult deleteAllById(final Iterable<Long> ids) {
+		return personService.deleteAllById(ids);
+	}
+
+	@Override
+	public BulkDeleteResult deleteAllLivingInCity(final String city) {
+		return personService.deleteAllLivingInCity(city);
+	}
+
+	@Override
+	public BulkDeleteResult deleteAllBornBetween(final Date from, final Date to) {
+		return personService.deleteAllBornBetween(from, to);
+	}
+
+	@Override
+	public int updateCity(final String city, final String newCity) {
+		return personService.updateCity(city, newCity);
+	}
+
 	@Override
 	public long count() {
 		return personService.count();
@@ -52,16 +97,130 @@ public class PersonManagementServiceImpl implements PersonManagementService {
 	public List<Person> findAll() {
 		return personService.findAll();
 	}
+
+	@Override
+	public List<PersonSummary> findAllSummaries() {
+		return personService.findAllSummaries();
+	}
+
+	@Override
+	public List<PersonSummary> findAllOfAgeSummaries() {
+		return personService.findAllOfAgeSummaries();
+	}
+
+	@Override
+	public List<PersonWithCity> findAllWithCityLivingIn(final String city) {
+		return personService.findAllWithCityLivingIn(city);
+	}
+
+	@Override
+	public List<Person> findAllWithAddresses() {
+		return personService.findAllWithAddresses();
+	}
+
+	@Override
+	public List<Person> findAllOfAgeWithAddresses() {
+		return personService.findAllOfAgeWithAddresses();
+	}
+
+	@Override
+	public List<Person> findAllMinorsWithAddresses() {
+		return personService.findAllMinorsWithAddresses();
+	}
+
+	@Override
+	public List<Person> findAllLivingInCityWithAddresses(final String city) {
+		return personService.findAllLivingInCityWithAddresses(city);
+	}
+
+	@Override
+	public List<Person> findAll(final Iterable<Long> ids) {
+		return personService.findAll(ids);
+	}
+
+	@Override
+	public Map<AgeBucket, Long> countByAgeBucket() {
+		return personService.countByAgeBucket();
+	}
+
+	@Override
+	public long countOfAge() {
+		return personService.countOfAge();
+	}
+
+	@Override
+	public long countMinors() {
+		return personService.countMinors();
+	}
+
+	@Override
+	public Map<Country, Long> countByCountry() {
+		return personService.countByCountry();
+	}
+
+	@Override
+	public long countLivingInCity(final String city) {
+		return personService.countLivingInCity(city);
+	}
+
+	@Override
+	public List<PersonSearchHit> search(final String query, final int maxResults) {
+		return personService.search(query, maxResults);
+	}
+
+	@Override
+	public void streamAll(final Consumer<? super Person> action) {
+		try (Stream<Person> persons = personService.streamAll()) {
+			persons.forEachOrdered(action);
+		}
+	}
+
+	@Override
+	public void streamAllOfAge(final Consumer<? super Person> action) {
+		try (Stream<Person> persons = personService.streamAllOfAge()) {
+			persons.forEachOrdered(action);
+		}
+	}
+
+	@Override
+	public void streamAllMinors(final Consumer<? super Person> action) {
+		try (Stream<Person> persons = personService.streamAllMinors()) {
+			persons.forEachOrdered(action);
+		}
+	}
+
+	@Override
+	public void streamAllLivingInCity(final String city, final Consumer<? super Person> action) {
+		try (Stream<Person> persons = personService.streamAllLivingInCity(city)) {
+			persons.forEachOrdered(action);
+		}
+	}
+
+	@Override
+	public KeysetSlice findAll(final KeysetOrder order, final String continuationToken, 
+			final int size) {
+		return personService.findAll(order, continuationToken, size);
+	}
 	
 	@Override
 	public List<Person> findAllOfAge() {
 		return personService.findAllOfAge();
 	}
+
+	@Override
+	public KeysetSlice findAllOfAge(final String continuationToken, final int size) {
+		return personService.findAllOfAge(continuationToken, size);
+	}
 	
 	@Override
 	public List<Person> findAllMinors() {
 		return personService.findAllMinors();
 	}
+
+	@Override
+	public KeysetSlice findAllMinors(final String continuationToken, final int size) {
+		return personService.findAllMinors(continuationToken, size);
+	}
 	
 	@Override
 	public List<Person> findAllOfAgeWithLastName(final String lastName) {
@@ -82,12 +241,35 @@ public class PersonManagementServiceImpl implements PersonManagementService {
 	public Person findByFirstNameAndLastName(final String firstName, final String lastName) {
 		return personService.findByFirstNameAndLastName(firstName, lastName);
 	}
+
+	@Override
+	public Map<PersonName, Person> findAllByFirstNameAndLastName(
+			final Collection<PersonName> names) {
+		return personService.findAllByFirstNameAndLastName(names);
+	}
 	
 	@Override
 	public List<Person> findAllLivingInCity(final String city) {
 		return personService.findAllLivingInCity(city);
 	}
 
+	@Override
+	public Map<String, List<Person>> findAllLivingInCities(final Collection<String> cities) {
+		return personService.findAllLivingInCities(cities);
+	}
+
+	@Override
+	public KeysetSlice findAllLivingInCities(final Collection<String> cities, 
+			final String continuationToken, final int size) {
+		return personService.findAllLivingInCities(cities, continuationToken, size);
+	}
+
+	@Override
+	public KeysetSlice findAllLivingInCity(final String city, final String continuationToken, 
+			final int size) {
+		return personService.findAllLivingInCity(city, continuationToken, size);
+	}
+
 	@Override
 	public Person getOneById(Long id) {
 		return personService.getOneById(id);
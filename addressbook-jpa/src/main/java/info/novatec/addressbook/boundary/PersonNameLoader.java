@@ -0,0 +1,227 @@
+package info.novatec.addressbook.boundary;
+
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.repository.PersonName;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.util.Assert;
+
+/**
+ * Data loader coalescing single lookups of {@link Person}s by name into batched calls of
+ * {@link PersonManagementService#findAllByFirstNameAndLastName(Collection)}. Names
+ * requested concurrently are collected until the batch is full or the batch window has
+ * elapsed since the first pending name, then resolved with one query on the given
+ * {@link Executor}. If the {@link Executor} rejects a batch, its names fail with the
+ * {@link RejectedExecutionException} and are requested again by the next load. Results
+ * are cached for the lifetime of the loader, so a loader is meant to be used for one
+ * request or one batch of records, not shared application wide.
+ * <p>
+ * This class is thread safe.
+ */
+public class PersonNameLoader {
+	private static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+	private static final long DEFAULT_BATCH_WINDOW = 2;
+
+	private static final ScheduledExecutorService WINDOW_TIMER =
+			Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					Thread thread = new Thread(runnable, "person-name-loader");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	private final PersonManagementService personManagementService;
+
+	private final Executor executor;
+
+	private final Map<PersonName, CompletableFuture<Person>> loaded =
+			new ConcurrentHashMap<PersonName, CompletableFuture<Person>>();
+
+	private Map<PersonName, CompletableFuture<Person>> pending =
+			new LinkedHashMap<PersonName, CompletableFuture<Person>>();
+
+	private ScheduledFuture<?> scheduledDispatch;
+
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+	private long batchWindow = DEFAULT_BATCH_WINDOW;
+
+	/**
+	 * Constructor.
+	 * @param personManagementService the {@link PersonManagementService} resolving batches
+	 * @param executor the {@link Executor} running the batches dispatched by the window timer
+	 */
+	public PersonNameLoader(final PersonManagementService personManagementService,
+			final Executor executor) {
+		super();
+		this.personManagementService = personManagementService;
+		this.executor = executor;
+	}
+
+	/**
+	 * Requests the {@link Person} with the given name.
+	 * @param firstName first name
+	 * @param lastName last name
+	 * @return future of the {@link Person}, completed with {@literal null} if none found
+	 */
+	public CompletableFuture<Person> load(final String firstName, final String lastName) {
+		return load(new PersonName(firstName, lastName));
+	}
+
+	/**
+	 * Requests the {@link Person} with the given name. The future is completed by the
+	 * batch containing the name, or immediately if the name has been requested before.
+	 * @param name the name
+	 * @return future of the {@link Person}, completed with {@literal null} if none found
+	 */
+	public CompletableFuture<Person> load(final PersonName name) {
+		CompletableFuture<Person> person = loaded.get(name);
+		if (person != null) {
+			return person;
+		}
+		boolean full;
+		synchronized (this) {
+			person = loaded.get(name);
+			if (person != null) {
+				return person;
+			}
+			person = new CompletableFuture<Person>();
+			loaded.put(name, person);
+			pending.put(name, person);
+			full = pending.size() >= maxBatchSize;
+			if (!full && scheduledDispatch == null) {
+				scheduledDispatch = WINDOW_TIMER.schedule(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							executor.execute(PersonNameLoader.this::dispatch);
+						} catch (RejectedExecutionException ex) {
+							reject(ex);
+						}
+					}
+				}, batchWindow, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (full) {
+			dispatch();
+		}
+		return person;
+	}
+
+	/**
+	 * Resolves the {@link Person}s with the given names, dispatching pending names
+	 * right away instead of waiting for the batch window.
+	 * @param names the names
+	 * @return the {@link Person}s per name, without entries for names nobody has
+	 */
+	public Map<PersonName, Person> loadAll(final Collection<PersonName> names) {
+		List<CompletableFuture<Person>> persons = new ArrayList<CompletableFuture<Person>>();
+		for (PersonName name : names) {
+			persons.add(load(name));
+		}
+		dispatch();
+
+		Map<PersonName, Person> found = new LinkedHashMap<PersonName, Person>();
+		for (CompletableFuture<Person> person : persons) {
+			Person result = person.join();
+			if (result != null) {
+				found.put(PersonName.of(result), result);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Resolves all pending names in the calling thread.
+	 */
+	public void dispatch() {
+		Map<PersonName, CompletableFuture<Person>> batch;
+		synchronized (this) {
+			if (scheduledDispatch != null) {
+				scheduledDispatch.cancel(false);
+				scheduledDispatch = null;
+			}
+			if (pending.isEmpty()) {
+				return;
+			}
+			batch = pending;
+			pending = new LinkedHashMap<PersonName, CompletableFuture<Person>>();
+		}
+
+		try {
+			Map<PersonName, Person> found =
+					personManagementService.findAllByFirstNameAndLastName(batch.keySet());
+			for (Map.Entry<PersonName, CompletableFuture<Person>> entry : batch.entrySet()) {
+				entry.getValue().complete(found.get(entry.getKey()));
+			}
+		} catch (RuntimeException ex) {
+			fail(batch, ex);
+		}
+	}
+
+	/**
+	 * Fails all pending names if the executor rejected their batch, without blocking the
+	 * window timer shared by all loaders with the query.
+	 */
+	private void reject(final RejectedExecutionException ex) {
+		Map<PersonName, CompletableFuture<Person>> batch;
+		synchronized (this) {
+			scheduledDispatch = null;
+			batch = pending;
+			pending = new LinkedHashMap<PersonName, CompletableFuture<Person>>();
+		}
+		fail(batch, ex);
+	}
+
+	private void fail(final Map<PersonName, CompletableFuture<Person>> batch,
+			final RuntimeException ex) {
+		for (Map.Entry<PersonName, CompletableFuture<Person>> entry : batch.entrySet()) {
+			// failed names are requested again by the next load
+			loaded.remove(entry.getKey(), entry.getValue());
+			entry.getValue().completeExceptionally(ex);
+		}
+	}
+
+	/**
+	 * Discards the cached results, e.g. after the {@link Person}s have been changed.
+	 */
+	public void clear() {
+		loaded.clear();
+	}
+
+	/**
+	 * Sets the maximum number of names resolved by one query, 256 by default.
+	 * @param maxBatchSize the maximum batch size, must be positive
+	 */
+	public void setMaxBatchSize(final int maxBatchSize) {
+		Assert.isTrue(maxBatchSize > 0, "Max batch size must be positive");
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Sets the time in milliseconds a batch waits after its first name for further names 
+	 * before it is resolved, 2 by default. A full batch is resolved right away.
+	 * @param batchWindow the batch window in milliseconds, must not be negative
+	 */
+	public void setBatchWindow(final long batchWindow) {
+		Assert.isTrue(batchWindow >= 0, "Batch window must not be negative");
+		this.batchWindow = batchWindow;
+	}
+}
@@ -0,0 +1,85 @@
+package info.novatec.addressbook.boundary;
+
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.search.PersonSearchHit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.rest.webmvc.RepositoryRestController;
+import org.springframework.data.rest.webmvc.support.RepositoryEntityLinks;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.Resources;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Adds a ranked, typo tolerant search resource to the <code>/person</code> resource 
+ * exported by Spring Data REST. Hits link to their {@link Person} resource.
+ */
+@RepositoryRestController
+public class PersonSearchController {
+	private static final int MAX_RESULTS = 100;
+	
+	private PersonManagementService personManagementService;
+	
+	private RepositoryEntityLinks entityLinks;
+
+	/**
+	 * Searches {@link Person}s by name, city or street.
+	 * @param query the search words
+	 * @param max maximum number of hits
+	 * @return the hits ordered by descending relevance
+	 */
+	@RequestMapping(value = "/person/search/fuzzy", method = RequestMethod.GET)
+	@ResponseBody
+	public ResponseEntity<Resources<Resource<PersonSearchHit>>> search(
+			@RequestParam("q") final String query,
+			@RequestParam(value = "max", defaultValue = "20") final int max) {
+		List<Resource<PersonSearchHit>> content = new ArrayList<Resource<PersonSearchHit>>();
+		for (PersonSearchHit hit : personManagementService.search(query, 
+				Math.max(1, Math.min(max, MAX_RESULTS)))) {
+			content.add(new Resource<PersonSearchHit>(hit, 
+					entityLinks.linkToSingleResource(Person.class, hit.getPersonId())));
+		}
+		Link self = new Link(ServletUriComponentsBuilder.fromCurrentRequest().build().toUriString());
+		return ResponseEntity.ok(new Resources<Resource<PersonSearchHit>>(content, self));
+	}
+
+	/**
+	 * Maps invalid parameters to <code>400 Bad Request</code>.
+	 * @param ex the exception
+	 * @return the error response
+	 */
+	@ExceptionHandler(IllegalArgumentException.class)
+	@ResponseBody
+	public ResponseEntity<String> handleIllegalArgument(final IllegalArgumentException ex) {
+		return new ResponseEntity<String>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+	}
+
+	/**
+	 * Sets the {@link PersonManagementService}.
+	 * @param personManagementService the {@link PersonManagementService}
+	 */
+	@Autowired
+	public void setPersonManagementService(final PersonManagementService personManagementService) {
+		this.personManagementService = personManagementService;
+	}
+
+	/**
+	 * Sets the {@link RepositoryEntityLinks} linking hits to their {@link Person}.
+	 * @param entityLinks the {@link RepositoryEntityLinks}
+	 */
+	@Autowired
+	public void setEntityLinks(final RepositoryEntityLinks entityLinks) {
+		this.entityLinks = entityLinks;
+	}
+}
@@ -0,0 +1,103 @@
+package info.novatec.addressbook.boundary.importer;
+
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * {@link PersonRecordParser} for the {@link ImportFormat#CSV} format. Fields are 
+ * located directly in the raw bytes, so only the final attribute values are 
+ * materialized as strings. Quoting is not supported, i.e. values must not contain 
+ * commas or line breaks.
+ */
+class CsvPersonRecordParser implements PersonRecordParser {
+	private static final byte SEPARATOR = ',';
+	
+	private static final int PERSON_FIELDS = 3;
+	
+	private static final int ADDRESS_FIELDS = 5;
+	
+	private static final int MAX_FIELDS = PERSON_FIELDS + 10 * ADDRESS_FIELDS;
+	
+	private static final Country[] COUNTRIES = Country.values();
+
+	@Override
+	public void parse(final byte[] data, final int length, final List<Person> target) {
+		int[] fieldStart = new int[MAX_FIELDS + 1];
+		int lineStart = 0;
+		while (lineStart < length) {
+			int lineEnd = lineStart;
+			while (lineEnd < length && data[lineEnd] != '\n') {
+				lineEnd++;
+			}
+			int contentEnd = lineEnd > lineStart && data[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+			if (contentEnd > lineStart && data[lineStart] != '#') {
+				target.add(parseLine(data, lineStart, contentEnd, fieldStart));
+			}
+			lineStart = lineEnd + 1;
+		}
+	}
+
+	private Person parseLine(final byte[] data, final int start, final int end, 
+			final int[] fieldStart) {
+		int fields = 0;
+		fieldStart[fields++] = start;
+		for (int i = start; i < end; i++) {
+			if (data[i] == SEPARATOR) {
+				if (fields == MAX_FIELDS) {
+					throw new IllegalArgumentException("Too many fields in record: " 
+							+ new String(data, start, end - start, StandardCharsets.UTF_8));
+				}
+				fieldStart[fields++] = i + 1;
+			}
+		}
+		if (fields < PERSON_FIELDS || (fields - PERSON_FIELDS) % ADDRESS_FIELDS != 0) {
+			throw new IllegalArgumentException("Invalid number of fields in record: " 
+					+ new String(data, start, end - start, StandardCharsets.UTF_8));
+		}
+		// sentinel so that the end of field i is always fieldStart[i + 1] - 1
+		fieldStart[fields] = end + 1;
+		
+		Person person = new Person(text(data, fieldStart, 0), text(data, fieldStart, 1), 
+				ImportDates.parse(data, fieldStart[2], fieldStart[3] - 1), new HashSet<Address>());
+		for (int f = PERSON_FIELDS; f < fields; f += ADDRESS_FIELDS) {
+			Address address = new Address(person, text(data, fieldStart, f), 
+					text(data, fieldStart, f + 1), text(data, fieldStart, f + 2), 
+					text(data, fieldStart, f + 3), country(data, fieldStart, f + 4));
+			person.addAddress(address);
+		}
+		return person;
+	}
+	
+	private static String text(final byte[] data, final int[] fieldStart, final int field) {
+		int start = fieldStart[field];
+		int length = fieldStart[field + 1] - 1 - start;
+		return length == 0 ? null : new String(data, start, length, StandardCharsets.UTF_8);
+	}
+
+	private static Country country(final byte[] data, final int[] fieldStart, final int field) {
+		int start = fieldStart[field];
+		int length = fieldStart[field + 1] - 1 - start;
+		for (Country country : COUNTRIES) {
+			String name = country.name();
+			if (name.length() == length && matches(data, start, name)) {
+				return country;
+			}
+		}
+		throw new IllegalArgumentException("Unknown country: " 
+				+ new String(data, start, length, StandardCharsets.UTF_8));
+	}
+
+	private static boolean matches(final byte[] data, final int start, final String name) {
+		for (int i = 0; i < name.length(); i++) {
+			if (data[start + i] != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
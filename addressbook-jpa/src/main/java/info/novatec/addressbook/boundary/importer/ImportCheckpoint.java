@@ -0,0 +1,52 @@
+package info.novatec.addressbook.boundary.importer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Persists the byte offset up to which an import file has been written to the database, 
+ * so that an interrupted import can be resumed from there. The offset is not written in 
+ * the transaction of the chunk: a crash after a chunk has committed but before its 
+ * checkpoint has been written imports that chunk again on restart.
+ */
+class ImportCheckpoint {
+	private final Path path;
+	
+	private final Path tempPath;
+
+	/**
+	 * Constructor.
+	 * @param path file to store the checkpoint in
+	 */
+	ImportCheckpoint(final Path path) {
+		super();
+		this.path = path;
+		this.tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+	}
+
+	/**
+	 * Reads the last checkpoint.
+	 * @return the offset of the last checkpoint or 0 if there is none
+	 * @throws IOException if checkpoint could not be read
+	 */
+	long read() throws IOException {
+		if (!Files.exists(path)) {
+			return 0L;
+		}
+		return Long.parseLong(new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim());
+	}
+
+	/**
+	 * Atomically replaces the checkpoint with the given offset.
+	 * @param offset offset of the first byte not yet imported
+	 * @throws IOException if checkpoint could not be written
+	 */
+	void write(final long offset) throws IOException {
+		Files.write(tempPath, Long.toString(offset).getBytes(StandardCharsets.US_ASCII));
+		Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, 
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,55 @@
+package info.novatec.addressbook.boundary.importer;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Parses <code>yyyy-MM-dd</code> dates directly from raw bytes.
+ */
+final class ImportDates {
+	private static final int DATE_LENGTH = 10;
+	
+	private ImportDates() {
+		super();
+	}
+
+	/**
+	 * Parses a date of format <code>yyyy-MM-dd</code>.
+	 * @param data raw bytes
+	 * @param start index of first byte
+	 * @param end index after last byte
+	 * @return the parsed {@link Date}
+	 */
+	static Date parse(final byte[] data, final int start, final int end) {
+		if (end - start != DATE_LENGTH || data[start + 4] != '-' || data[start + 7] != '-') {
+			throw new IllegalArgumentException("Invalid date, expected format yyyy-MM-dd");
+		}
+		int year = digits(data, start, start + 4);
+		int month = digits(data, start + 5, start + 7);
+		int day = digits(data, start + 8, start + 10);
+		return Date.from(LocalDate.of(year, month, day).atStartOfDay(ZoneId.systemDefault())
+				.toInstant());
+	}
+	
+	/**
+	 * Parses a date of format <code>yyyy-MM-dd</code>.
+	 * @param value the value to parse
+	 * @return the parsed {@link Date}
+	 */
+	static Date parse(final String value) {
+		return Date.from(LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant());
+	}
+
+	private static int digits(final byte[] data, final int start, final int end) {
+		int value = 0;
+		for (int i = start; i < end; i++) {
+			int digit = data[i] - '0';
+			if (digit < 0 || digit > 9) {
+				throw new IllegalArgumentException("Invalid date, expected format yyyy-MM-dd");
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+}
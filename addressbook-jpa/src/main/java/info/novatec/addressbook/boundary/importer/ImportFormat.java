@@ -0,0 +1,31 @@
+package info.novatec.addressbook.boundary.importer;
+
+/**
+ * Supported file formats for {@link PersonFileImporter}.
+ */
+public enum ImportFormat {
+	
+	/**
+	 * One person per line: 
+	 * <code>firstName,lastName,birthDate[,street,postOfficeBox,zip,city,country]*</code> 
+	 * with birth date formatted as <code>yyyy-MM-dd</code>.
+	 */
+	CSV(new CsvPersonRecordParser()),
+	
+	/**
+	 * One JSON object per line: <code>{"firstName": .., "lastName": .., 
+	 * "birthDate": "yyyy-MM-dd", "addresses": [{"street": .., "postOfficeBox": .., 
+	 * "zip": .., "city": .., "country": ..}]}</code>.
+	 */
+	NDJSON(new NdjsonPersonRecordParser());
+	
+	private final PersonRecordParser parser;
+
+	private ImportFormat(final PersonRecordParser parser) {
+		this.parser = parser;
+	}
+
+	public PersonRecordParser getParser() {
+		return parser;
+	}
+}
@@ -0,0 +1,93 @@
+package info.novatec.addressbook.boundary.importer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput metrics of a file import run by {@link PersonFileImporter}.
+ */
+public final class ImportStatistics {
+	private static final double BYTES_PER_MEGABYTE = 1024d * 1024d;
+	
+	private final long startOffset;
+	
+	private final long startNanos = System.nanoTime();
+	
+	private long endNanos = startNanos;
+
+	private long records;
+	
+	private long bytes;
+	
+	private long batches;
+
+	/**
+	 * Constructor.
+	 * @param startOffset offset the import was started or resumed at
+	 */
+	ImportStatistics(final long startOffset) {
+		super();
+		this.startOffset = startOffset;
+	}
+
+	/**
+	 * Records a written batch.
+	 * @param batchRecords number of records in batch
+	 * @param batchBytes number of bytes in batch
+	 */
+	void addBatch(final long batchRecords, final long batchBytes) {
+		records += batchRecords;
+		bytes += batchBytes;
+		batches++;
+		endNanos = System.nanoTime();
+	}
+
+	public long getStartOffset() {
+		return startOffset;
+	}
+
+	public long getEndOffset() {
+		return startOffset + bytes;
+	}
+
+	public long getRecords() {
+		return records;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public long getBatches() {
+		return batches;
+	}
+
+	public long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos);
+	}
+
+	/**
+	 * Returns the number of records written per second.
+	 * @return records per second
+	 */
+	public long getRecordsPerSecond() {
+		long elapsed = endNanos - startNanos;
+		return elapsed > 0 ? records * TimeUnit.SECONDS.toNanos(1) / elapsed : records;
+	}
+
+	/**
+	 * Returns the number of megabytes read per second.
+	 * @return megabytes per second
+	 */
+	public double getMegabytesPerSecond() {
+		long elapsed = endNanos - startNanos;
+		return elapsed > 0 
+				? bytes / BYTES_PER_MEGABYTE * TimeUnit.SECONDS.toNanos(1) / elapsed : 0d;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d records (%d bytes, %d batches) from offset %d in %d ms "
+				+ "(%d records/s, %.1f MB/s)", records, bytes, batches, startOffset, 
+				getElapsedMillis(), getRecordsPerSecond(), getMegabytesPerSecond());
+	}
+}
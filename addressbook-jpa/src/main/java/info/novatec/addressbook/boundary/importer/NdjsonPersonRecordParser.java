@@ -0,0 +1,96 @@
+package info.novatec.addressbook.boundary.importer;
+
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * {@link PersonRecordParser} for the {@link ImportFormat#NDJSON} format. Uses the 
+ * Jackson streaming API directly on the raw bytes, so no intermediate object tree 
+ * is built per record.
+ */
+class NdjsonPersonRecordParser implements PersonRecordParser {
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	@Override
+	public void parse(final byte[] data, final int length, final List<Person> target) {
+		try (JsonParser parser = jsonFactory.createParser(data, 0, length)) {
+			JsonToken token;
+			while ((token = parser.nextToken()) != null) {
+				if (token != JsonToken.START_OBJECT) {
+					throw new IllegalArgumentException("Expected JSON object at " 
+							+ parser.getCurrentLocation());
+				}
+				target.add(parsePerson(parser));
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private Person parsePerson(final JsonParser parser) throws IOException {
+		String firstName = null;
+		String lastName = null;
+		Date birthDate = null;
+		List<Address> addresses = new ArrayList<Address>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if ("firstName".equals(field)) {
+				firstName = parser.getValueAsString();
+			} else if ("lastName".equals(field)) {
+				lastName = parser.getValueAsString();
+			} else if ("birthDate".equals(field)) {
+				birthDate = ImportDates.parse(parser.getValueAsString());
+			} else if ("addresses".equals(field) && value == JsonToken.START_ARRAY) {
+				while (parser.nextToken() == JsonToken.START_OBJECT) {
+					addresses.add(parseAddress(parser));
+				}
+			} else {
+				parser.skipChildren();
+			}
+		}
+		Person person = new Person(firstName, lastName, birthDate, new HashSet<Address>());
+		for (Address address : addresses) {
+			person.addAddress(address);
+		}
+		return person;
+	}
+
+	private Address parseAddress(final JsonParser parser) throws IOException {
+		String street = null;
+		String postOfficeBox = null;
+		String zip = null;
+		String city = null;
+		Country country = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			parser.nextToken();
+			if ("street".equals(field)) {
+				street = parser.getValueAsString();
+			} else if ("postOfficeBox".equals(field)) {
+				postOfficeBox = parser.getValueAsString();
+			} else if ("zip".equals(field)) {
+				zip = parser.getValueAsString();
+			} else if ("city".equals(field)) {
+				city = parser.getValueAsString();
+			} else if ("country".equals(field)) {
+				country = Country.valueOf(parser.getValueAsString());
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return new Address(street, postOfficeBox, zip, city, country);
+	}
+}
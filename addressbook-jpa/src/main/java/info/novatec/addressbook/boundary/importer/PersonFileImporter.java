@@ -0,0 +1,244 @@
+package info.novatec.addressbook.boundary.importer;
+
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Person;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+/**
+ * Streams {@link Person}s and their addresses from large files into the database.
+ * <p>
+ * The file is read sequentially through a {@link FileChannel} in chunks of complete 
+ * records. Chunks are parsed in parallel, but written in file order by the calling 
+ * thread, one transaction per chunk via {@link PersonManagementService#importPersons(Iterable)}.
+ * After each written chunk the file offset is stored as checkpoint, so an interrupted 
+ * import resumes after the last written chunk. At most <code>maxChunksInFlight</code> 
+ * chunks are held in memory, independent of the file size.
+ * <p>
+ * The checkpoint is written after the transaction of its chunk has committed. If the 
+ * import crashes in between, the chunk is imported again on restart, creating its 
+ * {@link Person}s a second time. A chunk whose records cannot be parsed fails the import 
+ * before it is written, so the checkpoint stays before it.
+ * </p>
+ */
+public class PersonFileImporter implements InitializingBean, DisposableBean {
+	private static final Logger LOG = LoggerFactory.getLogger(PersonFileImporter.class);
+	
+	private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+	
+	private static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+	
+	private static final int DEFAULT_MAX_CHUNKS_IN_FLIGHT = 4;
+	
+	private PersonManagementService personManagementService;
+	
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	
+	private int maxChunksInFlight = DEFAULT_MAX_CHUNKS_IN_FLIGHT;
+	
+	private int parseThreads = Runtime.getRuntime().availableProcessors();
+	
+	private ExecutorService parseExecutor;
+
+	@Override
+	public void afterPropertiesSet() {
+		Assert.notNull(personManagementService, "PersonManagementService must be set");
+		Assert.isTrue(chunkSize > 0, "Chunk size must be positive");
+		Assert.isTrue(maxChunksInFlight > 0, "Max chunks in flight must be positive");
+		parseExecutor = Executors.newFixedThreadPool(parseThreads);
+	}
+
+	@Override
+	public void destroy() {
+		parseExecutor.shutdownNow();
+	}
+
+	/**
+	 * Imports the given file, resuming from the checkpoint stored next to the file 
+	 * (file name with suffix <code>.checkpoint</code>) if there is one.
+	 * 
+	 * @param file the file to import
+	 * @param format the {@link ImportFormat} of the file
+	 * @return the {@link ImportStatistics}
+	 * @throws IOException if file or checkpoint could not be read or written
+	 */
+	public ImportStatistics importFile(final Path file, final ImportFormat format) 
+			throws IOException {
+		return importFile(file, format, file.resolveSibling(file.getFileName() + CHECKPOINT_SUFFIX));
+	}
+
+	/**
+	 * Imports the given file, resuming from the given checkpoint if it exists.
+	 * 
+	 * @param file the file to import
+	 * @param format the {@link ImportFormat} of the file
+	 * @param checkpointFile file to store checkpoints in
+	 * @return the {@link ImportStatistics}
+	 * @throws IOException if file or checkpoint could not be read or written
+	 */
+	public ImportStatistics importFile(final Path file, final ImportFormat format, 
+			final Path checkpointFile) throws IOException {
+		ImportCheckpoint checkpoint = new ImportCheckpoint(checkpointFile);
+		long offset = checkpoint.read();
+		ImportStatistics statistics = new ImportStatistics(offset);
+		LOG.info("Importing {} from offset {}", file, offset);
+		
+		Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<Future<ParsedChunk>>();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			channel.position(offset);
+			byte[] data = new byte[chunkSize];
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			long chunkOffset = offset;
+			boolean eof = false;
+			while (!eof) {
+				eof = channel.read(buffer) < 0;
+				int limit = buffer.position();
+				int end = eof ? limit : endOfLastRecord(data, limit);
+				if (end == 0 && !eof && !buffer.hasRemaining()) {
+					throw new IllegalStateException("Record at offset " + chunkOffset 
+							+ " exceeds chunk size of " + chunkSize + " bytes");
+				}
+				if (end > 0) {
+					chunkOffset += end;
+					inFlight.add(parseExecutor.submit(
+							new ParseTask(format.getParser(), Arrays.copyOf(data, end), chunkOffset)));
+					System.arraycopy(data, end, data, 0, limit - end);
+					buffer.position(limit - end);
+				}
+				while (inFlight.size() >= maxChunksInFlight) {
+					write(inFlight.poll(), checkpoint, statistics);
+				}
+			}
+			while (!inFlight.isEmpty()) {
+				write(inFlight.poll(), checkpoint, statistics);
+			}
+		} finally {
+			for (Future<ParsedChunk> future : inFlight) {
+				future.cancel(true);
+			}
+		}
+		
+		LOG.info("Imported {}: {}", file, statistics);
+		return statistics;
+	}
+
+	private void write(final Future<ParsedChunk> future, final ImportCheckpoint checkpoint, 
+			final ImportStatistics statistics) throws IOException {
+		ParsedChunk chunk;
+		try {
+			chunk = future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Import interrupted", ex);
+		} catch (ExecutionException ex) {
+			throw new IllegalStateException("Parsing import chunk failed", ex.getCause());
+		}
+		
+		personManagementService.importPersons(chunk.persons);
+		checkpoint.write(chunk.endOffset);
+		statistics.addBatch(chunk.persons.size(), chunk.length);
+		LOG.debug("Import checkpoint at offset {}: {}", chunk.endOffset, statistics);
+	}
+
+	private static int endOfLastRecord(final byte[] data, final int limit) {
+		for (int i = limit - 1; i >= 0; i--) {
+			if (data[i] == '\n') {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Sets the {@link PersonManagementService} used to write imported {@link Person}s.
+	 * @param personManagementService the {@link PersonManagementService}
+	 */
+	public void setPersonManagementService(final PersonManagementService personManagementService) {
+		this.personManagementService = personManagementService;
+	}
+
+	/**
+	 * Sets the maximum number of bytes read, parsed and written at once.
+	 * @param chunkSize the chunk size in bytes
+	 */
+	public void setChunkSize(final int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Sets the maximum number of chunks being parsed or waiting to be written.
+	 * @param maxChunksInFlight the maximum number of chunks in memory
+	 */
+	public void setMaxChunksInFlight(final int maxChunksInFlight) {
+		this.maxChunksInFlight = maxChunksInFlight;
+	}
+
+	/**
+	 * Sets the number of threads parsing chunks.
+	 * @param parseThreads the number of parser threads
+	 */
+	public void setParseThreads(final int parseThreads) {
+		this.parseThreads = parseThreads;
+	}
+
+	/**
+	 * Parses a single chunk.
+	 */
+	private static final class ParseTask implements Callable<ParsedChunk> {
+		private final PersonRecordParser parser;
+		
+		private final byte[] data;
+		
+		private final long endOffset;
+
+		ParseTask(final PersonRecordParser parser, final byte[] data, final long endOffset) {
+			this.parser = parser;
+			this.data = data;
+			this.endOffset = endOffset;
+		}
+
+		@Override
+		public ParsedChunk call() {
+			List<Person> persons = new ArrayList<Person>();
+			parser.parse(data, data.length, persons);
+			return new ParsedChunk(persons, data.length, endOffset);
+		}
+	}
+
+	/**
+	 * Result of a {@link ParseTask}.
+	 */
+	private static final class ParsedChunk {
+		private final List<Person> persons;
+		
+		private final int length;
+		
+		private final long endOffset;
+
+		ParsedChunk(final List<Person> persons, final int length, final long endOffset) {
+			this.persons = persons;
+			this.length = length;
+			this.endOffset = endOffset;
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package info.novatec.addressbook.boundary.importer;
+
+import info.novatec.addressbook.entity.Person;
+
+import java.util.List;
+
+/**
+ * Parses {@link Person} records from a chunk of raw bytes. A chunk always contains 
+ * complete records, i.e. it never ends in the middle of a line.
+ * <p>
+ * Implementations must be thread safe as chunks are parsed in parallel.
+ */
+public interface PersonRecordParser {
+
+	/**
+	 * Parses all records of the given chunk.
+	 * @param data the raw UTF-8 encoded bytes
+	 * @param length number of valid bytes in <code>data</code>
+	 * @param target list to add parsed {@link Person}s to
+	 */
+	void parse(byte[] data, int length, List<Person> target);
+
+}
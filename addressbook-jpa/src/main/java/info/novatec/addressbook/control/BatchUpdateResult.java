@@ -0,0 +1,58 @@
+package info.novatec.addressbook.control;
+
+import info.novatec.addressbook.entity.Person;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a batched update of {@link Person}s.
+ */
+public final class BatchUpdateResult {
+	private final List<Long> updatedIds;
+	
+	private final List<Long> failedIds;
+	
+	private final long conflicts;
+	
+	private final long elapsedNanos;
+
+	/**
+	 * Constructor.
+	 * @param updatedIds ids of the updated {@link Person}s
+	 * @param failedIds ids of the {@link Person}s still conflicting after the last attempt
+	 * @param conflicts number of transactions rolled back because of conflicts
+	 * @param elapsedNanos elapsed time in nanoseconds
+	 */
+	public BatchUpdateResult(final List<Long> updatedIds, final List<Long> failedIds, 
+			final long conflicts, final long elapsedNanos) {
+		super();
+		this.updatedIds = Collections.unmodifiableList(updatedIds);
+		this.failedIds = Collections.unmodifiableList(failedIds);
+		this.conflicts = conflicts;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public List<Long> getUpdatedIds() {
+		return updatedIds;
+	}
+
+	public List<Long> getFailedIds() {
+		return failedIds;
+	}
+
+	public long getConflicts() {
+		return conflicts;
+	}
+
+	public long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d persons updated, %d failed after %d conflicts in %d ms", 
+				updatedIds.size(), failedIds.size(), conflicts, getElapsedMillis());
+	}
+}
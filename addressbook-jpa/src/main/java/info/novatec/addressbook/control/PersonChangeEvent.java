@@ -0,0 +1,170 @@
+package info.novatec.addressbook.control;
+
+import info.novatec.addressbook.entity.Person;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Event published by {@link PersonService} whenever {@link Person}s are saved or deleted. 
+ * Listeners interested in committed state only should use 
+ * {@link org.springframework.transaction.event.TransactionalEventListener}.
+ */
+public class PersonChangeEvent {
+	
+	/**
+	 * Kind of change.
+	 */
+	public enum ChangeType {
+		/** A {@link Person} was created or updated. */
+		SAVED,
+		/** A {@link Person} was deleted. */
+		DELETED,
+		/** All {@link Person}s were deleted. */
+		ALL_DELETED,
+		/** Several {@link Person}s were deleted by a bulk operation. */
+		BULK_DELETED,
+		/** Several {@link Person}s were updated by a bulk operation. */
+		BULK_UPDATED,
+		/** Several {@link Person}s were created or updated by a bulk import. */
+		BULK_SAVED
+	}
+
+	private final ChangeType type;
+	
+	private final Long personId;
+	
+	private final Person person;
+	
+	private final boolean created;
+	
+	private final List<Long> personIds;
+
+	private PersonChangeEvent(final ChangeType type, final Long personId, final Person person, 
+			final boolean created) {
+		this(type, personId, person, created, personId == null ? Collections.<Long>emptyList() 
+				: Collections.singletonList(personId));
+	}
+
+	private PersonChangeEvent(final ChangeType type, final Long personId, final Person person, 
+			final boolean created, final List<Long> personIds) {
+		super();
+		this.type = type;
+		this.personId = personId;
+		this.person = person;
+		this.created = created;
+		this.personIds = personIds;
+	}
+
+	/**
+	 * Creates an event for a saved {@link Person}.
+	 * @param person the saved {@link Person}
+	 * @param created whether the {@link Person} was new before saving
+	 * @return the event
+	 */
+	public static PersonChangeEvent saved(final Person person, final boolean created) {
+		return new PersonChangeEvent(ChangeType.SAVED, person.getId(), person, created);
+	}
+
+	/**
+	 * Creates an event for a {@link Person} deleted by id.
+	 * @param personId id of the deleted {@link Person}
+	 * @return the event
+	 */
+	public static PersonChangeEvent deleted(final Long personId) {
+		return new PersonChangeEvent(ChangeType.DELETED, personId, null, false);
+	}
+
+	/**
+	 * Creates an event for a deleted {@link Person}.
+	 * @param person the deleted {@link Person}
+	 * @return the event
+	 */
+	public static PersonChangeEvent deleted(final Person person) {
+		return new PersonChangeEvent(ChangeType.DELETED, person.getId(), person, false);
+	}
+
+	/**
+	 * Creates an event for deleting all {@link Person}s.
+	 * @return the event
+	 */
+	public static PersonChangeEvent allDeleted() {
+		return new PersonChangeEvent(ChangeType.ALL_DELETED, null, null, false);
+	}
+
+	/**
+	 * Creates an event for {@link Person}s deleted by a bulk operation.
+	 * @param personIds ids of the deleted {@link Person}s
+	 * @return the event
+	 */
+	public static PersonChangeEvent bulkDeleted(final List<Long> personIds) {
+		return new PersonChangeEvent(ChangeType.BULK_DELETED, null, null, false, personIds);
+	}
+
+	/**
+	 * Creates an event for {@link Person}s updated by a bulk operation.
+	 * @param personIds ids of the updated {@link Person}s
+	 * @return the event
+	 */
+	public static PersonChangeEvent bulkUpdated(final List<Long> personIds) {
+		return new PersonChangeEvent(ChangeType.BULK_UPDATED, null, null, false, personIds);
+	}
+
+	/**
+	 * Creates an event for {@link Person}s saved by a bulk import. Only their ids are 
+	 * passed, so listeners needing their state reload them in chunks.
+	 * @param personIds ids of the saved {@link Person}s
+	 * @param created whether the {@link Person}s were new before saving
+	 * @return the event
+	 */
+	public static PersonChangeEvent bulkSaved(final List<Long> personIds, final boolean created) {
+		return new PersonChangeEvent(ChangeType.BULK_SAVED, null, null, created, personIds);
+	}
+
+	/**
+	 * Returns the kind of change.
+	 * @return the {@link ChangeType}
+	 */
+	public ChangeType getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the id of the changed {@link Person}.
+	 * @return the id or {@literal null} for {@link ChangeType#ALL_DELETED} and bulk operations
+	 */
+	public Long getPersonId() {
+		return personId;
+	}
+
+	/**
+	 * Returns the ids of all changed {@link Person}s.
+	 * @return the ids, empty for {@link ChangeType#ALL_DELETED}
+	 */
+	public List<Long> getPersonIds() {
+		return personIds;
+	}
+
+	/**
+	 * Returns the saved or deleted {@link Person}.
+	 * @return the {@link Person} or {@literal null} for {@link ChangeType#ALL_DELETED} and 
+	 * 		{@link Person}s deleted by id
+	 */
+	public Person getPerson() {
+		return person;
+	}
+
+	/**
+	 * Returns whether the saved {@link Person}s were created rather than updated.
+	 * @return <code>true</code> if created
+	 */
+	public boolean isCreated() {
+		return created;
+	}
+
+	@Override
+	public String toString() {
+		return "PersonChangeEvent [type=" + type + ", personId=" + personId + ", created=" 
+				+ created + ", persons=" + personIds.size() + "]";
+	}
+}
@@ -1,8 +1,24 @@
 package info.novatec.addressbook.control;
 
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
 import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.projection.PersonSummary;
+import info.novatec.addressbook.projection.PersonWithCity;
+import info.novatec.addressbook.repository.BulkDeleteResult;
+import info.novatec.addressbook.repository.BulkSaveResult;
+import info.novatec.addressbook.repository.KeysetOrder;
+import info.novatec.addressbook.repository.KeysetSlice;
+import info.novatec.addressbook.repository.PersonName;
+import info.novatec.addressbook.search.PersonSearchHit;
+import info.novatec.addressbook.statistics.AgeBucket;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Service for managing persistence of {@link Person}s.
@@ -17,6 +33,20 @@ public interface PersonService {
 	 */
 	Iterable<Person> save(Iterable<Person> persons);
 
+	/**
+	 * Imports all given {@link Person}s in bulk mode, i.e. using JDBC batching and 
+	 * flushing and clearing the persistence context in chunks. The returned 
+	 * {@link Person}s are not kept in memory, so the given {@link Iterable} should 
+	 * produce its elements lazily for large imports. All entities managed by the 
+	 * current persistence context become detached. The given {@link Iterable} is 
+	 * iterated once. Listeners are notified by a {@link PersonChangeEvent} per kind of 
+	 * change and flushed batch carrying the ids only.
+	 * 
+	 * @param persons {@link Person}s to import
+	 * @return the {@link BulkSaveResult}
+	 */
+	BulkSaveResult importPersons(Iterable<Person> persons);
+
 	/**
 	 * Saves a given {@link Person}. Use the returned instance for further 
 	 * operations as the save operation 
@@ -28,17 +58,69 @@ public interface PersonService {
 	Person save(Person person);
 
 	/**
-	 * Deletes all {@link Person}s managed by this service.
+	 * Applies a change to the {@link Person}s with the given ids in chunks, each in its own 
+	 * transaction relying on optimistic locking instead of row locks. If a concurrent 
+	 * transaction modified a {@link Person} in the meantime, only the conflicting 
+	 * {@link Person}s are reloaded and the change is applied again, up to the configured 
+	 * number of attempts. The change must therefore derive the new state from the loaded 
+	 * one and must not have other side effects. Unknown ids are ignored.
+	 * 
+	 * @param ids ids of the {@link Person}s to update
+	 * @param change the change to apply to each {@link Person}
+	 * @return the {@link BatchUpdateResult}
+	 */
+	BatchUpdateResult updateAll(Iterable<Long> ids, Consumer<? super Person> change);
+
+	/**
+	 * Deletes all {@link Person}s managed by this service in bulk mode, i.e. without 
+	 * loading them.
 	 */
 	void deleteAll();
 
 	/**
-	 * Deletes the given {@link Person}s.
+	 * Deletes the given {@link Person}s in bulk mode by their ids.
 	 * 
 	 * @param persons {@link Person}s to delete
 	 */
 	void delete(Iterable<Person> persons);
 
+	/**
+	 * Deletes the {@link Person}s with the given ids together with their {@link Address}es 
+	 * in bulk mode. Unknown ids are ignored.
+	 * 
+	 * @param ids ids of the {@link Person}s to delete
+	 * @return the {@link BulkDeleteResult}
+	 */
+	BulkDeleteResult deleteAllById(Iterable<Long> ids);
+
+	/**
+	 * Deletes all {@link Person}s living in given city together with all of their 
+	 * {@link Address}es in bulk mode.
+	 * 
+	 * @param city city {@link Person}s are living in
+	 * @return the {@link BulkDeleteResult}
+	 */
+	BulkDeleteResult deleteAllLivingInCity(String city);
+
+	/**
+	 * Deletes all {@link Person}s born within the given period together with their 
+	 * {@link Address}es in bulk mode.
+	 * 
+	 * @param from earliest birth date (inclusive)
+	 * @param to latest birth date (inclusive)
+	 * @return the {@link BulkDeleteResult}
+	 */
+	BulkDeleteResult deleteAllBornBetween(Date from, Date to);
+
+	/**
+	 * Moves all {@link Address}es in the given city to another city with a single statement.
+	 * 
+	 * @param city the current city
+	 * @param newCity the new city
+	 * @return number of updated {@link Address}es
+	 */
+	int updateCity(String city, String newCity);
+
 	/**
 	 * Deletes a given {@link Person}.
 	 * 
@@ -83,6 +165,56 @@ public interface PersonService {
 	 */
 	List<Person> findAll();
 	
+	/**
+	 * Returns a page of {@link Person}s in the given order using keyset pagination.
+	 * 
+	 * @param order the {@link KeysetOrder}
+	 * @param continuationToken token of the previous page or {@literal null} for the first page
+	 * @param size the page size
+	 * @return the {@link KeysetSlice}
+	 */
+	KeysetSlice findAll(KeysetOrder order, String continuationToken, int size);
+	
+	/**
+	 * Returns read-only summaries of all {@link Person}s ordered by name.
+	 * 
+	 * @return all {@link PersonSummary}s
+	 */
+	List<PersonSummary> findAllSummaries();
+
+	/**
+	 * Returns read-only summaries of all {@link Person}s that are 'of age' ordered by name.
+	 * 
+	 * @return all {@link PersonSummary}s of {@link Person}s that are 'of age'
+	 */
+	List<PersonSummary> findAllOfAgeSummaries();
+
+	/**
+	 * Returns read-only, flattened projections of all {@link Person}s living in given city 
+	 * ordered by name.
+	 * 
+	 * @param city city {@link Person}s are living in
+	 * @return all {@link PersonWithCity}s
+	 */
+	List<PersonWithCity> findAllWithCityLivingIn(String city);
+
+	/**
+	 * Returns all instances of the {@link Person} type together with their {@link Address}es 
+	 * loaded in a single query.
+	 * 
+	 * @return all {@link Person}s
+	 */
+	List<Person> findAllWithAddresses();
+
+	/**
+	 * Streams all instances of the {@link Person} type ordered by id. {@link Person}s are 
+	 * detached as the stream advances. The stream must be consumed within a transaction 
+	 * and closed afterwards.
+	 * 
+	 * @return {@link Stream} of all {@link Person}s
+	 */
+	Stream<Person> streamAll();
+	
 	/**
 	 * Returns all instances of the {@link Person} type that are 'of age', i.e. older than 18 years.
 	 * 
@@ -90,6 +222,31 @@ public interface PersonService {
 	 */
 	List<Person> findAllOfAge();	
 
+	/**
+	 * Returns all instances of the {@link Person} type that are 'of age' together with 
+	 * their {@link Address}es loaded in a single query.
+	 * 
+	 * @return all {@link Person}s that are 'of age'
+	 */
+	List<Person> findAllOfAgeWithAddresses();
+
+	/**
+	 * Streams all instances of the {@link Person} type that are 'of age' ordered by id.
+	 * 
+	 * @return {@link Stream} of all {@link Person}s that are 'of age'
+	 * @see #streamAll()
+	 */
+	Stream<Person> streamAllOfAge();
+
+	/**
+	 * Returns a page of {@link Person}s that are 'of age' ordered by name using keyset pagination.
+	 * 
+	 * @param continuationToken token of the previous page or {@literal null} for the first page
+	 * @param size the page size
+	 * @return the {@link KeysetSlice}
+	 */
+	KeysetSlice findAllOfAge(String continuationToken, int size);
+
 	/**
 	 * Returns all instances of the {@link Person} type that are 'minor', 
 	 * i.e. younger than 18 years.
@@ -98,6 +255,31 @@ public interface PersonService {
 	 */
 	List<Person> findAllMinors();	
 
+	/**
+	 * Returns all instances of the {@link Person} type that are 'minor' together with 
+	 * their {@link Address}es loaded in a single query.
+	 * 
+	 * @return all {@link Person}s that are 'minor'
+	 */
+	List<Person> findAllMinorsWithAddresses();
+
+	/**
+	 * Streams all instances of the {@link Person} type that are 'minor' ordered by id.
+	 * 
+	 * @return {@link Stream} of all {@link Person}s that are 'minor'
+	 * @see #streamAll()
+	 */
+	Stream<Person> streamAllMinors();
+
+	/**
+	 * Returns a page of {@link Person}s that are 'minor' ordered by name using keyset pagination.
+	 * 
+	 * @param continuationToken token of the previous page or {@literal null} for the first page
+	 * @param size the page size
+	 * @return the {@link KeysetSlice}
+	 */
+	KeysetSlice findAllMinors(String continuationToken, int size);
+
 	/**
 	 * Returns all instances of the {@link Person} type that are 'of age', i.e. older than 18 years 
 	 * and have the given last name.
@@ -131,6 +313,14 @@ public interface PersonService {
 	 * @return the {@link Person} or {@literal null} if none found
 	 */
 	Person findByFirstNameAndLastName(String firstName, String lastName);
+
+	/**
+	 * Retrieves the {@link Person}s with the given names in chunked queries.
+	 * 
+	 * @param names the names
+	 * @return the {@link Person}s per name, without entries for names nobody has
+	 */
+	Map<PersonName, Person> findAllByFirstNameAndLastName(Collection<PersonName> names);
 	
 	/**
 	 * Retrieves a list of {@link Person}s living in given city.
@@ -140,6 +330,102 @@ public interface PersonService {
 	 */
 	List<Person> findAllLivingInCity(String city);
 
+	/**
+	 * Retrieves the {@link Person}s living in each of the given cities with a single query.
+	 * 
+	 * @param cities the cities
+	 * @return the {@link Person}s per city ordered by name, empty for cities nobody lives in
+	 */
+	Map<String, List<Person>> findAllLivingInCities(Collection<String> cities);
+
+	/**
+	 * Returns all {@link Person}s living in given city ordered by id as {@link Stream}.
+	 * 
+	 * @param city city {@link Person}s are living in
+	 * @return {@link Stream} of {@link Person}s
+	 * @see #streamAll()
+	 */
+	Stream<Person> streamAllLivingInCity(String city);
+
+	/**
+	 * Returns the number of {@link Person}s per {@link AgeBucket} from in-memory aggregates.
+	 * 
+	 * @return counts for all {@link AgeBucket}s
+	 */
+	Map<AgeBucket, Long> countByAgeBucket();
+
+	/**
+	 * Returns the number of {@link Person}s that are <em>of age</em> from in-memory aggregates.
+	 * 
+	 * @return number of {@link Person}s of age
+	 */
+	long countOfAge();
+
+	/**
+	 * Returns the number of {@link Person}s that are <em>minor</em> from in-memory aggregates.
+	 * 
+	 * @return number of minors
+	 */
+	long countMinors();
+
+	/**
+	 * Returns the number of {@link Person}s having an address per {@link Country} from 
+	 * in-memory aggregates.
+	 * 
+	 * @return counts for all {@link Country}s
+	 */
+	Map<Country, Long> countByCountry();
+
+	/**
+	 * Returns the number of {@link Person}s living in given city from in-memory aggregates.
+	 * 
+	 * @param city city {@link Person}s are living in
+	 * @return number of {@link Person}s
+	 */
+	long countLivingInCity(String city);
+
+	/**
+	 * Retrieves a list of {@link Person}s living in given city together with all of their 
+	 * {@link Address}es loaded in a single query.
+	 * 
+	 * @param city city {@link Person}s are living in
+	 * @return the list of {@link Person}s or {@literal empty} if none found
+	 */
+	List<Person> findAllLivingInCityWithAddresses(String city);
+
+	/**
+	 * Retrieves a page of {@link Person}s living in given city ordered by name 
+	 * using keyset pagination.
+	 * 
+	 * @param city city {@link Person}s are living in
+	 * @param continuationToken token of the previous page or {@literal null} for the first page
+	 * @param size the page size
+	 * @return the {@link KeysetSlice}
+	 */
+	KeysetSlice findAllLivingInCity(String city, String continuationToken, int size);
+
+	/**
+	 * Retrieves a page of {@link Person}s living in any of the given cities ordered by name 
+	 * using keyset pagination.
+	 * 
+	 * @param cities the cities
+	 * @param continuationToken token of the previous page or {@literal null} for the first page
+	 * @param size the page size
+	 * @return the {@link KeysetSlice}
+	 */
+	KeysetSlice findAllLivingInCities(Collection<String> cities, String continuationToken, 
+			int size);
+
+	/**
+	 * Searches {@link Person}s by possibly misspelled or partial first name, last name, 
+	 * city or street without accessing the database.
+	 * 
+	 * @param query the search words
+	 * @param maxResults maximum number of hits
+	 * @return hits ordered by descending relevance
+	 */
+	List<PersonSearchHit> search(String query, int maxResults);
+
 	/**
 	 * Get {@link Person} with addresses.
 	 * @param id id of person
@@ -2,28 +2,270 @@ package info.novatec.addressbook.control;
 
 import static org.springframework.data.jpa.domain.Specifications.where;
 
+import java.time.Clock;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import info.novatec.addressbook.entity.Country;
 import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.monitoring.OptimisticLockMetrics;
+import info.novatec.addressbook.projection.PersonSummary;
+import info.novatec.addressbook.projection.PersonWithCity;
+import info.novatec.addressbook.repository.BulkDeleteResult;
+import info.novatec.addressbook.repository.BulkSaveResult;
+import info.novatec.addressbook.repository.KeysetOrder;
+import info.novatec.addressbook.repository.KeysetSlice;
+import info.novatec.addressbook.repository.PersonAgeSpecifications;
+import info.novatec.addressbook.repository.PersonKey;
+import info.novatec.addressbook.repository.PersonName;
 import info.novatec.addressbook.repository.PersonQueryDslSpecifications;
 import info.novatec.addressbook.repository.PersonRepository;
 import info.novatec.addressbook.repository.PersonSpecifications;
+import info.novatec.addressbook.search.PersonSearchHit;
+import info.novatec.addressbook.search.PersonSearchIndex;
+import info.novatec.addressbook.statistics.AgeBucket;
+import info.novatec.addressbook.statistics.PersonStatistics;
 
 /**
- * Standard implementation for {@link PersonService}.
+ * Standard implementation for {@link PersonService}. Publishes a {@link PersonChangeEvent} 
+ * for every saved or deleted {@link Person} and for every bulk operation.
  */
-public class PersonServiceImpl implements PersonService {
+public class PersonServiceImpl implements PersonService, ApplicationEventPublisherAware {
+	private static final Logger LOG = LoggerFactory.getLogger(PersonServiceImpl.class);
+	
+	private static final int DEFAULT_IMPORT_BATCH_SIZE = 50;
+	
+	private static final int DEFAULT_BULK_DELETE_BATCH_SIZE = 500;
+	
+	private static final int DEFAULT_UPDATE_CHUNK_SIZE = 100;
+	
+	private static final int DEFAULT_MAX_UPDATE_ATTEMPTS = 5;
+	
+	private static final long DEFAULT_UPDATE_RETRY_BACKOFF = 10L;
+	
 	private PersonRepository personRepository;
+	
+	private int importBatchSize = DEFAULT_IMPORT_BATCH_SIZE;
+	
+	private int bulkDeleteBatchSize = DEFAULT_BULK_DELETE_BATCH_SIZE;
+	
+	private int updateChunkSize = DEFAULT_UPDATE_CHUNK_SIZE;
+	
+	private int maxUpdateAttempts = DEFAULT_MAX_UPDATE_ATTEMPTS;
+	
+	private long updateRetryBackoff = DEFAULT_UPDATE_RETRY_BACKOFF;
+	
+	private TransactionTemplate transactionTemplate;
+	
+	private OptimisticLockMetrics metrics = new OptimisticLockMetrics();
+	
+	private PersonSearchIndex personSearchIndex;
+	
+	private PersonStatistics personStatistics;
+	
+	private PersonAgeSpecifications ageSpecifications = 
+			new PersonAgeSpecifications(Clock.systemDefaultZone());
+	
+	private ApplicationEventPublisher eventPublisher;
 
 	@Override
 	public Person save(final Person entity) {
-		return personRepository.save(entity);
+		boolean created = entity.isNew();
+		Person saved = personRepository.save(entity);
+		publish(PersonChangeEvent.saved(saved, created));
+		return saved;
 	}
 
 	@Override
 	public List<Person> save(final Iterable<Person> entities) {
-		return personRepository.save(entities);
+		List<Person> persons = new ArrayList<Person>();
+		List<Boolean> created = new ArrayList<Boolean>();
+		for (Person person : entities) {
+			persons.add(person);
+			created.add(person.isNew());
+		}
+		List<Person> saved = personRepository.save(persons);
+		for (int i = 0; i < saved.size(); i++) {
+			publish(PersonChangeEvent.saved(saved.get(i), created.get(i)));
+		}
+		return saved;
+	}
+
+	@Override
+	public BulkSaveResult importPersons(final Iterable<Person> entities) {
+		BulkSaveResult result = personRepository.bulkSave(entities, importBatchSize, 
+				publishingSaved());
+		LOG.info("Imported {}", result);
+		return result;
+	}
+
+	/**
+	 * Returns a callback publishing the created and the updated {@link Person}s of each 
+	 * batch, so their ids are never collected as a whole.
+	 */
+	private BiConsumer<List<Long>, List<Long>> publishingSaved() {
+		return new BiConsumer<List<Long>, List<Long>>() {
+			@Override
+			public void accept(final List<Long> created, final List<Long> updated) {
+				if (!created.isEmpty()) {
+					publish(PersonChangeEvent.bulkSaved(created, true));
+				}
+				if (!updated.isEmpty()) {
+					publish(PersonChangeEvent.bulkSaved(updated, false));
+				}
+			}
+		};
+	}
+
+	@Override
+	public BatchUpdateResult updateAll(final Iterable<Long> ids, 
+			final Consumer<? super Person> change) {
+		Assert.notNull(ids, "Ids must not be null");
+		Assert.notNull(change, "Change must not be null");
+		
+		long start = System.nanoTime();
+		List<Long> pending = new ArrayList<Long>();
+		for (Long id : ids) {
+			pending.add(id);
+		}
+		List<Long> updated = new ArrayList<Long>();
+		List<Long> failed = new ArrayList<Long>();
+		long conflicts = 0;
+		for (int attempt = 1; !pending.isEmpty(); attempt++) {
+			List<Long> conflicting = new ArrayList<Long>();
+			for (int from = 0; from < pending.size(); from += updateChunkSize) {
+				conflicts += updateChunk(new ArrayList<Long>(pending.subList(from, 
+						Math.min(from + updateChunkSize, pending.size()))), change, updated, 
+						conflicting);
+			}
+			if (conflicting.isEmpty()) {
+				break;
+			} else if (attempt >= maxUpdateAttempts || !backOff(attempt)) {
+				failed.addAll(conflicting);
+				break;
+			}
+			metrics.retried(conflicting.size());
+			pending = conflicting;
+		}
+		metrics.updated(updated.size());
+		metrics.failed(failed.size());
+		
+		BatchUpdateResult result = new BatchUpdateResult(updated, failed, conflicts, 
+				System.nanoTime() - start);
+		LOG.info("Batch update: {}", result);
+		return result;
+	}
+
+	/**
+	 * Returns the id of the {@link Person} reported as conflicting. A conflict on another 
+	 * entity, e.g. an address, reports the id of that entity, which must not be taken for 
+	 * the id of a {@link Person}.
+	 */
+	private static Object conflictingPersonId(final OptimisticLockingFailureException ex) {
+		if (ex instanceof ObjectOptimisticLockingFailureException) {
+			ObjectOptimisticLockingFailureException objectEx = 
+					(ObjectOptimisticLockingFailureException) ex;
+			if (Person.class.getName().equals(objectEx.getPersistentClassName())) {
+				return objectEx.getIdentifier();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Updates a chunk in its own transaction. On a conflict the transaction is rolled back, 
+	 * the conflicting {@link Person} is put aside and the rest of the chunk is updated again. 
+	 * If the conflicting {@link Person} is not reported, the chunk is bisected until it is 
+	 * found.
+	 * @return number of conflicts
+	 */
+	private long updateChunk(final List<Long> chunk, final Consumer<? super Person> change, 
+			final List<Long> updated, final List<Long> conflicting) {
+		long conflicts = 0;
+		List<Long> remaining = chunk;
+		while (!remaining.isEmpty()) {
+			try {
+				updated.addAll(transactionTemplate.execute(updateCallback(remaining, change)));
+				return conflicts;
+			} catch (OptimisticLockingFailureException ex) {
+				conflicts++;
+				metrics.conflict();
+				Object id = conflictingPersonId(ex);
+				if (id != null && remaining.remove(id)) {
+					conflicting.add((Long) id);
+				} else if (remaining.size() == 1) {
+					conflicting.addAll(remaining);
+					return conflicts;
+				} else {
+					int half = remaining.size() / 2;
+					conflicts += updateChunk(new ArrayList<Long>(remaining.subList(0, half)), 
+							change, updated, conflicting);
+					conflicts += updateChunk(new ArrayList<Long>(remaining.subList(half, 
+							remaining.size())), change, updated, conflicting);
+					return conflicts;
+				}
+			}
+		}
+		return conflicts;
+	}
+
+	private TransactionCallback<List<Long>> updateCallback(final List<Long> ids, 
+			final Consumer<? super Person> change) {
+		return new TransactionCallback<List<Long>>() {
+			@Override
+			public List<Long> doInTransaction(final TransactionStatus status) {
+				List<Person> persons = personRepository.findAll(ids);
+				List<Long> updated = new ArrayList<Long>(persons.size());
+				for (Person person : persons) {
+					change.accept(person);
+					updated.add(person.getId());
+				}
+				personRepository.flush();
+				for (Person person : persons) {
+					publish(PersonChangeEvent.saved(person, false));
+				}
+				return updated;
+			}
+		};
+	}
+
+	/**
+	 * Waits a random time growing with the attempt, so that competing writers 
+	 * do not conflict again right away.
+	 * @return {@literal false} if interrupted
+	 */
+	private boolean backOff(final int attempt) {
+		if (updateRetryBackoff <= 0) {
+			return true;
+		}
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(updateRetryBackoff * attempt) + 1);
+			return true;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
 	}
 
 	@Override
@@ -50,13 +292,96 @@ public class PersonServiceImpl implements PersonService {
 	public List<Person> findAllOfAge() {
 		List<Person> persons = new ArrayList<Person>();
 		
-		for (Person person : personRepository.findAll(PersonQueryDslSpecifications.isOfAge())) {
+		for (Person person : personRepository.findAll(ageSpecifications.isOfAgePredicate())) {
 			persons.add(person);
 		}
 		
 		return persons;
 	}
 
+	@Override
+	public KeysetSlice findAll(final KeysetOrder order, final String continuationToken, 
+			final int size) {
+		return personRepository.findAllAfter((Specification<Person>) null, order, 
+				PersonKey.fromToken(continuationToken), size);
+	}
+
+	@Override
+	public List<PersonSummary> findAllSummaries() {
+		return personRepository.findAllSummaries();
+	}
+
+	@Override
+	public List<PersonSummary> findAllOfAgeSummaries() {
+		return personRepository.findAllSummariesBornOnOrBefore(ageSpecifications.getCutoff());
+	}
+
+	@Override
+	public List<PersonWithCity> findAllWithCityLivingIn(final String city) {
+		return personRepository.findAllWithCityLivingIn(city);
+	}
+
+	@Override
+	public List<Person> findAllWithAddresses() {
+		return personRepository.findAllWithAddresses();
+	}
+
+	@Override
+	public List<Person> findAllOfAgeWithAddresses() {
+		return personRepository.findAllWithAddresses(ageSpecifications.isOfAgePredicate());
+	}
+
+	@Override
+	public List<Person> findAllMinorsWithAddresses() {
+		return personRepository.findAllWithAddresses(ageSpecifications.isMinor());
+	}
+
+	@Override
+	public List<Person> findAllLivingInCityWithAddresses(final String city) {
+		return personRepository.findAllLivingInCityWithAddresses(city);
+	}
+
+	@Override
+	public Stream<Person> streamAll() {
+		return personRepository.streamAll((Specification<Person>) null);
+	}
+
+	@Override
+	public Stream<Person> streamAllOfAge() {
+		return personRepository.streamAll(ageSpecifications.isOfAgePredicate());
+	}
+
+	@Override
+	public Stream<Person> streamAllMinors() {
+		return personRepository.streamAll(ageSpecifications.isMinor());
+	}
+
+	@Override
+	public KeysetSlice findAllOfAge(final String continuationToken, final int size) {
+		return personRepository.findAllAfter(ageSpecifications.isOfAgePredicate(), 
+				KeysetOrder.NAME, PersonKey.fromToken(continuationToken), size);
+	}
+
+	@Override
+	public KeysetSlice findAllMinors(final String continuationToken, final int size) {
+		return personRepository.findAllAfter(ageSpecifications.isMinor(), 
+				KeysetOrder.NAME, PersonKey.fromToken(continuationToken), size);
+	}
+
+	@Override
+	public KeysetSlice findAllLivingInCity(final String city, final String continuationToken, 
+			final int size) {
+		return personRepository.findAllAfter(PersonSpecifications.livesIn(city), 
+				KeysetOrder.NAME, PersonKey.fromToken(continuationToken), size);
+	}
+
+	@Override
+	public KeysetSlice findAllLivingInCities(final Collection<String> cities, 
+			final String continuationToken, final int size) {
+		return personRepository.findAllAfter(PersonSpecifications.livesInAnyOf(cities), 
+				KeysetOrder.NAME, PersonKey.fromToken(continuationToken), size);
+	}
+
 	@Override
 	public List<Person> findAll(final Iterable<Long> ids) {
 		return personRepository.findAll(ids);
@@ -64,13 +389,13 @@ public class PersonServiceImpl implements PersonService {
 
 	@Override
 	public List<Person> findAllMinors() {
-		return personRepository.findAll(PersonSpecifications.isMinor());
+		return personRepository.findAll(ageSpecifications.isMinor());
 	}
 	
 	@Override
 	public List<Person> findAllOfAgeWithLastName(final String lastName) {
 		return personRepository.findAll(
-				where(PersonSpecifications.isOfAge()).and(
+				where(ageSpecifications.isOfAge()).and(
 						PersonSpecifications.lastNameIs(lastName)));
 	}
 
@@ -79,10 +404,26 @@ public class PersonServiceImpl implements PersonService {
 		return personRepository.findByFirstNameAndLastName(firstName, lastName);
 	}
 
+	@Override
+	public Map<PersonName, Person> findAllByFirstNameAndLastName(
+			final Collection<PersonName> names) {
+		return personRepository.findAllByName(names);
+	}
+
 	@Override
 	public List<Person> findAllLivingInCity(final String city) {
 		return personRepository.findAllLivingInCity(city);
 	}
+
+	@Override
+	public Map<String, List<Person>> findAllLivingInCities(final Collection<String> cities) {
+		return personRepository.findAllLivingInCities(cities);
+	}
+
+	@Override
+	public Stream<Person> streamAllLivingInCity(final String city) {
+		return personRepository.streamAll(PersonSpecifications.livesIn(city));
+	}
 	
 	@Override
 	public Person findOneById(Long id) {
@@ -102,22 +443,127 @@ public class PersonServiceImpl implements PersonService {
 	@Override
 	public void delete(final Long id) {
 		personRepository.delete(id);
+		publish(PersonChangeEvent.deleted(id));
 	}
 
 
 	@Override
 	public void delete(final Person entity) {
 		personRepository.delete(entity);
+		publish(PersonChangeEvent.deleted(entity));
 	}
 
 	@Override
 	public void delete(final Iterable<Person> entities) {
-		personRepository.delete(entities);
+		List<Long> ids = new ArrayList<Long>();
+		for (Person person : entities) {
+			if (!person.isNew()) {
+				ids.add(person.getId());
+			}
+		}
+		final Set<Long> deleted = new HashSet<Long>();
+		personRepository.deleteInBulk(ids, bulkDeleteBatchSize, new Consumer<List<Long>>() {
+			@Override
+			public void accept(final List<Long> batch) {
+				deleted.addAll(batch);
+			}
+		});
+		for (Person person : entities) {
+			if (deleted.contains(person.getId())) {
+				publish(PersonChangeEvent.deleted(person));
+			}
+		}
 	}
 
 	@Override
 	public void deleteAll() {
-		personRepository.deleteAll();
+		BulkDeleteResult result = personRepository.deleteInBulk((Specification<Person>) null, 
+				bulkDeleteBatchSize, null);
+		LOG.info("Deleted all {}", result);
+		publish(PersonChangeEvent.allDeleted());
+	}
+
+	@Override
+	public BulkDeleteResult deleteAllById(final Iterable<Long> ids) {
+		return logged(personRepository.deleteInBulk(ids, bulkDeleteBatchSize, 
+				publishingDeleted()));
+	}
+
+	@Override
+	public BulkDeleteResult deleteAllLivingInCity(final String city) {
+		return logged(personRepository.deleteInBulk(PersonSpecifications.livesIn(city), 
+				bulkDeleteBatchSize, publishingDeleted()));
+	}
+
+	@Override
+	public BulkDeleteResult deleteAllBornBetween(final Date from, final Date to) {
+		return logged(personRepository.deleteInBulk(
+				PersonQueryDslSpecifications.isBornBetween(from, to), bulkDeleteBatchSize, 
+				publishingDeleted()));
+	}
+
+	/**
+	 * Returns a callback publishing an event per batch of deleted {@link Person}s, so their 
+	 * ids are never collected as a whole.
+	 */
+	private Consumer<List<Long>> publishingDeleted() {
+		return new Consumer<List<Long>>() {
+			@Override
+			public void accept(final List<Long> batch) {
+				publish(PersonChangeEvent.bulkDeleted(batch));
+			}
+		};
+	}
+
+	private static BulkDeleteResult logged(final BulkDeleteResult result) {
+		LOG.info("Deleted {}", result);
+		return result;
+	}
+
+	@Override
+	public int updateCity(final String city, final String newCity) {
+		List<Long> ids = personRepository.findIdsLivingInCity(city);
+		int updated = personRepository.updateCity(city, newCity);
+		if (!ids.isEmpty()) {
+			publish(PersonChangeEvent.bulkUpdated(ids));
+		}
+		return updated;
+	}
+
+	@Override
+	public Map<AgeBucket, Long> countByAgeBucket() {
+		return personStatistics.countByAgeBucket();
+	}
+
+	@Override
+	public long countOfAge() {
+		return personStatistics.countOfAge();
+	}
+
+	@Override
+	public long countMinors() {
+		return personStatistics.countMinors();
+	}
+
+	@Override
+	public Map<Country, Long> countByCountry() {
+		return personStatistics.countByCountry();
+	}
+
+	@Override
+	public long countLivingInCity(final String city) {
+		return personStatistics.countLivingInCity(city);
+	}
+
+	@Override
+	public List<PersonSearchHit> search(final String query, final int maxResults) {
+		return personSearchIndex.search(query, maxResults);
+	}
+
+	private void publish(final PersonChangeEvent event) {
+		if (eventPublisher != null) {
+			eventPublisher.publishEvent(event);
+		}
 	}
 
 	/**
@@ -128,5 +574,93 @@ public class PersonServiceImpl implements PersonService {
 		this.personRepository = personRepository;
 	}
 
+	/**
+	 * Sets the registry of age based specifications.
+	 * @param ageSpecifications the {@link PersonAgeSpecifications}
+	 */
+	public void setAgeSpecifications(final PersonAgeSpecifications ageSpecifications) {
+		this.ageSpecifications = ageSpecifications;
+	}
+
+	/**
+	 * Sets the {@link PersonStatistics} answering counts.
+	 * @param personStatistics the {@link PersonStatistics}
+	 */
+	public void setPersonStatistics(final PersonStatistics personStatistics) {
+		this.personStatistics = personStatistics;
+	}
+
+	/**
+	 * Sets the {@link PersonSearchIndex} answering searches.
+	 * @param personSearchIndex the {@link PersonSearchIndex}
+	 */
+	public void setPersonSearchIndex(final PersonSearchIndex personSearchIndex) {
+		this.personSearchIndex = personSearchIndex;
+	}
+
+	@Override
+	public void setApplicationEventPublisher(final ApplicationEventPublisher eventPublisher) {
+		this.eventPublisher = eventPublisher;
+	}
+
+	/**
+	 * Sets the number of {@link Person}s to save before flushing during imports.
+	 * @param importBatchSize the import batch size
+	 */
+	public void setImportBatchSize(final int importBatchSize) {
+		this.importBatchSize = importBatchSize;
+	}
+
+	/**
+	 * Sets the number of {@link Person}s removed per <code>DELETE</code> statement during 
+	 * bulk deletes.
+	 * @param bulkDeleteBatchSize the bulk delete batch size
+	 */
+	public void setBulkDeleteBatchSize(final int bulkDeleteBatchSize) {
+		this.bulkDeleteBatchSize = bulkDeleteBatchSize;
+	}
+
+	/**
+	 * Sets the {@link TransactionTemplate} for the chunks of batched updates. It must start 
+	 * a new transaction, so that a conflict only rolls back its own chunk.
+	 * @param transactionTemplate the {@link TransactionTemplate}
+	 */
+	public void setTransactionTemplate(final TransactionTemplate transactionTemplate) {
+		this.transactionTemplate = transactionTemplate;
+	}
+
+	/**
+	 * Sets the number of {@link Person}s updated per transaction by batched updates.
+	 * @param updateChunkSize the chunk size
+	 */
+	public void setUpdateChunkSize(final int updateChunkSize) {
+		this.updateChunkSize = updateChunkSize;
+	}
+
+	/**
+	 * Sets how often a conflicting {@link Person} is updated before giving up.
+	 * @param maxUpdateAttempts the maximum number of attempts
+	 */
+	public void setMaxUpdateAttempts(final int maxUpdateAttempts) {
+		this.maxUpdateAttempts = maxUpdateAttempts;
+	}
+
+	/**
+	 * Sets the upper bound of the random wait before the first retry, later retries 
+	 * wait up to a multiple of it. Zero retries immediately.
+	 * @param updateRetryBackoff the backoff in milliseconds
+	 */
+	public void setUpdateRetryBackoff(final long updateRetryBackoff) {
+		this.updateRetryBackoff = updateRetryBackoff;
+	}
+
+	/**
+	 * Sets the {@link OptimisticLockMetrics} recording conflicts of batched updates.
+	 * @param metrics the {@link OptimisticLockMetrics}
+	 */
+	public void setOptimisticLockMetrics(final OptimisticLockMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 
 }
@@ -1,17 +1,25 @@
 package info.novatec.addressbook.entity;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
-import javax.persistence.OneToOne;
+import javax.persistence.FetchType;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.jpa.domain.AbstractPersistable;
 
 @SuppressWarnings("serial")
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Address extends AbstractPersistable<Long> {
 	@Size(min = 0, max = 30)
 	@Column(nullable = true, length = 30)
@@ -36,8 +44,13 @@ public class Address extends AbstractPersistable<Long> {
 	private Country country;
 	
 	@NotNull
-	@OneToOne
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "person_id", nullable = false)
 	private Person person;
+	
+	@Version
+	@Column(nullable = false)
+	private Long version;
 
 	/**
 	 * Constructor.
@@ -81,22 +94,42 @@ public class Address extends AbstractPersistable<Long> {
 		return street;
 	}
 	
+	public void setStreet(final String street) {
+		this.street = street;
+	}
+	
 	public String getPostOfficeBox() {
 		return postOfficeBox;
 	}
 	
+	public void setPostOfficeBox(final String postOfficeBox) {
+		this.postOfficeBox = postOfficeBox;
+	}
+	
 	public String getZip() {
 		return zip;
 	}
 	
+	public void setZip(final String zip) {
+		this.zip = zip;
+	}
+	
 	public String getCity() {
 		return city;
 	}
 	
+	public void setCity(final String city) {
+		this.city = city;
+	}
+	
 	public Country getCountry() {
 		return country;
 	}
 	
+	public void setCountry(final Country country) {
+		this.country = country;
+	}
+	
 	public Person getPerson() {
 		return person;
 	}
@@ -104,4 +137,8 @@ public class Address extends AbstractPersistable<Long> {
 	public void setPerson(Person person) {
 		this.person = person;
 	}
+	
+	public Long getVersion() {
+		return version;
+	}
 }
@@ -4,6 +4,7 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -13,15 +14,21 @@ import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToMany;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import javax.persistence.Version;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.data.jpa.domain.AbstractPersistable;
 
 @SuppressWarnings("serial")
 @NamedEntityGraph(name = "Person.addresses", attributeNodes = @NamedAttributeNode("addresses"))
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Person extends AbstractPersistable<Long> {
 
 	@NotNull
@@ -39,9 +46,15 @@ public class Person extends AbstractPersistable<Long> {
 	private Date birthDate;
 	
 	@Valid
-	@OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+	@BatchSize(size = 50)
+	@OneToMany(mappedBy = "person", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
 	private Set<Address> addresses = new HashSet<>();
 	
+	@Version
+	@Column(nullable = false)
+	private Long version;
+	
 	public Person() {
 		super();
 	}
@@ -66,23 +79,44 @@ public class Person extends AbstractPersistable<Long> {
 		return firstName;
 	}
 	
+	public void setFirstName(final String firstName) {
+		this.firstName = firstName;
+	}
+	
 	public String getLastName() {
 		return lastName;
 	}
 	
+	public void setLastName(final String lastName) {
+		this.lastName = lastName;
+	}
+	
 	public Date getBirthDate() {
 		return birthDate;
 	}
 	
+	public void setBirthDate(final Date birthDate) {
+		this.birthDate = birthDate;
+	}
+	
 	public Set<Address> getAddresses() {
 		return addresses;
 	}
 	
+	public Long getVersion() {
+		return version;
+	}
+	
+	/**
+	 * Adds an {@link Address} and sets this {@link Person} as its owner.
+	 * @param address the {@link Address} to add
+	 */
 	public void addAddress(Address address) {
 		if (this.addresses == null) {
 			this.addresses = new HashSet<>();
 		}
 		
+		address.setPerson(this);
 		this.addresses.add(address);
 	}
 	
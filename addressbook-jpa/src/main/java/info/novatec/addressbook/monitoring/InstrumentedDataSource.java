@@ -0,0 +1,76 @@
+package info.novatec.addressbook.monitoring;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * {@link DataSource} measuring how long callers wait for connections of the pool. 
+ * The waits are recorded per thread in {@link JdbcCounters} and in a histogram 
+ * exposed as metrics (prefix <code>addressbook.jdbc.connection</code>, or 
+ * <code>addressbook.jdbc.&lt;name&gt;.connection</code> for named pools).
+ */
+public class InstrumentedDataSource extends DelegatingDataSource implements PublicMetrics {
+	private final String prefix;
+	
+	private final LatencyHistogram acquisition = new LatencyHistogram();
+
+	/**
+	 * Constructor.
+	 * @param targetDataSource the pooled {@link DataSource}
+	 */
+	public InstrumentedDataSource(final DataSource targetDataSource) {
+		this(targetDataSource, null);
+	}
+
+	/**
+	 * Constructor for one of several pools.
+	 * @param targetDataSource the pooled {@link DataSource}
+	 * @param name name of the pool used in metric names, {@literal null} for the only pool
+	 */
+	public InstrumentedDataSource(final DataSource targetDataSource, final String name) {
+		super(targetDataSource);
+		this.prefix = name == null ? "addressbook.jdbc.connection." 
+				: "addressbook.jdbc." + name + ".connection.";
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		long start = System.nanoTime();
+		Connection connection = super.getConnection();
+		recordAcquisition(System.nanoTime() - start);
+		return connection;
+	}
+
+	@Override
+	public Connection getConnection(final String username, final String password) 
+			throws SQLException {
+		long start = System.nanoTime();
+		Connection connection = super.getConnection(username, password);
+		recordAcquisition(System.nanoTime() - start);
+		return connection;
+	}
+
+	private void recordAcquisition(final long nanos) {
+		acquisition.record(nanos);
+		JdbcCounters.current().connectionAcquired(nanos);
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		metrics.add(new Metric<Long>(prefix + "count", acquisition.getCount()));
+		metrics.add(new Metric<Double>(prefix + "time.mean", acquisition.getMeanMillis()));
+		metrics.add(new Metric<Double>(prefix + "time.p99", acquisition.getPercentileMillis(0.99)));
+		metrics.add(new Metric<Double>(prefix + "time.max", acquisition.getMaxMillis()));
+		return metrics;
+	}
+}
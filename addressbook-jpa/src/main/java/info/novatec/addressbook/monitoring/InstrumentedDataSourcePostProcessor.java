@@ -0,0 +1,44 @@
+package info.novatec.addressbook.monitoring;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Wraps every pooled {@link DataSource} bean into an {@link InstrumentedDataSource}. 
+ * Proxies and routers are left alone, as the pools behind them are instrumented. 
+ * The pool <code>dataSource</code> is reported without name, others by their bean name 
+ * without <code>DataSource</code> suffix, e.g. <code>replica</code>.
+ */
+public class InstrumentedDataSourcePostProcessor implements BeanPostProcessor {
+	private static final String DEFAULT_NAME = "dataSource";
+	
+	private static final String SUFFIX = "DataSource";
+
+	@Override
+	public Object postProcessBeforeInitialization(final Object bean, final String beanName)
+			throws BeansException {
+		return bean;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(final Object bean, final String beanName)
+			throws BeansException {
+		if (bean instanceof DataSource && !(bean instanceof DelegatingDataSource) 
+				&& !(bean instanceof AbstractRoutingDataSource)) {
+			return new InstrumentedDataSource((DataSource) bean, nameOf(beanName));
+		}
+		return bean;
+	}
+
+	private static String nameOf(final String beanName) {
+		if (DEFAULT_NAME.equals(beanName)) {
+			return null;
+		}
+		return beanName.endsWith(SUFFIX) && beanName.length() > SUFFIX.length() 
+				? beanName.substring(0, beanName.length() - SUFFIX.length()) : beanName;
+	}
+}
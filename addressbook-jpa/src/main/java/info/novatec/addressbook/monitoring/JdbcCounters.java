@@ -0,0 +1,127 @@
+package info.novatec.addressbook.monitoring;
+
+/**
+ * Per-thread counters of JDBC activity. They are only ever written by their own thread, 
+ * so plain fields suffice; instrumentation takes the difference before and after a call.
+ */
+public final class JdbcCounters {
+	private static final ThreadLocal<JdbcCounters> CURRENT = new ThreadLocal<JdbcCounters>() {
+		@Override
+		protected JdbcCounters initialValue() {
+			return new JdbcCounters();
+		}
+	};
+	
+	private long statements;
+	
+	private long flushes;
+	
+	private long flushStart;
+	
+	private long flushNanos;
+	
+	private long dirtyChecks;
+	
+	private long connections;
+	
+	private long connectionNanos;
+	
+	private String lastSql;
+
+	private JdbcCounters() {
+		super();
+	}
+
+	/**
+	 * Returns the counters of the current thread.
+	 * @return the {@link JdbcCounters}
+	 */
+	public static JdbcCounters current() {
+		return CURRENT.get();
+	}
+
+	void statementPrepared(final String sql) {
+		statements++;
+		lastSql = sql;
+	}
+
+	void flushed() {
+		flushes++;
+		flushStart = System.nanoTime();
+	}
+
+	void flushCompleted() {
+		if (flushStart != 0) {
+			flushNanos += System.nanoTime() - flushStart;
+			flushStart = 0;
+		}
+	}
+
+	void dirtyChecked() {
+		dirtyChecks++;
+	}
+
+	void connectionAcquired(final long nanos) {
+		connections++;
+		connectionNanos += nanos;
+	}
+
+	/**
+	 * Returns the number of statements prepared by this thread.
+	 * @return number of statements
+	 */
+	public long getStatements() {
+		return statements;
+	}
+
+	/**
+	 * Returns the number of persistence context flushes of this thread.
+	 * @return number of flushes
+	 */
+	public long getFlushes() {
+		return flushes;
+	}
+
+	/**
+	 * Returns the time this thread spent in flushes that executed changes, from the 
+	 * start of the dirty check to the end of the last statement. Flushes finding nothing 
+	 * to write are not included.
+	 * @return time in nanoseconds
+	 */
+	public long getFlushNanos() {
+		return flushNanos;
+	}
+
+	/**
+	 * Returns the number of entities dirty checked by flushes of this thread. Every flush 
+	 * checks every managed entity, so this grows with the size of the persistence context.
+	 * @return number of dirty checked entities
+	 */
+	public long getDirtyChecks() {
+		return dirtyChecks;
+	}
+
+	/**
+	 * Returns the number of connections acquired by this thread.
+	 * @return number of connections
+	 */
+	public long getConnections() {
+		return connections;
+	}
+
+	/**
+	 * Returns the time this thread spent waiting for connections.
+	 * @return time in nanoseconds
+	 */
+	public long getConnectionNanos() {
+		return connectionNanos;
+	}
+
+	/**
+	 * Returns the SQL of the last statement prepared by this thread.
+	 * @return the SQL or {@literal null}
+	 */
+	public String getLastSql() {
+		return lastSql;
+	}
+}
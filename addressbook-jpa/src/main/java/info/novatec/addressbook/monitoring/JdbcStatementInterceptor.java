@@ -0,0 +1,41 @@
+package info.novatec.addressbook.monitoring;
+
+import java.io.Serializable;
+import java.util.Iterator;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+
+/**
+ * Hibernate interceptor counting prepared statements, flushes, flush time and dirty 
+ * checked entities in the {@link JdbcCounters} of the current thread. It is registered with 
+ * <code>hibernate.ejb.interceptor</code>.
+ */
+public class JdbcStatementInterceptor extends EmptyInterceptor {
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public String onPrepareStatement(final String sql) {
+		JdbcCounters.current().statementPrepared(sql);
+		return sql;
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public void preFlush(final Iterator entities) {
+		JdbcCounters.current().flushed();
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public void postFlush(final Iterator entities) {
+		JdbcCounters.current().flushCompleted();
+	}
+
+	@Override
+	public int[] findDirty(final Object entity, final Serializable id, final Object[] currentState,
+			final Object[] previousState, final String[] propertyNames, final Type[] types) {
+		JdbcCounters.current().dirtyChecked();
+		return null;
+	}
+}
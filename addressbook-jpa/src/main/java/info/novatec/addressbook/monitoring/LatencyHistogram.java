@@ -0,0 +1,104 @@
+package info.novatec.addressbook.monitoring;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets. Recording does not
+ * allocate, so it is safe to use on hot paths; percentiles are reported as the upper bound
+ * of the bucket they fall into.
+ */
+public class LatencyHistogram {
+	private static final int BUCKETS = 40;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+	private final LongAdder count = new LongAdder();
+
+	private final LongAdder totalNanos = new LongAdder();
+
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+	/**
+	 * Constructor.
+	 */
+	public LatencyHistogram() {
+		super();
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records a single duration.
+	 * @param nanos duration in nanoseconds
+	 */
+	public void record(final long nanos) {
+		long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0L));
+		int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+		buckets[bucket].increment();
+		count.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+	}
+
+	/**
+	 * Returns the number of recorded durations.
+	 * @return the count
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Returns the sum of all recorded durations.
+	 * @return total in milliseconds
+	 */
+	public double getTotalMillis() {
+		return totalNanos.sum() / 1000000.0;
+	}
+
+	/**
+	 * Returns the mean of all recorded durations.
+	 * @return mean in milliseconds or 0 if nothing was recorded
+	 */
+	public double getMeanMillis() {
+		long n = count.sum();
+		return n == 0 ? 0.0 : totalNanos.sum() / 1000000.0 / n;
+	}
+
+	/**
+	 * Returns the longest recorded duration.
+	 * @return maximum in milliseconds
+	 */
+	public double getMaxMillis() {
+		return maxNanos.get() / 1000000.0;
+	}
+
+	/**
+	 * Returns an upper bound for the given percentile.
+	 * @param percentile percentile between 0 and 1, e.g. 0.99
+	 * @return upper bound of the bucket holding the percentile in milliseconds
+	 */
+	public double getPercentileMillis(final double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long n = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = buckets[i].sum();
+			n += snapshot[i];
+		}
+		if (n == 0) {
+			return 0.0;
+		}
+		long rank = (long) Math.ceil(percentile * n);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min((1L << i) / 1000.0, getMaxMillis());
+			}
+		}
+		return getMaxMillis();
+	}
+}
@@ -0,0 +1,131 @@
+package info.novatec.addressbook.monitoring;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics recorded for a single instrumented method: latency, failures, rows returned 
+ * and the JDBC activity (statements, flushes, connection waits) caused by its calls.
+ */
+public class MethodMetrics {
+	private final String name;
+	
+	private final LatencyHistogram latency = new LatencyHistogram();
+	
+	private final LongAdder errors = new LongAdder();
+	
+	private final LongAdder rows = new LongAdder();
+	
+	private final LongAdder statements = new LongAdder();
+	
+	private final LongAdder flushes = new LongAdder();
+	
+	private final LongAdder connections = new LongAdder();
+	
+	private final LongAdder connectionNanos = new LongAdder();
+
+	/**
+	 * Constructor.
+	 * @param method the instrumented method
+	 */
+	public MethodMetrics(final Method method) {
+		super();
+		StringBuilder builder = new StringBuilder(method.getName()).append('(');
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (i > 0) {
+				builder.append(',');
+			}
+			builder.append(parameterTypes[i].getSimpleName());
+		}
+		this.name = builder.append(')').toString();
+	}
+
+	/**
+	 * Records a single call.
+	 * @param nanos duration of the call
+	 * @param failed whether the call threw an exception
+	 * @param rowCount number of rows returned
+	 * @param statementCount number of statements prepared during the call
+	 * @param flushCount number of flushes during the call
+	 * @param connectionCount number of connections acquired during the call
+	 * @param connectionWaitNanos time spent waiting for connections during the call
+	 */
+	public void record(final long nanos, final boolean failed, final long rowCount, 
+			final long statementCount, final long flushCount, final long connectionCount, 
+			final long connectionWaitNanos) {
+		latency.record(nanos);
+		if (failed) {
+			errors.increment();
+		}
+		rows.add(rowCount);
+		statements.add(statementCount);
+		flushes.add(flushCount);
+		connections.add(connectionCount);
+		connectionNanos.add(connectionWaitNanos);
+	}
+
+	/**
+	 * Returns the metric name of the method, e.g. <code>findAll(Iterable)</code>.
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the latency histogram.
+	 * @return the {@link LatencyHistogram}
+	 */
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	/**
+	 * Returns the number of failed calls.
+	 * @return number of errors
+	 */
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	/**
+	 * Returns the total number of rows returned.
+	 * @return number of rows
+	 */
+	public long getRows() {
+		return rows.sum();
+	}
+
+	/**
+	 * Returns the total number of statements prepared.
+	 * @return number of statements
+	 */
+	public long getStatements() {
+		return statements.sum();
+	}
+
+	/**
+	 * Returns the total number of flushes.
+	 * @return number of flushes
+	 */
+	public long getFlushes() {
+		return flushes.sum();
+	}
+
+	/**
+	 * Returns the total number of connections acquired.
+	 * @return number of connections
+	 */
+	public long getConnections() {
+		return connections.sum();
+	}
+
+	/**
+	 * Returns the total time spent waiting for connections.
+	 * @return time in milliseconds
+	 */
+	public double getConnectionMillis() {
+		return connectionNanos.sum() / 1000000.0;
+	}
+}
@@ -0,0 +1,161 @@
+package info.novatec.addressbook.monitoring;
+
+import info.novatec.addressbook.repository.KeysetSlice;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.AspectJExpressionPointcutAdvisor;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.Ordered;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Advisor instrumenting all methods of a type and its implementations. Per method it 
+ * records latency, rows returned, statements, flushes and connection waits and exposes 
+ * them as metrics (prefix <code>addressbook.&lt;layer&gt;.&lt;method&gt;</code>). 
+ * Counts include nested calls, e.g. the statements of a repository call are also counted 
+ * for the service calling it. 
+ * <p>
+ * If a slow call threshold is set, calls exceeding it are logged with their arguments 
+ * and the last SQL statement to the <code>info.novatec.addressbook.slowquery</code> logger.
+ * </p>
+ * Recording does not allocate once a method has been called for the first time. The 
+ * advisor runs before the transaction interceptor, so commit time is included.
+ */
+public class MethodMetricsAdvisor extends AspectJExpressionPointcutAdvisor 
+		implements MethodInterceptor, PublicMetrics {
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger SLOW_LOG = 
+			LoggerFactory.getLogger("info.novatec.addressbook.slowquery");
+	
+	private static final String PREFIX = "addressbook.";
+	
+	private final String layer;
+	
+	private final transient ConcurrentMap<Method, MethodMetrics> methods = 
+			new ConcurrentHashMap<Method, MethodMetrics>();
+	
+	private long slowThresholdNanos;
+
+	/**
+	 * Constructor.
+	 * @param layer name of the layer used in metric names, e.g. <code>repository</code>
+	 * @param type the instrumented type
+	 */
+	public MethodMetricsAdvisor(final String layer, final Class<?> type) {
+		super();
+		this.layer = layer;
+		setExpression("execution(* " + type.getName() + "+.*(..))");
+		setAdvice(this);
+		setOrder(Ordered.HIGHEST_PRECEDENCE);
+	}
+
+	@Override
+	public Object invoke(final MethodInvocation invocation) throws Throwable {
+		JdbcCounters counters = JdbcCounters.current();
+		long statements = counters.getStatements();
+		long flushes = counters.getFlushes();
+		long connections = counters.getConnections();
+		long connectionNanos = counters.getConnectionNanos();
+		long start = System.nanoTime();
+		boolean failed = true;
+		Object result = null;
+		try {
+			result = invocation.proceed();
+			failed = false;
+			return result;
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			MethodMetrics metrics = metricsFor(invocation.getMethod());
+			metrics.record(elapsed, failed, rowsOf(result), counters.getStatements() - statements, 
+					counters.getFlushes() - flushes, counters.getConnections() - connections, 
+					counters.getConnectionNanos() - connectionNanos);
+			if (slowThresholdNanos > 0 && elapsed >= slowThresholdNanos) {
+				logSlowCall(metrics, invocation, elapsed, counters.getStatements() - statements, 
+						counters.getLastSql());
+			}
+		}
+	}
+
+	private MethodMetrics metricsFor(final Method method) {
+		MethodMetrics metrics = methods.get(method);
+		if (metrics == null) {
+			MethodMetrics created = new MethodMetrics(method);
+			metrics = methods.putIfAbsent(method, created);
+			if (metrics == null) {
+				metrics = created;
+			}
+		}
+		return metrics;
+	}
+
+	private static long rowsOf(final Object result) {
+		if (result == null) {
+			return 0;
+		} else if (result instanceof Collection) {
+			return ((Collection<?>) result).size();
+		} else if (result instanceof Slice) {
+			return ((Slice<?>) result).getNumberOfElements();
+		} else if (result instanceof KeysetSlice) {
+			return ((KeysetSlice) result).getContent().size();
+		} else if (result instanceof Map) {
+			return ((Map<?, ?>) result).size();
+		} else if (result instanceof AutoCloseable) {
+			return 0;
+		}
+		return 1;
+	}
+
+	private void logSlowCall(final MethodMetrics metrics, final MethodInvocation invocation, 
+			final long elapsed, final long statements, final String lastSql) {
+		if (SLOW_LOG.isWarnEnabled()) {
+			SLOW_LOG.warn("Slow call {}.{} took {} ms with {} statements, arguments {}, last SQL: {}", 
+					layer, metrics.getName(), TimeUnit.NANOSECONDS.toMillis(elapsed), statements, 
+					Arrays.toString(invocation.getArguments()), lastSql);
+		}
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> result = new ArrayList<Metric<?>>();
+		for (MethodMetrics metrics : methods.values()) {
+			String prefix = PREFIX + layer + "." + metrics.getName() + ".";
+			LatencyHistogram latency = metrics.getLatency();
+			result.add(new Metric<Long>(prefix + "count", latency.getCount()));
+			result.add(new Metric<Long>(prefix + "errors", metrics.getErrors()));
+			result.add(new Metric<Double>(prefix + "time.mean", latency.getMeanMillis()));
+			result.add(new Metric<Double>(prefix + "time.p50", latency.getPercentileMillis(0.5)));
+			result.add(new Metric<Double>(prefix + "time.p99", latency.getPercentileMillis(0.99)));
+			result.add(new Metric<Double>(prefix + "time.max", latency.getMaxMillis()));
+			result.add(new Metric<Long>(prefix + "rows", metrics.getRows()));
+			result.add(new Metric<Long>(prefix + "statements", metrics.getStatements()));
+			result.add(new Metric<Long>(prefix + "flushes", metrics.getFlushes()));
+			result.add(new Metric<Long>(prefix + "connections", metrics.getConnections()));
+			result.add(new Metric<Double>(prefix + "connection.time", 
+					metrics.getConnectionMillis()));
+		}
+		return result;
+	}
+
+	/**
+	 * Sets the duration above which calls are logged as slow. Zero disables the log.
+	 * @param slowThresholdMillis threshold in milliseconds
+	 */
+	public void setSlowThresholdMillis(final long slowThresholdMillis) {
+		this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+	}
+}
@@ -0,0 +1,66 @@
+package info.novatec.addressbook.monitoring;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * Counts optimistic locking conflicts of batched updates and how they were resolved 
+ * and exposes them as metrics (prefix <code>addressbook.optimistic-lock</code>).
+ */
+public class OptimisticLockMetrics implements PublicMetrics {
+	private static final String PREFIX = "addressbook.optimistic-lock.";
+
+	private final LongAdder updated = new LongAdder();
+
+	private final LongAdder conflicts = new LongAdder();
+
+	private final LongAdder retried = new LongAdder();
+
+	private final LongAdder failed = new LongAdder();
+
+	/**
+	 * Records rows updated successfully.
+	 * @param rows number of rows
+	 */
+	public void updated(final long rows) {
+		updated.add(rows);
+	}
+
+	/**
+	 * Records a transaction rolled back because of a concurrent modification.
+	 */
+	public void conflict() {
+		conflicts.increment();
+	}
+
+	/**
+	 * Records rows scheduled for another attempt after a conflict.
+	 * @param rows number of rows
+	 */
+	public void retried(final long rows) {
+		retried.add(rows);
+	}
+
+	/**
+	 * Records rows given up after the last attempt.
+	 * @param rows number of rows
+	 */
+	public void failed(final long rows) {
+		failed.add(rows);
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		metrics.add(new Metric<Long>(PREFIX + "updated", updated.sum()));
+		metrics.add(new Metric<Long>(PREFIX + "conflicts", conflicts.sum()));
+		metrics.add(new Metric<Long>(PREFIX + "retried", retried.sum()));
+		metrics.add(new Metric<Long>(PREFIX + "failed", failed.sum()));
+		return metrics;
+	}
+}
@@ -0,0 +1,236 @@
+package info.novatec.addressbook.monitoring;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.hibernate.Session;
+import org.hibernate.stat.SessionStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.AspectJExpressionPointcutAdvisor;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Advisor watching the footprint of the persistence context of a transaction after every
+ * call of the methods of a type and its implementations. Per transaction it records the
+ * peak number of managed entities and collections, the flushes with their duration and
+ * the number of dirty checked entities, and exposes the aggregates as metrics (prefix
+ * <code>addressbook.persistence-context</code>).
+ * <p>
+ * A transaction exceeding the warn threshold is logged once. Exceeding the clear
+ * threshold flushes and clears the persistence context, so entities loaded before become
+ * detached; it is meant for long running jobs that do not work with entities across
+ * calls. Both thresholds are disabled with 0.
+ * </p>
+ * The {@link EntityManagerFactory} is looked up on first use, as advisors are created
+ * before the persistence unit.
+ */
+public class PersistenceContextMonitor extends AspectJExpressionPointcutAdvisor
+		implements MethodInterceptor, PublicMetrics, BeanFactoryAware {
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger LOG = LoggerFactory.getLogger(PersistenceContextMonitor.class);
+
+	private static final String PREFIX = "addressbook.persistence-context.";
+
+	private transient BeanFactory beanFactory;
+
+	private transient volatile EntityManager entityManager;
+
+	private int warnThreshold;
+
+	private int clearThreshold;
+
+	private final transient LongAdder transactions = new LongAdder();
+
+	private final transient LongAdder peakEntities = new LongAdder();
+
+	private final transient LongAccumulator maxEntities = new LongAccumulator(Math::max, 0L);
+
+	private final transient LongAdder peakCollections = new LongAdder();
+
+	private final transient LongAccumulator maxCollections = new LongAccumulator(Math::max, 0L);
+
+	private final transient LongAdder flushes = new LongAdder();
+
+	private final transient LongAdder flushNanos = new LongAdder();
+
+	private final transient LongAdder dirtyChecks = new LongAdder();
+
+	private final transient LongAdder warnings = new LongAdder();
+
+	private final transient LongAdder clears = new LongAdder();
+
+	/**
+	 * Constructor.
+	 * @param type the monitored type
+	 */
+	public PersistenceContextMonitor(final Class<?> type) {
+		super();
+		setExpression("execution(* " + type.getName() + "+.*(..))");
+		setAdvice(this);
+	}
+
+	@Override
+	public void setBeanFactory(final BeanFactory beanFactory) throws BeansException {
+		this.beanFactory = beanFactory;
+	}
+
+	@Override
+	public Object invoke(final MethodInvocation invocation) throws Throwable {
+		boolean failed = true;
+		try {
+			Object result = invocation.proceed();
+			failed = false;
+			return result;
+		} finally {
+			if (TransactionSynchronizationManager.isSynchronizationActive()) {
+				inspect(invocation, failed);
+			}
+		}
+	}
+
+	private void inspect(final MethodInvocation invocation, final boolean failed) {
+		EntityManager em = entityManager();
+		SessionStatistics statistics = em.unwrap(Session.class).getStatistics();
+		int entities = statistics.getEntityCount();
+		Footprint footprint = currentFootprint();
+		footprint.observe(entities, statistics.getCollectionCount());
+
+		if (!failed && clearThreshold > 0 && entities >= clearThreshold) {
+			if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+				em.flush();
+			}
+			em.clear();
+			clears.increment();
+			LOG.debug("Cleared persistence context holding {} entities after {}", entities,
+					invocation.getMethod().getName());
+		} else if (warnThreshold > 0 && entities >= warnThreshold && !footprint.warned) {
+			footprint.warned = true;
+			warnings.increment();
+			LOG.warn("Persistence context holds {} entities and {} collections after {}, "
+					+ "every flush dirty checks all of them", entities,
+					statistics.getCollectionCount(), invocation.getMethod().getName());
+		}
+	}
+
+	private EntityManager entityManager() {
+		if (entityManager == null) {
+			entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+					beanFactory.getBean(EntityManagerFactory.class));
+		}
+		return entityManager;
+	}
+
+	/**
+	 * Returns the {@link Footprint} of the current transaction. Looked up among the
+	 * synchronizations, so transactions suspended by <code>REQUIRES_NEW</code> keep theirs.
+	 */
+	private Footprint currentFootprint() {
+		for (TransactionSynchronization synchronization
+				: TransactionSynchronizationManager.getSynchronizations()) {
+			if (synchronization instanceof Footprint
+					&& ((Footprint) synchronization).getMonitor() == this) {
+				return (Footprint) synchronization;
+			}
+		}
+		Footprint footprint = new Footprint();
+		TransactionSynchronizationManager.registerSynchronization(footprint);
+		return footprint;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		long count = transactions.sum();
+		long flushCount = flushes.sum();
+		List<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		metrics.add(new Metric<Long>(PREFIX + "transactions", count));
+		metrics.add(new Metric<Long>(PREFIX + "entities.max", maxEntities.get()));
+		metrics.add(new Metric<Double>(PREFIX + "entities.mean",
+				count == 0 ? 0.0 : (double) peakEntities.sum() / count));
+		metrics.add(new Metric<Long>(PREFIX + "collections.max", maxCollections.get()));
+		metrics.add(new Metric<Double>(PREFIX + "collections.mean",
+				count == 0 ? 0.0 : (double) peakCollections.sum() / count));
+		metrics.add(new Metric<Long>(PREFIX + "flushes", flushCount));
+		metrics.add(new Metric<Double>(PREFIX + "flush.time", flushNanos.sum() / 1000000.0));
+		metrics.add(new Metric<Long>(PREFIX + "dirty-checks", dirtyChecks.sum()));
+		metrics.add(new Metric<Double>(PREFIX + "dirty-checks.per-flush",
+				flushCount == 0 ? 0.0 : (double) dirtyChecks.sum() / flushCount));
+		metrics.add(new Metric<Long>(PREFIX + "warnings", warnings.sum()));
+		metrics.add(new Metric<Long>(PREFIX + "clears", clears.sum()));
+		return metrics;
+	}
+
+	/**
+	 * Sets the number of managed entities from which a transaction is logged.
+	 * @param warnThreshold number of entities, 0 to disable
+	 */
+	public void setWarnThreshold(final int warnThreshold) {
+		this.warnThreshold = warnThreshold;
+	}
+
+	/**
+	 * Sets the number of managed entities from which the persistence context is cleared.
+	 * @param clearThreshold number of entities, 0 to disable
+	 */
+	public void setClearThreshold(final int clearThreshold) {
+		this.clearThreshold = clearThreshold;
+	}
+
+	/**
+	 * Footprint of a single transaction, recorded on completion. Flush activity is taken
+	 * from the {@link JdbcCounters} of the thread, starting with the first monitored call.
+	 */
+	private final class Footprint extends TransactionSynchronizationAdapter {
+		private final JdbcCounters counters = JdbcCounters.current();
+
+		private final long flushesAtStart = counters.getFlushes();
+
+		private final long flushNanosAtStart = counters.getFlushNanos();
+
+		private final long dirtyChecksAtStart = counters.getDirtyChecks();
+
+		private int entities;
+
+		private int collections;
+
+		private boolean warned;
+
+		PersistenceContextMonitor getMonitor() {
+			return PersistenceContextMonitor.this;
+		}
+
+		void observe(final int entityCount, final int collectionCount) {
+			entities = Math.max(entities, entityCount);
+			collections = Math.max(collections, collectionCount);
+		}
+
+		@Override
+		public void afterCompletion(final int status) {
+			transactions.increment();
+			peakEntities.add(entities);
+			maxEntities.accumulate(entities);
+			peakCollections.add(collections);
+			maxCollections.accumulate(collections);
+			flushes.add(counters.getFlushes() - flushesAtStart);
+			flushNanos.add(counters.getFlushNanos() - flushNanosAtStart);
+			dirtyChecks.add(counters.getDirtyChecks() - dirtyChecksAtStart);
+		}
+	}
+}
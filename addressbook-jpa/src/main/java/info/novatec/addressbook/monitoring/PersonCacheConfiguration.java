@@ -0,0 +1,50 @@
+package info.novatec.addressbook.monitoring;
+
+import javax.persistence.EntityManagerFactory;
+
+import net.sf.ehcache.CacheManager;
+
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Bean configuration for the metrics of the second-level and query cache, enabled by
+ * <code>addressbook.cache.enabled</code>.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "addressbook.cache", name = "enabled", havingValue = "true")
+public class PersonCacheConfiguration {
+
+	/**
+	 * Bean configuration for the Ehcache {@link CacheManager} holding the cache regions.
+	 * The region factory of Hibernate shares the same instance created from the same
+	 * configuration and shuts it down with the {@link EntityManagerFactory}.
+	 * @param entityManagerFactory the {@link EntityManagerFactory}, started first
+	 * @param configurationResourceName classpath resource of the Ehcache configuration
+	 * @return {@link CacheManager}
+	 */
+	@Bean(destroyMethod = "")
+	public CacheManager createCacheManager(final EntityManagerFactory entityManagerFactory,
+			@Value("${spring.jpa.properties.net.sf.ehcache.configurationResourceName}")
+			final String configurationResourceName) {
+		return CacheManager.create(PersonCacheConfiguration.class.getResource(
+				configurationResourceName));
+	}
+
+	/**
+	 * Bean configuration for {@link PersonCacheMetrics}.
+	 * @param entityManagerFactory the {@link EntityManagerFactory}
+	 * @param cacheManager the {@link CacheManager}
+	 * @return {@link PublicMetrics} for the second-level cache
+	 */
+	@Bean
+	public PublicMetrics createPersonCacheMetrics(final EntityManagerFactory entityManagerFactory,
+			final CacheManager cacheManager) {
+		return new PersonCacheMetrics(entityManagerFactory.unwrap(SessionFactory.class),
+				cacheManager);
+	}
+}
@@ -0,0 +1,77 @@
+package info.novatec.addressbook.monitoring;
+
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Person;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * Exposes hit, miss and eviction statistics of the second-level and query cache 
+ * for {@link Person}s as metrics (prefix <code>addressbook.cache</code>).
+ */
+public class PersonCacheMetrics implements PublicMetrics {
+	private static final String PREFIX = "addressbook.cache.";
+	
+	private static final String[] REGIONS = {Person.class.getName(), Address.class.getName(), 
+		Person.class.getName() + ".addresses"};
+	
+	private static final String[] REGION_NAMES = {"person", "address", "person.addresses"};
+
+	private final SessionFactory sessionFactory;
+
+	private final CacheManager cacheManager;
+
+	/**
+	 * Constructor.
+	 * @param sessionFactory the Hibernate {@link SessionFactory}
+	 * @param cacheManager the Ehcache {@link CacheManager} holding the cache regions
+	 */
+	public PersonCacheMetrics(final SessionFactory sessionFactory, final CacheManager cacheManager) {
+		super();
+		this.sessionFactory = sessionFactory;
+		this.cacheManager = cacheManager;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		Statistics statistics = sessionFactory.getStatistics();
+		if (!statistics.isStatisticsEnabled() 
+				|| statistics.getSecondLevelCacheRegionNames().length == 0) {
+			return metrics;
+		}
+		
+		for (int i = 0; i < REGIONS.length; i++) {
+			SecondLevelCacheStatistics region = statistics.getSecondLevelCacheStatistics(REGIONS[i]);
+			if (region == null) {
+				continue;
+			}
+			String prefix = PREFIX + REGION_NAMES[i];
+			metrics.add(new Metric<Long>(prefix + ".hits", region.getHitCount()));
+			metrics.add(new Metric<Long>(prefix + ".misses", region.getMissCount()));
+			metrics.add(new Metric<Long>(prefix + ".puts", region.getPutCount()));
+			metrics.add(new Metric<Long>(prefix + ".size", region.getElementCountInMemory()));
+			
+			Ehcache cache = cacheManager.getEhcache(REGIONS[i]);
+			if (cache != null) {
+				metrics.add(new Metric<Long>(prefix + ".evictions", 
+						cache.getStatistics().getEvictionCount()));
+			}
+		}
+		metrics.add(new Metric<Long>(PREFIX + "query.hits", statistics.getQueryCacheHitCount()));
+		metrics.add(new Metric<Long>(PREFIX + "query.misses", statistics.getQueryCacheMissCount()));
+		metrics.add(new Metric<Long>(PREFIX + "query.puts", statistics.getQueryCachePutCount()));
+		return metrics;
+	}
+}
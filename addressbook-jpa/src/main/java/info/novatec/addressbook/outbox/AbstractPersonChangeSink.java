@@ -0,0 +1,55 @@
+package info.novatec.addressbook.outbox;
+
+import java.util.List;
+
+/**
+ * Base class of {@link PersonChangeSink}s skipping changes already published.
+ */
+public abstract class AbstractPersonChangeSink implements PersonChangeSink {
+	private final String name;
+
+	private volatile long publishedOffset;
+
+	/**
+	 * Constructor.
+	 * @param name name of the sink
+	 */
+	protected AbstractPersonChangeSink(final String name) {
+		super();
+		this.name = name;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public synchronized void publish(final List<PersonChange> changes) {
+		for (PersonChange change : changes) {
+			if (change.getOffset() > publishedOffset) {
+				publish(change);
+				publishedOffset = change.getOffset();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void rewind(final long offset) {
+		publishedOffset = offset;
+	}
+
+	/**
+	 * Returns the offset of the change published last.
+	 * @return the offset, 0 if none was published
+	 */
+	public long getPublishedOffset() {
+		return publishedOffset;
+	}
+
+	/**
+	 * Publishes a change not published before.
+	 * @param change the {@link PersonChange}
+	 */
+	protected abstract void publish(PersonChange change);
+}
@@ -0,0 +1,34 @@
+package info.novatec.addressbook.outbox;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+
+/**
+ * {@link PersonChangeSink} publishing every {@link PersonChange} as application event to 
+ * in-process listeners, e.g. methods annotated with 
+ * {@link org.springframework.context.event.EventListener} taking a {@link PersonChange}.
+ * Unlike {@link info.novatec.addressbook.control.PersonChangeEvent}s these are published 
+ * after the commit, in commit order, and can be replayed.
+ */
+public class EventPersonChangeSink extends AbstractPersonChangeSink 
+		implements ApplicationEventPublisherAware {
+
+	private ApplicationEventPublisher eventPublisher;
+
+	/**
+	 * Constructor.
+	 */
+	public EventPersonChangeSink() {
+		super("events");
+	}
+
+	@Override
+	protected void publish(final PersonChange change) {
+		eventPublisher.publishEvent(change);
+	}
+
+	@Override
+	public void setApplicationEventPublisher(final ApplicationEventPublisher eventPublisher) {
+		this.eventPublisher = eventPublisher;
+	}
+}
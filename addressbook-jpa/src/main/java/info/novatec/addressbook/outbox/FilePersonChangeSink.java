@@ -0,0 +1,130 @@
+package info.novatec.addressbook.outbox;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * {@link PersonChangeSink} appending {@link PersonChange}s to a file as newline delimited
+ * JSON, one object per change with the state of the person as nested <code>person</code>
+ * object. On startup the offset of the last line is taken as published, so changes are
+ * not appended twice after a restart.
+ */
+public class FilePersonChangeSink extends AbstractPersonChangeSink {
+	private final JsonFactory jsonFactory = new JsonFactory().setRootValueSeparator(null);
+
+	private final Path file;
+
+	private JsonGenerator generator;
+
+	/**
+	 * Constructor.
+	 * @param file the file to append to
+	 */
+	public FilePersonChangeSink(final Path file) {
+		super("file");
+		this.file = file;
+		try {
+			rewind(lastOffset());
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Appends the changes not published yet, one file write per call.
+	 */
+	@Override
+	public synchronized void publish(final List<PersonChange> changes) {
+		long publishedOffset = getPublishedOffset();
+		try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND)) {
+			generator = jsonFactory.createGenerator(out);
+			super.publish(changes);
+			generator.close();
+		} catch (IOException | UncheckedIOException ex) {
+			rewind(publishedOffset);
+			throw new IllegalStateException("Writing changes to " + file + " failed", ex);
+		} finally {
+			generator = null;
+		}
+	}
+
+	@Override
+	protected void publish(final PersonChange change) {
+		try {
+			generator.writeStartObject();
+			generator.writeNumberField("offset", change.getOffset());
+			generator.writeStringField("operation", change.getOperation().name());
+			if (change.getPersonId() != null) {
+				generator.writeNumberField("personId", change.getPersonId());
+			}
+			generator.writeNumberField("createdAt", change.getCreatedAt().getTime());
+			if (change.getPayload() != null) {
+				generator.writeFieldName("person");
+				generator.writeRawValue(change.getPayload());
+			}
+			generator.writeEndObject();
+			generator.writeRaw('\n');
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Reads the offset of the last line of the file.
+	 */
+	private long lastOffset() throws IOException {
+		if (!Files.exists(file)) {
+			return 0;
+		}
+		try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+			long end = in.length();
+			while (end > 0 && byteAt(in, end - 1) == '\n') {
+				end--;
+			}
+			long start = end;
+			while (start > 0 && byteAt(in, start - 1) != '\n') {
+				start--;
+			}
+			if (start == end) {
+				return 0;
+			}
+			byte[] line = new byte[(int) (end - start)];
+			in.seek(start);
+			in.readFully(line);
+			return offsetOf(line);
+		}
+	}
+
+	private static int byteAt(final RandomAccessFile in, final long position) throws IOException {
+		in.seek(position);
+		return in.read();
+	}
+
+	private long offsetOf(final byte[] line) throws IOException {
+		try (JsonParser parser = jsonFactory.createParser(line)) {
+			if (parser.nextToken() == JsonToken.START_OBJECT) {
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String field = parser.getCurrentName();
+					parser.nextToken();
+					if ("offset".equals(field)) {
+						return parser.getLongValue();
+					}
+					parser.skipChildren();
+				}
+			}
+		}
+		throw new IllegalStateException("No offset in last line of " + file);
+	}
+}
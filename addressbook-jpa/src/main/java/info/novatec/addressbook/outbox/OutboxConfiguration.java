@@ -0,0 +1,113 @@
+package info.novatec.addressbook.outbox;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Bean configuration for the transactional outbox of person changes and its relay.
+ * Changes are always published to in-process listeners; the file sink is enabled by
+ * <code>addressbook.outbox.file</code>, the queue sink by
+ * <code>addressbook.outbox.queue-capacity</code>.
+ */
+@Configuration
+public class OutboxConfiguration {
+
+	/**
+	 * Bean configuration for {@link PersonChangeOutbox}.
+	 * @param jdbcTemplate the {@link JdbcTemplate} of the default data source
+	 * @param entityManagerFactory the {@link EntityManagerFactory}
+	 * @param enabled whether changes are recorded
+	 * @param batchSize number of changes written per JDBC batch
+	 * @return {@link PersonChangeOutbox}
+	 */
+	@Bean
+	public PersonChangeOutbox createPersonChangeOutbox(final JdbcTemplate jdbcTemplate,
+			final EntityManagerFactory entityManagerFactory,
+			@Value("${addressbook.outbox.enabled:true}") final boolean enabled,
+			@Value("${addressbook.outbox.batch-size:500}") final int batchSize) {
+		PersonChangeOutbox outbox = new PersonChangeOutbox();
+		outbox.setJdbcTemplate(jdbcTemplate);
+		outbox.setEntityManager(SharedEntityManagerCreator.createSharedEntityManager(
+				entityManagerFactory));
+		outbox.setEnabled(enabled);
+		outbox.setBatchSize(batchSize);
+		return outbox;
+	}
+
+	/**
+	 * Bean configuration for {@link PersonChangeLog}.
+	 * @param jdbcTemplate the {@link JdbcTemplate} of the default data source
+	 * @return {@link PersonChangeLog}
+	 */
+	@Bean
+	public PersonChangeLog createPersonChangeLog(final JdbcTemplate jdbcTemplate) {
+		return new PersonChangeLog(jdbcTemplate);
+	}
+
+	/**
+	 * Bean configuration for the {@link PersonChangeRelay}, running every
+	 * <code>addressbook.outbox.relay-interval</code> milliseconds.
+	 * @param personChangeLog the {@link PersonChangeLog}
+	 * @param sinks the {@link PersonChangeSink}s
+	 * @param transactionManager the {@link PlatformTransactionManager}
+	 * @param batchSize number of changes sequenced or published per transaction
+	 * @return {@link PersonChangeRelay}
+	 */
+	@Bean
+	public PersonChangeRelay createPersonChangeRelay(final PersonChangeLog personChangeLog,
+			final List<PersonChangeSink> sinks, final PlatformTransactionManager transactionManager,
+			@Value("${addressbook.outbox.batch-size:500}") final int batchSize) {
+		PersonChangeRelay relay = new PersonChangeRelay(personChangeLog, sinks);
+		relay.setTransactionTemplate(new TransactionTemplate(transactionManager));
+		relay.setBatchSize(batchSize);
+		return relay;
+	}
+
+	/**
+	 * Bean configuration for the {@link EventPersonChangeSink}.
+	 * @return {@link PersonChangeSink}
+	 */
+	@Bean
+	public EventPersonChangeSink createEventPersonChangeSink() {
+		return new EventPersonChangeSink();
+	}
+
+	/**
+	 * Bean configuration for the {@link FilePersonChangeSink}.
+	 * @param file path of the file to append to
+	 * @return {@link PersonChangeSink}
+	 */
+	@Bean
+	@ConditionalOnProperty(prefix = "addressbook.outbox", name = "file")
+	public FilePersonChangeSink createFilePersonChangeSink(
+			@Value("${addressbook.outbox.file}") final String file) {
+		return new FilePersonChangeSink(Paths.get(file));
+	}
+
+	/**
+	 * Bean configuration for the {@link QueuePersonChangeSink}.
+	 * @param capacity maximum number of changes waiting for consumers
+	 * @param offerTimeout how long publishing waits for space in a full queue in milliseconds
+	 * @return {@link PersonChangeSink}
+	 */
+	@Bean
+	@ConditionalOnProperty(prefix = "addressbook.outbox", name = "queue-capacity")
+	public QueuePersonChangeSink createQueuePersonChangeSink(
+			@Value("${addressbook.outbox.queue-capacity}") final int capacity,
+			@Value("${addressbook.outbox.queue-offer-timeout:100}") final long offerTimeout) {
+		QueuePersonChangeSink sink = new QueuePersonChangeSink(capacity);
+		sink.setOfferTimeout(offerTimeout);
+		return sink;
+	}
+}
@@ -0,0 +1,98 @@
+package info.novatec.addressbook.outbox;
+
+import info.novatec.addressbook.entity.Person;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+/**
+ * Change of a {@link Person} and its addresses as published from the outbox. Changes
+ * are delivered in the order of their offset at least once; consumers skip offsets
+ * they have already seen.
+ */
+public class PersonChange {
+
+	/**
+	 * Kind of change.
+	 */
+	public enum Operation {
+		/** A {@link Person} was created. */
+		CREATED,
+		/** A {@link Person} or its addresses were updated. */
+		UPDATED,
+		/** A {@link Person} was deleted. */
+		DELETED,
+		/** All {@link Person}s were deleted. */
+		ALL_DELETED
+	}
+
+	private final long offset;
+
+	private final Operation operation;
+
+	private final Long personId;
+
+	private final String payload;
+
+	private final Date createdAt;
+
+	/**
+	 * Constructor.
+	 * @param offset position in the change stream
+	 * @param operation kind of change
+	 * @param personId id of the changed {@link Person}
+	 * @param payload JSON state of the {@link Person} after the change
+	 * @param createdAt time of the change
+	 */
+	public PersonChange(final long offset, final Operation operation, final Long personId,
+			final String payload, final Date createdAt) {
+		super();
+		this.offset = offset;
+		this.operation = operation;
+		this.personId = personId;
+		this.payload = payload;
+		this.createdAt = createdAt;
+	}
+
+	/**
+	 * Returns the position in the change stream, starting with 1 and without gaps.
+	 * @return the offset
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	public Operation getOperation() {
+		return operation;
+	}
+
+	/**
+	 * Returns the id of the changed {@link Person}.
+	 * @return the id or {@literal null} for {@link Operation#ALL_DELETED}
+	 */
+	public Long getPersonId() {
+		return personId;
+	}
+
+	/**
+	 * Returns the state of the {@link Person} and its addresses after the change as JSON
+	 * object.
+	 * @return the JSON or {@literal null} for deletions and for set-based bulk updates,
+	 * 		whose consumers have to reload the {@link Person}
+	 */
+	@JsonRawValue
+	public String getPayload() {
+		return payload;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	@Override
+	public String toString() {
+		return "PersonChange [offset=" + offset + ", operation=" + operation + ", personId="
+				+ personId + "]";
+	}
+}
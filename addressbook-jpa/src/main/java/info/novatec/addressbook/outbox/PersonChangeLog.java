@@ -0,0 +1,144 @@
+package info.novatec.addressbook.outbox;
+
+import info.novatec.addressbook.outbox.PersonChange.Operation;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.util.Assert;
+
+/**
+ * Read side of the <code>person_change</code> outbox. Rows are written with their
+ * transaction, in an order that does not have to match the order of the commits. The
+ * relay therefore assigns offsets to committed rows one batch after the other while
+ * holding a row lock, so offsets are ordered, gapless and never assigned to a row that
+ * commits later. Consumers track the offset they have processed in
+ * <code>person_change_offset</code>.
+ * <p>
+ * Except for the read methods all methods have to be called within a transaction.
+ */
+public class PersonChangeLog {
+	/**
+	 * Consumer name under which the last assigned offset is stored.
+	 */
+	public static final String SEQUENCER = "outbox";
+
+	private static final RowMapper<PersonChange> ROW_MAPPER = new RowMapper<PersonChange>() {
+		@Override
+		public PersonChange mapRow(final ResultSet rs, final int rowNum) throws SQLException {
+			long personId = rs.getLong("person_id");
+			boolean allPersons = rs.wasNull();
+			return new PersonChange(rs.getLong("change_offset"),
+					Operation.valueOf(rs.getString("operation")), allPersons ? null : personId,
+					rs.getString("payload"), rs.getTimestamp("created_at"));
+		}
+	};
+
+	private final JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Constructor.
+	 * @param jdbcTemplate {@link JdbcTemplate} on the database of the outbox
+	 */
+	public PersonChangeLog(final JdbcTemplate jdbcTemplate) {
+		super();
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Assigns the next offsets to committed changes without offset, in the order they
+	 * were written.
+	 * @param max maximum number of changes to sequence
+	 * @return number of changes sequenced
+	 */
+	public int sequence(final int max) {
+		final long last = lockOffset(SEQUENCER);
+		final List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM person_change "
+				+ "WHERE change_offset IS NULL ORDER BY id LIMIT ?", Long.class, max);
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		jdbcTemplate.batchUpdate("UPDATE person_change SET change_offset = ? WHERE id = ?",
+				new BatchPreparedStatementSetter() {
+					@Override
+					public void setValues(final PreparedStatement ps, final int i)
+							throws SQLException {
+						ps.setLong(1, last + i + 1);
+						ps.setLong(2, ids.get(i));
+					}
+
+					@Override
+					public int getBatchSize() {
+						return ids.size();
+					}
+				});
+		saveOffset(SEQUENCER, last + ids.size());
+		return ids.size();
+	}
+
+	/**
+	 * Returns the offset assigned last, e.g. for consumers starting with the changes
+	 * following it.
+	 * @return the offset, 0 if no change has been sequenced yet
+	 */
+	public long getLastOffset() {
+		return jdbcTemplate.queryForObject("SELECT change_offset FROM person_change_offset "
+				+ "WHERE consumer = ?", Long.class, SEQUENCER);
+	}
+
+	/**
+	 * Returns the sequenced changes following an offset.
+	 * @param afterOffset offset of the last change already processed, 0 to start from the
+	 * 		beginning
+	 * @param limit maximum number of changes
+	 * @return the changes in offset order
+	 */
+	public List<PersonChange> read(final long afterOffset, final int limit) {
+		Assert.isTrue(limit > 0, "Limit must be positive");
+		return jdbcTemplate.query("SELECT change_offset, operation, person_id, payload, created_at "
+				+ "FROM person_change WHERE change_offset > ? ORDER BY change_offset LIMIT ?",
+				ROW_MAPPER, afterOffset, limit);
+	}
+
+	/**
+	 * Locks and returns the offset processed by a consumer, registering unknown consumers
+	 * with offset 0. Concurrent relays, e.g. of several application instances, wait for
+	 * the lock until the transaction holding it completes.
+	 * @param consumer name of the consumer
+	 * @return the offset
+	 */
+	public long lockOffset(final String consumer) {
+		List<Long> offsets = selectOffsetForUpdate(consumer);
+		if (offsets.isEmpty()) {
+			try {
+				jdbcTemplate.update("INSERT INTO person_change_offset (consumer, change_offset) "
+						+ "VALUES (?, 0)", consumer);
+			} catch (DuplicateKeyException ex) {
+				// registered concurrently
+			}
+			offsets = selectOffsetForUpdate(consumer);
+		}
+		return offsets.get(0);
+	}
+
+	private List<Long> selectOffsetForUpdate(final String consumer) {
+		return jdbcTemplate.queryForList("SELECT change_offset FROM person_change_offset "
+				+ "WHERE consumer = ? FOR UPDATE", Long.class, consumer);
+	}
+
+	/**
+	 * Stores the offset processed by a consumer, locked by {@link #lockOffset(String)}.
+	 * @param consumer name of the consumer
+	 * @param offset the offset
+	 */
+	public void saveOffset(final String consumer, final long offset) {
+		jdbcTemplate.update("UPDATE person_change_offset SET change_offset = ? WHERE consumer = ?",
+				offset, consumer);
+	}
+}
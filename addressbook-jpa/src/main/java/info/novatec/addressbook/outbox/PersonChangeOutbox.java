@@ -0,0 +1,353 @@
+package info.novatec.addressbook.outbox;
+
+import info.novatec.addressbook.control.PersonChangeEvent;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.outbox.PersonChange.Operation;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Persistence;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Appends every {@link PersonChangeEvent} to the <code>person_change</code> outbox table
+ * within the transaction of the change, so changes are recorded if and only if they
+ * commit. The changes of a transaction are collected and written as one JDBC batch
+ * right before the commit, keeping only the last change per {@link Person}: an update
+ * of a {@link Person} created in the same transaction is recorded as its creation, and
+ * a {@link Person} created and deleted again is not recorded at all. Changes published
+ * outside of a transaction are written immediately. {@link Person}s saved by a bulk import
+ * are only passed by id; they are reloaded per batch to record their state.
+ */
+public class PersonChangeOutbox {
+	private static final String INSERT_SQL = "INSERT INTO person_change "
+			+ "(operation, person_id, payload, created_at) VALUES (?, ?, ?, ?)";
+
+	private static final String RELOAD_JPQL = "SELECT DISTINCT p FROM Person p "
+			+ "LEFT JOIN FETCH p.addresses WHERE p.id IN :ids";
+
+	private static final int DEFAULT_BATCH_SIZE = 500;
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	private JdbcTemplate jdbcTemplate;
+
+	private EntityManager entityManager;
+
+	private boolean enabled = true;
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Records a change in the outbox.
+	 * @param event the {@link PersonChangeEvent}
+	 */
+	@EventListener
+	public void onPersonChange(final PersonChangeEvent event) {
+		if (!enabled) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			currentChanges().add(event);
+		} else {
+			OutboxSynchronization changes = new OutboxSynchronization();
+			changes.add(event);
+			write(changes.pending());
+		}
+	}
+
+	/**
+	 * Returns the changes collected for the current transaction. They are looked up among
+	 * the synchronizations rather than bound as resource, as resources are not suspended
+	 * by nested <code>REQUIRES_NEW</code> transactions.
+	 */
+	private OutboxSynchronization currentChanges() {
+		for (TransactionSynchronization synchronization
+				: TransactionSynchronizationManager.getSynchronizations()) {
+			if (synchronization instanceof OutboxSynchronization
+					&& ((OutboxSynchronization) synchronization).getOutbox() == this) {
+				return (OutboxSynchronization) synchronization;
+			}
+		}
+		OutboxSynchronization synchronization = new OutboxSynchronization();
+		TransactionSynchronizationManager.registerSynchronization(synchronization);
+		return synchronization;
+	}
+
+	private void write(final List<PendingChange> changes) {
+		final Timestamp now = new Timestamp(System.currentTimeMillis());
+		for (int from = 0; from < changes.size(); from += batchSize) {
+			writeBatch(changes.subList(from, Math.min(from + batchSize, changes.size())), now);
+		}
+	}
+
+	private void writeBatch(final List<PendingChange> changes, final Timestamp now) {
+		List<Person> loaded = new ArrayList<Person>();
+		Map<Long, Person> reloaded = reload(changes, loaded);
+		final List<String> payloads = new ArrayList<String>(changes.size());
+		for (PendingChange change : changes) {
+			Person person = change.person != null ? change.person : reloaded.get(change.personId);
+			payloads.add(person != null ? toJson(person) : null);
+		}
+		jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(final PreparedStatement ps, final int i) throws SQLException {
+				PendingChange change = changes.get(i);
+				ps.setString(1, change.operation.name());
+				if (change.personId != null) {
+					ps.setLong(2, change.personId);
+				} else {
+					ps.setNull(2, Types.BIGINT);
+				}
+				ps.setString(3, payloads.get(i));
+				ps.setTimestamp(4, now);
+			}
+
+			@Override
+			public int getBatchSize() {
+				return changes.size();
+			}
+		});
+		for (Person person : loaded) {
+			entityManager.detach(person);
+		}
+	}
+
+	/**
+	 * Loads the {@link Person}s of bulk imports among the given changes with their
+	 * {@link Address}es. Those not managed by the persistence context before are added to
+	 * the given list, to be detached again after writing.
+	 */
+	private Map<Long, Person> reload(final List<PendingChange> changes,
+			final List<Person> loaded) {
+		List<Long> ids = new ArrayList<Long>();
+		for (PendingChange change : changes) {
+			if (change.reload) {
+				ids.add(change.personId);
+			}
+		}
+		if (ids.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Set<Object> managed = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		managed.addAll(entityManager.unwrap(SessionImplementor.class).getPersistenceContext()
+				.getEntitiesByKey().values());
+		Map<Long, Person> reloaded = new HashMap<Long, Person>();
+		for (Person person : entityManager.createQuery(RELOAD_JPQL, Person.class)
+				.setParameter("ids", ids).getResultList()) {
+			reloaded.put(person.getId(), person);
+			if (!managed.contains(person)) {
+				loaded.add(person);
+			}
+		}
+		return reloaded;
+	}
+
+	/**
+	 * Serializes the state of a {@link Person} and its {@link Address}es.
+	 */
+	private String toJson(final Person person) {
+		StringWriter writer = new StringWriter();
+		try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+			generator.writeStartObject();
+			generator.writeNumberField("id", person.getId());
+			generator.writeNumberField("version", person.getVersion());
+			generator.writeStringField("firstName", person.getFirstName());
+			generator.writeStringField("lastName", person.getLastName());
+			generator.writeStringField("birthDate",
+					new java.sql.Date(person.getBirthDate().getTime()).toLocalDate().toString());
+			if (addressesLoadable(person)) {
+				generator.writeArrayFieldStart("addresses");
+				for (Address address : person.getAddresses()) {
+					generator.writeStartObject();
+					generator.writeNumberField("id", address.getId());
+					generator.writeNumberField("version", address.getVersion());
+					generator.writeStringField("street", address.getStreet());
+					generator.writeStringField("postOfficeBox", address.getPostOfficeBox());
+					generator.writeStringField("zip", address.getZip());
+					generator.writeStringField("city", address.getCity());
+					generator.writeStringField("country", address.getCountry().name());
+					generator.writeEndObject();
+				}
+				generator.writeEndArray();
+			}
+			generator.writeEndObject();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Returns whether the {@link Address}es can be serialized. Outside of a transaction
+	 * lazy addresses of a detached {@link Person} are left out rather than failing.
+	 */
+	private static boolean addressesLoadable(final Person person) {
+		return person.getAddresses() != null
+				&& (TransactionSynchronizationManager.isActualTransactionActive()
+						|| Persistence.getPersistenceUtil().isLoaded(person.getAddresses()));
+	}
+
+	/**
+	 * Sets the {@link JdbcTemplate} writing to the outbox. It must use the data source of
+	 * the transactions of the changes.
+	 * @param jdbcTemplate the {@link JdbcTemplate}
+	 */
+	public void setJdbcTemplate(final JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Sets the shared {@link EntityManager}, flushed before writing so versions and ids
+	 * of the recorded state are final.
+	 * @param entityManager the {@link EntityManager}
+	 */
+	public void setEntityManager(final EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	/**
+	 * Sets the number of changes written per JDBC batch, also the number of
+	 * {@link Person}s of bulk imports reloaded at once.
+	 * @param batchSize the batch size
+	 */
+	public void setBatchSize(final int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Sets whether changes are recorded.
+	 * @param enabled <code>false</code> to disable the outbox
+	 */
+	public void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Change not yet written to the outbox.
+	 */
+	private static final class PendingChange {
+		private final Operation operation;
+
+		private final Long personId;
+
+		private final Person person;
+
+		private final boolean reload;
+
+		private PendingChange(final Operation operation, final Long personId,
+				final Person person, final boolean reload) {
+			this.operation = operation;
+			this.personId = personId;
+			this.person = person;
+			this.reload = reload;
+		}
+	}
+
+	/**
+	 * Changes of one transaction, written before its commit.
+	 */
+	private final class OutboxSynchronization extends TransactionSynchronizationAdapter {
+		private final Map<Long, PendingChange> changes = new LinkedHashMap<Long, PendingChange>();
+
+		private boolean allDeleted;
+
+		private PersonChangeOutbox getOutbox() {
+			return PersonChangeOutbox.this;
+		}
+
+		private void add(final PersonChangeEvent event) {
+			switch (event.getType()) {
+			case SAVED:
+				merge(event.getPersonId(), event.isCreated() ? Operation.CREATED
+						: Operation.UPDATED, event.getPerson(), false);
+				break;
+			case DELETED:
+				merge(event.getPersonId(), Operation.DELETED, null, false);
+				break;
+			case ALL_DELETED:
+				changes.clear();
+				allDeleted = true;
+				break;
+			case BULK_DELETED:
+				for (Long id : event.getPersonIds()) {
+					merge(id, Operation.DELETED, null, false);
+				}
+				break;
+			case BULK_UPDATED:
+				for (Long id : event.getPersonIds()) {
+					merge(id, Operation.UPDATED, null, false);
+				}
+				break;
+			case BULK_SAVED:
+				for (Long id : event.getPersonIds()) {
+					merge(id, event.isCreated() ? Operation.CREATED : Operation.UPDATED, null, 
+							true);
+				}
+				break;
+			default:
+				throw new IllegalStateException("Unknown change type " + event.getType());
+			}
+		}
+
+		/**
+		 * Replaces an earlier change of the same {@link Person}, moving it to the end.
+		 */
+		private void merge(final Long personId, final Operation operation, final Person person,
+				final boolean reload) {
+			PendingChange previous = changes.remove(personId);
+			Operation merged = operation;
+			if (previous != null && previous.operation == Operation.CREATED) {
+				if (operation == Operation.DELETED) {
+					return;
+				}
+				merged = Operation.CREATED;
+			}
+			changes.put(personId, new PendingChange(merged, personId, person, reload));
+		}
+
+		private List<PendingChange> pending() {
+			List<PendingChange> pending = new ArrayList<PendingChange>(changes.size() + 1);
+			if (allDeleted) {
+				pending.add(new PendingChange(Operation.ALL_DELETED, null, null, false));
+			}
+			pending.addAll(changes.values());
+			return pending;
+		}
+
+		@Override
+		public void beforeCommit(final boolean readOnly) {
+			if (changes.isEmpty() && !allDeleted) {
+				return;
+			}
+			entityManager.flush();
+			write(pending());
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package info.novatec.addressbook.outbox;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Publishes the changes recorded in the outbox to the {@link PersonChangeSink}s. Every
+ * run first assigns offsets to the changes committed since the last run and then
+ * passes each sink the changes following its stored offset, one transaction per batch.
+ * The offset of a sink is only advanced once the sink has accepted the batch, so
+ * delivery is at least once and a failing sink neither loses changes nor holds up the
+ * others.
+ */
+public class PersonChangeRelay implements PublicMetrics {
+	private static final Logger LOG = LoggerFactory.getLogger(PersonChangeRelay.class);
+
+	private static final String PREFIX = "addressbook.outbox.";
+
+	private static final int DEFAULT_BATCH_SIZE = 500;
+
+	private final PersonChangeLog changeLog;
+
+	private final List<PersonChangeSink> sinks;
+
+	private final AtomicLong sequencedOffset = new AtomicLong();
+
+	private final Map<String, AtomicLong> sinkOffsets = new ConcurrentHashMap<String, AtomicLong>();
+
+	private final Map<String, AtomicLong> sinkFailures = new ConcurrentHashMap<String, AtomicLong>();
+
+	private TransactionTemplate transactionTemplate;
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Constructor.
+	 * @param changeLog the {@link PersonChangeLog}
+	 * @param sinks the {@link PersonChangeSink}s to publish to
+	 */
+	public PersonChangeRelay(final PersonChangeLog changeLog, final List<PersonChangeSink> sinks) {
+		super();
+		this.changeLog = changeLog;
+		this.sinks = new ArrayList<PersonChangeSink>(sinks);
+		for (PersonChangeSink sink : sinks) {
+			Assert.isTrue(!PersonChangeLog.SEQUENCER.equals(sink.getName()),
+					"Sink name " + sink.getName() + " is reserved");
+			sinkOffsets.put(sink.getName(), new AtomicLong());
+			sinkFailures.put(sink.getName(), new AtomicLong());
+		}
+	}
+
+	/**
+	 * Sequences and publishes all changes committed so far.
+	 */
+	@Scheduled(fixedDelayString = "${addressbook.outbox.relay-interval:1000}")
+	public void relay() {
+		int sequenced;
+		do {
+			sequenced = transactionTemplate.execute(new TransactionCallback<Integer>() {
+				@Override
+				public Integer doInTransaction(final TransactionStatus status) {
+					int count = changeLog.sequence(batchSize);
+					sequencedOffset.set(changeLog.lockOffset(PersonChangeLog.SEQUENCER));
+					return count;
+				}
+			});
+		} while (sequenced == batchSize);
+
+		for (PersonChangeSink sink : sinks) {
+			try {
+				int delivered;
+				do {
+					delivered = deliver(sink);
+				} while (delivered == batchSize);
+			} catch (RuntimeException ex) {
+				sinkFailures.get(sink.getName()).incrementAndGet();
+				LOG.warn("Publishing person changes to sink {} failed, retrying with next run",
+						sink.getName(), ex);
+			}
+		}
+	}
+
+	/**
+	 * Passes the next batch of changes to a sink.
+	 * @return number of changes passed
+	 */
+	private int deliver(final PersonChangeSink sink) {
+		return transactionTemplate.execute(new TransactionCallback<Integer>() {
+			@Override
+			public Integer doInTransaction(final TransactionStatus status) {
+				long offset = changeLog.lockOffset(sink.getName());
+				sinkOffsets.get(sink.getName()).set(offset);
+				List<PersonChange> changes = changeLog.read(offset, batchSize);
+				if (changes.isEmpty()) {
+					return 0;
+				}
+				sink.publish(changes);
+				long published = changes.get(changes.size() - 1).getOffset();
+				changeLog.saveOffset(sink.getName(), published);
+				sinkOffsets.get(sink.getName()).set(published);
+				return changes.size();
+			}
+		});
+	}
+
+	/**
+	 * Publishes the changes from an offset on to a sink again with the next run.
+	 * @param sinkName name of the {@link PersonChangeSink}
+	 * @param fromOffset offset of the first change to publish again
+	 */
+	public void replay(final String sinkName, final long fromOffset) {
+		Assert.isTrue(fromOffset > 0, "Offsets start with 1");
+		final PersonChangeSink sink = getSink(sinkName);
+		transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(final TransactionStatus status) {
+				changeLog.lockOffset(sinkName);
+				changeLog.saveOffset(sinkName, fromOffset - 1);
+				sink.rewind(fromOffset - 1);
+			}
+		});
+		sinkOffsets.get(sinkName).set(fromOffset - 1);
+		LOG.info("Replaying person changes from offset {} to sink {}", fromOffset, sinkName);
+	}
+
+	private PersonChangeSink getSink(final String name) {
+		for (PersonChangeSink sink : sinks) {
+			if (sink.getName().equals(name)) {
+				return sink;
+			}
+		}
+		throw new IllegalArgumentException("Unknown sink " + name);
+	}
+
+	/**
+	 * Returns the configured sinks.
+	 * @return the {@link PersonChangeSink}s
+	 */
+	public List<PersonChangeSink> getSinks() {
+		return Collections.unmodifiableList(sinks);
+	}
+
+	/**
+	 * Exposes the last sequenced offset and, per sink, the published offset, the number
+	 * of changes not yet published and the number of failed runs. Values are those of the
+	 * last run.
+	 */
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		long sequenced = sequencedOffset.get();
+		metrics.add(new Metric<Long>(PREFIX + "offset", sequenced));
+		for (PersonChangeSink sink : sinks) {
+			long published = sinkOffsets.get(sink.getName()).get();
+			String sinkPrefix = PREFIX + "sink." + sink.getName() + ".";
+			metrics.add(new Metric<Long>(sinkPrefix + "offset", published));
+			metrics.add(new Metric<Long>(sinkPrefix + "lag", Math.max(0, sequenced - published)));
+			metrics.add(new Metric<Long>(sinkPrefix + "failures",
+					sinkFailures.get(sink.getName()).get()));
+		}
+		return metrics;
+	}
+
+	/**
+	 * Sets the {@link TransactionTemplate} for the batches of a run.
+	 * @param transactionTemplate the {@link TransactionTemplate}
+	 */
+	public void setTransactionTemplate(final TransactionTemplate transactionTemplate) {
+		this.transactionTemplate = transactionTemplate;
+	}
+
+	/**
+	 * Sets the maximum number of changes sequenced or published per transaction.
+	 * @param batchSize the batch size
+	 */
+	public void setBatchSize(final int batchSize) {
+		this.batchSize = batchSize;
+	}
+}
@@ -0,0 +1,30 @@
+package info.novatec.addressbook.outbox;
+
+import java.util.List;
+
+/**
+ * Destination the {@link PersonChangeRelay} publishes {@link PersonChange}s to. Changes
+ * are passed in offset order. After a failure or a replay changes may be passed again, 
+ * so sinks skip offsets they have already published.
+ */
+public interface PersonChangeSink {
+
+	/**
+	 * Returns the name under which the published offset of this sink is stored.
+	 * @return the name
+	 */
+	String getName();
+
+	/**
+	 * Publishes changes. Throwing an exception causes the changes from the first 
+	 * change not yet published to be passed again by the next relay run.
+	 * @param changes the changes in offset order
+	 */
+	void publish(List<PersonChange> changes);
+
+	/**
+	 * Resets the offset published last, so later changes are published again.
+	 * @param offset offset of the last change not to publish again
+	 */
+	void rewind(long offset);
+}
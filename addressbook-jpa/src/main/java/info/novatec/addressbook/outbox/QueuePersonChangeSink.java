@@ -0,0 +1,77 @@
+package info.novatec.addressbook.outbox;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PersonChangeSink} offering {@link PersonChange}s to a bounded local queue, 
+ * standing in for a message broker. If consumers do not keep up, publishing fails once 
+ * the queue stays full for the offer timeout and the relay retries later.
+ */
+public class QueuePersonChangeSink extends AbstractPersonChangeSink {
+	private final BlockingQueue<PersonChange> queue;
+
+	private long offerTimeout;
+
+	/**
+	 * Constructor.
+	 * @param capacity maximum number of changes waiting for consumers
+	 */
+	public QueuePersonChangeSink(final int capacity) {
+		super("queue");
+		this.queue = new LinkedBlockingQueue<PersonChange>(capacity);
+	}
+
+	@Override
+	protected void publish(final PersonChange change) {
+		try {
+			if (!queue.offer(change, offerTimeout, TimeUnit.MILLISECONDS)) {
+				throw new IllegalStateException("Queue full, change " + change.getOffset() 
+						+ " not published");
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted publishing change " 
+					+ change.getOffset(), ex);
+		}
+	}
+
+	/**
+	 * Retrieves the next change, waiting if necessary.
+	 * @param timeout how long to wait
+	 * @param unit {@link TimeUnit} of the timeout
+	 * @return the change or {@literal null} if none was published within the timeout
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public PersonChange poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return queue.poll(timeout, unit);
+	}
+
+	/**
+	 * Removes the available changes.
+	 * @param target collection to add the changes to
+	 * @param max maximum number of changes
+	 * @return number of changes added
+	 */
+	public int drainTo(final Collection<? super PersonChange> target, final int max) {
+		return queue.drainTo(target, max);
+	}
+
+	/**
+	 * Returns the number of changes waiting for consumers.
+	 * @return the number of changes
+	 */
+	public int size() {
+		return queue.size();
+	}
+
+	/**
+	 * Sets how long publishing waits for space in a full queue.
+	 * @param offerTimeout the timeout in milliseconds
+	 */
+	public void setOfferTimeout(final long offerTimeout) {
+		this.offerTimeout = offerTimeout;
+	}
+}
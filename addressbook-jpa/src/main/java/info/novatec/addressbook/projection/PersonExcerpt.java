@@ -0,0 +1,22 @@
+package info.novatec.addressbook.projection;
+
+import info.novatec.addressbook.entity.Person;
+
+import java.util.Date;
+
+import org.springframework.data.rest.core.config.Projection;
+
+/**
+ * Spring Data REST projection of a {@link Person} without {@link info.novatec.addressbook.entity.Address}es, 
+ * used as excerpt for the <code>/person</code> collection resource.
+ */
+@Projection(name = "summary", types = Person.class)
+public interface PersonExcerpt {
+
+	String getFirstName();
+	
+	String getLastName();
+	
+	Date getBirthDate();
+
+}
@@ -0,0 +1,52 @@
+package info.novatec.addressbook.projection;
+
+import info.novatec.addressbook.entity.Person;
+
+import java.util.Date;
+
+/**
+ * Read-only projection of the basic attributes of a {@link Person}. Instances are 
+ * created directly by JPQL constructor expressions, so they are neither managed nor 
+ * dirty checked by the persistence context.
+ */
+public final class PersonSummary {
+	private final Long id;
+	
+	private final String firstName;
+	
+	private final String lastName;
+	
+	private final Date birthDate;
+
+	/**
+	 * Constructor.
+	 * @param id id of {@link Person}
+	 * @param firstName first name
+	 * @param lastName last name
+	 * @param birthDate birth date
+	 */
+	public PersonSummary(final Long id, final String firstName, final String lastName, 
+			final Date birthDate) {
+		super();
+		this.id = id;
+		this.firstName = firstName;
+		this.lastName = lastName;
+		this.birthDate = birthDate;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public Date getBirthDate() {
+		return birthDate;
+	}
+}
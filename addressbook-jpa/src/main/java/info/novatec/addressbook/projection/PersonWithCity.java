@@ -0,0 +1,60 @@
+package info.novatec.addressbook.projection;
+
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+
+/**
+ * Read-only, flattened projection of a {@link Person} and the city of one of its 
+ * {@link Address}es. Instances are created directly by JPQL constructor expressions, 
+ * so they are neither managed nor dirty checked by the persistence context.
+ */
+public final class PersonWithCity {
+	private final Long id;
+	
+	private final String firstName;
+	
+	private final String lastName;
+	
+	private final String city;
+	
+	private final Country country;
+
+	/**
+	 * Constructor.
+	 * @param id id of {@link Person}
+	 * @param firstName first name
+	 * @param lastName last name
+	 * @param city city of {@link Address}
+	 * @param country country of {@link Address}
+	 */
+	public PersonWithCity(final Long id, final String firstName, final String lastName, 
+			final String city, final Country country) {
+		super();
+		this.id = id;
+		this.firstName = firstName;
+		this.lastName = lastName;
+		this.city = city;
+		this.country = country;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public String getCity() {
+		return city;
+	}
+
+	public Country getCountry() {
+		return country;
+	}
+}
@@ -0,0 +1,56 @@
+package info.novatec.addressbook.readmodel;
+
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+
+/**
+ * Immutable view of an {@link Address} in a {@link PersonSnapshot}, created on access.
+ */
+public final class AddressRecord {
+
+	private final String street;
+
+	private final String postOfficeBox;
+
+	private final String zip;
+
+	private final String city;
+
+	private final Country country;
+
+	AddressRecord(final String street, final String postOfficeBox, final String zip,
+			final String city, final Country country) {
+		super();
+		this.street = street;
+		this.postOfficeBox = postOfficeBox;
+		this.zip = zip;
+		this.city = city;
+		this.country = country;
+	}
+
+	public String getStreet() {
+		return street;
+	}
+
+	public String getPostOfficeBox() {
+		return postOfficeBox;
+	}
+
+	public String getZip() {
+		return zip;
+	}
+
+	public String getCity() {
+		return city;
+	}
+
+	public Country getCountry() {
+		return country;
+	}
+
+	@Override
+	public String toString() {
+		return "AddressRecord [street=" + street + ", zip=" + zip + ", city=" + city
+				+ ", country=" + country + "]";
+	}
+}
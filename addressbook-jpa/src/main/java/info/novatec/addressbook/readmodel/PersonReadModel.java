@@ -0,0 +1,261 @@
+package info.novatec.addressbook.readmodel;
+
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.outbox.PersonChange;
+import info.novatec.addressbook.outbox.PersonChange.Operation;
+import info.novatec.addressbook.outbox.PersonChangeLog;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Compact in-memory read model of all {@link Person}s for lookups without database access,
+ * held as immutable {@link PersonSnapshot}. On startup the snapshot is loaded in the
+ * background with a single streaming JDBC query. Afterwards it follows the relayed
+ * {@link PersonChange}s of the outbox: changed {@link Person}s are collected and reloaded
+ * by id on every refresh, and a new snapshot replaces the current one. Lookups see the
+ * state of the last refresh, i.e. lag behind commits by up to the relay and refresh
+ * intervals.
+ */
+public class PersonReadModel implements ApplicationListener<ApplicationReadyEvent>, PublicMetrics {
+	private static final Logger LOG = LoggerFactory.getLogger(PersonReadModel.class);
+
+	private static final String PREFIX = "addressbook.read-model.";
+
+	private static final int MAX_IN_LIST_SIZE = 1000;
+
+	private static final String SELECT_SQL = "SELECT p.id, p.first_name, p.last_name, "
+			+ "p.birth_date, a.street, a.post_office_box, a.zip, a.city, a.country "
+			+ "FROM person p LEFT JOIN address a ON a.person_id = p.id ";
+
+	private static final String ORDER_SQL = " ORDER BY p.id, a.id";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final PersonChangeLog personChangeLog;
+
+	private final Clock clock;
+
+	private final Object pendingLock = new Object();
+
+	private Set<Long> pendingIds = new TreeSet<Long>();
+
+	private boolean pendingAllDeleted;
+
+	private long pendingOffset;
+
+	private volatile PersonSnapshot snapshot = PersonSnapshot.empty(0);
+
+	private final LongAdder refreshes = new LongAdder();
+
+	/**
+	 * Constructor.
+	 * @param jdbcTemplate {@link JdbcTemplate} reading the person tables, its fetch size
+	 * 		limits the rows buffered while loading
+	 * @param personChangeLog the {@link PersonChangeLog} providing the offset of a full load
+	 * @param clock the {@link Clock} defining the current day
+	 */
+	public PersonReadModel(final JdbcTemplate jdbcTemplate, final PersonChangeLog personChangeLog,
+			final Clock clock) {
+		super();
+		this.jdbcTemplate = jdbcTemplate;
+		this.personChangeLog = personChangeLog;
+		this.clock = clock;
+	}
+
+	/**
+	 * Retrieves the {@link Person} with the given first and last name.
+	 * @param firstName first name
+	 * @param lastName last name
+	 * @return the {@link PersonRecord} or {@literal null} if none found
+	 */
+	public PersonRecord findByFirstNameAndLastName(final String firstName, final String lastName) {
+		return snapshot.findByFirstNameAndLastName(firstName, lastName);
+	}
+
+	/**
+	 * Retrieves the {@link Person}s living in the given city.
+	 * @param city the city
+	 * @return the {@link PersonRecord}s ordered by id
+	 */
+	public List<PersonRecord> findAllLivingInCity(final String city) {
+		return snapshot.findAllLivingInCity(city);
+	}
+
+	/**
+	 * Retrieves the {@link Person}s that are <em>of age</em> today.
+	 * @return the {@link PersonRecord}s ordered by birth date
+	 */
+	public List<PersonRecord> findAllOfAge() {
+		return snapshot.findAllOfAge(LocalDate.now(clock));
+	}
+
+	/**
+	 * Returns the current snapshot, e.g. for several lookups on the same state.
+	 * @return the {@link PersonSnapshot}
+	 */
+	public PersonSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Collects a relayed change for the next refresh. Changes already contained in the
+	 * snapshot are skipped.
+	 * @param change the {@link PersonChange}
+	 */
+	@EventListener
+	public void onPersonChange(final PersonChange change) {
+		if (change.getOffset() <= snapshot.getOffset()) {
+			return;
+		}
+		synchronized (pendingLock) {
+			if (change.getOperation() == Operation.ALL_DELETED) {
+				pendingAllDeleted = true;
+				pendingIds.clear();
+			} else {
+				pendingIds.add(change.getPersonId());
+			}
+			pendingOffset = Math.max(pendingOffset, change.getOffset());
+		}
+	}
+
+	/**
+	 * Applies the collected changes, reloading the changed {@link Person}s. Runs every
+	 * <code>addressbook.read-model.refresh-interval</code> milliseconds.
+	 */
+	@Scheduled(fixedDelayString = "${addressbook.read-model.refresh-interval:1000}")
+	public synchronized void refresh() {
+		Set<Long> ids;
+		boolean allDeleted;
+		long offset;
+		synchronized (pendingLock) {
+			if (pendingIds.isEmpty() && !pendingAllDeleted) {
+				return;
+			}
+			ids = pendingIds;
+			allDeleted = pendingAllDeleted;
+			offset = pendingOffset;
+			pendingIds = new TreeSet<Long>();
+			pendingAllDeleted = false;
+		}
+		PersonSnapshot current = allDeleted ? PersonSnapshot.empty(offset) : snapshot;
+		snapshot = current.withChanges(load(ids), ids, Math.max(offset, current.getOffset()));
+		refreshes.increment();
+	}
+
+	/**
+	 * Starts loading the snapshot in the background once the application is ready.
+	 * @param event the {@link ApplicationReadyEvent}
+	 */
+	@Override
+	public void onApplicationEvent(final ApplicationReadyEvent event) {
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					rebuild();
+				} catch (RuntimeException ex) {
+					LOG.error("Loading person read model failed", ex);
+				}
+			}
+		}, "person-read-model-rebuild");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Replaces the snapshot by a full load of the person tables. Changes relayed during
+	 * the load are applied again by the next refresh, which is harmless as they reload the
+	 * current state.
+	 */
+	public synchronized void rebuild() {
+		long start = System.currentTimeMillis();
+		long offset = personChangeLog.getLastOffset();
+		PersonSnapshotBuilder builder = new PersonSnapshotBuilder();
+		jdbcTemplate.query(SELECT_SQL + ORDER_SQL, new SnapshotRowHandler(builder));
+		snapshot = builder.build(offset);
+		LOG.info("Loaded person read model with {} persons ({} bytes) in {} ms", snapshot.size(),
+				snapshot.estimateBytes(), System.currentTimeMillis() - start);
+	}
+
+	private PersonSnapshot load(final Collection<Long> ids) {
+		PersonSnapshotBuilder builder = new PersonSnapshotBuilder();
+		NamedParameterJdbcTemplate template = new NamedParameterJdbcTemplate(jdbcTemplate);
+		List<Long> sortedIds = new ArrayList<Long>(ids);
+		for (int from = 0; from < sortedIds.size(); from += MAX_IN_LIST_SIZE) {
+			template.query(SELECT_SQL + "WHERE p.id IN (:ids)" + ORDER_SQL,
+					Collections.singletonMap("ids", sortedIds.subList(from,
+							Math.min(from + MAX_IN_LIST_SIZE, sortedIds.size()))),
+					new SnapshotRowHandler(builder));
+		}
+		return builder.build(0);
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		PersonSnapshot current = snapshot;
+		int pending;
+		synchronized (pendingLock) {
+			pending = pendingIds.size();
+		}
+		List<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		metrics.add(new Metric<Integer>(PREFIX + "persons", current.size()));
+		metrics.add(new Metric<Integer>(PREFIX + "addresses", current.getAddressCount()));
+		metrics.add(new Metric<Long>(PREFIX + "bytes", current.estimateBytes()));
+		metrics.add(new Metric<Long>(PREFIX + "offset", current.getOffset()));
+		metrics.add(new Metric<Integer>(PREFIX + "pending", pending));
+		metrics.add(new Metric<Long>(PREFIX + "refreshes", refreshes.sum()));
+		return metrics;
+	}
+
+	/**
+	 * Adds the rows of a query ordered by person id to a {@link PersonSnapshotBuilder}.
+	 */
+	private static final class SnapshotRowHandler implements RowCallbackHandler {
+		private final PersonSnapshotBuilder builder;
+
+		private long lastId = Long.MIN_VALUE;
+
+		SnapshotRowHandler(final PersonSnapshotBuilder builder) {
+			super();
+			this.builder = builder;
+		}
+
+		@Override
+		public void processRow(final ResultSet rs) throws SQLException {
+			long id = rs.getLong("id");
+			if (id != lastId) {
+				builder.addPerson(id, rs.getString("first_name"), rs.getString("last_name"),
+						rs.getDate("birth_date").toLocalDate());
+				lastId = id;
+			}
+			String zip = rs.getString("zip");
+			if (zip != null) {
+				builder.addAddress(rs.getString("street"), rs.getString("post_office_box"), zip,
+						rs.getString("city"), Country.valueOf(rs.getString("country")));
+			}
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package info.novatec.addressbook.readmodel;
+
+import info.novatec.addressbook.entity.Person;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Immutable view of a {@link Person} in a {@link PersonSnapshot}, created on access.
+ */
+public final class PersonRecord {
+
+	private final long id;
+
+	private final String firstName;
+
+	private final String lastName;
+
+	private final LocalDate birthDate;
+
+	private final List<AddressRecord> addresses;
+
+	PersonRecord(final long id, final String firstName, final String lastName,
+			final LocalDate birthDate, final List<AddressRecord> addresses) {
+		super();
+		this.id = id;
+		this.firstName = firstName;
+		this.lastName = lastName;
+		this.birthDate = birthDate;
+		this.addresses = addresses;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public LocalDate getBirthDate() {
+		return birthDate;
+	}
+
+	public List<AddressRecord> getAddresses() {
+		return addresses;
+	}
+
+	@Override
+	public String toString() {
+		return "PersonRecord [id=" + id + ", firstName=" + firstName + ", lastName=" + lastName
+				+ ", birthDate=" + birthDate + "]";
+	}
+}
@@ -0,0 +1,482 @@
+package info.novatec.addressbook.readmodel;
+
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable, column oriented snapshot of all {@link Person}s and their addresses. Every
+ * attribute is stored in a primitive array indexed by row, rows are ordered by id: names,
+ * streets, zip codes and cities are dictionary encoded, birth dates are epoch days and
+ * countries ordinals. The addresses of row <code>i</code> are the address rows from
+ * <code>addressOffsets[i]</code> to <code>addressOffsets[i + 1]</code>.
+ * <p>
+ * Lookups use indexes built with the snapshot: an open addressing hash table on the
+ * name codes, the rows per city in compressed sparse row layout and the rows sorted by
+ * birth day. Results are views creating {@link PersonRecord}s on access.
+ * </p>
+ * A snapshot never changes; {@link #withChanges(PersonSnapshot, Collection, long)}
+ * creates a new one sharing the dictionaries where possible, so readers need no
+ * synchronization.
+ */
+public final class PersonSnapshot {
+	private static final int OF_AGE = 18;
+
+	private static final Country[] COUNTRIES = Country.values();
+
+	private final long offset;
+
+	private final StringDictionary names;
+
+	private final StringDictionary streets;
+
+	private final StringDictionary zips;
+
+	private final StringDictionary cities;
+
+	private final long[] ids;
+
+	private final int[] firstNames;
+
+	private final int[] lastNames;
+
+	private final int[] birthDays;
+
+	private final int[] addressOffsets;
+
+	private final int[] addressStreets;
+
+	private final int[] addressPostOfficeBoxes;
+
+	private final int[] addressZips;
+
+	private final int[] addressCities;
+
+	private final byte[] addressCountries;
+
+	private final int[] nameTable;
+
+	private final int[] cityOffsets;
+
+	private final int[] cityRows;
+
+	private final int[] birthDayRows;
+
+	private final int[] sortedBirthDays;
+
+	PersonSnapshot(final long offset, final StringDictionary names,
+			final StringDictionary streets, final StringDictionary zips,
+			final StringDictionary cities, final long[] ids, final int[] firstNames,
+			final int[] lastNames, final int[] birthDays, final int[] addressOffsets,
+			final int[] addressStreets, final int[] addressPostOfficeBoxes,
+			final int[] addressZips, final int[] addressCities, final byte[] addressCountries) {
+		super();
+		this.offset = offset;
+		this.names = names;
+		this.streets = streets;
+		this.zips = zips;
+		this.cities = cities;
+		this.ids = ids;
+		this.firstNames = firstNames;
+		this.lastNames = lastNames;
+		this.birthDays = birthDays;
+		this.addressOffsets = addressOffsets;
+		this.addressStreets = addressStreets;
+		this.addressPostOfficeBoxes = addressPostOfficeBoxes;
+		this.addressZips = addressZips;
+		this.addressCities = addressCities;
+		this.addressCountries = addressCountries;
+
+		this.nameTable = new int[Integer.highestOneBit(Math.max(ids.length, 1) * 2 - 1) << 1];
+		for (int row = 0; row < ids.length; row++) {
+			int slot = slotOf(firstNames[row], lastNames[row]);
+			while (nameTable[slot] != 0) {
+				slot = (slot + 1) & (nameTable.length - 1);
+			}
+			nameTable[slot] = row + 1;
+		}
+
+		this.cityOffsets = new int[cities.size() + 1];
+		for (int row = 0; row < ids.length; row++) {
+			for (int adr = addressOffsets[row]; adr < addressOffsets[row + 1]; adr++) {
+				if (isFirstInCity(row, adr)) {
+					cityOffsets[addressCities[adr] + 1]++;
+				}
+			}
+		}
+		for (int city = 0; city < cities.size(); city++) {
+			cityOffsets[city + 1] += cityOffsets[city];
+		}
+		this.cityRows = new int[cityOffsets[cities.size()]];
+		int[] next = Arrays.copyOf(cityOffsets, cities.size());
+		for (int row = 0; row < ids.length; row++) {
+			for (int adr = addressOffsets[row]; adr < addressOffsets[row + 1]; adr++) {
+				if (isFirstInCity(row, adr)) {
+					cityRows[next[addressCities[adr]]++] = row;
+				}
+			}
+		}
+
+		long[] byBirthDay = new long[ids.length];
+		for (int row = 0; row < ids.length; row++) {
+			byBirthDay[row] = ((long) birthDays[row] << 32) | row;
+		}
+		Arrays.sort(byBirthDay);
+		this.birthDayRows = new int[ids.length];
+		this.sortedBirthDays = new int[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			birthDayRows[i] = (int) byBirthDay[i];
+			sortedBirthDays[i] = (int) (byBirthDay[i] >> 32);
+		}
+	}
+
+	/**
+	 * Returns a snapshot without {@link Person}s.
+	 * @param offset offset of the last person change contained
+	 * @return the {@link PersonSnapshot}
+	 */
+	public static PersonSnapshot empty(final long offset) {
+		return new PersonSnapshotBuilder().build(offset);
+	}
+
+	private boolean isFirstInCity(final int row, final int adr) {
+		for (int previous = addressOffsets[row]; previous < adr; previous++) {
+			if (addressCities[previous] == addressCities[adr]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int slotOf(final int firstName, final int lastName) {
+		int hash = (31 * lastName + firstName) * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & (nameTable.length - 1);
+	}
+
+	/**
+	 * Retrieves the {@link Person} with the given id.
+	 * @param id the id
+	 * @return the {@link PersonRecord} or {@literal null} if none found
+	 */
+	public PersonRecord findOne(final long id) {
+		int row = Arrays.binarySearch(ids, id);
+		return row < 0 ? null : record(row);
+	}
+
+	/**
+	 * Retrieves the {@link Person} with the given first and last name, the one with the
+	 * lowest id if several have it.
+	 * @param firstName first name
+	 * @param lastName last name
+	 * @return the {@link PersonRecord} or {@literal null} if none found
+	 */
+	public PersonRecord findByFirstNameAndLastName(final String firstName, final String lastName) {
+		int firstCode = names.codeOf(firstName);
+		int lastCode = names.codeOf(lastName);
+		if (firstCode < 0 || lastCode < 0) {
+			return null;
+		}
+		for (int slot = slotOf(firstCode, lastCode); nameTable[slot] != 0;
+				slot = (slot + 1) & (nameTable.length - 1)) {
+			int row = nameTable[slot] - 1;
+			if (firstNames[row] == firstCode && lastNames[row] == lastCode) {
+				return record(row);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Retrieves the {@link Person}s with an address in the given city, ordered by id.
+	 * @param city the city
+	 * @return the {@link PersonRecord}s, empty if nobody lives there
+	 */
+	public List<PersonRecord> findAllLivingInCity(final String city) {
+		int code = cities.codeOf(city);
+		return code < 0 ? Collections.<PersonRecord>emptyList()
+				: new RowList(cityRows, cityOffsets[code], cityOffsets[code + 1]);
+	}
+
+	/**
+	 * Retrieves the {@link Person}s that are <em>of age</em> on the given day, i.e. born
+	 * on or before the same day 18 years earlier, ordered by birth date.
+	 * @param today the day
+	 * @return the {@link PersonRecord}s
+	 */
+	public List<PersonRecord> findAllOfAge(final LocalDate today) {
+		return new RowList(birthDayRows, 0, countOfAge(today));
+	}
+
+	/**
+	 * Counts the {@link Person}s that are <em>of age</em> on the given day.
+	 * @param today the day
+	 * @return number of {@link Person}s
+	 */
+	public int countOfAge(final LocalDate today) {
+		int cutoff = (int) today.minusYears(OF_AGE).toEpochDay();
+		int low = 0;
+		int high = sortedBirthDays.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (sortedBirthDays[middle] <= cutoff) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Retrieves all {@link Person}s ordered by id.
+	 * @return the {@link PersonRecord}s
+	 */
+	public List<PersonRecord> findAll() {
+		return new RowList(null, 0, ids.length);
+	}
+
+	/**
+	 * Creates a snapshot in which the given {@link Person}s are replaced by their rows
+	 * in another snapshot, or removed if it does not contain them. The dictionaries are
+	 * shared with this snapshot unless the changed rows add values, in which case they are
+	 * copied and extended; values of removed rows are kept until the next full load. Runs
+	 * of unchanged rows are copied as codes without decoding them, but the columns and
+	 * indexes are still rebuilt, so the cost is linear in the size of this snapshot plus
+	 * sorting the birth days.
+	 * @param changed snapshot with the current rows of changed {@link Person}s
+	 * @param changedIds ids of the changed {@link Person}s, including deleted ones
+	 * @param changeOffset offset of the last person change contained
+	 * @return the new {@link PersonSnapshot}
+	 */
+	public PersonSnapshot withChanges(final PersonSnapshot changed,
+			final Collection<Long> changedIds, final long changeOffset) {
+		boolean[] replaced = new boolean[ids.length];
+		for (Long id : changedIds) {
+			markReplaced(id, replaced);
+		}
+		for (long id : changed.ids) {
+			markReplaced(id, replaced);
+		}
+		int persons = changed.ids.length;
+		int addresses = changed.addressZips.length;
+		for (int row = 0; row < ids.length; row++) {
+			if (!replaced[row]) {
+				persons++;
+				addresses += addressOffsets[row + 1] - addressOffsets[row];
+			}
+		}
+
+		long[] newIds = new long[persons];
+		int[] newFirstNames = new int[persons];
+		int[] newLastNames = new int[persons];
+		int[] newBirthDays = new int[persons];
+		int[] newAddressOffsets = new int[persons + 1];
+		int[] newAddressStreets = new int[addresses];
+		int[] newAddressPostOfficeBoxes = new int[addresses];
+		int[] newAddressZips = new int[addresses];
+		int[] newAddressCities = new int[addresses];
+		byte[] newAddressCountries = new byte[addresses];
+		Recoder nameRecoder = new Recoder(names);
+		Recoder streetRecoder = new Recoder(streets);
+		Recoder zipRecoder = new Recoder(zips);
+		Recoder cityRecoder = new Recoder(cities);
+
+		int row = 0;
+		int changedRow = 0;
+		int target = 0;
+		int targetAdr = 0;
+		while (row < ids.length || changedRow < changed.ids.length) {
+			if (row < ids.length && replaced[row]) {
+				row++;
+			} else if (changedRow == changed.ids.length
+					|| row < ids.length && ids[row] < changed.ids[changedRow]) {
+				long limit = changedRow < changed.ids.length ? changed.ids[changedRow]
+						: Long.MAX_VALUE;
+				int end = row + 1;
+				while (end < ids.length && !replaced[end] && ids[end] < limit) {
+					end++;
+				}
+				int count = end - row;
+				System.arraycopy(ids, row, newIds, target, count);
+				System.arraycopy(firstNames, row, newFirstNames, target, count);
+				System.arraycopy(lastNames, row, newLastNames, target, count);
+				System.arraycopy(birthDays, row, newBirthDays, target, count);
+				int adrFrom = addressOffsets[row];
+				int adrCount = addressOffsets[end] - adrFrom;
+				for (int i = 0; i < count; i++) {
+					newAddressOffsets[target + i] = addressOffsets[row + i] - adrFrom + targetAdr;
+				}
+				System.arraycopy(addressStreets, adrFrom, newAddressStreets, targetAdr, adrCount);
+				System.arraycopy(addressPostOfficeBoxes, adrFrom, newAddressPostOfficeBoxes,
+						targetAdr, adrCount);
+				System.arraycopy(addressZips, adrFrom, newAddressZips, targetAdr, adrCount);
+				System.arraycopy(addressCities, adrFrom, newAddressCities, targetAdr, adrCount);
+				System.arraycopy(addressCountries, adrFrom, newAddressCountries, targetAdr,
+						adrCount);
+				row = end;
+				target += count;
+				targetAdr += adrCount;
+			} else {
+				newIds[target] = changed.ids[changedRow];
+				newFirstNames[target] = nameRecoder.recode(changed.names,
+						changed.firstNames[changedRow]);
+				newLastNames[target] = nameRecoder.recode(changed.names,
+						changed.lastNames[changedRow]);
+				newBirthDays[target] = changed.birthDays[changedRow];
+				newAddressOffsets[target] = targetAdr;
+				for (int adr = changed.addressOffsets[changedRow];
+						adr < changed.addressOffsets[changedRow + 1]; adr++) {
+					newAddressStreets[targetAdr] = streetRecoder.recode(changed.streets,
+							changed.addressStreets[adr]);
+					newAddressPostOfficeBoxes[targetAdr] = streetRecoder.recode(changed.streets,
+							changed.addressPostOfficeBoxes[adr]);
+					newAddressZips[targetAdr] = zipRecoder.recode(changed.zips,
+							changed.addressZips[adr]);
+					newAddressCities[targetAdr] = cityRecoder.recode(changed.cities,
+							changed.addressCities[adr]);
+					newAddressCountries[targetAdr] = changed.addressCountries[adr];
+					targetAdr++;
+				}
+				changedRow++;
+				target++;
+			}
+		}
+		newAddressOffsets[persons] = targetAdr;
+		return new PersonSnapshot(changeOffset, nameRecoder.dictionary, streetRecoder.dictionary,
+				zipRecoder.dictionary, cityRecoder.dictionary, newIds, newFirstNames,
+				newLastNames, newBirthDays, newAddressOffsets, newAddressStreets,
+				newAddressPostOfficeBoxes, newAddressZips, newAddressCities, newAddressCountries);
+	}
+
+	private void markReplaced(final long id, final boolean[] replaced) {
+		int row = Arrays.binarySearch(ids, id);
+		if (row >= 0) {
+			replaced[row] = true;
+		}
+	}
+
+	private PersonRecord record(final int row) {
+		int from = addressOffsets[row];
+		int to = addressOffsets[row + 1];
+		List<AddressRecord> addresses = Collections.emptyList();
+		if (to > from) {
+			addresses = new ArrayList<AddressRecord>(to - from);
+			for (int adr = from; adr < to; adr++) {
+				addresses.add(new AddressRecord(streets.valueOf(addressStreets[adr]),
+						streets.valueOf(addressPostOfficeBoxes[adr]), zips.valueOf(addressZips[adr]),
+						cities.valueOf(addressCities[adr]), COUNTRIES[addressCountries[adr]]));
+			}
+			addresses = Collections.unmodifiableList(addresses);
+		}
+		return new PersonRecord(ids[row], names.valueOf(firstNames[row]),
+				names.valueOf(lastNames[row]), LocalDate.ofEpochDay(birthDays[row]), addresses);
+	}
+
+	/**
+	 * Returns the offset of the last person change contained in this snapshot.
+	 * @return the offset
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Returns the number of {@link Person}s.
+	 * @return number of {@link Person}s
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Returns the number of addresses.
+	 * @return number of addresses
+	 */
+	public int getAddressCount() {
+		return addressZips.length;
+	}
+
+	/**
+	 * Estimates the heap occupied by this snapshot including its indexes and dictionaries,
+	 * assuming compressed references.
+	 * @return size in bytes
+	 */
+	public long estimateBytes() {
+		long columns = 8L * ids.length
+				+ 4L * (firstNames.length + lastNames.length + birthDays.length
+						+ addressOffsets.length + addressStreets.length
+						+ addressPostOfficeBoxes.length + addressZips.length
+						+ addressCities.length + nameTable.length + cityOffsets.length
+						+ cityRows.length + birthDayRows.length + sortedBirthDays.length)
+				+ addressCountries.length;
+		return columns + 19 * 16 + names.estimateBytes() + streets.estimateBytes()
+				+ zips.estimateBytes() + cities.estimateBytes();
+	}
+
+	/**
+	 * Translates codes of another dictionary into codes of a dictionary of this snapshot,
+	 * copying the dictionary before the first value it does not know yet.
+	 */
+	private static final class Recoder {
+		private StringDictionary dictionary;
+
+		private boolean copied;
+
+		Recoder(final StringDictionary dictionary) {
+			super();
+			this.dictionary = dictionary;
+		}
+
+		int recode(final StringDictionary source, final int code) {
+			String value = source.valueOf(code);
+			int recoded = dictionary.codeOf(value);
+			if (recoded < 0 && value != null) {
+				if (!copied) {
+					dictionary = dictionary.copy();
+					copied = true;
+				}
+				recoded = dictionary.encode(value);
+			}
+			return recoded;
+		}
+	}
+
+	/**
+	 * List of rows of this snapshot, given as range of an index array or of all rows.
+	 */
+	private final class RowList extends AbstractList<PersonRecord> implements RandomAccess {
+		private final int[] rows;
+
+		private final int from;
+
+		private final int to;
+
+		RowList(final int[] rows, final int from, final int to) {
+			super();
+			this.rows = rows;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public PersonRecord get(final int index) {
+			if (index < 0 || index >= to - from) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+			}
+			return record(rows == null ? from + index : rows[from + index]);
+		}
+
+		@Override
+		public int size() {
+			return to - from;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package info.novatec.addressbook.readmodel;
+
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.springframework.util.Assert;
+
+/**
+ * Collects {@link Person} and address rows into growing primitive columns and builds a
+ * {@link PersonSnapshot} from them. {@link Person}s have to be added in ascending id
+ * order, each directly followed by its addresses. A builder builds a single snapshot.
+ */
+public class PersonSnapshotBuilder {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final StringDictionary names = new StringDictionary();
+
+	private final StringDictionary streets = new StringDictionary();
+
+	private final StringDictionary zips = new StringDictionary();
+
+	private final StringDictionary cities = new StringDictionary();
+
+	private long[] ids = new long[INITIAL_CAPACITY];
+
+	private int[] firstNames = new int[INITIAL_CAPACITY];
+
+	private int[] lastNames = new int[INITIAL_CAPACITY];
+
+	private int[] birthDays = new int[INITIAL_CAPACITY];
+
+	private int[] addressOffsets = new int[INITIAL_CAPACITY];
+
+	private int persons;
+
+	private int[] addressStreets = new int[INITIAL_CAPACITY];
+
+	private int[] addressPostOfficeBoxes = new int[INITIAL_CAPACITY];
+
+	private int[] addressZips = new int[INITIAL_CAPACITY];
+
+	private int[] addressCities = new int[INITIAL_CAPACITY];
+
+	private byte[] addressCountries = new byte[INITIAL_CAPACITY];
+
+	private int addresses;
+
+	private boolean built;
+
+	/**
+	 * Adds a {@link Person}.
+	 * @param id the id, greater than the id of the previous {@link Person}
+	 * @param firstName first name
+	 * @param lastName last name
+	 * @param birthDate birth date
+	 * @return this builder
+	 */
+	public PersonSnapshotBuilder addPerson(final long id, final String firstName,
+			final String lastName, final LocalDate birthDate) {
+		return addPerson(id, firstName, lastName, (int) birthDate.toEpochDay());
+	}
+
+	PersonSnapshotBuilder addPerson(final long id, final String firstName, final String lastName,
+			final int birthDay) {
+		Assert.state(!built, "Snapshot has already been built");
+		Assert.isTrue(persons == 0 || id > ids[persons - 1],
+				"Persons must be added in ascending id order");
+		if (persons == ids.length) {
+			int capacity = persons * 2;
+			ids = Arrays.copyOf(ids, capacity);
+			firstNames = Arrays.copyOf(firstNames, capacity);
+			lastNames = Arrays.copyOf(lastNames, capacity);
+			birthDays = Arrays.copyOf(birthDays, capacity);
+			addressOffsets = Arrays.copyOf(addressOffsets, capacity);
+		}
+		ids[persons] = id;
+		firstNames[persons] = names.encode(firstName);
+		lastNames[persons] = names.encode(lastName);
+		birthDays[persons] = birthDay;
+		addressOffsets[persons] = addresses;
+		persons++;
+		return this;
+	}
+
+	/**
+	 * Adds an address of the {@link Person} added last.
+	 * @param street street, may be {@literal null}
+	 * @param postOfficeBox post office box, may be {@literal null}
+	 * @param zip zip code
+	 * @param city city
+	 * @param country the {@link Country}
+	 * @return this builder
+	 */
+	public PersonSnapshotBuilder addAddress(final String street, final String postOfficeBox,
+			final String zip, final String city, final Country country) {
+		Assert.state(!built, "Snapshot has already been built");
+		Assert.state(persons > 0, "Addresses must follow their person");
+		if (addresses == addressZips.length) {
+			int capacity = addresses * 2;
+			addressStreets = Arrays.copyOf(addressStreets, capacity);
+			addressPostOfficeBoxes = Arrays.copyOf(addressPostOfficeBoxes, capacity);
+			addressZips = Arrays.copyOf(addressZips, capacity);
+			addressCities = Arrays.copyOf(addressCities, capacity);
+			addressCountries = Arrays.copyOf(addressCountries, capacity);
+		}
+		addressStreets[addresses] = streets.encode(street);
+		addressPostOfficeBoxes[addresses] = streets.encode(postOfficeBox);
+		addressZips[addresses] = zips.encode(zip);
+		addressCities[addresses] = cities.encode(city);
+		addressCountries[addresses] = (byte) country.ordinal();
+		addresses++;
+		return this;
+	}
+
+	/**
+	 * Builds the {@link PersonSnapshot} of the rows added so far.
+	 * @param offset offset of the last person change contained
+	 * @return the {@link PersonSnapshot}
+	 */
+	public PersonSnapshot build(final long offset) {
+		Assert.state(!built, "Snapshot has already been built");
+		built = true;
+		int[] offsets = Arrays.copyOf(addressOffsets, persons + 1);
+		offsets[persons] = addresses;
+		return new PersonSnapshot(offset, names, streets, zips, cities,
+				Arrays.copyOf(ids, persons), Arrays.copyOf(firstNames, persons),
+				Arrays.copyOf(lastNames, persons), Arrays.copyOf(birthDays, persons), offsets,
+				Arrays.copyOf(addressStreets, addresses),
+				Arrays.copyOf(addressPostOfficeBoxes, addresses),
+				Arrays.copyOf(addressZips, addresses), Arrays.copyOf(addressCities, addresses),
+				Arrays.copyOf(addressCountries, addresses));
+	}
+}
@@ -0,0 +1,39 @@
+package info.novatec.addressbook.readmodel;
+
+import info.novatec.addressbook.outbox.PersonChangeLog;
+
+import java.time.Clock;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Bean configuration for the compact in-memory {@link PersonReadModel}, enabled by
+ * <code>addressbook.read-model.enabled</code>. It is refreshed from the changes relayed
+ * by the outbox, so the outbox must be enabled as well.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "addressbook.read-model", name = "enabled", havingValue = "true")
+public class ReadModelConfiguration {
+
+	/**
+	 * Bean configuration for {@link PersonReadModel}.
+	 * @param dataSource the {@link DataSource} of the person tables
+	 * @param personChangeLog the {@link PersonChangeLog}
+	 * @param fetchSize number of rows fetched per round trip while loading
+	 * @return {@link PersonReadModel}
+	 */
+	@Bean
+	public PersonReadModel createPersonReadModel(final DataSource dataSource,
+			final PersonChangeLog personChangeLog,
+			@Value("${addressbook.read-model.fetch-size:1000}") final int fetchSize) {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.setFetchSize(fetchSize);
+		return new PersonReadModel(jdbcTemplate, personChangeLog, Clock.systemDefaultZone());
+	}
+}
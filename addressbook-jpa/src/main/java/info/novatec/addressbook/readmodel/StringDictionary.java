@@ -0,0 +1,92 @@
+package info.novatec.addressbook.readmodel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary encoding strings as dense int codes, so every distinct value is stored once
+ * however many rows use it. {@literal null} is encoded as -1. Codes are only added while
+ * building a {@link PersonSnapshot}, afterwards the dictionary is read only and shared by
+ * the snapshots created from it as long as they need no new values.
+ */
+final class StringDictionary {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final Map<String, Integer> codes = new HashMap<String, Integer>();
+
+	private String[] values = new String[INITIAL_CAPACITY];
+
+	/**
+	 * Creates a copy with the same codes, which can be extended without changing this
+	 * dictionary.
+	 * @return the copy
+	 */
+	StringDictionary copy() {
+		StringDictionary copy = new StringDictionary();
+		copy.codes.putAll(codes);
+		copy.values = Arrays.copyOf(values, values.length);
+		return copy;
+	}
+
+	/**
+	 * Returns the code of a value, adding it if unknown.
+	 * @param value the value, may be {@literal null}
+	 * @return the code
+	 */
+	int encode(final String value) {
+		if (value == null) {
+			return -1;
+		}
+		Integer code = codes.get(value);
+		if (code == null) {
+			code = codes.size();
+			if (code == values.length) {
+				values = Arrays.copyOf(values, code * 2);
+			}
+			values[code] = value;
+			codes.put(value, code);
+		}
+		return code;
+	}
+
+	/**
+	 * Returns the code of a known value.
+	 * @param value the value
+	 * @return the code or -1 if the value is unknown
+	 */
+	int codeOf(final String value) {
+		Integer code = value == null ? null : codes.get(value);
+		return code == null ? -1 : code;
+	}
+
+	/**
+	 * Returns the value of a code.
+	 * @param code the code
+	 * @return the value, {@literal null} for -1
+	 */
+	String valueOf(final int code) {
+		return code < 0 ? null : values[code];
+	}
+
+	/**
+	 * Returns the number of distinct values.
+	 * @return the size
+	 */
+	int size() {
+		return codes.size();
+	}
+
+	/**
+	 * Estimates the heap occupied by the values and the code map, assuming compressed
+	 * references.
+	 * @return size in bytes
+	 */
+	long estimateBytes() {
+		long bytes = 16 + 4L * values.length + 48L * codes.size();
+		for (int i = 0; i < codes.size(); i++) {
+			bytes += 40 + 2L * values[i].length();
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,47 @@
+package info.novatec.addressbook.repository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a bulk delete operation. The ids of the deleted persons are passed per batch 
+ * while deleting rather than collected here.
+ */
+public final class BulkDeleteResult {
+	private final long persons;
+	
+	private final long addresses;
+	
+	private final long elapsedNanos;
+
+	/**
+	 * Constructor.
+	 * @param persons number of deleted persons
+	 * @param addresses number of deleted addresses
+	 * @param elapsedNanos elapsed time in nanoseconds
+	 */
+	public BulkDeleteResult(final long persons, final long addresses, 
+			final long elapsedNanos) {
+		super();
+		this.persons = persons;
+		this.addresses = addresses;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public long getPersons() {
+		return persons;
+	}
+
+	public long getAddresses() {
+		return addresses;
+	}
+
+	public long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d persons and %d addresses in %d ms", persons, addresses, 
+				getElapsedMillis());
+	}
+}
@@ -0,0 +1,45 @@
+package info.novatec.addressbook.repository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a bulk save operation.
+ */
+public final class BulkSaveResult {
+	private final long count;
+	
+	private final long elapsedNanos;
+
+	/**
+	 * Constructor.
+	 * @param count number of saved entities
+	 * @param elapsedNanos elapsed time in nanoseconds
+	 */
+	public BulkSaveResult(final long count, final long elapsedNanos) {
+		super();
+		this.count = count;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+	}
+
+	/**
+	 * Returns the throughput of the bulk save operation.
+	 * @return saved rows per second
+	 */
+	public long getRowsPerSecond() {
+		return elapsedNanos > 0 ? count * TimeUnit.SECONDS.toNanos(1) / elapsedNanos : count;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d rows in %d ms (%d rows/s)", count, getElapsedMillis(), 
+				getRowsPerSecond());
+	}
+}
@@ -0,0 +1,18 @@
+package info.novatec.addressbook.repository;
+
+/**
+ * Sort orders supported for keyset pagination of {@link info.novatec.addressbook.entity.Person}s.
+ * The id is always the last sort key, so the order is unique.
+ */
+public enum KeysetOrder {
+	
+	/**
+	 * Order by id.
+	 */
+	ID,
+	
+	/**
+	 * Order by last name, first name and id.
+	 */
+	NAME
+}
@@ -0,0 +1,59 @@
+package info.novatec.addressbook.repository;
+
+import info.novatec.addressbook.entity.Person;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of {@link Person}s retrieved by keyset pagination together with the key 
+ * to continue with.
+ */
+public final class KeysetSlice {
+	private final List<Person> content;
+	
+	private final PersonKey nextKey;
+
+	private KeysetSlice(final List<Person> content, final PersonKey nextKey) {
+		super();
+		this.content = content;
+		this.nextKey = nextKey;
+	}
+
+	/**
+	 * Creates a slice from a query result that has been limited to <code>size + 1</code> 
+	 * rows, the additional row signaling that there is a next page.
+	 * @param result the query result
+	 * @param order the {@link KeysetOrder} of the query
+	 * @param size the requested page size
+	 * @return the {@link KeysetSlice}
+	 */
+	static KeysetSlice of(final List<Person> result, final KeysetOrder order, final int size) {
+		if (result.size() <= size) {
+			return new KeysetSlice(Collections.unmodifiableList(result), null);
+		}
+		List<Person> content = result.subList(0, size);
+		return new KeysetSlice(Collections.unmodifiableList(content), 
+				PersonKey.of(content.get(size - 1), order));
+	}
+
+	public List<Person> getContent() {
+		return content;
+	}
+
+	public PersonKey getNextKey() {
+		return nextKey;
+	}
+
+	public boolean hasNext() {
+		return nextKey != null;
+	}
+
+	/**
+	 * Returns the opaque token to retrieve the next page with.
+	 * @return the continuation token or {@literal null} if this is the last page
+	 */
+	public String getContinuationToken() {
+		return nextKey != null ? nextKey.toToken() : null;
+	}
+}
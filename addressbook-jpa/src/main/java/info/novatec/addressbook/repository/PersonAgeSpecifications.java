@@ -0,0 +1,132 @@
+package info.novatec.addressbook.repository;
+
+import info.novatec.addressbook.entity.Person;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Date;
+
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.Assert;
+
+import com.mysema.query.types.Predicate;
+
+/**
+ * Registry of the age based specifications of {@link PersonSpecifications} and 
+ * {@link PersonQueryDslSpecifications}. The cutoff, the start of the day 18 years ago, 
+ * is computed once per day of the given {@link Clock} and the specifications for it are 
+ * shared by all callers until the day changes.
+ * <p>
+ * The cutoff is bound as a query parameter by both Hibernate's Criteria API and QueryDSL, 
+ * so the generated query is the same on every call and its plan is taken from Hibernate's 
+ * query plan cache.
+ * </p>
+ */
+public class PersonAgeSpecifications {
+	private static final int OF_AGE = 18;
+	
+	private final Clock clock;
+	
+	private volatile Cutoff cutoff;
+
+	/**
+	 * Constructor.
+	 * @param clock the {@link Clock} defining the current day
+	 */
+	public PersonAgeSpecifications(final Clock clock) {
+		super();
+		Assert.notNull(clock, "Clock must not be null");
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns the cutoff of the current day.
+	 * @return the start of the day 18 years ago, the latest birth date of age (inclusive)
+	 */
+	public Date getCutoff() {
+		return new Date(current().date.getTime());
+	}
+
+	/**
+	 * Specification to query {@link Person}s that are <em>of age</em>, i.e. at least 18 years 
+	 * old, including those having their 18th birthday today.
+	 * @return {@link Specification}
+	 */
+	public Specification<Person> isOfAge() {
+		return current().ofAge;
+	}
+
+	/**
+	 * Specification to query {@link Person}s that are <em>minor</em>, i.e. under 18 years old.
+	 * @return {@link Specification}
+	 */
+	public Specification<Person> isMinor() {
+		return current().minor;
+	}
+
+	/**
+	 * QueryDSL predicate to query {@link Person}s that are <em>of age</em>.
+	 * @return {@link Predicate}
+	 */
+	public Predicate isOfAgePredicate() {
+		return current().ofAgePredicate;
+	}
+
+	/**
+	 * QueryDSL predicate to query {@link Person}s that are <em>of age</em> and have at least 
+	 * one address.
+	 * @return {@link Predicate}
+	 */
+	public Predicate isOfAgeAndHasAnAddressPredicate() {
+		return current().ofAgeAndHasAnAddressPredicate;
+	}
+
+	/**
+	 * QueryDSL predicate to query {@link Person}s that are <em>minor</em>.
+	 * @return {@link Predicate}
+	 */
+	public Predicate isMinorPredicate() {
+		return current().minorPredicate;
+	}
+
+	private Cutoff current() {
+		LocalDate today = LocalDate.now(clock);
+		Cutoff current = cutoff;
+		if (current == null || !current.day.equals(today)) {
+			current = new Cutoff(today, Date.from(today.minusYears(OF_AGE)
+					.atStartOfDay(clock.getZone()).toInstant()));
+			cutoff = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Specifications for the cutoff of one day.
+	 */
+	private static final class Cutoff {
+		private final LocalDate day;
+		
+		private final Date date;
+		
+		private final Specification<Person> ofAge;
+		
+		private final Specification<Person> minor;
+		
+		private final Predicate ofAgePredicate;
+		
+		private final Predicate ofAgeAndHasAnAddressPredicate;
+		
+		private final Predicate minorPredicate;
+
+		private Cutoff(final LocalDate day, final Date date) {
+			this.day = day;
+			this.date = date;
+			this.ofAge = PersonSpecifications.isOfAge(date);
+			this.minor = PersonSpecifications.isMinor(date);
+			this.ofAgePredicate = PersonQueryDslSpecifications.isOfAge(date);
+			this.ofAgeAndHasAnAddressPredicate = 
+					PersonQueryDslSpecifications.isOfAgeAndHasAnAddress(date);
+			this.minorPredicate = PersonQueryDslSpecifications.isMinor(date);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package info.novatec.addressbook.repository;
+
+import info.novatec.addressbook.entity.Person;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Position of a {@link Person} within a {@link KeysetOrder}, i.e. the values of the sort 
+ * keys of the last {@link Person} of a page. The next page starts right after this key.
+ * <p>
+ * A key can be converted to an opaque continuation token to be handed out to clients.
+ */
+public final class PersonKey {
+	private static final char SEPARATOR = '\u0000';
+	
+	private final KeysetOrder order;
+	
+	private final String lastName;
+	
+	private final String firstName;
+	
+	private final Long id;
+
+	private PersonKey(final KeysetOrder order, final String lastName, final String firstName, 
+			final Long id) {
+		super();
+		this.order = order;
+		this.lastName = lastName;
+		this.firstName = firstName;
+		this.id = id;
+	}
+
+	/**
+	 * Creates the key of given {@link Person} for given {@link KeysetOrder}.
+	 * @param person the {@link Person}
+	 * @param order the {@link KeysetOrder}
+	 * @return the {@link PersonKey}
+	 */
+	public static PersonKey of(final Person person, final KeysetOrder order) {
+		Assert.notNull(person.getId(), "Person must have been persisted");
+		return order == KeysetOrder.NAME 
+				? new PersonKey(order, person.getLastName(), person.getFirstName(), person.getId())
+				: new PersonKey(order, null, null, person.getId());
+	}
+
+	/**
+	 * Decodes a continuation token created by {@link #toToken()}.
+	 * @param token the token, may be {@literal null} or empty for the first page
+	 * @return the {@link PersonKey} or {@literal null} for the first page
+	 * @throws IllegalArgumentException if the token is invalid
+	 */
+	public static PersonKey fromToken(final String token) {
+		if (!StringUtils.hasText(token)) {
+			return null;
+		}
+		try {
+			String[] values = StringUtils.delimitedListToStringArray(new String(
+					Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8), 
+					String.valueOf(SEPARATOR));
+			KeysetOrder order = KeysetOrder.valueOf(values[0]);
+			return order == KeysetOrder.NAME 
+					? new PersonKey(order, values[1], values[2], Long.valueOf(values[3]))
+					: new PersonKey(order, null, null, Long.valueOf(values[1]));
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+			throw new IllegalArgumentException("Invalid continuation token: " + token, ex);
+		}
+	}
+
+	/**
+	 * Encodes this key as opaque, URL safe continuation token.
+	 * @return the continuation token
+	 */
+	public String toToken() {
+		StringBuilder value = new StringBuilder(order.name());
+		if (order == KeysetOrder.NAME) {
+			value.append(SEPARATOR).append(lastName).append(SEPARATOR).append(firstName);
+		}
+		value.append(SEPARATOR).append(id);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(
+				value.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	public KeysetOrder getOrder() {
+		return order;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public Long getId() {
+		return id;
+	}
+}
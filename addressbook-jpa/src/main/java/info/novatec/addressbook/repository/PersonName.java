@@ -0,0 +1,68 @@
+package info.novatec.addressbook.repository;
+
+import info.novatec.addressbook.entity.Person;
+
+import org.springframework.util.Assert;
+
+/**
+ * First name and last name identifying a {@link Person} in batched lookups, e.g. the key
+ * of a record to be matched against the address book.
+ */
+public final class PersonName {
+
+	private final String firstName;
+
+	private final String lastName;
+
+	/**
+	 * Constructor.
+	 * @param firstName first name
+	 * @param lastName last name
+	 */
+	public PersonName(final String firstName, final String lastName) {
+		super();
+		Assert.notNull(firstName, "First name must not be null");
+		Assert.notNull(lastName, "Last name must not be null");
+		this.firstName = firstName;
+		this.lastName = lastName;
+	}
+
+	/**
+	 * Returns the name of given {@link Person}.
+	 * @param person the {@link Person}
+	 * @return the {@link PersonName}
+	 */
+	public static PersonName of(final Person person) {
+		return new PersonName(person.getFirstName(), person.getLastName());
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * lastName.hashCode() + firstName.hashCode();
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof PersonName)) {
+			return false;
+		}
+		PersonName other = (PersonName) obj;
+		return lastName.equals(other.lastName) && firstName.equals(other.firstName);
+	}
+
+	@Override
+	public String toString() {
+		return firstName + " " + lastName;
+	}
+}
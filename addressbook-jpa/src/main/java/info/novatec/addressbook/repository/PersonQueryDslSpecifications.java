@@ -1,11 +1,15 @@
 package info.novatec.addressbook.repository;
 
+import info.novatec.addressbook.entity.Person;
 import info.novatec.addressbook.entity.QPerson;
 
 import java.util.Calendar;
+import java.util.Date;
 
 import com.mysema.query.BooleanBuilder;
 import com.mysema.query.types.Predicate;
+import com.mysema.query.types.path.NumberPath;
+import com.mysema.query.types.path.PathBuilder;
 
 /**
  * Specifications for {@link Person} taken from the concept in 
@@ -14,36 +18,56 @@ import com.mysema.query.types.Predicate;
 public final class PersonQueryDslSpecifications {
 	private static final int OF_AGE = -18;
 	
+	private static final String ID = "id";
+	
 	private PersonQueryDslSpecifications() {
 		super();
 	}
 
 	/**
-	 * Specification to query {@link Person}s that are <em>of age</em>, i.e. over 18 years old.
+	 * Specification to query {@link Person}s that are <em>of age</em>, i.e. at least 18 years 
+	 * old.
 	 * @return {@link Specification}
 	 */
 	public static Predicate isOfAge() {
 		Calendar cal = Calendar.getInstance();
 		cal.add(Calendar.YEAR, OF_AGE);
-
+		return isOfAge(cal.getTime());
+	}
+	
+	/**
+	 * Specification to query {@link Person}s born on or before the given cutoff.
+	 * @param cutoff latest birth date of persons of age (inclusive)
+	 * @return {@link Specification}
+	 */
+	public static Predicate isOfAge(final Date cutoff) {
 		QPerson person = QPerson.person;
-		return person.birthDate.before(cal.getTime());
+		return person.birthDate.loe(cutoff);
 	}
 	
 	/**
-	 * Specification to query {@link Person}s that are <em>of age</em>, i.e. over 18 years old 
-	 * and have at least one address.
+	 * Specification to query {@link Person}s that are <em>of age</em>, i.e. at least 18 years 
+	 * old, and have at least one address.
 	 * @return {@link Specification}
 	 */
 	public static Predicate isOfAgeAndHasAnAddress() {
 		Calendar cal = Calendar.getInstance();
 		cal.add(Calendar.YEAR, OF_AGE);
-
+		return isOfAgeAndHasAnAddress(cal.getTime());
+	}
+	
+	/**
+	 * Specification to query {@link Person}s born on or before the given cutoff that have at 
+	 * least one address.
+	 * @param cutoff latest birth date of persons of age (inclusive)
+	 * @return {@link Specification}
+	 */
+	public static Predicate isOfAgeAndHasAnAddress(final Date cutoff) {
 		QPerson person = QPerson.person;
 		
 		BooleanBuilder builder = new BooleanBuilder();
 		
-		return builder.and(person.birthDate.before(cal.getTime())).and(
+		return builder.and(person.birthDate.loe(cutoff)).and(
 				person.addresses.isNotEmpty());
 	}
 	
@@ -54,8 +78,39 @@ public final class PersonQueryDslSpecifications {
 	public static Predicate isMinor() {
 		Calendar cal = Calendar.getInstance();
 		cal.add(Calendar.YEAR, OF_AGE);
-
+		return isMinor(cal.getTime());
+	}
+	
+	/**
+	 * Specification to query {@link Person}s born after the given cutoff.
+	 * @param cutoff earliest birth date of minors (exclusive)
+	 * @return {@link Specification}
+	 */
+	public static Predicate isMinor(final Date cutoff) {
 		QPerson person = QPerson.person;
-		return person.birthDate.after(cal.getTime());
+		return person.birthDate.after(cutoff);
+	}
+	
+	/**
+	 * Specification to query {@link Person}s born within the given period.
+	 * @param from earliest birth date (inclusive)
+	 * @param to latest birth date (inclusive)
+	 * @return {@link Specification}
+	 */
+	public static Predicate isBornBetween(final Date from, final Date to) {
+		QPerson person = QPerson.person;
+		return person.birthDate.between(from, to);
+	}
+	
+	/**
+	 * Specification to query {@link Person}s with an id in the given range.
+	 * @param from lowest id (inclusive)
+	 * @param to highest id (exclusive)
+	 * @return {@link Specification}
+	 */
+	public static Predicate hasIdInRange(final long from, final long to) {
+		NumberPath<Long> id = new PathBuilder<Person>(Person.class, QPerson.person.getMetadata())
+				.getNumber(ID, Long.class);
+		return id.goe(from).and(id.lt(to));
 	}
 }
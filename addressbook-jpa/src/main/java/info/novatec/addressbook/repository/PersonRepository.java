@@ -1,24 +1,35 @@
 package info.novatec.addressbook.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
 import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.projection.PersonExcerpt;
+import info.novatec.addressbook.projection.PersonSummary;
+import info.novatec.addressbook.projection.PersonWithCity;
 
+import java.util.Date;
 import java.util.List;
 
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.querydsl.QueryDslPredicateExecutor;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.data.rest.core.annotation.RestResource;
 
 /**
- * Repository for {@link Person} entity.
+ * Repository for {@link Person} entity. Query results are cached in the query cache 
+ * if the second-level cache is enabled.
  */
-@RepositoryRestResource(collectionResourceRel = "persons", path = "person")
+@RepositoryRestResource(collectionResourceRel = "persons", path = "person", 
+	excerptProjection = PersonExcerpt.class)
 public interface PersonRepository extends JpaRepository<Person, Long>, 
-	JpaSpecificationExecutor<Person>, QueryDslPredicateExecutor<Person>  {
+	JpaSpecificationExecutor<Person>, QueryDslPredicateExecutor<Person>, PersonRepositoryCustom  {
 	
 	/**
 	 * Retrieves {@link Person} by given first and last name.
@@ -26,6 +37,7 @@ public interface PersonRepository extends JpaRepository<Person, Long>,
 	 * @param lastName last name
 	 * @return {@link Person} or null if none found
 	 */
+	@QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
 	Person findByFirstNameAndLastName(String firstName, String lastName);
 	
 	/**
@@ -33,6 +45,7 @@ public interface PersonRepository extends JpaRepository<Person, Long>,
 	 * @param id id for {@link Person}
 	 * @return {@link Person} or null if none found
 	 */
+	@QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
 	@Query("SELECT p FROM #{#entityName} p LEFT JOIN FETCH p.addresses WHERE p.id = :id")
 	Person findOneWithAddresses(@Param("id") Long id);
 	
@@ -41,6 +54,7 @@ public interface PersonRepository extends JpaRepository<Person, Long>,
 	 * @param id id for {@link Person}
 	 * @return {@link Person} or null if none found
 	 */	
+	@QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
 	@EntityGraph(attributePaths = { "addresses" })
 	Person findOneById(Long id);
 	
@@ -49,15 +63,115 @@ public interface PersonRepository extends JpaRepository<Person, Long>,
 	 * @param id id for {@link Person}
 	 * @return {@link Person} or null if none found
 	 */	
+	@QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
 	@EntityGraph(value="Person.addresses", type=EntityGraphType.LOAD)
 	Person getOneById(Long id);
 	
 	/**
-	 * Retrieves list of {@link Person}s living in given city.
+	 * Retrieves list of {@link Person}s living in given city. The addresses are tested 
+	 * by a semi-join, so {@link Person}s with several addresses in the city are returned 
+	 * once.
 	 * @param city city {@link Person}s are living in
 	 * @return list of {@link Person}s or empty list if none found
 	 */
-	@Query("SELECT p FROM #{#entityName} p LEFT JOIN p.addresses adr WHERE adr.city = :city")
+	@QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+	@Query("SELECT p FROM #{#entityName} p WHERE EXISTS "
+			+ "(SELECT adr FROM Address adr WHERE adr.person = p AND adr.city = :city)")
 	List<Person> findAllLivingInCity(@Param("city") String city);
 
+	/**
+	 * Retrieves all {@link Person}s together with loaded addresses in a single query.
+	 * @return list of {@link Person}s or empty list if none found
+	 */
+	@Query("SELECT DISTINCT p FROM #{#entityName} p LEFT JOIN FETCH p.addresses")
+	List<Person> findAllWithAddresses();
+
+	/**
+	 * Retrieves list of {@link Person}s living in given city together with all of 
+	 * their addresses in a single query.
+	 * @param city city {@link Person}s are living in
+	 * @return list of {@link Person}s or empty list if none found
+	 */
+	@Query("SELECT DISTINCT p FROM #{#entityName} p LEFT JOIN FETCH p.addresses WHERE EXISTS "
+			+ "(SELECT adr FROM Address adr WHERE adr.person = p AND adr.city = :city)")
+	List<Person> findAllLivingInCityWithAddresses(@Param("city") String city);
+
+	/**
+	 * Retrieves read-only summaries of all {@link Person}s ordered by name.
+	 * @return list of {@link PersonSummary}s or empty list if none found
+	 */
+	@RestResource(exported = false)
+	@Query("SELECT new info.novatec.addressbook.projection.PersonSummary("
+			+ "p.id, p.firstName, p.lastName, p.birthDate) FROM #{#entityName} p "
+			+ "ORDER BY p.lastName, p.firstName, p.id")
+	List<PersonSummary> findAllSummaries();
+
+	/**
+	 * Retrieves read-only summaries of all {@link Person}s born on or before given date 
+	 * ordered by name.
+	 * @param date the date (inclusive)
+	 * @return list of {@link PersonSummary}s or empty list if none found
+	 */
+	@RestResource(exported = false)
+	@Query("SELECT new info.novatec.addressbook.projection.PersonSummary("
+			+ "p.id, p.firstName, p.lastName, p.birthDate) FROM #{#entityName} p "
+			+ "WHERE p.birthDate <= :date ORDER BY p.lastName, p.firstName, p.id")
+	List<PersonSummary> findAllSummariesBornOnOrBefore(@Param("date") Date date);
+
+	/**
+	 * Retrieves read-only, flattened projections of all {@link Person}s living in given 
+	 * city ordered by name.
+	 * @param city city {@link Person}s are living in
+	 * @return list of {@link PersonWithCity} or empty list if none found
+	 */
+	@RestResource(exported = false)
+	@Query("SELECT DISTINCT new info.novatec.addressbook.projection.PersonWithCity("
+			+ "p.id, p.firstName, p.lastName, adr.city, adr.country) "
+			+ "FROM Address adr JOIN adr.person p WHERE adr.city = :city "
+			+ "ORDER BY p.lastName, p.firstName, p.id")
+	List<PersonWithCity> findAllWithCityLivingIn(@Param("city") String city);
+
+	/**
+	 * Retrieves the ids of all {@link Person}s living in given city.
+	 * @param city city {@link Person}s are living in
+	 * @return list of ids or empty list if none found
+	 */
+	@RestResource(exported = false)
+	@Query("SELECT DISTINCT adr.person.id FROM Address adr WHERE adr.city = :city")
+	List<Long> findIdsLivingInCity(@Param("city") String city);
+
+	/**
+	 * Retrieves the lowest and highest id of all {@link Person}s.
+	 * @return a single pair of lowest and highest id, both {@literal null} if there are 
+	 * 		no {@link Person}s
+	 */
+	@RestResource(exported = false)
+	@Query("SELECT MIN(p.id), MAX(p.id) FROM #{#entityName} p")
+	List<Object[]> findIdRange();
+
+	/**
+	 * Counts {@link Person}s per birth date.
+	 * @return pairs of birth date and number of {@link Person}s
+	 */
+	@RestResource(exported = false)
+	@Query("SELECT p.birthDate, COUNT(p) FROM #{#entityName} p GROUP BY p.birthDate")
+	List<Object[]> countByBirthDate();
+
+	/**
+	 * Counts {@link Person}s having at least one address per country.
+	 * @return pairs of {@link info.novatec.addressbook.entity.Country} and number of 
+	 * 		{@link Person}s
+	 */
+	@RestResource(exported = false)
+	@Query("SELECT adr.country, COUNT(DISTINCT adr.person.id) FROM Address adr GROUP BY adr.country")
+	List<Object[]> countByCountry();
+
+	/**
+	 * Counts {@link Person}s having at least one address per city.
+	 * @return pairs of city and number of {@link Person}s
+	 */
+	@RestResource(exported = false)
+	@Query("SELECT adr.city, COUNT(DISTINCT adr.person.id) FROM Address adr GROUP BY adr.city")
+	List<Object[]> countByCity();
+
 }
@@ -0,0 +1,216 @@
+package info.novatec.addressbook.repository;
+
+import info.novatec.addressbook.entity.Person;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.mysema.query.types.Predicate;
+
+/**
+ * Custom operations for {@link PersonRepository} that are not derived by Spring Data.
+ */
+public interface PersonRepositoryCustom {
+
+	/**
+	 * Saves the given {@link Person}s in chunks. The persistence context is flushed and 
+	 * cleared after every <code>batchSize</code> entities, so memory consumption does not 
+	 * depend on the number of {@link Person}s as long as the given {@link Iterable} 
+	 * produces its elements lazily.
+	 * <p>
+	 * Clearing detaches every entity of the current persistence context, not only the 
+	 * saved ones: pending changes of entities loaded before are flushed with the first 
+	 * chunk, later changes to them are not tracked any more.
+	 * </p>
+	 * <p>
+	 * The given {@link Iterable} is iterated once. The ids of the created and of the 
+	 * updated {@link Person}s are not collected but passed per flushed batch to the given 
+	 * {@link BiConsumer}, so they are known even if the {@link Iterable} creates new 
+	 * {@link Person}s on every iteration.
+	 * </p>
+	 * 
+	 * @param persons {@link Person}s to save
+	 * @param batchSize number of {@link Person}s to save before flushing
+	 * @param saved receives the ids of the created and of the updated {@link Person}s of 
+	 * 		each flushed batch, may be {@literal null}
+	 * @return the {@link BulkSaveResult}
+	 */
+	BulkSaveResult bulkSave(Iterable<Person> persons, int batchSize, 
+			BiConsumer<? super List<Long>, ? super List<Long>> saved);
+
+	/**
+	 * Retrieves the page of {@link Person}s matching the given {@link Specification} 
+	 * that directly follows the given key in the given order. Instead of skipping 
+	 * rows with an offset the query seeks to the key, so the cost of a page does not 
+	 * depend on its position.
+	 * 
+	 * @param specification the {@link Specification}, may be {@literal null}
+	 * @param order the {@link KeysetOrder}
+	 * @param after key of last {@link Person} of previous page or {@literal null} for first page
+	 * @param size the page size
+	 * @return the {@link KeysetSlice}
+	 */
+	KeysetSlice findAllAfter(Specification<Person> specification, KeysetOrder order, 
+			PersonKey after, int size);
+
+	/**
+	 * Retrieves the page of {@link Person}s matching the given QueryDSL {@link Predicate} 
+	 * that directly follows the given key in the given order. 
+	 * 
+	 * @param predicate the {@link Predicate}, may be {@literal null}
+	 * @param order the {@link KeysetOrder}
+	 * @param after key of last {@link Person} of previous page or {@literal null} for first page
+	 * @param size the page size
+	 * @return the {@link KeysetSlice}
+	 * @see #findAllAfter(Specification, KeysetOrder, PersonKey, int)
+	 */
+	KeysetSlice findAllAfter(Predicate predicate, KeysetOrder order, PersonKey after, int size);
+
+	/**
+	 * Retrieves all {@link Person}s matching the given {@link Specification} together with 
+	 * their addresses in a single query.
+	 * 
+	 * @param specification the {@link Specification}, may be {@literal null}
+	 * @return list of {@link Person}s or empty list if none found
+	 */
+	List<Person> findAllWithAddresses(Specification<Person> specification);
+
+	/**
+	 * Retrieves all {@link Person}s matching the given QueryDSL {@link Predicate} together with 
+	 * their addresses in a single query.
+	 * 
+	 * @param predicate the {@link Predicate}, may be {@literal null}
+	 * @return list of {@link Person}s or empty list if none found
+	 */
+	List<Person> findAllWithAddresses(Predicate predicate);
+
+	/**
+	 * Streams all {@link Person}s matching the given {@link Specification} ordered by id 
+	 * using a forward-only cursor. Each {@link Person} is detached once the stream has 
+	 * advanced, so memory consumption does not depend on the number of results. The 
+	 * stream must be consumed within a transaction and closed afterwards.
+	 * 
+	 * @param specification the {@link Specification}, may be {@literal null}
+	 * @return the {@link Stream} of {@link Person}s
+	 * @see QueryStreams
+	 */
+	Stream<Person> streamAll(Specification<Person> specification);
+
+	/**
+	 * Streams all {@link Person}s matching the given {@link Specification} in the given 
+	 * order using a forward-only cursor. The order should end with a unique property, e.g. 
+	 * the id, to be stable.
+	 * 
+	 * @param specification the {@link Specification}, may be {@literal null}
+	 * @param sort the {@link Sort}
+	 * @return the {@link Stream} of {@link Person}s
+	 * @see #streamAll(Specification)
+	 */
+	Stream<Person> streamAll(Specification<Person> specification, Sort sort);
+
+	/**
+	 * Streams all {@link Person}s matching the given QueryDSL {@link Predicate} ordered by id 
+	 * using a forward-only cursor. 
+	 * 
+	 * @param predicate the {@link Predicate}, may be {@literal null}
+	 * @return the {@link Stream} of {@link Person}s
+	 * @see #streamAll(Specification)
+	 */
+	Stream<Person> streamAll(Predicate predicate);
+
+	/**
+	 * Retrieves the {@link Person}s living in each of the given cities with a single query 
+	 * for up to 1000 cities. Every {@link Person} is returned once per city, ordered by 
+	 * name, and materialized once even if living in several of the cities. If the database 
+	 * compares cities ignoring case, a city returned in another case than given is 
+	 * assigned to the given city equal ignoring case; cities matching none of the given 
+	 * ones, e.g. by an accent insensitive collation, are skipped.
+	 * 
+	 * @param cities the cities
+	 * @return {@link Person}s per city in the iteration order of the given cities, with an 
+	 * 		empty list for cities nobody lives in
+	 */
+	Map<String, List<Person>> findAllLivingInCities(Collection<String> cities);
+
+	/**
+	 * Retrieves the {@link Person}s with the given names with a single query for up to 256 
+	 * names instead of one query per name. Rows of {@link Person}s already managed by the 
+	 * persistence context resolve to the managed instances. If several {@link Person}s have 
+	 * the same name, the one with the lowest id is returned.
+	 * 
+	 * @param names the names
+	 * @return {@link Person}s per name in the iteration order of the given names, without 
+	 * 		entries for names nobody has
+	 */
+	Map<PersonName, Person> findAllByName(Collection<PersonName> names);
+
+	/**
+	 * Deletes all {@link Person}s matching the given {@link Specification} together with 
+	 * their addresses without loading them. Matching ids are selected and deleted in 
+	 * batches with one <code>DELETE</code> statement for the addresses and one for the 
+	 * {@link Person}s of each batch. 
+	 * <p>
+	 * Pending changes are flushed before. Loaded instances of the deleted {@link Person}s 
+	 * and their addresses are detached, all other entities of the persistence context stay 
+	 * managed. Hibernate evicts the affected second-level cache regions.
+	 * </p>
+	 * <p>
+	 * The ids of the deleted {@link Person}s are not collected but passed per batch to the 
+	 * given {@link Consumer}, so deleting any number of {@link Person}s takes constant memory.
+	 * </p>
+	 * 
+	 * @param specification the {@link Specification}, {@literal null} deletes all
+	 * @param batchSize number of {@link Person}s deleted per statement
+	 * @param deleted receives the ids of each deleted batch, may be {@literal null}
+	 * @return the {@link BulkDeleteResult}
+	 */
+	BulkDeleteResult deleteInBulk(Specification<Person> specification, int batchSize, 
+			Consumer<? super List<Long>> deleted);
+
+	/**
+	 * Deletes all {@link Person}s matching the given QueryDSL {@link Predicate} together 
+	 * with their addresses without loading them.
+	 * 
+	 * @param predicate the {@link Predicate}, {@literal null} deletes all
+	 * @param batchSize number of {@link Person}s deleted per statement
+	 * @param deleted receives the ids of each deleted batch, may be {@literal null}
+	 * @return the {@link BulkDeleteResult}
+	 * @see #deleteInBulk(Specification, int, Consumer)
+	 */
+	BulkDeleteResult deleteInBulk(Predicate predicate, int batchSize, 
+			Consumer<? super List<Long>> deleted);
+
+	/**
+	 * Deletes the {@link Person}s with the given ids together with their addresses without 
+	 * loading them. Only the ids of existing {@link Person}s are passed as deleted.
+	 * 
+	 * @param ids ids of the {@link Person}s
+	 * @param batchSize number of {@link Person}s deleted per statement
+	 * @param deleted receives the ids of each deleted batch, may be {@literal null}
+	 * @return the {@link BulkDeleteResult}
+	 * @see #deleteInBulk(Specification, int, Consumer)
+	 */
+	BulkDeleteResult deleteInBulk(Iterable<Long> ids, int batchSize, 
+			Consumer<? super List<Long>> deleted);
+
+	/**
+	 * Moves all addresses in the given city to another city with a single 
+	 * <code>UPDATE</code> statement. The versions of the updated addresses are incremented, 
+	 * so concurrent updates of them fail. Pending changes are flushed before and loaded 
+	 * instances of the updated addresses are refreshed afterwards, all other entities of 
+	 * the persistence context are left as they are.
+	 * 
+	 * @param city the current city
+	 * @param newCity the new city
+	 * @return number of updated addresses
+	 */
+	int updateCity(String city, String newCity);
+
+}
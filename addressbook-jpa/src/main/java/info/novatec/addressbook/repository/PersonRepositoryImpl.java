@@ -0,0 +1,502 @@
+package info.novatec.addressbook.repository;
+
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.entity.Person_;
+import info.novatec.addressbook.entity.QPerson;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.util.Assert;
+
+import com.mysema.query.BooleanBuilder;
+import com.mysema.query.jpa.impl.JPAQuery;
+import com.mysema.query.types.OrderSpecifier;
+import com.mysema.query.types.path.NumberPath;
+import com.mysema.query.types.path.PathBuilder;
+
+/**
+ * Implementation of {@link PersonRepositoryCustom}, picked up by Spring Data 
+ * for {@link PersonRepository}.
+ */
+public class PersonRepositoryImpl implements PersonRepositoryCustom {
+	private static final String ID = "id";
+	
+	private static final int DEFAULT_FETCH_SIZE = 500;
+	
+	private static final int MAX_IN_LIST_SIZE = 1000;
+	
+	private static final int MAX_NAMES_PER_QUERY = 256;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	private int streamFetchSize = DEFAULT_FETCH_SIZE;
+
+	@Override
+	public BulkSaveResult bulkSave(final Iterable<Person> persons, final int batchSize, 
+			final BiConsumer<? super List<Long>, ? super List<Long>> saved) {
+		Assert.notNull(persons, "Persons must not be null");
+		Assert.isTrue(batchSize > 0, "Batch size must be positive");
+		
+		long start = System.nanoTime();
+		long count = 0;
+		List<Long> created = new ArrayList<Long>(batchSize);
+		List<Long> updated = new ArrayList<Long>(batchSize);
+		for (Person person : persons) {
+			if (person.isNew()) {
+				entityManager.persist(person);
+				created.add(person.getId());
+			} else {
+				updated.add(entityManager.merge(person).getId());
+			}
+			if (++count % batchSize == 0) {
+				flushBatch(created, updated, saved);
+			}
+		}
+		flushBatch(created, updated, saved);
+		
+		return new BulkSaveResult(count, System.nanoTime() - start);
+	}
+
+	/**
+	 * Flushes and clears the persistence context and passes the ids of the batch on.
+	 */
+	private void flushBatch(final List<Long> created, final List<Long> updated, 
+			final BiConsumer<? super List<Long>, ? super List<Long>> saved) {
+		entityManager.flush();
+		entityManager.clear();
+		if (saved != null && !(created.isEmpty() && updated.isEmpty())) {
+			saved.accept(new ArrayList<Long>(created), new ArrayList<Long>(updated));
+		}
+		created.clear();
+		updated.clear();
+	}
+
+	@Override
+	public KeysetSlice findAllAfter(final Specification<Person> specification, 
+			final KeysetOrder order, final PersonKey after, final int size) {
+		assertKeyset(order, after, size);
+		
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Person> query = cb.createQuery(Person.class);
+		Root<Person> root = query.from(Person.class);
+		Path<String> lastName = root.get(Person_.lastName);
+		Path<String> firstName = root.get(Person_.firstName);
+		Path<Long> id = root.get(ID);
+		
+		List<Predicate> predicates = new ArrayList<Predicate>();
+		if (specification != null) {
+			Predicate predicate = specification.toPredicate(root, query, cb);
+			if (predicate != null) {
+				predicates.add(predicate);
+			}
+		}
+		if (after != null && order == KeysetOrder.NAME) {
+			// leading range condition on last name lets the database seek on the name index
+			predicates.add(cb.greaterThanOrEqualTo(lastName, after.getLastName()));
+			predicates.add(cb.or(
+					cb.greaterThan(lastName, after.getLastName()),
+					cb.and(cb.equal(lastName, after.getLastName()), 
+							cb.greaterThan(firstName, after.getFirstName())),
+					cb.and(cb.equal(lastName, after.getLastName()), 
+							cb.equal(firstName, after.getFirstName()), 
+							cb.greaterThan(id, after.getId()))));
+		} else if (after != null) {
+			predicates.add(cb.greaterThan(id, after.getId()));
+		}
+		query.select(root).where(predicates.toArray(new Predicate[predicates.size()]));
+		if (order == KeysetOrder.NAME) {
+			query.orderBy(cb.asc(lastName), cb.asc(firstName), cb.asc(id));
+		} else {
+			query.orderBy(cb.asc(id));
+		}
+		
+		return KeysetSlice.of(entityManager.createQuery(query).setMaxResults(size + 1)
+				.getResultList(), order, size);
+	}
+
+	@Override
+	public KeysetSlice findAllAfter(final com.mysema.query.types.Predicate predicate, 
+			final KeysetOrder order, final PersonKey after, final int size) {
+		assertKeyset(order, after, size);
+		
+		QPerson person = QPerson.person;
+		NumberPath<Long> id = idOf(person);
+		
+		BooleanBuilder where = new BooleanBuilder();
+		where.and(predicate);
+		if (after != null && order == KeysetOrder.NAME) {
+			where.and(person.lastName.goe(after.getLastName()));
+			where.andAnyOf(
+					person.lastName.gt(after.getLastName()),
+					person.lastName.eq(after.getLastName()).and(
+							person.firstName.gt(after.getFirstName())),
+					person.lastName.eq(after.getLastName()).and(
+							person.firstName.eq(after.getFirstName())).and(
+							id.gt(after.getId())));
+		} else if (after != null) {
+			where.and(id.gt(after.getId()));
+		}
+		OrderSpecifier<?>[] orderBy = order == KeysetOrder.NAME 
+				? new OrderSpecifier<?>[] {person.lastName.asc(), person.firstName.asc(), id.asc()} 
+				: new OrderSpecifier<?>[] {id.asc()};
+		
+		return KeysetSlice.of(new JPAQuery(entityManager).from(person).where(where)
+				.orderBy(orderBy).limit(size + 1).list(person), order, size);
+	}
+
+	@Override
+	public List<Person> findAllWithAddresses(final Specification<Person> specification) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Person> query = cb.createQuery(Person.class);
+		Root<Person> root = query.from(Person.class);
+		root.fetch(Person_.addresses, JoinType.LEFT);
+		query.select(root).distinct(true);
+		if (specification != null) {
+			Predicate predicate = specification.toPredicate(root, query, cb);
+			if (predicate != null) {
+				query.where(predicate);
+			}
+		}
+		return entityManager.createQuery(query).getResultList();
+	}
+
+	@Override
+	public List<Person> findAllWithAddresses(final com.mysema.query.types.Predicate predicate) {
+		QPerson person = QPerson.person;
+		return new JPAQuery(entityManager).from(person).leftJoin(person.addresses).fetch()
+				.where(predicate).distinct().list(person);
+	}
+
+	@Override
+	public Stream<Person> streamAll(final Specification<Person> specification) {
+		return streamAll(specification, new Sort(ID));
+	}
+
+	@Override
+	public Stream<Person> streamAll(final Specification<Person> specification, final Sort sort) {
+		Assert.notNull(sort, "Sort must not be null");
+		
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Person> query = cb.createQuery(Person.class);
+		Root<Person> root = query.from(Person.class);
+		query.select(root).orderBy(QueryUtils.toOrders(sort, root, cb));
+		if (specification != null) {
+			Predicate predicate = specification.toPredicate(root, query, cb);
+			if (predicate != null) {
+				query.where(predicate);
+			}
+		}
+		return QueryStreams.stream(entityManager, entityManager.createQuery(query), 
+				streamFetchSize);
+	}
+
+	@Override
+	public Stream<Person> streamAll(final com.mysema.query.types.Predicate predicate) {
+		QPerson person = QPerson.person;
+		return QueryStreams.stream(entityManager, new JPAQuery(entityManager).from(person)
+				.where(predicate).orderBy(idOf(person).asc()).createQuery(person), 
+				streamFetchSize);
+	}
+
+	@Override
+	public Map<String, List<Person>> findAllLivingInCities(final Collection<String> cities) {
+		Assert.notNull(cities, "Cities must not be null");
+		
+		Map<String, List<Person>> persons = new LinkedHashMap<String, List<Person>>();
+		Map<String, List<Person>> ignoringCase = 
+				new TreeMap<String, List<Person>>(String.CASE_INSENSITIVE_ORDER);
+		for (String city : cities) {
+			List<Person> living = new ArrayList<Person>();
+			persons.put(city, living);
+			ignoringCase.putIfAbsent(city, living);
+		}
+		List<String> distinctCities = new ArrayList<String>(persons.keySet());
+		for (int from = 0; from < distinctCities.size(); from += MAX_IN_LIST_SIZE) {
+			List<Object[]> rows = entityManager.createQuery("SELECT DISTINCT adr.city, p "
+					+ "FROM Address adr JOIN adr.person p WHERE adr.city IN :cities "
+					+ "ORDER BY adr.city, p.lastName, p.firstName, p.id", Object[].class)
+					.setParameter("cities", distinctCities.subList(from, 
+							Math.min(from + MAX_IN_LIST_SIZE, distinctCities.size())))
+					.getResultList();
+			for (Object[] row : rows) {
+				List<Person> living = persons.get(row[0]);
+				if (living == null) {
+					living = ignoringCase.get(row[0]);
+				}
+				if (living != null) {
+					living.add((Person) row[1]);
+				}
+			}
+		}
+		return persons;
+	}
+
+	@Override
+	public Map<PersonName, Person> findAllByName(final Collection<PersonName> names) {
+		Assert.notNull(names, "Names must not be null");
+		
+		List<PersonName> distinctNames = new ArrayList<PersonName>(
+				new LinkedHashSet<PersonName>(names));
+		Map<PersonName, Person> found = new HashMap<PersonName, Person>();
+		for (int from = 0; from < distinctNames.size(); from += MAX_NAMES_PER_QUERY) {
+			List<PersonName> chunk = distinctNames.subList(from, 
+					Math.min(from + MAX_NAMES_PER_QUERY, distinctNames.size()));
+			for (Person person : findChunkByName(chunk)) {
+				found.putIfAbsent(PersonName.of(person), person);
+			}
+		}
+		Map<PersonName, Person> persons = new LinkedHashMap<PersonName, Person>();
+		for (PersonName name : distinctNames) {
+			if (found.containsKey(name)) {
+				persons.put(name, found.get(name));
+			}
+		}
+		return persons;
+	}
+
+	/**
+	 * Selects the {@link Person}s with the given names. The number of name predicates is 
+	 * padded to the next power of two by repeating the last name, so only a few distinct 
+	 * statements reach the query plan and prepared statement caches. The leading 
+	 * <code>IN</code> on the last names lets the database seek the name index.
+	 */
+	private List<Person> findChunkByName(final List<PersonName> names) {
+		int size = Math.min(Integer.highestOneBit(names.size() * 2 - 1), MAX_NAMES_PER_QUERY);
+		StringBuilder jpql = new StringBuilder("SELECT p FROM Person p "
+				+ "WHERE p.lastName IN :lastNames AND (");
+		for (int i = 0; i < size; i++) {
+			jpql.append(i == 0 ? "" : " OR ").append("(p.lastName = :lastName").append(i)
+					.append(" AND p.firstName = :firstName").append(i).append(')');
+		}
+		TypedQuery<Person> query = entityManager.createQuery(
+				jpql.append(") ORDER BY p.id").toString(), Person.class);
+		
+		Set<String> lastNames = new LinkedHashSet<String>();
+		for (int i = 0; i < size; i++) {
+			PersonName name = names.get(Math.min(i, names.size() - 1));
+			lastNames.add(name.getLastName());
+			query.setParameter("lastName" + i, name.getLastName());
+			query.setParameter("firstName" + i, name.getFirstName());
+		}
+		return query.setParameter("lastNames", lastNames).getResultList();
+	}
+
+	@Override
+	public BulkDeleteResult deleteInBulk(final Specification<Person> specification, 
+			final int batchSize, final Consumer<? super List<Long>> deleted) {
+		Assert.isTrue(batchSize > 0, "Batch size must be positive");
+		
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Long> query = cb.createQuery(Long.class);
+		Root<Person> root = query.from(Person.class);
+		query.select(root.<Long>get(ID)).orderBy(cb.asc(root.get(ID)));
+		if (specification != null) {
+			Predicate predicate = specification.toPredicate(root, query, cb);
+			if (predicate != null) {
+				query.where(predicate);
+			}
+		}
+		TypedQuery<Long> ids = entityManager.createQuery(query).setMaxResults(batchSize);
+		
+		long start = System.nanoTime();
+		entityManager.flush();
+		long persons = 0;
+		long addresses = 0;
+		List<Long> batch;
+		do {
+			batch = ids.getResultList();
+			addresses += deleteBatch(batch, deleted);
+			persons += batch.size();
+		} while (batch.size() == batchSize);
+		
+		return new BulkDeleteResult(persons, addresses, System.nanoTime() - start);
+	}
+
+	@Override
+	public BulkDeleteResult deleteInBulk(final com.mysema.query.types.Predicate predicate, 
+			final int batchSize, final Consumer<? super List<Long>> deleted) {
+		Assert.isTrue(batchSize > 0, "Batch size must be positive");
+		
+		QPerson person = QPerson.person;
+		NumberPath<Long> id = idOf(person);
+		
+		long start = System.nanoTime();
+		entityManager.flush();
+		long persons = 0;
+		long addresses = 0;
+		List<Long> batch;
+		do {
+			batch = new JPAQuery(entityManager).from(person).where(predicate).orderBy(id.asc())
+					.limit(batchSize).list(id);
+			addresses += deleteBatch(batch, deleted);
+			persons += batch.size();
+		} while (batch.size() == batchSize);
+		
+		return new BulkDeleteResult(persons, addresses, System.nanoTime() - start);
+	}
+
+	@Override
+	public BulkDeleteResult deleteInBulk(final Iterable<Long> ids, final int batchSize, 
+			final Consumer<? super List<Long>> deleted) {
+		Assert.notNull(ids, "Ids must not be null");
+		Assert.isTrue(batchSize > 0, "Batch size must be positive");
+		
+		long start = System.nanoTime();
+		entityManager.flush();
+		long[] counts = new long[2];
+		List<Long> batch = new ArrayList<Long>(batchSize);
+		for (Long id : ids) {
+			batch.add(id);
+			if (batch.size() == batchSize) {
+				deleteExisting(batch, deleted, counts);
+				batch.clear();
+			}
+		}
+		deleteExisting(batch, deleted, counts);
+		
+		return new BulkDeleteResult(counts[0], counts[1], System.nanoTime() - start);
+	}
+
+	@Override
+	public int updateCity(final String city, final String newCity) {
+		entityManager.flush();
+		int updated = entityManager.createQuery(
+				"UPDATE Address adr SET adr.city = :newCity, adr.version = adr.version + 1 "
+				+ "WHERE adr.city = :city")
+				.setParameter("newCity", newCity).setParameter("city", city).executeUpdate();
+		for (Object entity : managedEntities()) {
+			if (entity instanceof Address && city.equals(((Address) entity).getCity())) {
+				entityManager.refresh(entity);
+			}
+		}
+		return updated;
+	}
+
+	/**
+	 * Deletes those of the given {@link Person}s that exist, adding the number of deleted 
+	 * {@link Person}s and addresses to the given counts.
+	 */
+	private void deleteExisting(final List<Long> ids, final Consumer<? super List<Long>> deleted,
+			final long[] counts) {
+		if (ids.isEmpty()) {
+			return;
+		}
+		QPerson person = QPerson.person;
+		List<Long> existing = new JPAQuery(entityManager).from(person)
+				.where(idOf(person).in(ids)).list(idOf(person));
+		counts[1] += deleteBatch(existing, deleted);
+		counts[0] += existing.size();
+	}
+
+	/**
+	 * Deletes the addresses and then the {@link Person}s of one batch.
+	 * @param ids ids of the {@link Person}s
+	 * @param deleted receives the ids, may be {@literal null}
+	 * @return number of deleted addresses
+	 */
+	private int deleteBatch(final List<Long> ids, final Consumer<? super List<Long>> deleted) {
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		int addresses = entityManager.createQuery(
+				"DELETE FROM Address adr WHERE adr.person.id IN (:ids)")
+				.setParameter("ids", ids).executeUpdate();
+		entityManager.createQuery("DELETE FROM Person p WHERE p.id IN (:ids)")
+				.setParameter("ids", ids).executeUpdate();
+		detachDeleted(ids);
+		if (deleted != null) {
+			deleted.accept(ids);
+		}
+		return addresses;
+	}
+
+	/**
+	 * Detaches the managed {@link Person}s with the given ids and their addresses, which 
+	 * have been deleted by statements. All other entities stay managed.
+	 */
+	private void detachDeleted(final List<Long> ids) {
+		Set<Long> deletedIds = new HashSet<Long>(ids);
+		PersistenceUnitUtil util = 
+				entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+		for (Object entity : managedEntities()) {
+			Object personId = null;
+			if (entity instanceof Person) {
+				personId = ((Person) entity).getId();
+			} else if (entity instanceof Address && ((Address) entity).getPerson() != null) {
+				personId = util.getIdentifier(((Address) entity).getPerson());
+			}
+			if (deletedIds.contains(personId) && entityManager.contains(entity)) {
+				entityManager.detach(entity);
+			}
+		}
+	}
+
+	/**
+	 * Returns a copy of the entities managed by the current persistence context.
+	 */
+	private List<Object> managedEntities() {
+		return new ArrayList<Object>(entityManager.unwrap(SessionImplementor.class)
+				.getPersistenceContext().getEntitiesByKey().values());
+	}
+
+	/**
+	 * Sets the {@link EntityManager} if not injected, e.g. for repositories of other 
+	 * persistence units.
+	 * @param entityManager the shared {@link EntityManager}
+	 */
+	public void setEntityManager(final EntityManager entityManager) {
+		this.entityManager = entityManager;
+	}
+
+	/**
+	 * Sets the JDBC fetch size used for streaming queries.
+	 * @param streamFetchSize the fetch size
+	 */
+	@Value("${addressbook.stream.fetch-size:500}")
+	public void setStreamFetchSize(final int streamFetchSize) {
+		this.streamFetchSize = streamFetchSize;
+	}
+
+	private static NumberPath<Long> idOf(final QPerson person) {
+		return new PathBuilder<Person>(Person.class, person.getMetadata()).getNumber(ID, Long.class);
+	}
+
+	private static void assertKeyset(final KeysetOrder order, final PersonKey after, 
+			final int size) {
+		Assert.notNull(order, "Order must not be null");
+		Assert.isTrue(size > 0, "Page size must be positive");
+		Assert.isTrue(after == null || after.getOrder() == order, 
+				"Key does not match requested order " + order);
+	}
+
+}
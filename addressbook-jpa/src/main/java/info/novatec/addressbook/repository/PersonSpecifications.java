@@ -1,12 +1,18 @@
 package info.novatec.addressbook.repository;
 
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
 
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Address_;
 import info.novatec.addressbook.entity.Person;
 import info.novatec.addressbook.entity.Person_;
 
@@ -19,22 +25,35 @@ import org.springframework.data.jpa.domain.Specification;
 public final class PersonSpecifications {
 	private static final int OF_AGE = -18;
 	
+	private static final String ID = "id";
+	
 	private PersonSpecifications() {
 		super();
 	}
 
 	/**
-	 * Specification to query {@link Person}s that are <em>of age</em>, i.e. over 18 years old.
+	 * Specification to query {@link Person}s that are <em>of age</em>, i.e. at least 18 years 
+	 * old.
 	 * @return {@link Specification}
+	 * @see PersonAgeSpecifications
 	 */
 	public static Specification<Person> isOfAge() {
+		Calendar cal = Calendar.getInstance();
+		cal.add(Calendar.YEAR, OF_AGE);
+		return isOfAge(cal.getTime());
+	}
+	
+	/**
+	 * Specification to query {@link Person}s born on or before the given cutoff.
+	 * @param cutoff latest birth date of persons of age (inclusive)
+	 * @return {@link Specification}
+	 */
+	public static Specification<Person> isOfAge(final Date cutoff) {
 		return new Specification<Person>() {
 			@Override
 			public Predicate toPredicate(final Root<Person> root,
 					final CriteriaQuery<?> query, final CriteriaBuilder cb) {
-				Calendar cal = Calendar.getInstance();
-				cal.add(Calendar.YEAR, OF_AGE);
-				return cb.lessThan(root.get(Person_.birthDate), cal.getTime());
+				return cb.lessThanOrEqualTo(root.get(Person_.birthDate), cutoff);
 			}
 		};
 	}
@@ -42,15 +61,25 @@ public final class PersonSpecifications {
 	/**
 	 * Specification to query {@link Person}s that are <em>minor</em>, i.e. under 18 years old.
 	 * @return {@link Specification}
+	 * @see PersonAgeSpecifications
 	 */
 	public static Specification<Person> isMinor() {
+		Calendar cal = Calendar.getInstance();
+		cal.add(Calendar.YEAR, OF_AGE);
+		return isMinor(cal.getTime());
+	}
+	
+	/**
+	 * Specification to query {@link Person}s born after the given cutoff.
+	 * @param cutoff earliest birth date of minors (exclusive)
+	 * @return {@link Specification}
+	 */
+	public static Specification<Person> isMinor(final Date cutoff) {
 		return new Specification<Person>() {
 			@Override
 			public Predicate toPredicate(final Root<Person> root,
 					final CriteriaQuery<?> query, final CriteriaBuilder cb) {
-				Calendar cal = Calendar.getInstance();
-				cal.add(Calendar.YEAR, OF_AGE);
-				return cb.greaterThan(root.get(Person_.birthDate), cal.getTime());
+				return cb.greaterThan(root.get(Person_.birthDate), cutoff);
 			}
 		};
 	}
@@ -69,4 +98,63 @@ public final class PersonSpecifications {
 			}
 		};
 	}
+	
+	/**
+	 * Specification to query {@link Person}s that have at least one {@link Address} in 
+	 * the given city.
+	 * @param city the city
+	 * @return {@link Specification}
+	 */
+	public static Specification<Person> livesIn(final String city) {
+		return new Specification<Person>() {
+			@Override
+			public Predicate toPredicate(final Root<Person> root,
+					final CriteriaQuery<?> query, final CriteriaBuilder cb) {
+				Subquery<Address> addresses = query.subquery(Address.class);
+				Root<Address> address = addresses.from(Address.class);
+				addresses.select(address).where(
+						cb.equal(address.get(Address_.person), root), 
+						cb.equal(address.get(Address_.city), city));
+				return cb.exists(addresses);
+			}
+		};
+	}
+	
+	/**
+	 * Specification to query {@link Person}s that have at least one {@link Address} in 
+	 * one of the given cities.
+	 * @param cities the cities
+	 * @return {@link Specification}
+	 */
+	public static Specification<Person> livesInAnyOf(final Collection<String> cities) {
+		return new Specification<Person>() {
+			@Override
+			public Predicate toPredicate(final Root<Person> root,
+					final CriteriaQuery<?> query, final CriteriaBuilder cb) {
+				Subquery<Address> addresses = query.subquery(Address.class);
+				Root<Address> address = addresses.from(Address.class);
+				addresses.select(address).where(
+						cb.equal(address.get(Address_.person), root), 
+						address.get(Address_.city).in(cities));
+				return cb.exists(addresses);
+			}
+		};
+	}
+	
+	/**
+	 * Specification to query {@link Person}s with an id in the given range.
+	 * @param from lowest id (inclusive)
+	 * @param to highest id (exclusive)
+	 * @return {@link Specification}
+	 */
+	public static Specification<Person> hasIdInRange(final long from, final long to) {
+		return new Specification<Person>() {
+			@Override
+			public Predicate toPredicate(final Root<Person> root,
+					final CriteriaQuery<?> query, final CriteriaBuilder cb) {
+				Path<Long> id = root.get(ID);
+				return cb.and(cb.ge(id, from), cb.lt(id, to));
+			}
+		};
+	}
 }
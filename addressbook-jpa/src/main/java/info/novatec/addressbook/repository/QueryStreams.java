@@ -0,0 +1,119 @@
+package info.novatec.addressbook.repository;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.engine.spi.SessionImplementor;
+
+/**
+ * Turns JPA queries into {@link Stream}s backed by a forward-only database cursor.
+ * <p>
+ * Entities are loaded read-only and detached from the persistence context as soon as 
+ * the stream advances to the next element, so a full scan runs in constant memory. 
+ * Lazy associations of an element therefore have to be accessed before the next 
+ * element is requested. The returned stream must be consumed within a transaction 
+ * and closed afterwards to release the cursor. Entities that were already managed 
+ * when the stream was opened stay managed, so changes to them are not lost.
+ */
+public final class QueryStreams {
+
+	private QueryStreams() {
+		super();
+	}
+
+	/**
+	 * Executes the given query and streams its results.
+	 * @param <T> the entity type
+	 * @param entityManager the {@link EntityManager} the query was created by
+	 * @param query the query selecting exactly one entity per row
+	 * @param fetchSize the JDBC fetch size
+	 * @return the {@link Stream} of entities
+	 */
+	public static <T> Stream<T> stream(final EntityManager entityManager, final Query query, 
+			final int fetchSize) {
+		org.hibernate.Query hibernateQuery = query.unwrap(org.hibernate.Query.class);
+		hibernateQuery.setFetchSize(fetchSize);
+		hibernateQuery.setReadOnly(true);
+		Set<Object> managed = managedEntities(entityManager);
+		final ScrollableResults results = hibernateQuery.scroll(ScrollMode.FORWARD_ONLY);
+		
+		Iterator<T> iterator = new DetachingIterator<T>(entityManager, results, managed);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, 
+				Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(new Runnable() {
+					@Override
+					public void run() {
+						results.close();
+					}
+				});
+	}
+
+	/**
+	 * Returns the entities currently managed by the persistence context, compared by 
+	 * identity.
+	 */
+	private static Set<Object> managedEntities(final EntityManager entityManager) {
+		Set<Object> managed = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+		managed.addAll(entityManager.unwrap(SessionImplementor.class).getPersistenceContext()
+				.getEntitiesByKey().values());
+		return managed;
+	}
+
+	/**
+	 * {@link Iterator} over {@link ScrollableResults} detaching the previous entity 
+	 * when advancing, unless it was managed before.
+	 * @param <T> the entity type
+	 */
+	private static final class DetachingIterator<T> implements Iterator<T> {
+		private final EntityManager entityManager;
+		
+		private final ScrollableResults results;
+		
+		private final Set<Object> managed;
+		
+		private T previous;
+		
+		private Boolean hasNext;
+
+		DetachingIterator(final EntityManager entityManager, final ScrollableResults results, 
+				final Set<Object> managed) {
+			this.entityManager = entityManager;
+			this.results = results;
+			this.managed = managed;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (hasNext == null) {
+				if (previous != null && !managed.contains(previous)) {
+					entityManager.detach(previous);
+				}
+				previous = null;
+				hasNext = results.next();
+			}
+			return hasNext;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			hasNext = null;
+			previous = (T) results.get(0);
+			return previous;
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package info.novatec.addressbook.routing;
+
+/**
+ * Target of a connection request routed by {@link ReadWriteRoutingDataSource}.
+ */
+public enum DataSourceRoute {
+	/** The primary database receiving all writes. */
+	PRIMARY,
+	/** The read replica serving read-only transactions. */
+	REPLICA
+}
@@ -0,0 +1,104 @@
+package info.novatec.addressbook.routing;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Bean configuration for routing read-only transactions to a read replica, enabled by 
+ * setting <code>addressbook.datasource.replica.url</code>. The primary pool is configured 
+ * by <code>spring.datasource.*</code> as before, the replica pool by 
+ * <code>addressbook.datasource.replica.*</code>.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "addressbook.datasource.replica", name = "url")
+public class ReadReplicaConfiguration {
+
+	/**
+	 * Bean configuration for the connection pool of the primary database.
+	 * @param properties the {@link DataSourceProperties}
+	 * @return the primary {@link DataSource}
+	 */
+	@Bean(name = "primaryDataSource")
+	@ConfigurationProperties(prefix = "spring.datasource")
+	public DataSource createPrimaryDataSource(final DataSourceProperties properties) {
+		return DataSourceBuilder.create(properties.getClassLoader())
+				.driverClassName(properties.getDriverClassName()).url(properties.getUrl())
+				.username(properties.getUsername()).password(properties.getPassword()).build();
+	}
+
+	/**
+	 * Bean configuration for the connection pool of the read replica.
+	 * @param url JDBC url of the read replica
+	 * @return the replica {@link DataSource}
+	 */
+	@Bean(name = "replicaDataSource")
+	@ConfigurationProperties(prefix = "addressbook.datasource.replica")
+	public DataSource createReplicaDataSource(
+			@Value("${addressbook.datasource.replica.url}") final String url) {
+		return DataSourceBuilder.create().url(url).build();
+	}
+
+	/**
+	 * Bean configuration for {@link ReadYourWritesGuard}.
+	 * @param windowMillis time after a write during which reads of the writing thread 
+	 * 	stay on the primary, zero disables the guard
+	 * @return {@link ReadYourWritesGuard}
+	 */
+	@Bean
+	public ReadYourWritesGuard createReadYourWritesGuard(
+			@Value("${addressbook.datasource.replica.read-your-writes-window:1000}") 
+			final long windowMillis) {
+		return new ReadYourWritesGuard(windowMillis);
+	}
+
+	/**
+	 * Bean configuration for {@link ReadWriteRoutingDataSource}. For local setups without 
+	 * replication the schema of the replica can be migrated on startup.
+	 * @param primary the primary {@link DataSource}
+	 * @param replica the replica {@link DataSource}
+	 * @param guard the {@link ReadYourWritesGuard}
+	 * @param migrate whether to migrate the schema of the replica
+	 * @return {@link ReadWriteRoutingDataSource}
+	 */
+	@Bean(name = "routingDataSource")
+	public ReadWriteRoutingDataSource createRoutingDataSource(
+			@Qualifier("primaryDataSource") final DataSource primary, 
+			@Qualifier("replicaDataSource") final DataSource replica, 
+			final ReadYourWritesGuard guard,
+			@Value("${addressbook.datasource.replica.migrate:false}") final boolean migrate) {
+		if (migrate) {
+			Flyway flyway = new Flyway();
+			flyway.setDataSource(replica);
+			flyway.migrate();
+		}
+		ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primary, 
+				replica);
+		routingDataSource.setReadYourWritesGuard(guard);
+		return routingDataSource;
+	}
+
+	/**
+	 * Bean configuration for the {@link DataSource} used by JPA, Flyway and JDBC. 
+	 * Connections are fetched from the pools on the first statement, when the read-only 
+	 * flag of the transaction is known.
+	 * @param routingDataSource the {@link ReadWriteRoutingDataSource}
+	 * @return the routing {@link DataSource}
+	 */
+	@Bean(name = "dataSource")
+	@Primary
+	public DataSource createDataSource(
+			@Qualifier("routingDataSource") final DataSource routingDataSource) {
+		return new LazyConnectionDataSourceProxy(routingDataSource);
+	}
+}
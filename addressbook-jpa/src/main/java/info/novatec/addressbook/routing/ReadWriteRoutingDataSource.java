@@ -0,0 +1,89 @@
+package info.novatec.addressbook.routing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * {@link DataSource} routing read-only transactions to a read replica and everything 
+ * else, including work outside of transactions, to the primary. Reads of a thread that 
+ * recently wrote stay on the primary if a {@link ReadYourWritesGuard} is set. Route counts 
+ * are exposed as metrics (prefix <code>addressbook.datasource.route</code>).
+ * <p>
+ * The read-only flag of a transaction is only known after the transaction manager 
+ * requested its connection, so this {@link DataSource} must be used behind a 
+ * {@link LazyConnectionDataSourceProxy}.
+ * </p>
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements PublicMetrics {
+	private static final String PREFIX = "addressbook.datasource.route.";
+
+	private final Map<DataSourceRoute, LongAdder> routes = 
+			new EnumMap<DataSourceRoute, LongAdder>(DataSourceRoute.class);
+
+	private final LongAdder guarded = new LongAdder();
+
+	private ReadYourWritesGuard guard;
+
+	/**
+	 * Constructor.
+	 * @param primary the primary {@link DataSource}
+	 * @param replica the read replica {@link DataSource}
+	 */
+	public ReadWriteRoutingDataSource(final DataSource primary, final DataSource replica) {
+		super();
+		Map<Object, Object> targets = new HashMap<Object, Object>();
+		targets.put(DataSourceRoute.PRIMARY, primary);
+		targets.put(DataSourceRoute.REPLICA, replica);
+		setTargetDataSources(targets);
+		setDefaultTargetDataSource(primary);
+		for (DataSourceRoute route : DataSourceRoute.values()) {
+			routes.put(route, new LongAdder());
+		}
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		DataSourceRoute route = DataSourceRoute.PRIMARY;
+		if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			if (guard != null && guard.isRecentWriter()) {
+				guarded.increment();
+			} else {
+				route = DataSourceRoute.REPLICA;
+			}
+		}
+		routes.get(route).increment();
+		return route;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		for (Map.Entry<DataSourceRoute, LongAdder> route : routes.entrySet()) {
+			metrics.add(new Metric<Long>(PREFIX + route.getKey().name().toLowerCase(), 
+					route.getValue().sum()));
+		}
+		metrics.add(new Metric<Long>(PREFIX + "guarded", guarded.sum()));
+		return metrics;
+	}
+
+	/**
+	 * Sets the {@link ReadYourWritesGuard} keeping reads after writes on the primary.
+	 * @param guard the {@link ReadYourWritesGuard}, {@literal null} disables the guard
+	 */
+	public void setReadYourWritesGuard(final ReadYourWritesGuard guard) {
+		this.guard = guard;
+	}
+}
@@ -0,0 +1,67 @@
+package info.novatec.addressbook.routing;
+
+import info.novatec.addressbook.control.PersonChangeEvent;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Remembers when the current thread last committed a change, so that its reads are kept 
+ * on the primary until the read replica has most likely caught up. Changes are recorded 
+ * before other listeners of the {@link PersonChangeEvent} run, so listeners reloading 
+ * changed data read from the primary as well.
+ */
+public class ReadYourWritesGuard {
+	private final ThreadLocal<long[]> lastWrite = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[1];
+		}
+	};
+
+	private final long windowNanos;
+
+	/**
+	 * Constructor.
+	 * @param windowMillis time after a write during which reads stay on the primary, 
+	 * 	zero disables the guard
+	 */
+	public ReadYourWritesGuard(final long windowMillis) {
+		super();
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+	}
+
+	/**
+	 * Records a committed change of the current thread.
+	 * @param event the {@link PersonChangeEvent}
+	 */
+	@Order(Ordered.HIGHEST_PRECEDENCE)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onPersonChange(final PersonChangeEvent event) {
+		markWrite();
+	}
+
+	/**
+	 * Records a write of the current thread, e.g. for changes not published as events.
+	 */
+	public void markWrite() {
+		if (windowNanos > 0) {
+			lastWrite.get()[0] = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Returns whether the current thread wrote within the window.
+	 * @return {@literal true} if reads must go to the primary
+	 */
+	public boolean isRecentWriter() {
+		if (windowNanos <= 0) {
+			return false;
+		}
+		long written = lastWrite.get()[0];
+		return written != 0 && System.nanoTime() - written < windowNanos;
+	}
+}
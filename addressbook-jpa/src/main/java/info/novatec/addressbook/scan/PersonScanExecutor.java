@@ -0,0 +1,299 @@
+package info.novatec.addressbook.scan;
+
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.repository.PersonQueryDslSpecifications;
+import info.novatec.addressbook.repository.PersonRepository;
+import info.novatec.addressbook.repository.PersonSpecifications;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.domain.Specifications;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import com.mysema.query.BooleanBuilder;
+import com.mysema.query.types.Predicate;
+
+/**
+ * Runs full scans of the {@link Person}s matching a {@link Specification} or QueryDSL
+ * {@link Predicate} in parallel. The range between lowest and highest id is split into
+ * partitions of equal width, and every partition is streamed on a {@link ForkJoinPool}
+ * in its own read-only transaction, i.e. with its own EntityManager and connection.
+ * Results are reduced by a {@link Collector} per partition and combined in id order, or
+ * passed to a callback as they are read.
+ * <p>
+ * The {@link Person}s are read-only and detached once the partition advances, so their
+ * addresses have to be accessed by the accumulator or callback. Partitions do not see
+ * uncommitted changes of the calling transaction. More partitions than threads balance
+ * partitions with fewer matches, the number of threads should not exceed the size of the
+ * connection pool.
+ * </p>
+ */
+public class PersonScanExecutor implements PublicMetrics {
+	private static final Logger LOG = LoggerFactory.getLogger(PersonScanExecutor.class);
+
+	private static final String PREFIX = "addressbook.scan.";
+
+	private static final int PARTITIONS_PER_THREAD = 4;
+
+	private final PersonRepository personRepository;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final ForkJoinPool pool;
+
+	private int partitions;
+
+	private final LongAdder scans = new LongAdder();
+
+	private final LongAdder scannedPartitions = new LongAdder();
+
+	private final LongAdder rows = new LongAdder();
+
+	private final LongAdder time = new LongAdder();
+
+	/**
+	 * Constructor.
+	 * @param personRepository the {@link PersonRepository}
+	 * @param transactionManager the {@link PlatformTransactionManager} starting the
+	 * 		transaction of every partition
+	 * @param parallelism number of threads scanning partitions concurrently
+	 */
+	public PersonScanExecutor(final PersonRepository personRepository,
+			final PlatformTransactionManager transactionManager, final int parallelism) {
+		super();
+		Assert.isTrue(parallelism > 0, "Parallelism must be positive");
+		this.personRepository = personRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+		this.transactionTemplate.setPropagationBehavior(
+				TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.pool = new ForkJoinPool(parallelism, new ForkJoinWorkerThreadFactory() {
+			@Override
+			public ForkJoinWorkerThread newThread(final ForkJoinPool pool) {
+				ForkJoinWorkerThread thread =
+						ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				thread.setName("person-scan-" + thread.getPoolIndex());
+				return thread;
+			}
+		}, null, false);
+		this.partitions = parallelism * PARTITIONS_PER_THREAD;
+	}
+
+	/**
+	 * Reduces all {@link Person}s matching the given {@link Specification}. The accumulator
+	 * of the {@link Collector} is called by one thread per partition, the partial results
+	 * are combined in id order.
+	 * @param <A> the intermediate result type of the {@link Collector}
+	 * @param <R> the result type
+	 * @param specification the {@link Specification}, {@literal null} scans all
+	 * @param collector the {@link Collector}
+	 * @return the result
+	 */
+	public <A, R> R scan(final Specification<Person> specification,
+			final Collector<? super Person, A, R> collector) {
+		return scanPartitions(partition -> {
+			Specification<Person> range = 
+					PersonSpecifications.hasIdInRange(partition.from, partition.to);
+			return personRepository.streamAll(specification == null ? range 
+					: Specifications.where(specification).and(range));
+		}, collector);
+	}
+
+	/**
+	 * Reduces all {@link Person}s matching the given QueryDSL {@link Predicate}.
+	 * @param <A> the intermediate result type of the {@link Collector}
+	 * @param <R> the result type
+	 * @param predicate the {@link Predicate}, {@literal null} scans all
+	 * @param collector the {@link Collector}
+	 * @return the result
+	 * @see #scan(Specification, Collector)
+	 */
+	public <A, R> R scan(final Predicate predicate,
+			final Collector<? super Person, A, R> collector) {
+		return scanPartitions(partition -> personRepository.streamAll(new BooleanBuilder()
+				.and(predicate)
+				.and(PersonQueryDslSpecifications.hasIdInRange(partition.from, partition.to))),
+				collector);
+	}
+
+	/**
+	 * Passes all {@link Person}s matching the given {@link Specification} to a callback.
+	 * The callback is called concurrently by one thread per partition, within a partition
+	 * in id order.
+	 * @param specification the {@link Specification}, {@literal null} scans all
+	 * @param action the thread-safe callback
+	 * @return number of {@link Person}s passed
+	 */
+	public long forEach(final Specification<Person> specification,
+			final Consumer<? super Person> action) {
+		return scan(specification, counting(action));
+	}
+
+	/**
+	 * Passes all {@link Person}s matching the given QueryDSL {@link Predicate} to a callback.
+	 * @param predicate the {@link Predicate}, {@literal null} scans all
+	 * @param action the thread-safe callback
+	 * @return number of {@link Person}s passed
+	 * @see #forEach(Specification, Consumer)
+	 */
+	public long forEach(final Predicate predicate, final Consumer<? super Person> action) {
+		return scan(predicate, counting(action));
+	}
+
+	/**
+	 * Scans all partitions and combines their results. The first failing partition stops
+	 * the others after their current row, its exception is rethrown.
+	 */
+	private <A, R> R scanPartitions(final Function<IdRange, Stream<Person>> query,
+			final Collector<? super Person, A, R> collector) {
+		long start = System.nanoTime();
+		List<IdRange> ranges = split();
+		final AtomicBoolean failed = new AtomicBoolean();
+		List<CompletableFuture<A>> futures = new ArrayList<CompletableFuture<A>>(ranges.size());
+		for (final IdRange range : ranges) {
+			futures.add(CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+				try {
+					return scanPartition(query.apply(range), collector, failed);
+				} catch (RuntimeException ex) {
+					failed.set(true);
+					throw ex;
+				}
+			}), pool));
+		}
+		A result = collector.supplier().get();
+		try {
+			for (CompletableFuture<A> future : futures) {
+				result = collector.combiner().apply(result, future.join());
+			}
+		} catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw ex;
+		}
+		long duration = System.nanoTime() - start;
+		scans.increment();
+		scannedPartitions.add(ranges.size());
+		time.add(duration);
+		LOG.debug("Scanned {} partitions in {} ms", ranges.size(), duration / 1000000);
+		return collector.finisher().apply(result);
+	}
+
+	private <A> A scanPartition(final Stream<Person> persons,
+			final Collector<? super Person, A, ?> collector, final AtomicBoolean failed) {
+		A container = collector.supplier().get();
+		long count = 0;
+		try (Stream<Person> stream = persons) {
+			Iterator<Person> iterator = stream.iterator();
+			while (!failed.get() && iterator.hasNext()) {
+				collector.accumulator().accept(container, iterator.next());
+				count++;
+			}
+		} finally {
+			rows.add(count);
+		}
+		return container;
+	}
+
+	/**
+	 * Splits the range between lowest and highest id into partitions of equal width.
+	 */
+	private List<IdRange> split() {
+		Object[] idRange = personRepository.findIdRange().get(0);
+		List<IdRange> ranges = new ArrayList<IdRange>();
+		if (idRange[0] == null) {
+			return ranges;
+		}
+		long min = ((Number) idRange[0]).longValue();
+		long span = ((Number) idRange[1]).longValue() - min + 1;
+		long width = (span + partitions - 1) / partitions;
+		for (long from = min; from < min + span; from += width) {
+			ranges.add(new IdRange(from, Math.min(from + width, min + span)));
+		}
+		return ranges;
+	}
+
+	/**
+	 * {@link Collector} passing every {@link Person} to the given callback and counting them.
+	 */
+	private static Collector<Person, long[], Long> counting(final Consumer<? super Person> action) {
+		Assert.notNull(action, "Action must not be null");
+		return Collector.of(() -> new long[1], (count, person) -> {
+			action.accept(person);
+			count[0]++;
+		}, (count1, count2) -> {
+			count1[0] += count2[0];
+			return count1;
+		}, count -> count[0]);
+	}
+
+	/**
+	 * Sets the number of partitions a scan is split into, defaults to four per thread.
+	 * @param partitions number of partitions
+	 */
+	public void setPartitions(final int partitions) {
+		Assert.isTrue(partitions > 0, "Number of partitions must be positive");
+		this.partitions = partitions;
+	}
+
+	/**
+	 * Returns the number of threads scanning partitions concurrently.
+	 * @return the parallelism
+	 */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> metrics = new ArrayList<Metric<?>>();
+		metrics.add(new Metric<Long>(PREFIX + "count", scans.sum()));
+		metrics.add(new Metric<Long>(PREFIX + "partitions", scannedPartitions.sum()));
+		metrics.add(new Metric<Long>(PREFIX + "rows", rows.sum()));
+		metrics.add(new Metric<Long>(PREFIX + "time", time.sum() / 1000000));
+		return metrics;
+	}
+
+	/**
+	 * Stops the scan threads.
+	 */
+	public void close() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Range of ids scanned by one partition.
+	 */
+	private static final class IdRange {
+		private final long from;
+
+		private final long to;
+
+		IdRange(final long from, final long to) {
+			this.from = from;
+			this.to = to;
+		}
+	}
+}
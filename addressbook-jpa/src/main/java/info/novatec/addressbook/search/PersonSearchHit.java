@@ -0,0 +1,65 @@
+package info.novatec.addressbook.search;
+
+import info.novatec.addressbook.entity.Person;
+
+import java.util.List;
+
+/**
+ * Ranked result of a {@link PersonSearchIndex} search. It carries the indexed values, 
+ * so it can be displayed without loading the {@link Person}.
+ */
+public class PersonSearchHit {
+	private final Long personId;
+	
+	private final String firstName;
+	
+	private final String lastName;
+	
+	private final List<String> cities;
+	
+	private final double score;
+
+	/**
+	 * Constructor.
+	 * @param personId id of the {@link Person}
+	 * @param firstName first name
+	 * @param lastName last name
+	 * @param cities cities of the {@link Person}'s addresses
+	 * @param score relevance between 0 and 1
+	 */
+	public PersonSearchHit(final Long personId, final String firstName, final String lastName, 
+			final List<String> cities, final double score) {
+		super();
+		this.personId = personId;
+		this.firstName = firstName;
+		this.lastName = lastName;
+		this.cities = cities;
+		this.score = score;
+	}
+
+	public Long getPersonId() {
+		return personId;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public List<String> getCities() {
+		return cities;
+	}
+
+	public double getScore() {
+		return score;
+	}
+
+	@Override
+	public String toString() {
+		return "PersonSearchHit [personId=" + personId + ", firstName=" + firstName 
+				+ ", lastName=" + lastName + ", score=" + score + "]";
+	}
+}
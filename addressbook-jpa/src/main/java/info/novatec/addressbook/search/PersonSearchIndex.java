@@ -0,0 +1,326 @@
+package info.novatec.addressbook.search;
+
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Person;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.springframework.util.Assert;
+
+/**
+ * In-memory inverted index of {@link Person}s for typo tolerant and partial name search.
+ * First name, last name, city and street are normalized (lower case, without diacritics,
+ * German umlauts additionally transliterated) and split into trigrams. A search collects
+ * the {@link Person}s sharing most trigrams with the query and ranks them by the similarity
+ * of each query word to the best matching word of the {@link Person}, where names weigh
+ * more than addresses.
+ * <p>
+ * Searches never touch the database and may run concurrently with updates.
+ * </p>
+ */
+public class PersonSearchIndex {
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+	private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{Alnum}]+");
+
+	private static final double ADDRESS_WEIGHT = 0.5;
+
+	private static final double PREFIX_SIMILARITY = 0.8;
+
+	private static final double MIN_SCORE = 0.3;
+
+	private static final int CANDIDATES_PER_RESULT = 10;
+
+	private static final int MIN_CANDIDATES = 100;
+
+	private final ConcurrentMap<Long, Document> documents = new ConcurrentHashMap<Long, Document>();
+
+	private final ConcurrentMap<String, Set<Long>> postings = new ConcurrentHashMap<String, Set<Long>>();
+
+	/**
+	 * Adds a {@link Person} to the index or replaces its previous entry.
+	 * @param person the {@link Person}, its addresses must be accessible
+	 */
+	public void index(final Person person) {
+		Assert.notNull(person.getId(), "Only persisted persons can be indexed");
+		List<String> cities = new ArrayList<String>();
+		Set<String> addressTokens = new LinkedHashSet<String>();
+		if (person.getAddresses() != null) {
+			for (Address address : person.getAddresses()) {
+				if (address.getCity() != null && !cities.contains(address.getCity())) {
+					cities.add(address.getCity());
+				}
+				addressTokens.addAll(indexTokens(address.getCity()));
+				addressTokens.addAll(indexTokens(address.getStreet()));
+			}
+		}
+		Set<String> nameTokens = new LinkedHashSet<String>(indexTokens(person.getFirstName()));
+		nameTokens.addAll(indexTokens(person.getLastName()));
+
+		Document document = new Document(person.getId(), person.getFirstName(),
+				person.getLastName(), Collections.unmodifiableList(cities),
+				nameTokens.toArray(new String[nameTokens.size()]),
+				addressTokens.toArray(new String[addressTokens.size()]));
+		synchronized (this) {
+			Document previous = documents.put(document.id, document);
+			if (previous != null) {
+				removePostings(previous);
+			}
+			for (String gram : document.grams) {
+				Set<Long> ids = postings.get(gram);
+				if (ids == null) {
+					ids = ConcurrentHashMap.newKeySet();
+					postings.put(gram, ids);
+				}
+				ids.add(document.id);
+			}
+		}
+	}
+
+	/**
+	 * Removes a {@link Person} from the index.
+	 * @param personId id of the {@link Person}
+	 */
+	public synchronized void remove(final Long personId) {
+		Document previous = documents.remove(personId);
+		if (previous != null) {
+			removePostings(previous);
+		}
+	}
+
+	/**
+	 * Removes all {@link Person}s from the index.
+	 */
+	public synchronized void clear() {
+		documents.clear();
+		postings.clear();
+	}
+
+	/**
+	 * Returns the number of indexed {@link Person}s.
+	 * @return number of {@link Person}s
+	 */
+	public int size() {
+		return documents.size();
+	}
+
+	/**
+	 * Searches {@link Person}s by name, city or street.
+	 * @param query one or more, possibly misspelled or partial words
+	 * @param maxResults maximum number of hits
+	 * @return hits ordered by descending relevance
+	 */
+	public List<PersonSearchHit> search(final String query, final int maxResults) {
+		Assert.isTrue(maxResults > 0, "Max results must be positive");
+		List<String> queryTokens = tokens(query);
+		if (queryTokens.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		Set<String> queryGrams = new HashSet<String>();
+		for (String token : queryTokens) {
+			queryGrams.addAll(grams(token));
+		}
+		final Map<Long, int[]> overlaps = new HashMap<Long, int[]>();
+		for (String gram : queryGrams) {
+			Set<Long> ids = postings.get(gram);
+			if (ids == null) {
+				continue;
+			}
+			for (Long id : ids) {
+				int[] overlap = overlaps.get(id);
+				if (overlap == null) {
+					overlaps.put(id, new int[] {1});
+				} else {
+					overlap[0]++;
+				}
+			}
+		}
+
+		List<PersonSearchHit> hits = new ArrayList<PersonSearchHit>();
+		for (Long id : mostOverlapping(overlaps, Math.max(MIN_CANDIDATES,
+				maxResults * CANDIDATES_PER_RESULT))) {
+			Document document = documents.get(id);
+			if (document == null) {
+				continue;
+			}
+			double score = score(queryTokens, document);
+			if (score >= MIN_SCORE) {
+				hits.add(new PersonSearchHit(document.id, document.firstName, document.lastName,
+						document.cities, score));
+			}
+		}
+		Collections.sort(hits, new Comparator<PersonSearchHit>() {
+			@Override
+			public int compare(final PersonSearchHit hit1, final PersonSearchHit hit2) {
+				return Double.compare(hit2.getScore(), hit1.getScore());
+			}
+		});
+		return hits.size() > maxResults ? new ArrayList<PersonSearchHit>(hits.subList(0, maxResults))
+				: hits;
+	}
+
+	private void removePostings(final Document document) {
+		for (String gram : document.grams) {
+			Set<Long> ids = postings.get(gram);
+			if (ids != null) {
+				ids.remove(document.id);
+				if (ids.isEmpty()) {
+					postings.remove(gram);
+				}
+			}
+		}
+	}
+
+	private static List<Long> mostOverlapping(final Map<Long, int[]> overlaps, final int limit) {
+		PriorityQueue<Map.Entry<Long, int[]>> top = new PriorityQueue<Map.Entry<Long, int[]>>(
+				limit + 1, new Comparator<Map.Entry<Long, int[]>>() {
+					@Override
+					public int compare(final Map.Entry<Long, int[]> entry1,
+							final Map.Entry<Long, int[]> entry2) {
+						return Integer.compare(entry1.getValue()[0], entry2.getValue()[0]);
+					}
+				});
+		for (Map.Entry<Long, int[]> entry : overlaps.entrySet()) {
+			top.add(entry);
+			if (top.size() > limit) {
+				top.poll();
+			}
+		}
+		List<Long> ids = new ArrayList<Long>(top.size());
+		for (Map.Entry<Long, int[]> entry : top) {
+			ids.add(entry.getKey());
+		}
+		return ids;
+	}
+
+	private static double score(final List<String> queryTokens, final Document document) {
+		double sum = 0.0;
+		for (String queryToken : queryTokens) {
+			double best = 0.0;
+			for (String token : document.nameTokens) {
+				best = Math.max(best, similarity(queryToken, token));
+			}
+			for (String token : document.addressTokens) {
+				best = Math.max(best, ADDRESS_WEIGHT * similarity(queryToken, token));
+			}
+			sum += best;
+		}
+		return sum / queryTokens.size();
+	}
+
+	private static double similarity(final String queryToken, final String token) {
+		if (queryToken.equals(token)) {
+			return 1.0;
+		}
+		Set<String> queryGrams = grams(queryToken);
+		Set<String> grams = grams(token);
+		int common = 0;
+		for (String gram : queryGrams) {
+			if (grams.contains(gram)) {
+				common++;
+			}
+		}
+		double dice = 2.0 * common / (queryGrams.size() + grams.size());
+		return token.startsWith(queryToken) ? Math.max(dice, PREFIX_SIMILARITY) : dice;
+	}
+
+	/**
+	 * Returns the words of an indexed text, so that both <code>Müller</code> and 
+	 * <code>Mueller</code> find <code>Müller</code>.
+	 * @param text the text, may be {@literal null}
+	 * @return the words without diacritics and with transliterated umlauts
+	 */
+	static Set<String> indexTokens(final String text) {
+		Set<String> tokens = new LinkedHashSet<String>(tokens(text));
+		if (text != null) {
+			tokens.addAll(tokens(text.replace("ä", "ae").replace("ö", "oe").replace("ü", "ue")
+					.replace("Ä", "Ae").replace("Ö", "Oe").replace("Ü", "Ue")));
+		}
+		return tokens;
+	}
+
+	/**
+	 * Normalizes a text into lower case words without diacritics.
+	 * @param text the text, may be {@literal null}
+	 * @return the words
+	 */
+	static List<String> tokens(final String text) {
+		if (text == null) {
+			return Collections.emptyList();
+		}
+		String normalized = Normalizer.normalize(text.toLowerCase(Locale.GERMAN).replace("ß", "ss"),
+				Normalizer.Form.NFD);
+		normalized = DIACRITICS.matcher(normalized).replaceAll("");
+		List<String> tokens = new ArrayList<String>();
+		for (String token : NON_ALPHANUMERIC.split(normalized)) {
+			if (!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		return tokens;
+	}
+
+	/**
+	 * Splits a word into trigrams, padded with blanks so that word boundaries count.
+	 * @param token the word
+	 * @return the trigrams
+	 */
+	static Set<String> grams(final String token) {
+		String padded = " " + token + " ";
+		Set<String> grams = new HashSet<String>();
+		for (int i = 0; i + 3 <= padded.length(); i++) {
+			grams.add(padded.substring(i, i + 3));
+		}
+		return grams;
+	}
+
+	/**
+	 * Indexed entry of a {@link Person}.
+	 */
+	private static final class Document {
+		private final Long id;
+
+		private final String firstName;
+
+		private final String lastName;
+
+		private final List<String> cities;
+
+		private final String[] nameTokens;
+
+		private final String[] addressTokens;
+
+		private final Set<String> grams = new HashSet<String>();
+
+		private Document(final Long id, final String firstName, final String lastName,
+				final List<String> cities, final String[] nameTokens, final String[] addressTokens) {
+			this.id = id;
+			this.firstName = firstName;
+			this.lastName = lastName;
+			this.cities = cities;
+			this.nameTokens = nameTokens;
+			this.addressTokens = addressTokens;
+			for (String token : nameTokens) {
+				grams.addAll(grams(token));
+			}
+			for (String token : addressTokens) {
+				grams.addAll(grams(token));
+			}
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package info.novatec.addressbook.search;
+
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.control.PersonChangeEvent;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.repository.KeysetOrder;
+import info.novatec.addressbook.repository.KeysetSlice;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Keeps the {@link PersonSearchIndex} in sync with the database. Changes are applied
+ * once their transaction has committed. On startup the index is rebuilt in the
+ * background, page by page in id order, while searches are already answered from the
+ * pages loaded so far. {@link Person}s changed during the rebuild are skipped by it,
+ * as their change events are more recent than the page read. Marking them and indexing
+ * a page entry are done under one lock, so the rebuild never overwrites a more recent
+ * change. Deleting all {@link Person}s during the rebuild stops it, as any later page may
+ * contain deleted {@link Person}s, while those created afterwards are indexed by their
+ * own events.
+ */
+public class PersonSearchIndexUpdater implements ApplicationListener<ApplicationReadyEvent> {
+	private static final Logger LOG = LoggerFactory.getLogger(PersonSearchIndexUpdater.class);
+
+	private static final int DEFAULT_PAGE_SIZE = 1000;
+
+	private final Object rebuildLock = new Object();
+
+	private final Set<Long> changedDuringRebuild = new HashSet<Long>();
+
+	private boolean allDeletedDuringRebuild;
+
+	private volatile boolean rebuilding;
+
+	private PersonSearchIndex personSearchIndex;
+
+	private PersonManagementService personManagementService;
+
+	private TransactionTemplate transactionTemplate;
+
+	private int pageSize = DEFAULT_PAGE_SIZE;
+
+	/**
+	 * Applies a committed change to the index.
+	 * @param event the {@link PersonChangeEvent}
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onPersonChange(final PersonChangeEvent event) {
+		switch (event.getType()) {
+		case SAVED:
+			markChanged(event.getPersonIds());
+			personSearchIndex.index(event.getPerson());
+			break;
+		case DELETED:
+			markChanged(event.getPersonIds());
+			personSearchIndex.remove(event.getPersonId());
+			break;
+		case ALL_DELETED:
+			synchronized (rebuildLock) {
+				allDeletedDuringRebuild = rebuilding;
+				personSearchIndex.clear();
+			}
+			break;
+		case BULK_DELETED:
+			markChanged(event.getPersonIds());
+			for (Long id : event.getPersonIds()) {
+				personSearchIndex.remove(id);
+			}
+			break;
+		case BULK_UPDATED:
+		case BULK_SAVED:
+			markChanged(event.getPersonIds());
+			reindex(event.getPersonIds());
+			break;
+		default:
+			throw new IllegalStateException("Unknown change type " + event.getType());
+		}
+	}
+
+	/**
+	 * Marks {@link Person}s changed while rebuilding, before their change is applied.
+	 */
+	private void markChanged(final Collection<Long> personIds) {
+		if (rebuilding) {
+			synchronized (rebuildLock) {
+				changedDuringRebuild.addAll(personIds);
+			}
+		}
+	}
+
+	/**
+	 * Reloads the given {@link Person}s into the index, one transaction per page, as bulk
+	 * operations do not pass the changed entities.
+	 * @param personIds ids of the {@link Person}s
+	 */
+	private void reindex(final List<Long> personIds) {
+		for (int from = 0; from < personIds.size(); from += pageSize) {
+			final List<Long> page = personIds.subList(from, Math.min(from + pageSize, 
+					personIds.size()));
+			transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+				@Override
+				protected void doInTransactionWithoutResult(final TransactionStatus status) {
+					for (Person person : personManagementService.findAll(page)) {
+						personSearchIndex.index(person);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Starts rebuilding the index in the background once the application is ready.
+	 * @param event the {@link ApplicationReadyEvent}
+	 */
+	@Override
+	public void onApplicationEvent(final ApplicationReadyEvent event) {
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				rebuild();
+			}
+		}, "person-search-rebuild");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Loads all {@link Person}s into the index, one read-only transaction per page.
+	 */
+	public void rebuild() {
+		long start = System.currentTimeMillis();
+		synchronized (rebuildLock) {
+			changedDuringRebuild.clear();
+			allDeletedDuringRebuild = false;
+			rebuilding = true;
+		}
+		try {
+			String continuationToken = null;
+			do {
+				final String pageToken = continuationToken;
+				continuationToken = transactionTemplate.execute(new TransactionCallback<String>() {
+					@Override
+					public String doInTransaction(final TransactionStatus status) {
+						KeysetSlice slice = personManagementService.findAll(KeysetOrder.ID,
+								pageToken, pageSize);
+						synchronized (rebuildLock) {
+							if (allDeletedDuringRebuild) {
+								return null;
+							}
+							for (Person person : slice.getContent()) {
+								if (!changedDuringRebuild.contains(person.getId())) {
+									personSearchIndex.index(person);
+								}
+							}
+						}
+						return slice.hasNext() ? slice.getContinuationToken() : null;
+					}
+				});
+			} while (continuationToken != null);
+			LOG.info("Rebuilt person search index with {} persons in {} ms", personSearchIndex.size(),
+					System.currentTimeMillis() - start);
+		} catch (RuntimeException ex) {
+			LOG.error("Rebuilding person search index failed", ex);
+		} finally {
+			synchronized (rebuildLock) {
+				rebuilding = false;
+				changedDuringRebuild.clear();
+			}
+		}
+	}
+
+	/**
+	 * Sets the {@link PersonSearchIndex} to update.
+	 * @param personSearchIndex the {@link PersonSearchIndex}
+	 */
+	public void setPersonSearchIndex(final PersonSearchIndex personSearchIndex) {
+		this.personSearchIndex = personSearchIndex;
+	}
+
+	/**
+	 * Sets the {@link PersonManagementService} to load pages from.
+	 * @param personManagementService the {@link PersonManagementService}
+	 */
+	public void setPersonManagementService(final PersonManagementService personManagementService) {
+		this.personManagementService = personManagementService;
+	}
+
+	/**
+	 * Sets the read-only {@link TransactionTemplate} spanning the loading of a page
+	 * and its addresses. It must start a new transaction, as bulk updates are reloaded
+	 * after the commit of the updating transaction.
+	 * @param transactionTemplate the {@link TransactionTemplate}
+	 */
+	public void setTransactionTemplate(final TransactionTemplate transactionTemplate) {
+		this.transactionTemplate = transactionTemplate;
+	}
+
+	/**
+	 * Sets the number of {@link Person}s loaded per page during rebuilds.
+	 * @param pageSize the page size
+	 */
+	public void setPageSize(final int pageSize) {
+		this.pageSize = pageSize;
+	}
+}
@@ -0,0 +1,56 @@
+package info.novatec.addressbook.sharding;
+
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link ShardingStrategy} storing {@link Person}s in the shard of the {@link Country} of 
+ * their primary address, i.e. the one with the first {@link Country} in declaration 
+ * order. {@link Person}s without address are stored in the first shard. Countries not 
+ * mapped explicitly are distributed by their ordinal. Ids are still allocated in one 
+ * range per shard to keep them unique and single {@link Person} lookups on one shard.
+ */
+public class CountryShardingStrategy extends IdRangeShardingStrategy {
+	private final Map<Country, Integer> shards = new EnumMap<Country, Integer>(Country.class);
+
+	/**
+	 * Constructor.
+	 * @param shardCount number of shards
+	 * @param rangeSize number of ids per shard
+	 * @param mapping shard per {@link Country}, e.g. <code>DE=0,AT=1,CH=1</code>, may be empty
+	 */
+	public CountryShardingStrategy(final int shardCount, final long rangeSize, 
+			final String mapping) {
+		super(shardCount, rangeSize);
+		for (Country country : Country.values()) {
+			shards.put(country, country.ordinal() % shardCount);
+		}
+		for (String entry : StringUtils.commaDelimitedListToStringArray(mapping)) {
+			String[] pair = StringUtils.split(entry.trim(), "=");
+			Assert.notNull(pair, "Invalid country mapping " + entry);
+			int shard = Integer.parseInt(pair[1].trim());
+			Assert.isTrue(shard >= 0 && shard < shardCount, "Invalid shard in " + entry);
+			shards.put(Country.valueOf(pair[0].trim()), shard);
+		}
+	}
+
+	@Override
+	public int shardOf(final Person person) {
+		Country primary = null;
+		if (person.getAddresses() != null) {
+			for (Address address : person.getAddresses()) {
+				if (primary == null || address.getCountry().compareTo(primary) < 0) {
+					primary = address.getCountry();
+				}
+			}
+		}
+		return primary == null ? 0 : shards.get(primary);
+	}
+}
@@ -0,0 +1,53 @@
+package info.novatec.addressbook.sharding;
+
+import info.novatec.addressbook.entity.Person;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.util.Assert;
+
+/**
+ * {@link ShardingStrategy} assigning each shard a contiguous id range, so the shard 
+ * of an id is computed without lookup. New {@link Person}s are distributed round robin.
+ */
+public class IdRangeShardingStrategy implements ShardingStrategy {
+	private final int shardCount;
+
+	private final long rangeSize;
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	/**
+	 * Constructor.
+	 * @param shardCount number of shards
+	 * @param rangeSize number of ids per shard
+	 */
+	public IdRangeShardingStrategy(final int shardCount, final long rangeSize) {
+		super();
+		Assert.isTrue(shardCount > 0, "Shard count must be positive");
+		Assert.isTrue(rangeSize > 0, "Range size must be positive");
+		this.shardCount = shardCount;
+		this.rangeSize = rangeSize;
+	}
+
+	@Override
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	@Override
+	public int shardOf(final Person person) {
+		return Math.floorMod(next.getAndIncrement(), shardCount);
+	}
+
+	@Override
+	public int shardOf(final Long id) {
+		Assert.notNull(id, "Id must not be null");
+		return (int) Math.min(Math.max(id - 1, 0L) / rangeSize, shardCount - 1);
+	}
+
+	@Override
+	public long getFirstId(final int shard) {
+		return shard * rangeSize;
+	}
+}
@@ -0,0 +1,127 @@
+package info.novatec.addressbook.sharding;
+
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.repository.PersonRepository;
+import info.novatec.addressbook.repository.PersonRepositoryImpl;
+
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * One database of a sharded {@link Person} store with its own schema migration, 
+ * persistence unit, transactions and {@link PersonRepository}.
+ */
+public class PersonShard {
+	private static final int ID_ALLOCATION_SIZE = 50;
+
+	private final int index;
+
+	private final EntityManagerFactory entityManagerFactory;
+
+	private final PersonRepository repository;
+
+	private final TransactionTemplate readTemplate;
+
+	private final TransactionTemplate writeTemplate;
+
+	/**
+	 * Migrates the schema of the shard database, moves its id sequence into the id range 
+	 * of the shard and creates the persistence unit.
+	 * @param index index of the shard
+	 * @param dataSource the {@link DataSource} of the shard
+	 * @param jpaProperties JPA and Hibernate properties, as for the default persistence unit
+	 * @param strategy the {@link ShardingStrategy} defining the id range
+	 */
+	public PersonShard(final int index, final DataSource dataSource, 
+			final Map<String, ?> jpaProperties, final ShardingStrategy strategy) {
+		super();
+		this.index = index;
+		
+		Flyway flyway = new Flyway();
+		flyway.setDataSource(dataSource);
+		flyway.migrate();
+		moveIdSequence(new JdbcTemplate(dataSource), strategy.getFirstId(index));
+		
+		LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+		factory.setDataSource(dataSource);
+		factory.setPersistenceUnitName("shard" + index);
+		factory.setPackagesToScan(Person.class.getPackage().getName());
+		factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+		factory.setJpaPropertyMap(jpaProperties);
+		factory.afterPropertiesSet();
+		entityManagerFactory = factory.getObject();
+		
+		EntityManager entityManager = 
+				SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+		PersonRepositoryImpl custom = new PersonRepositoryImpl();
+		custom.setEntityManager(entityManager);
+		repository = new JpaRepositoryFactory(entityManager).getRepository(PersonRepository.class, 
+				custom);
+		
+		JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+		writeTemplate = new TransactionTemplate(transactionManager);
+		readTemplate = new TransactionTemplate(transactionManager);
+		readTemplate.setReadOnly(true);
+	}
+
+	/**
+	 * Restarts the id sequence of a new shard after the first id of its range. Ids are 
+	 * allocated in blocks below the sequence value, so the block size is added.
+	 */
+	private static void moveIdSequence(final JdbcTemplate jdbcTemplate, final long firstId) {
+		long next = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR hibernate_sequence", 
+				Long.class);
+		if (next <= firstId) {
+			jdbcTemplate.execute("ALTER SEQUENCE hibernate_sequence RESTART WITH " 
+					+ (firstId + ID_ALLOCATION_SIZE + 1));
+		}
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the {@link PersonRepository} of this shard. Its methods must be called 
+	 * within the transactions of {@link #getReadTemplate()} or {@link #getWriteTemplate()}.
+	 * @return the {@link PersonRepository}
+	 */
+	public PersonRepository getRepository() {
+		return repository;
+	}
+
+	/**
+	 * Returns a {@link TransactionTemplate} for read-only transactions on this shard.
+	 * @return the {@link TransactionTemplate}
+	 */
+	public TransactionTemplate getReadTemplate() {
+		return readTemplate;
+	}
+
+	/**
+	 * Returns a {@link TransactionTemplate} for read-write transactions on this shard.
+	 * @return the {@link TransactionTemplate}
+	 */
+	public TransactionTemplate getWriteTemplate() {
+		return writeTemplate;
+	}
+
+	/**
+	 * Closes the persistence unit.
+	 */
+	public void close() {
+		entityManagerFactory.close();
+	}
+}
@@ -0,0 +1,125 @@
+package info.novatec.addressbook.sharding;
+
+import info.novatec.addressbook.entity.Person;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Iterates the {@link Person}s of one {@link PersonShard} read by a database cursor. The
+ * cursor is read on a thread of its own in a read-only transaction of the shard, which
+ * hands the {@link Person}s over through a bounded queue, so it reads ahead by at most
+ * the capacity of the queue. Closing the iterator stops reading, closes the cursor and
+ * ends the transaction.
+ */
+final class ShardCursor implements Iterator<Person>, AutoCloseable {
+	private static final Object END = new Object();
+
+	private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+	private final BlockingQueue<Object> queue;
+
+	private volatile boolean closed;
+
+	private Object next;
+
+	/**
+	 * Starts reading the shard.
+	 * @param shard the {@link PersonShard}
+	 * @param specification the {@link Specification}, may be {@literal null}
+	 * @param sort the order of the {@link Person}s
+	 * @param capacity number of {@link Person}s read ahead at most
+	 * @param executor the {@link Executor} running the reading thread
+	 */
+	ShardCursor(final PersonShard shard, final Specification<Person> specification,
+			final Sort sort, final int capacity, final Executor executor) {
+		super();
+		this.queue = new ArrayBlockingQueue<Object>(capacity);
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				read(shard, specification, sort);
+			}
+		});
+	}
+
+	private void read(final PersonShard shard, final Specification<Person> specification,
+			final Sort sort) {
+		try {
+			shard.getReadTemplate().execute(status -> {
+				try (Stream<Person> persons = 
+						shard.getRepository().streamAll(specification, sort)) {
+					Iterator<Person> iterator = persons.iterator();
+					while (!closed && iterator.hasNext()) {
+						put(iterator.next());
+					}
+				}
+				return null;
+			});
+			put(END);
+		} catch (RuntimeException ex) {
+			put(ex);
+		}
+	}
+
+	/**
+	 * Waits for space in the queue until the iterator is closed.
+	 */
+	private void put(final Object element) {
+		try {
+			boolean offered = false;
+			while (!closed && !offered) {
+				offered = queue.offer(element, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			closed = true;
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			try {
+				next = queue.take();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while reading shard", ex);
+			}
+			if (next instanceof RuntimeException) {
+				RuntimeException failure = (RuntimeException) next;
+				next = END;
+				throw failure;
+			}
+		}
+		return next != END;
+	}
+
+	@Override
+	public Person next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Person person = (Person) next;
+		next = null;
+		return person;
+	}
+
+	/**
+	 * Stops reading the shard. The reading thread closes the cursor and ends the
+	 * transaction as soon as it notices.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		queue.clear();
+	}
+}
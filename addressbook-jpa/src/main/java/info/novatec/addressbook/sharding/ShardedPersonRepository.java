@@ -0,0 +1,309 @@
+package info.novatec.addressbook.sharding;
+
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.repository.BulkSaveResult;
+import info.novatec.addressbook.repository.PersonAgeSpecifications;
+import info.novatec.addressbook.repository.PersonSpecifications;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Repository for {@link Person}s distributed over several {@link PersonShard}s by a 
+ * {@link ShardingStrategy}. Lookups by id go to the single shard owning the id. Queries 
+ * over all {@link Person}s run in parallel on all shards, one thread and transaction per 
+ * shard, and their results are merged lazily in name order (last name, first name, id).
+ * Streams returned by these queries hold a cursor and a transaction on every shard 
+ * until consumed completely or closed, so they should be closed after use.
+ * <p>
+ * Returned {@link Person}s are detached, their addresses are only accessible if loaded 
+ * by the query, e.g. by {@link #findOneWithAddresses(Long)}.
+ * </p>
+ */
+public class ShardedPersonRepository {
+
+	/**
+	 * Order of {@link Person}s returned by queries over all shards.
+	 */
+	public static final Comparator<Person> NAME_ORDER = new Comparator<Person>() {
+		@Override
+		public int compare(final Person person1, final Person person2) {
+			int result = person1.getLastName().compareTo(person2.getLastName());
+			if (result == 0) {
+				result = person1.getFirstName().compareTo(person2.getFirstName());
+			}
+			return result != 0 ? result : person1.getId().compareTo(person2.getId());
+		}
+	};
+
+	private static final Sort NAME_SORT = new Sort("lastName", "firstName", "id");
+
+	private static final int CURSOR_CAPACITY = 100;
+
+	private final List<PersonShard> shards;
+
+	private final ShardingStrategy strategy;
+
+	private final ExecutorService executor;
+
+	private PersonAgeSpecifications ageSpecifications = 
+			new PersonAgeSpecifications(Clock.systemDefaultZone());
+
+	/**
+	 * Constructor.
+	 * @param shards the {@link PersonShard}s ordered by index
+	 * @param strategy the {@link ShardingStrategy}
+	 */
+	public ShardedPersonRepository(final List<PersonShard> shards, 
+			final ShardingStrategy strategy) {
+		super();
+		Assert.isTrue(shards.size() == strategy.getShardCount(), 
+				"Number of shards does not match sharding strategy");
+		this.shards = Collections.unmodifiableList(new ArrayList<PersonShard>(shards));
+		this.strategy = strategy;
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("person-shard-");
+		threadFactory.setDaemon(true);
+		this.executor = Executors.newCachedThreadPool(threadFactory);
+	}
+
+	/**
+	 * Saves a {@link Person}, new {@link Person}s in the shard chosen by the 
+	 * {@link ShardingStrategy}.
+	 * @param person the {@link Person}
+	 * @return the saved {@link Person}
+	 */
+	public Person save(final Person person) {
+		PersonShard shard = shards.get(person.isNew() ? strategy.shardOf(person) 
+				: strategy.shardOf(person.getId()));
+		return shard.getWriteTemplate().execute(status -> shard.getRepository().save(person));
+	}
+
+	/**
+	 * Imports {@link Person}s in bulk mode, all shards in parallel. The {@link Person}s are 
+	 * collected per shard and every full batch is handed to its shard right away, saved 
+	 * in a transaction of its own while the next batch is collected. At most one batch per 
+	 * shard is saved at a time, so memory consumption is bounded by two batches per shard 
+	 * as long as the given {@link Iterable} produces its elements lazily. If saving a 
+	 * batch fails, the batches saved before stay committed.
+	 * @param persons the {@link Person}s
+	 * @param batchSize number of {@link Person}s flushed at once
+	 * @return the {@link BulkSaveResult} over all shards
+	 */
+	public BulkSaveResult importPersons(final Iterable<Person> persons, final int batchSize) {
+		Assert.isTrue(batchSize > 0, "Batch size must be positive");
+		long start = System.nanoTime();
+		List<List<Person>> batches = new ArrayList<List<Person>>(shards.size());
+		List<CompletableFuture<BulkSaveResult>> saving = 
+				new ArrayList<CompletableFuture<BulkSaveResult>>(shards.size());
+		for (int i = 0; i < shards.size(); i++) {
+			batches.add(new ArrayList<Person>(batchSize));
+			saving.add(null);
+		}
+		long count = 0;
+		for (Person person : persons) {
+			int index = person.isNew() ? strategy.shardOf(person) 
+					: strategy.shardOf(person.getId());
+			List<Person> batch = batches.get(index);
+			batch.add(person);
+			if (batch.size() == batchSize) {
+				count += saved(saving.get(index));
+				saving.set(index, saveAsync(shards.get(index), batch, batchSize));
+				batches.set(index, new ArrayList<Person>(batchSize));
+			}
+		}
+		for (int i = 0; i < shards.size(); i++) {
+			count += saved(saving.get(i));
+			saving.set(i, batches.get(i).isEmpty() ? null 
+					: saveAsync(shards.get(i), batches.get(i), batchSize));
+		}
+		for (CompletableFuture<BulkSaveResult> future : saving) {
+			count += saved(future);
+		}
+		return new BulkSaveResult(count, System.nanoTime() - start);
+	}
+
+	private CompletableFuture<BulkSaveResult> saveAsync(final PersonShard shard, 
+			final List<Person> batch, final int batchSize) {
+		return CompletableFuture.supplyAsync(() -> shard.getWriteTemplate().execute(
+				status -> shard.getRepository().bulkSave(batch, batchSize, null)), executor);
+	}
+
+	/**
+	 * Waits for a batch being saved.
+	 * @return number of saved {@link Person}s, 0 if none was saved
+	 */
+	private static long saved(final CompletableFuture<BulkSaveResult> future) {
+		return future == null ? 0 : join(future).getCount();
+	}
+
+	/**
+	 * Retrieves a {@link Person} by its id from the shard owning the id.
+	 * @param id the id
+	 * @return the {@link Person} or {@literal null} if none found
+	 */
+	public Person findOne(final Long id) {
+		PersonShard shard = shards.get(strategy.shardOf(id));
+		return shard.getReadTemplate().execute(status -> shard.getRepository().findOne(id));
+	}
+
+	/**
+	 * Retrieves a {@link Person} by its id together with its addresses from the shard 
+	 * owning the id.
+	 * @param id the id
+	 * @return the {@link Person} or {@literal null} if none found
+	 */
+	public Person findOneWithAddresses(final Long id) {
+		PersonShard shard = shards.get(strategy.shardOf(id));
+		return shard.getReadTemplate().execute(
+				status -> shard.getRepository().findOneWithAddresses(id));
+	}
+
+	/**
+	 * Deletes the {@link Person} with the given id.
+	 * @param id the id
+	 */
+	public void delete(final Long id) {
+		final PersonShard shard = shards.get(strategy.shardOf(id));
+		shard.getWriteTemplate().execute(status -> {
+			shard.getRepository().delete(id);
+			return null;
+		});
+	}
+
+	/**
+	 * Counts the {@link Person}s of all shards.
+	 * @return number of {@link Person}s
+	 */
+	public long count() {
+		long count = 0;
+		for (Long shardCount : fanOut(true, shard -> shard.getRepository().count())) {
+			count += shardCount;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns all {@link Person}s in name order.
+	 * @return {@link Stream} of {@link Person}s
+	 */
+	public Stream<Person> findAll() {
+		return findAllSorted(null);
+	}
+
+	/**
+	 * Returns all {@link Person}s that are 'of age' in name order.
+	 * @return {@link Stream} of {@link Person}s
+	 */
+	public Stream<Person> findAllOfAge() {
+		return findAllSorted(ageSpecifications.isOfAge());
+	}
+
+	/**
+	 * Returns all {@link Person}s living in given city in name order.
+	 * @param city city {@link Person}s are living in
+	 * @return {@link Stream} of {@link Person}s
+	 */
+	public Stream<Person> findAllLivingInCity(final String city) {
+		return findAllSorted(PersonSpecifications.livesIn(city));
+	}
+
+	/**
+	 * Streams the result of every shard in name order by a database cursor on a thread of 
+	 * its own and merges the cursors lazily. The shards have to sort strings like 
+	 * {@link String#compareTo(String)}, as H2 does without a collation set. Closing the 
+	 * returned stream closes the cursors of all shards.
+	 */
+	private Stream<Person> findAllSorted(final Specification<Person> specification) {
+		final List<ShardCursor> cursors = new ArrayList<ShardCursor>(shards.size());
+		try {
+			for (PersonShard shard : shards) {
+				cursors.add(new ShardCursor(shard, specification, NAME_SORT, CURSOR_CAPACITY, 
+						executor));
+			}
+		} catch (RuntimeException ex) {
+			closeAll(cursors);
+			throw ex;
+		}
+		return SortedMerge.merge(cursors, NAME_ORDER).onClose(() -> closeAll(cursors));
+	}
+
+	private static void closeAll(final List<ShardCursor> cursors) {
+		for (ShardCursor cursor : cursors) {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Runs a query on every shard in its own transaction and thread.
+	 * @return the results ordered by shard index
+	 */
+	private <T> List<T> fanOut(final boolean readOnly, final Function<PersonShard, T> query) {
+		List<CompletableFuture<T>> futures = new ArrayList<CompletableFuture<T>>(shards.size());
+		for (final PersonShard shard : shards) {
+			final TransactionTemplate template = readOnly ? shard.getReadTemplate() 
+					: shard.getWriteTemplate();
+			futures.add(CompletableFuture.supplyAsync(
+					() -> template.execute(status -> query.apply(shard)), executor));
+		}
+		List<T> results = new ArrayList<T>(futures.size());
+		for (CompletableFuture<T> future : futures) {
+			results.add(join(future));
+		}
+		return results;
+	}
+
+	/**
+	 * Waits for a future, rethrowing the {@link RuntimeException} it failed with.
+	 */
+	private static <T> T join(final CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw ex;
+		}
+	}
+
+	/**
+	 * Returns the number of shards.
+	 * @return number of shards
+	 */
+	public int getShardCount() {
+		return shards.size();
+	}
+
+	/**
+	 * Sets the registry of age based specifications.
+	 * @param ageSpecifications the {@link PersonAgeSpecifications}
+	 */
+	public void setAgeSpecifications(final PersonAgeSpecifications ageSpecifications) {
+		this.ageSpecifications = ageSpecifications;
+	}
+
+	/**
+	 * Stops the fan-out and cursor threads and closes all shards.
+	 */
+	public void close() {
+		executor.shutdown();
+		for (PersonShard shard : shards) {
+			shard.close();
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package info.novatec.addressbook.sharding;
+
+import info.novatec.addressbook.repository.PersonAgeSpecifications;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Bean configuration for a {@link ShardedPersonRepository}, enabled by setting 
+ * <code>addressbook.sharding.urls</code> to the comma separated JDBC urls of the shards. 
+ * The shards use the JPA settings of the default persistence unit 
+ * (<code>spring.jpa.*</code>), which is not affected.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "addressbook.sharding", name = "urls")
+public class ShardingConfiguration {
+	private static final String COUNTRY_STRATEGY = "country";
+
+	/**
+	 * Bean configuration for the {@link ShardingStrategy}.
+	 * @param urls JDBC urls of the shards
+	 * @param strategy <code>id-range</code> or <code>country</code>
+	 * @param rangeSize number of ids per shard
+	 * @param countries shard per country for the country strategy, e.g. <code>DE=0,AT=1</code>
+	 * @return {@link ShardingStrategy}
+	 */
+	@Bean
+	public ShardingStrategy createShardingStrategy(
+			@Value("${addressbook.sharding.urls}") final String[] urls,
+			@Value("${addressbook.sharding.strategy:id-range}") final String strategy,
+			@Value("${addressbook.sharding.id-range-size:1000000000000}") final long rangeSize,
+			@Value("${addressbook.sharding.countries:}") final String countries) {
+		if (COUNTRY_STRATEGY.equals(strategy)) {
+			return new CountryShardingStrategy(urls.length, rangeSize, countries);
+		}
+		return new IdRangeShardingStrategy(urls.length, rangeSize);
+	}
+
+	/**
+	 * Bean configuration for {@link ShardedPersonRepository}. The schema of every shard 
+	 * is migrated on startup.
+	 * @param urls JDBC urls of the shards
+	 * @param strategy the {@link ShardingStrategy}
+	 * @param jpaProperties the {@link JpaProperties}
+	 * @param ageSpecifications the {@link PersonAgeSpecifications}
+	 * @return {@link ShardedPersonRepository}
+	 */
+	@Bean(destroyMethod = "close")
+	public ShardedPersonRepository createShardedPersonRepository(
+			@Value("${addressbook.sharding.urls}") final String[] urls,
+			final ShardingStrategy strategy, final JpaProperties jpaProperties,
+			final PersonAgeSpecifications ageSpecifications) {
+		List<PersonShard> shards = new ArrayList<PersonShard>(urls.length);
+		for (int i = 0; i < urls.length; i++) {
+			DataSource dataSource = DataSourceBuilder.create().url(urls[i].trim()).build();
+			shards.add(new PersonShard(i, dataSource, 
+					jpaProperties.getHibernateProperties(dataSource), strategy));
+		}
+		ShardedPersonRepository repository = new ShardedPersonRepository(shards, strategy);
+		repository.setAgeSpecifications(ageSpecifications);
+		return repository;
+	}
+}
@@ -0,0 +1,37 @@
+package info.novatec.addressbook.sharding;
+
+import info.novatec.addressbook.entity.Person;
+
+/**
+ * Decides which shard stores a {@link Person}.
+ */
+public interface ShardingStrategy {
+
+	/**
+	 * Returns the number of shards.
+	 * @return number of shards
+	 */
+	int getShardCount();
+
+	/**
+	 * Returns the shard a new {@link Person} is stored in.
+	 * @param person the new {@link Person}
+	 * @return index of the shard
+	 */
+	int shardOf(Person person);
+
+	/**
+	 * Returns the shard storing the {@link Person} with the given id.
+	 * @param id id of the {@link Person}
+	 * @return index of the shard
+	 */
+	int shardOf(Long id);
+
+	/**
+	 * Returns the first id allocated by the given shard, so that ids are unique 
+	 * across shards.
+	 * @param shard index of the shard
+	 * @return the id the id sequence of the shard starts after
+	 */
+	long getFirstId(int shard);
+}
@@ -0,0 +1,97 @@
+package info.novatec.addressbook.sharding;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Merges sorted sequences lazily into one sorted {@link Stream}, taking the next element 
+ * from a heap over the heads of all sequences (k-way merge).
+ */
+final class SortedMerge {
+
+	private SortedMerge() {
+		super();
+	}
+
+	/**
+	 * Merges the given sorted sequences. The sequences are only read as the merged 
+	 * {@link Stream} is consumed, the first element of each when the first merged 
+	 * element is requested.
+	 * @param <T> the element type
+	 * @param sorted iterators each sorted by the given {@link Comparator}
+	 * @param comparator the {@link Comparator}
+	 * @return the merged, sorted {@link Stream}
+	 */
+	static <T> Stream<T> merge(final List<? extends Iterator<T>> sorted, 
+			final Comparator<? super T> comparator) {
+		final PriorityQueue<Head<T>> heads = new PriorityQueue<Head<T>>(Math.max(sorted.size(), 1), 
+				new Comparator<Head<T>>() {
+					@Override
+					public int compare(final Head<T> head1, final Head<T> head2) {
+						return comparator.compare(head1.element, head2.element);
+					}
+				});
+		
+		Iterator<T> merged = new Iterator<T>() {
+			private boolean started;
+
+			@Override
+			public boolean hasNext() {
+				if (!started) {
+					started = true;
+					for (Iterator<T> iterator : sorted) {
+						if (iterator.hasNext()) {
+							heads.add(new Head<T>(iterator));
+						}
+					}
+				}
+				return !heads.isEmpty();
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Head<T> head = heads.poll();
+				T element = head.element;
+				if (head.advance()) {
+					heads.add(head);
+				}
+				return element;
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, 
+				Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Current element of one sequence.
+	 * @param <T> the element type
+	 */
+	private static final class Head<T> {
+		private final Iterator<T> iterator;
+
+		private T element;
+
+		private Head(final Iterator<T> iterator) {
+			this.iterator = iterator;
+			this.element = iterator.next();
+		}
+
+		private boolean advance() {
+			if (iterator.hasNext()) {
+				element = iterator.next();
+				return true;
+			}
+			return false;
+		}
+	}
+}
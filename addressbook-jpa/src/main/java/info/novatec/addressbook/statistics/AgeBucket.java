@@ -0,0 +1,46 @@
+package info.novatec.addressbook.statistics;
+
+import java.time.LocalDate;
+
+/**
+ * Age ranges {@link info.novatec.addressbook.entity.Person}s are counted in.
+ */
+public enum AgeBucket {
+	/** Minors. */
+	UNDER_18(0, 18),
+	/** Adults up to 29. */
+	FROM_18_TO_29(18, 30),
+	/** Adults from 30 to 49. */
+	FROM_30_TO_49(30, 50),
+	/** Adults from 50 to 64. */
+	FROM_50_TO_64(50, 65),
+	/** Seniors. */
+	FROM_65(65, 200);
+	
+	private final int minAge;
+	
+	private final int maxAge;
+
+	private AgeBucket(final int minAge, final int maxAge) {
+		this.minAge = minAge;
+		this.maxAge = maxAge;
+	}
+
+	/**
+	 * Returns the latest birth day of this bucket.
+	 * @param today the current day
+	 * @return latest birth day (inclusive)
+	 */
+	public LocalDate getLatestBirthDay(final LocalDate today) {
+		return today.minusYears(minAge);
+	}
+
+	/**
+	 * Returns the day before the earliest birth day of this bucket.
+	 * @param today the current day
+	 * @return earliest birth day (exclusive)
+	 */
+	public LocalDate getEarliestBirthDayExclusive(final LocalDate today) {
+		return today.minusYears(maxAge);
+	}
+}
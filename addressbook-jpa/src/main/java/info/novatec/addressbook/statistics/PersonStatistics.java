@@ -0,0 +1,341 @@
+package info.novatec.addressbook.statistics;
+
+import info.novatec.addressbook.control.PersonChangeEvent;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.repository.PersonRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-memory aggregates of {@link Person}s: counts per birth day, per {@link Country} and 
+ * per city, each counting a {@link Person} once however many addresses it has there. 
+ * Counting does not depend on the number of stored {@link Person}s: age buckets sum at 
+ * most one entry per birth day, countries and cities are single lookups.
+ * <p>
+ * Created and deleted {@link Person}s update the counters once their transaction has 
+ * committed. Changes that cannot be applied incrementally, i.e. updates, deletes by id and 
+ * bulk operations, mark the counters dirty. A scheduled job then reconciles them with <code>GROUP BY</code> 
+ * queries against the tables, also periodically to correct any drift.
+ * </p>
+ */
+public class PersonStatistics {
+	private static final Logger LOG = LoggerFactory.getLogger(PersonStatistics.class);
+	
+	private static final long DEFAULT_RECONCILE_INTERVAL = 3600000L;
+	
+	private final Clock clock;
+	
+	private volatile Counters counters = new Counters();
+	
+	private volatile boolean dirty = true;
+	
+	private volatile boolean reconciling;
+	
+	private volatile long lastReconciled;
+	
+	private PersonRepository personRepository;
+	
+	private TransactionTemplate transactionTemplate;
+	
+	private long reconcileInterval = DEFAULT_RECONCILE_INTERVAL;
+
+	/**
+	 * Constructor.
+	 * @param clock the {@link Clock} defining the current day
+	 */
+	public PersonStatistics(final Clock clock) {
+		super();
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns the number of {@link Person}s per {@link AgeBucket}.
+	 * @return counts for all {@link AgeBucket}s
+	 */
+	public Map<AgeBucket, Long> countByAgeBucket() {
+		LocalDate today = LocalDate.now(clock);
+		Map<AgeBucket, Long> counts = new EnumMap<AgeBucket, Long>(AgeBucket.class);
+		for (AgeBucket bucket : AgeBucket.values()) {
+			counts.put(bucket, countBornBetween(bucket.getEarliestBirthDayExclusive(today), 
+					bucket.getLatestBirthDay(today)));
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the number of {@link Person}s that are at least 18 years old.
+	 * @return number of {@link Person}s of age
+	 */
+	public long countOfAge() {
+		LocalDate today = LocalDate.now(clock);
+		return sum(counters.births.headMap(
+				AgeBucket.FROM_18_TO_29.getLatestBirthDay(today).toEpochDay(), true));
+	}
+
+	/**
+	 * Returns the number of {@link Person}s younger than 18 years.
+	 * @return number of minors
+	 */
+	public long countMinors() {
+		LocalDate today = LocalDate.now(clock);
+		return sum(counters.births.tailMap(
+				AgeBucket.UNDER_18.getEarliestBirthDayExclusive(today).toEpochDay(), false));
+	}
+
+	/**
+	 * Returns the number of {@link Person}s per {@link Country} of their addresses.
+	 * @return counts for all {@link Country}s
+	 */
+	public Map<Country, Long> countByCountry() {
+		Map<Country, Long> counts = new EnumMap<Country, Long>(Country.class);
+		for (Map.Entry<Country, AtomicLong> entry : counters.countries.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().get());
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the number of {@link Person}s living in given city.
+	 * @param city the city
+	 * @return number of {@link Person}s
+	 */
+	public long countLivingInCity(final String city) {
+		AtomicLong count = counters.cities.get(city);
+		return count == null ? 0L : count.get();
+	}
+
+	/**
+	 * Applies a committed change to the counters.
+	 * @param event the {@link PersonChangeEvent}
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public synchronized void onPersonChange(final PersonChangeEvent event) {
+		if (reconciling) {
+			dirty = true;
+		}
+		switch (event.getType()) {
+		case SAVED:
+			if (event.isCreated() && isAddressesLoaded(event.getPerson())) {
+				counters.add(event.getPerson(), 1, clock);
+			} else {
+				dirty = true;
+			}
+			break;
+		case DELETED:
+			if (event.getPerson() != null && isAddressesLoaded(event.getPerson())) {
+				counters.add(event.getPerson(), -1, clock);
+			} else {
+				dirty = true;
+			}
+			break;
+		case ALL_DELETED:
+			counters = new Counters();
+			break;
+		case BULK_DELETED:
+		case BULK_UPDATED:
+		case BULK_SAVED:
+			dirty = true;
+			break;
+		default:
+			throw new IllegalStateException("Unknown change type " + event.getType());
+		}
+	}
+
+	/**
+	 * Reconciles the counters if they are dirty or the reconcile interval has passed.
+	 */
+	@Scheduled(fixedDelayString = "${addressbook.statistics.check-interval:10000}")
+	public void reconcileIfNeeded() {
+		if (dirty || System.currentTimeMillis() - lastReconciled >= reconcileInterval) {
+			reconcile();
+		}
+	}
+
+	/**
+	 * Replaces the counters by counts queried from the database.
+	 */
+	public void reconcile() {
+		long start = System.currentTimeMillis();
+		reconciling = true;
+		dirty = false;
+		try {
+			Counters reconciled = transactionTemplate.execute(new TransactionCallback<Counters>() {
+				@Override
+				public Counters doInTransaction(final TransactionStatus status) {
+					return query();
+				}
+			});
+			synchronized (this) {
+				long drift = counters.difference(reconciled);
+				counters = reconciled;
+				if (drift > 0) {
+					LOG.info("Reconciled person statistics with a drift of {} in {} ms", drift, 
+							System.currentTimeMillis() - start);
+				}
+			}
+			lastReconciled = System.currentTimeMillis();
+		} catch (RuntimeException ex) {
+			dirty = true;
+			LOG.error("Reconciling person statistics failed", ex);
+		} finally {
+			reconciling = false;
+		}
+	}
+
+	private Counters query() {
+		Counters result = new Counters();
+		for (Object[] row : personRepository.countByBirthDate()) {
+			result.births.put(epochDay((Date) row[0], clock), new AtomicLong((Long) row[1]));
+		}
+		for (Object[] row : personRepository.countByCountry()) {
+			if (row[0] != null) {
+				result.countries.get(row[0]).set((Long) row[1]);
+			}
+		}
+		for (Object[] row : personRepository.countByCity()) {
+			if (row[0] != null) {
+				result.cities.put((String) row[0], new AtomicLong((Long) row[1]));
+			}
+		}
+		return result;
+	}
+
+	private long countBornBetween(final LocalDate fromExclusive, final LocalDate toInclusive) {
+		return sum(counters.births.subMap(fromExclusive.toEpochDay(), false, 
+				toInclusive.toEpochDay(), true));
+	}
+
+	private static long sum(final Map<Long, AtomicLong> births) {
+		long sum = 0;
+		for (AtomicLong count : births.values()) {
+			sum += count.get();
+		}
+		return sum;
+	}
+
+	private static boolean isAddressesLoaded(final Person person) {
+		return person.getAddresses() == null || Hibernate.isInitialized(person.getAddresses());
+	}
+
+	private static long epochDay(final Date date, final Clock clock) {
+		return Instant.ofEpochMilli(date.getTime()).atZone(clock.getZone()).toLocalDate()
+				.toEpochDay();
+	}
+
+	/**
+	 * Sets the {@link PersonRepository} used for reconciliation.
+	 * @param personRepository the {@link PersonRepository}
+	 */
+	public void setPersonRepository(final PersonRepository personRepository) {
+		this.personRepository = personRepository;
+	}
+
+	/**
+	 * Sets the read-only {@link TransactionTemplate} for reconciliation.
+	 * @param transactionTemplate the {@link TransactionTemplate}
+	 */
+	public void setTransactionTemplate(final TransactionTemplate transactionTemplate) {
+		this.transactionTemplate = transactionTemplate;
+	}
+
+	/**
+	 * Sets the maximum time between two reconciliations.
+	 * @param reconcileInterval interval in milliseconds
+	 */
+	public void setReconcileInterval(final long reconcileInterval) {
+		this.reconcileInterval = reconcileInterval;
+	}
+
+	/**
+	 * Set of counters, replaced as a whole on reconciliation. Only modified while holding 
+	 * the lock of the enclosing {@link PersonStatistics}, read without locking.
+	 */
+	private static final class Counters {
+		private final ConcurrentNavigableMap<Long, AtomicLong> births = 
+				new ConcurrentSkipListMap<Long, AtomicLong>();
+		
+		private final Map<Country, AtomicLong> countries = 
+				new EnumMap<Country, AtomicLong>(Country.class);
+		
+		private final ConcurrentMap<String, AtomicLong> cities = 
+				new ConcurrentHashMap<String, AtomicLong>();
+
+		private Counters() {
+			for (Country country : Country.values()) {
+				countries.put(country, new AtomicLong());
+			}
+		}
+
+		private void add(final Person person, final int delta, final Clock clock) {
+			increment(births, epochDay(person.getBirthDate(), clock), delta);
+			Set<Country> personCountries = new HashSet<Country>();
+			Set<String> personCities = new HashSet<String>();
+			if (person.getAddresses() != null) {
+				for (Address address : person.getAddresses()) {
+					if (address.getCountry() != null && personCountries.add(address.getCountry())) {
+						countries.get(address.getCountry()).addAndGet(delta);
+					}
+					if (address.getCity() != null && personCities.add(address.getCity())) {
+						increment(cities, address.getCity(), delta);
+					}
+				}
+			}
+		}
+
+		private static <K> void increment(final ConcurrentMap<K, AtomicLong> counts, final K key, 
+				final int delta) {
+			AtomicLong count = counts.get(key);
+			if (count == null) {
+				count = new AtomicLong();
+				counts.put(key, count);
+			}
+			if (count.addAndGet(delta) <= 0) {
+				counts.remove(key);
+			}
+		}
+
+		private long difference(final Counters other) {
+			long difference = 0;
+			for (Map.Entry<Country, AtomicLong> entry : countries.entrySet()) {
+				difference += Math.abs(entry.getValue().get() 
+						- other.countries.get(entry.getKey()).get());
+			}
+			Set<String> allCities = new HashSet<String>(cities.keySet());
+			allCities.addAll(other.cities.keySet());
+			for (String city : allCities) {
+				difference += Math.abs(count(cities, city) - count(other.cities, city));
+			}
+			difference += Math.abs(sum(births) - sum(other.births));
+			return difference;
+		}
+
+		private static long count(final Map<String, AtomicLong> counts, final String key) {
+			AtomicLong count = counts.get(key);
+			return count == null ? 0L : count.get();
+		}
+	}
+}
@@ -0,0 +1,44 @@
+-- Schema for Person and Address, validated against the entity mappings on startup
+
+CREATE SEQUENCE hibernate_sequence START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE person (
+	id BIGINT NOT NULL,
+	first_name VARCHAR(30) NOT NULL,
+	last_name VARCHAR(30) NOT NULL,
+	birth_date DATE NOT NULL,
+	CONSTRAINT pk_person PRIMARY KEY (id)
+);
+
+CREATE TABLE address (
+	id BIGINT NOT NULL,
+	street VARCHAR(30),
+	post_office_box VARCHAR(20),
+	zip VARCHAR(10) NOT NULL,
+	city VARCHAR(30) NOT NULL,
+	country VARCHAR(255) NOT NULL,
+	person_id BIGINT NOT NULL,
+	CONSTRAINT pk_address PRIMARY KEY (id),
+	CONSTRAINT fk_address_person FOREIGN KEY (person_id) REFERENCES person (id)
+);
+
+CREATE TABLE person_addresses (
+	person_id BIGINT NOT NULL,
+	addresses_id BIGINT NOT NULL,
+	CONSTRAINT pk_person_addresses PRIMARY KEY (person_id, addresses_id),
+	CONSTRAINT uk_person_addresses_address UNIQUE (addresses_id),
+	CONSTRAINT fk_person_addresses_person FOREIGN KEY (person_id) REFERENCES person (id),
+	CONSTRAINT fk_person_addresses_address FOREIGN KEY (addresses_id) REFERENCES address (id)
+);
+
+-- exact lookup by first and last name as well as prefix search (LIKE 'x%') on last name
+CREATE INDEX idx_person_name ON person (last_name, first_name);
+
+-- of age and minor specifications
+CREATE INDEX idx_person_birth_date ON person (birth_date);
+
+-- persons living in a city
+CREATE INDEX idx_address_city ON address (city);
+
+-- addresses of a person
+CREATE INDEX idx_address_person ON address (person_id);
@@ -0,0 +1,8 @@
+-- Addresses reference their person by the person_id foreign key only, 
+-- so the person_addresses join table is dropped after taking over its assignments
+
+UPDATE address a SET person_id = (
+	SELECT pa.person_id FROM person_addresses pa WHERE pa.addresses_id = a.id)
+WHERE EXISTS (SELECT 1 FROM person_addresses pa WHERE pa.addresses_id = a.id);
+
+DROP TABLE person_addresses;
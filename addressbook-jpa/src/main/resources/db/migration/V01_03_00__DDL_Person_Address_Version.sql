@@ -0,0 +1,6 @@
+-- Version columns for optimistic locking of persons and addresses,
+-- existing rows start with version 0
+
+ALTER TABLE person ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+
+ALTER TABLE address ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,22 @@
+-- Transactional outbox of person changes, written in the transaction of the change.
+-- Offsets are assigned by the relay in commit order, so they are gapless and ordered
+
+CREATE TABLE person_change (
+	id BIGINT AUTO_INCREMENT NOT NULL,
+	change_offset BIGINT,
+	operation VARCHAR(20) NOT NULL,
+	person_id BIGINT,
+	payload CLOB,
+	created_at TIMESTAMP NOT NULL,
+	CONSTRAINT pk_person_change PRIMARY KEY (id),
+	CONSTRAINT uk_person_change_offset UNIQUE (change_offset)
+);
+
+-- last offset assigned by the relay ('outbox') and last offset published per sink
+CREATE TABLE person_change_offset (
+	consumer VARCHAR(100) NOT NULL,
+	change_offset BIGINT NOT NULL,
+	CONSTRAINT pk_person_change_offset PRIMARY KEY (consumer)
+);
+
+INSERT INTO person_change_offset (consumer, change_offset) VALUES ('outbox', 0);
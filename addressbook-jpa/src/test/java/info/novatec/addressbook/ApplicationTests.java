@@ -1,23 +1,66 @@
 package info.novatec.addressbook;
 
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.boundary.PersonNameLoader;
+import info.novatec.addressbook.boundary.importer.ImportFormat;
+import info.novatec.addressbook.boundary.importer.ImportStatistics;
+import info.novatec.addressbook.boundary.importer.PersonFileImporter;
 import info.novatec.addressbook.entity.Address;
 import info.novatec.addressbook.entity.Country;
 import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.projection.PersonSummary;
+import info.novatec.addressbook.projection.PersonWithCity;
+import info.novatec.addressbook.repository.BulkDeleteResult;
+import info.novatec.addressbook.repository.BulkSaveResult;
+import info.novatec.addressbook.repository.KeysetOrder;
+import info.novatec.addressbook.repository.KeysetSlice;
+import info.novatec.addressbook.repository.PersonName;
+import info.novatec.addressbook.repository.PersonRepository;
+import info.novatec.addressbook.statistics.AgeBucket;
+import info.novatec.addressbook.statistics.PersonStatistics;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import javax.transaction.Transactional;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
 import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.transaction.AfterTransaction;
@@ -45,9 +88,23 @@ public class ApplicationTests {
 
 	private static final int EXPECTED_NUMBER_OF_MINOR_PERSONS = 3;
 
+	private static final int NUMBER_OF_IMPORTED_PERSONS = 120;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	@Autowired
 	private PersonManagementService personManagementService;
 	
+	@Autowired
+	private PersonFileImporter personFileImporter;
+	
+	@Autowired
+	private List<PublicMetrics> publicMetrics;
+	
+	@Autowired
+	private PersonRepository personRepository;
+	
 	private TransactionTemplate transactionTemplate;
 	
 	@SuppressWarnings("unused")
@@ -105,6 +162,116 @@ public class ApplicationTests {
 				is(EXPECTED_NUMBER_OF_PERSONS));
 	}
 	
+	/**
+	 * Verifies streaming all {@link Person}s and all {@link Person}s that are 'of age'.
+	 */
+	@Test
+	public final void verifyStreamPersons() {
+		final AtomicInteger count = new AtomicInteger();
+		Consumer<Person> counter = new Consumer<Person>() {
+			@Override
+			public void accept(final Person person) {
+				count.incrementAndGet();
+			}
+		};
+		
+		personManagementService.streamAll(counter);
+		assertThat("Should have streamed expected number of persons", count.get(), 
+				is(EXPECTED_NUMBER_OF_PERSONS));
+		
+		count.set(0);
+		personManagementService.streamAllOfAge(counter);
+		assertThat("Should have streamed expected number of persons", count.get(), 
+				is(EXPECTED_NUMBER_OF_AGE_PERSONS));
+	}
+
+	/**
+	 * Verifies that streaming does not detach {@link Person}s managed before, so later
+	 * changes to them are still written.
+	 */
+	@Test
+	public final void verifyStreamKeepsManagedPersons() {
+		final AtomicInteger count = new AtomicInteger();
+		personManagementService.streamAll(new Consumer<Person>() {
+			@Override
+			public void accept(final Person person) {
+				count.incrementAndGet();
+			}
+		});
+		assertThat("Should have streamed expected number of persons", count.get(), 
+				is(EXPECTED_NUMBER_OF_PERSONS));
+		person1.setFirstName("Johann");
+		assertThat("Should have written change to person managed before streaming",
+				personManagementService.findByFirstNameAndLastName("Johann", "Mustermann"),
+				is(person1));
+	}
+
+	/**
+	 * Verifies paging through all {@link Person}s using continuation tokens.
+	 */
+	@Test
+	public final void verifyFindAllPersonsByKeyset() {
+		KeysetSlice slice = personManagementService.findAll(KeysetOrder.NAME, null, 4);
+		assertThat("Should have retrieved full first page", slice.getContent().size(), is(4));
+		assertThat("Should have retrieved continuation token", slice.getContinuationToken(), 
+				is(notNullValue()));
+		assertThat("Should have retrieved persons ordered by last name", slice.getContent(), 
+				contains(person3, person6, person5, person4));
+		
+		slice = personManagementService.findAll(KeysetOrder.NAME, slice.getContinuationToken(), 4);
+		assertThat("Should have retrieved remaining persons", slice.getContent(), 
+				contains(person1, person2));
+		assertThat("Should have retrieved last page", slice.getContinuationToken(), 
+				is(nullValue()));
+	}
+
+	/**
+	 * Verifies paging through the {@link Person}s that are 'of age', selected by a QueryDSL
+	 * predicate, yields the same {@link Person}s as the unpaged query in name order.
+	 */
+	@Test
+	public final void verifyFindOfAgePersonsByKeyset() {
+		List<Person> expected = new ArrayList<Person>(personManagementService.findAllOfAge());
+		expected.sort(new Comparator<Person>() {
+			@Override
+			public int compare(final Person p1, final Person p2) {
+				int result = p1.getLastName().compareTo(p2.getLastName());
+				return result != 0 ? result : p1.getFirstName().compareTo(p2.getFirstName());
+			}
+		});
+
+		List<Person> paged = new ArrayList<Person>();
+		String continuationToken = null;
+		do {
+			KeysetSlice slice = personManagementService.findAllOfAge(continuationToken, 2);
+			assertThat("Should not have exceeded page size", slice.getContent().size() <= 2,
+					is(true));
+			paged.addAll(slice.getContent());
+			continuationToken = slice.getContinuationToken();
+		} while (continuationToken != null);
+		assertThat("Should have retrieved all persons of age once in name order", paged,
+				is(expected));
+	}
+
+	/**
+	 * Verifies paging through the {@link Person}s living in a city, selected by a
+	 * specification with a subquery.
+	 */
+	@Test
+	public final void verifyFindPersonsLivingInCityByKeyset() {
+		KeysetSlice slice = personManagementService.findAllLivingInCity("Bern", null, 1);
+		assertThat("Should have retrieved first person living in 'Bern'", slice.getContent(),
+				contains(person6));
+		assertThat("Should have retrieved continuation token", slice.hasNext(), is(true));
+
+		slice = personManagementService.findAllLivingInCity("Bern",
+				slice.getContinuationToken(), 1);
+		assertThat("Should have retrieved second person living in 'Bern'", slice.getContent(),
+				contains(person5));
+		assertThat("Should have retrieved last page", slice.getContinuationToken(),
+				is(nullValue()));
+	}
+
 	/**
 	 * Verifies finding {@link Person} together with {@link Address}es.
 	 */
@@ -152,7 +319,70 @@ public class ApplicationTests {
 				persons, contains(person5, person6));
 
 	}
-	
+
+	/**
+	 * Verifies finding {@link Person}s living in several cities at once, returning
+	 * {@link Person}s with several addresses in a city once.
+	 */
+	@Test
+	public final void verifyFindPersonsLivingInCities() {
+		Calendar cal = Calendar.getInstance();
+		cal.set(1984, 7, 1);
+		Person person7 = personManagementService.createPerson("Bastian", "Schweinsteiger",
+				cal.getTime(), new Address("Bernerstr.1", null, "12345", "Bern", Country.CH),
+				new Address("Bahnhofstr.2", null, "12346", "Bern", Country.CH));
+
+		assertThat("Should have retrieved person with two addresses in 'Bern' once",
+				personManagementService.findAllLivingInCity("Bern").size(), is(3));
+
+		Map<String, List<Person>> persons = personManagementService.findAllLivingInCities(
+				Arrays.asList("Bern", "Wien", "Paris"));
+		assertThat("Should have retrieved persons living in 'Bern' ordered by name",
+				persons.get("Bern"), contains(person6, person5, person7));
+		assertThat("Should have retrieved persons living in 'Wien'",
+				persons.get("Wien"), contains(person4));
+		assertThat("Should have retrieved nobody living in 'Paris'",
+				persons.get("Paris").isEmpty(), is(true));
+
+		KeysetSlice slice = personManagementService.findAllLivingInCities(
+				Arrays.asList("Bern", "Wien"), null, 3);
+		assertThat("Should have retrieved first page of persons living in cities",
+				slice.getContent(), contains(person6, person5, person4));
+		assertThat("Should have retrieved last page of persons living in cities",
+				personManagementService.findAllLivingInCities(Arrays.asList("Bern", "Wien"),
+						slice.getContinuationToken(), 3).getContent(), contains(person7));
+
+		final AtomicInteger streamed = new AtomicInteger();
+		personManagementService.streamAllLivingInCity("Bern", new Consumer<Person>() {
+			@Override
+			public void accept(final Person person) {
+				streamed.incrementAndGet();
+			}
+		});
+		assertThat("Should have streamed persons living in 'Bern'", streamed.get(), is(3));
+	}
+
+	/**
+	 * Verifies retrieving read-only projections of {@link Person}s.
+	 */
+	@Test
+	public final void verifyFindProjections() {
+		List<PersonSummary> summaries = personManagementService.findAllSummaries();
+		assertThat("Should have retrieved expected number of summaries", summaries.size(), 
+				is(EXPECTED_NUMBER_OF_PERSONS));
+		assertThat("Should have retrieved summaries ordered by name", 
+				summaries.get(0).getLastName(), is("Khedira"));
+		
+		assertThat("Should have retrieved expected number of summaries", 
+				personManagementService.findAllOfAgeSummaries().size(), 
+				is(EXPECTED_NUMBER_OF_AGE_PERSONS));
+		
+		List<PersonWithCity> persons = personManagementService.findAllWithCityLivingIn("Bern");
+		assertThat("Should have retrieved expected number of persons living in 'Bern'", 
+				persons.size(), is(2));
+		assertThat("Should have retrieved city", persons.get(0).getCity(), is("Bern"));
+	}
+
 	/**
 	 * Verifies deleting a {@link Person}.
 	 */
@@ -175,6 +405,45 @@ public class ApplicationTests {
 		
 	}
 	
+	/**
+	 * Verifies deleting {@link Person}s and their addresses in bulk mode.
+	 */
+	@Test
+	public final void verifyBulkDeletePersons() {
+		BulkDeleteResult result = personManagementService.deleteAllLivingInCity("Bern");
+		assertThat("Should have deleted persons living in 'Bern'", result.getPersons(), is(2L));
+		assertThat("Should have deleted all of their addresses", result.getAddresses(), is(4L));
+		assertThat("Should have retrieved no person living in 'Bern'", 
+				personManagementService.findAllLivingInCity("Bern").isEmpty(), is(true));
+		assertThat("Should have kept person not deleted managed", 
+				personRepository.findOne(person1.getId()), is(sameInstance(person1)));
+		
+		result = personManagementService.deleteAllById(Arrays.asList(person1.getId(), 
+				person5.getId()));
+		assertThat("Should have ignored already deleted person", result.getPersons(), is(1L));
+		assertThat("Should have retrieved expected person count", 
+				personManagementService.count(), is((long) EXPECTED_NUMBER_OF_PERSONS - 3));
+	}
+
+	/**
+	 * Verifies moving addresses to another city in bulk mode.
+	 */
+	@Test
+	public final void verifyBulkUpdateCity() {
+		assertThat("Should have updated addresses in 'Bern'", 
+				personManagementService.updateCity("Bern", "Basel"), is(2));
+		assertThat("Should have retrieved no person living in 'Bern'", 
+				personManagementService.findAllLivingInCity("Bern").isEmpty(), is(true));
+		assertThat("Should have retrieved persons living in 'Basel'", 
+				personManagementService.findAllLivingInCity("Basel").size(), is(2));
+		List<String> cities = new ArrayList<String>();
+		for (Address address : person5.getAddresses()) {
+			cities.add(address.getCity());
+		}
+		assertThat("Should have refreshed loaded addresses", cities, 
+				containsInAnyOrder("Stuttgart", "Basel"));
+	}
+	
 	/**
 	 * Verifies retrieving list of {@link Person}s that are 'of age'.
 	 */
@@ -209,6 +478,245 @@ public class ApplicationTests {
 				is(EXPECTED_NUMBER_OF_AGE_PERSONS_WITH_LASTNAME_K));
 	}
 
+	/**
+	 * Verifies importing {@link Person}s in bulk mode.
+	 */
+	@Test
+	public final void verifyImportPersons() {
+		Calendar cal = Calendar.getInstance();
+		cal.set(1980, 1, 1);
+		List<Person> persons = new ArrayList<Person>();
+		for (int i = 0; i < NUMBER_OF_IMPORTED_PERSONS; i++) {
+			Person person = new Person("First" + i, "Last" + i, cal.getTime(), new HashSet<Address>());
+			Address address = new Address("Hauptstr." + i, null, "55555", "Freiburg", Country.DE);
+			person.addAddress(address);
+			persons.add(person);
+		}
+		
+		BulkSaveResult result = personManagementService.importPersons(persons);
+		assertThat("Should have imported expected number of persons", result.getCount(), 
+				is((long) NUMBER_OF_IMPORTED_PERSONS));
+		assertThat("Should have retrieved expected person count", personManagementService.count(), 
+				is((long) EXPECTED_NUMBER_OF_PERSONS + NUMBER_OF_IMPORTED_PERSONS));
+	}
+
+	/**
+	 * Verifies importing {@link Person}s from a CSV file and resuming from its checkpoint.
+	 * @throws IOException if import file could not be written or read
+	 */
+	@Test
+	public final void verifyImportCsvFile() throws IOException {
+		File file = temporaryFolder.newFile("persons.csv");
+		Files.write(file.toPath(), Arrays.asList(
+				"Thomas,Müller,1989-09-13,Säbener Str.51,,81547,München,DE",
+				"Manuel,Neuer,1986-03-27",
+				"Mesut,Özil,1988-10-15,Highbury House,,N5 1BU,London,GB,Hauptstr.1,,45879,Gelsenkirchen,DE"), 
+				StandardCharsets.UTF_8);
+		
+		ImportStatistics statistics = personFileImporter.importFile(file.toPath(), ImportFormat.CSV);
+		assertThat("Should have imported expected number of records", statistics.getRecords(), is(3L));
+		assertThat("Should have imported expected person", 
+				personManagementService.findByFirstNameAndLastName("Mesut", "Özil"), is(notNullValue()));
+		
+		statistics = personFileImporter.importFile(file.toPath(), ImportFormat.CSV);
+		assertThat("Should have resumed after last checkpoint", statistics.getRecords(), is(0L));
+		assertThat("Should have retrieved expected person count", personManagementService.count(), 
+				is((long) EXPECTED_NUMBER_OF_PERSONS + 3));
+	}
+
+	/**
+	 * Verifies importing {@link Person}s from an NDJSON file with escaped strings, unknown 
+	 * fields and blank lines, and resuming from its checkpoint.
+	 * @throws IOException if import file could not be written or read
+	 */
+	@Test
+	public final void verifyImportNdjsonFile() throws IOException {
+		File file = temporaryFolder.newFile("persons.ndjson");
+		Files.write(file.toPath(), Arrays.asList(
+				"{\"firstName\":\"Thomas\",\"lastName\":\"M\\u00fcller\",\"birthDate\":\"1989-09-13\","
+						+ "\"addresses\":[{\"street\":\"Säbener Str.51\",\"zip\":\"81547\","
+						+ "\"city\":\"München\",\"country\":\"DE\"}]}",
+				"",
+				"{\"firstName\":\"Manuel \\\"Manu\\\"\",\"lastName\":\"Neuer\","
+						+ "\"nickNames\":[\"Manu\",{\"club\":\"FCB\"}],\"birthDate\":\"1986-03-27\"}",
+				"   ",
+				"{\"lastName\":\"Özil\",\"firstName\":\"Mesut\",\"birthDate\":\"1988-10-15\","
+						+ "\"addresses\":[{\"street\":\"Highbury House\",\"zip\":\"N5 1BU\","
+						+ "\"city\":\"London\",\"country\":\"GB\"},{\"street\":\"Hauptstr.1\","
+						+ "\"zip\":\"45879\",\"city\":\"Gelsenkirchen\",\"country\":\"DE\"}]}"), 
+				StandardCharsets.UTF_8);
+		
+		ImportStatistics statistics = personFileImporter.importFile(file.toPath(), 
+				ImportFormat.NDJSON);
+		assertThat("Should have imported expected number of records", statistics.getRecords(), is(3L));
+		assertThat("Should have decoded unicode escape", personManagementService
+				.findByFirstNameAndLastName("Thomas", "Müller"), is(notNullValue()));
+		assertThat("Should have decoded escaped quotes", personManagementService
+				.findByFirstNameAndLastName("Manuel \"Manu\"", "Neuer"), is(notNullValue()));
+		assertThat("Should have imported all addresses", personManagementService
+				.findByFirstNameAndLastName("Mesut", "Özil").getAddresses().size(), is(2));
+		
+		statistics = personFileImporter.importFile(file.toPath(), ImportFormat.NDJSON);
+		assertThat("Should have resumed after last checkpoint", statistics.getRecords(), is(0L));
+		assertThat("Should have retrieved expected person count", personManagementService.count(), 
+				is((long) EXPECTED_NUMBER_OF_PERSONS + 3));
+	}
+
+	/**
+	 * Verifies that a malformed NDJSON record fails the import of its chunk without 
+	 * writing it or moving the checkpoint past it.
+	 * @throws IOException if import file could not be written or read
+	 */
+	@Test
+	public final void verifyImportMalformedNdjsonFile() throws IOException {
+		File file = temporaryFolder.newFile("malformed.ndjson");
+		Files.write(file.toPath(), Arrays.asList(
+				"{\"firstName\":\"Thomas\",\"lastName\":\"Malformed\",\"birthDate\":\"1989-09-13\"}",
+				"[\"Manuel\",\"Neuer\"]"), 
+				StandardCharsets.UTF_8);
+		
+		for (int attempt = 0; attempt < 2; attempt++) {
+			try {
+				personFileImporter.importFile(file.toPath(), ImportFormat.NDJSON);
+				fail("Should have failed on malformed record");
+			} catch (IllegalStateException ex) {
+				assertThat("Should have reported malformed record", ex.getCause(), 
+						instanceOf(IllegalArgumentException.class));
+			}
+		}
+		assertThat("Should not have written chunk of malformed record", personManagementService
+				.findByFirstNameAndLastName("Thomas", "Malformed"), is(nullValue()));
+	}
+
+	/**
+	 * Verifies aggregate counts after reconciling statistics with the database. The 
+	 * statistics are created by the test, reconciling within its transaction, as the 
+	 * scheduled reconciliation of the shared instance only sees committed data.
+	 */
+	@Test
+	public final void verifyAggregateCounts() {
+		PersonStatistics statistics = new PersonStatistics(Clock.systemDefaultZone());
+		statistics.setPersonRepository(personRepository);
+		statistics.setTransactionTemplate(transactionTemplate);
+		statistics.reconcile();
+		
+		assertThat("Should have counted persons per country", 
+				statistics.countByCountry().get(Country.DE), is(3L));
+		assertThat("Should have counted persons once per country", 
+				statistics.countByCountry().get(Country.CH), is(2L));
+		assertThat("Should have counted persons living in city", 
+				statistics.countLivingInCity("Bern"), is(2L));
+		assertThat("Should have counted all persons in age buckets", 
+				statistics.countOfAge() + statistics.countMinors(), 
+				is((long) EXPECTED_NUMBER_OF_PERSONS));
+		
+		long sum = 0;
+		for (Long count : statistics.countByAgeBucket().values()) {
+			sum += count;
+		}
+		assertThat("Should have counted all persons in age buckets", sum, 
+				is((long) EXPECTED_NUMBER_OF_PERSONS));
+		assertThat("Should have counted minors", 
+				statistics.countByAgeBucket().get(AgeBucket.UNDER_18), 
+				is(statistics.countMinors()));
+	}
+
+	/**
+	 * Verifies batched lookups by name, directly and coalesced by a {@link PersonNameLoader}.
+	 */
+	@Test
+	public final void verifyFindPersonsByNames() {
+		PersonName loew = new PersonName("Jogi", "Löw");
+		PersonName mustermann = new PersonName("Hans", "Mustermann");
+		Map<PersonName, Person> persons = personManagementService.findAllByFirstNameAndLastName(
+				Arrays.asList(loew, new PersonName("Hans", "Müller"), mustermann, loew));
+		assertThat("Should have retrieved known names in requested order", persons.keySet(), 
+				contains(loew, mustermann));
+		assertThat("Should have reused managed person", persons.get(loew), sameInstance(person4));
+		
+		PersonNameLoader loader = new PersonNameLoader(personManagementService, Runnable::run);
+		loader.setBatchWindow(TimeUnit.MINUTES.toMillis(1));
+		long batches = boundaryCalls("findAllByFirstNameAndLastName(Collection)");
+		CompletableFuture<Person> lahm = loader.load("Phillip", "Lahm");
+		CompletableFuture<Person> khedira = loader.load("Sami", "Khedira");
+		CompletableFuture<Person> unknown = loader.load("Hans", "Müller");
+		loader.dispatch();
+		assertThat("Should have resolved all names with one batch", 
+				boundaryCalls("findAllByFirstNameAndLastName(Collection)"), is(batches + 1));
+		assertThat("Should have loaded person", lahm.join(), sameInstance(person5));
+		assertThat("Should have loaded person", khedira.join(), sameInstance(person3));
+		assertThat("Should not have found unknown name", unknown.join(), nullValue());
+		assertThat("Should have cached loaded name", loader.load("Phillip", "Lahm"), 
+				sameInstance(lahm));
+		assertThat("Should have loaded only uncached names", loader.loadAll(
+				Arrays.asList(new PersonName("Sami", "Khedira"), mustermann)).size(), is(2));
+		assertThat("Should have resolved uncached name with one more batch", 
+				boundaryCalls("findAllByFirstNameAndLastName(Collection)"), is(batches + 2));
+	}
+
+	/**
+	 * Verifies that names of a batch rejected by the executor of a {@link PersonNameLoader}
+	 * fail instead of waiting forever, and are requested again by the next load.
+	 */
+	@Test
+	public final void verifyRejectedNameBatchFailsLoads() throws Exception {
+		final AtomicInteger executions = new AtomicInteger();
+		PersonNameLoader loader = new PersonNameLoader(personManagementService, 
+				new Executor() {
+					@Override
+					public void execute(final Runnable command) {
+						if (executions.getAndIncrement() == 0) {
+							throw new RejectedExecutionException("Queue full");
+						}
+						command.run();
+					}
+				});
+		loader.setBatchWindow(0);
+		CompletableFuture<Person> rejected = loader.load("Hans", "Müller");
+		try {
+			rejected.get(1, TimeUnit.MINUTES);
+			fail("Should have failed on rejected batch");
+		} catch (ExecutionException ex) {
+			assertThat("Should have passed rejection", ex.getCause(), 
+					instanceOf(RejectedExecutionException.class));
+		}
+		
+		CompletableFuture<Person> retried = loader.load("Hans", "Müller");
+		assertThat("Should have requested failed name again", retried, 
+				not(sameInstance(rejected)));
+		assertThat("Should have dispatched name again", retried.get(1, TimeUnit.MINUTES), 
+				nullValue());
+	}
+
+	/**
+	 * Verifies that calls through all layers are recorded as method metrics.
+	 */
+	@Test
+	public final void verifyMethodMetrics() {
+		personManagementService.findAllLivingInCity("Bern");
+		
+		Map<String, Number> metrics = new HashMap<String, Number>();
+		for (PublicMetrics source : publicMetrics) {
+			for (Metric<?> metric : source.metrics()) {
+				metrics.put(metric.getName(), metric.getValue());
+			}
+		}
+		assertThat("Should have recorded boundary call", 
+				metrics.get("addressbook.boundary.findAllLivingInCity(String).count").longValue(), 
+				greaterThan(0L));
+		assertThat("Should have recorded repository call", 
+				metrics.get("addressbook.repository.findAllLivingInCity(String).count").longValue(), 
+				greaterThan(0L));
+		assertThat("Should have counted returned rows", 
+				metrics.get("addressbook.repository.findAllLivingInCity(String).rows").longValue(), 
+				greaterThan(0L));
+		assertThat("Should have counted executed statements", 
+				metrics.get("addressbook.control.findAllLivingInCity(String).statements").longValue(), 
+				greaterThan(0L));
+		assertThat("Should have recorded connection acquisition", 
+				metrics.get("addressbook.jdbc.connection.count").longValue(), greaterThan(0L));
+	}
+
 	/**
 	 * Validates that database is empty after executing transactional test.
 	 */
@@ -225,6 +733,17 @@ public class ApplicationTests {
 		assertThat("Should have retrieved expected number of persons", list.size(), is(0));
 	}
 	
+	private long boundaryCalls(final String method) {
+		for (PublicMetrics source : publicMetrics) {
+			for (Metric<?> metric : source.metrics()) {
+				if (metric.getName().equals("addressbook.boundary." + method + ".count")) {
+					return metric.getValue().longValue();
+				}
+			}
+		}
+		return 0;
+	}
+
 	/**
 	 * Sets the {@link PlatformTransactionManager} for transaction template.
 	 * @param platformTransactionManager the platform transaction manager
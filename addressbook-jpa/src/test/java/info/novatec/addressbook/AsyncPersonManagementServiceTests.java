@@ -0,0 +1,185 @@
+package info.novatec.addressbook;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import info.novatec.addressbook.boundary.AsyncPersonManagementServiceImpl;
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Person;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Integration test for {@link AsyncPersonManagementServiceImpl} splitting lookups into
+ * shards. The service under test runs on executors controlled by the test. Not
+ * transactional, as the shards are read in transactions of their own.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+public class AsyncPersonManagementServiceTests {
+	private static final int SHARD_SIZE = 2;
+
+	@Autowired
+	private PersonManagementService personManagementService;
+
+	private AsyncPersonManagementServiceImpl asyncPersonManagementService;
+
+	private List<Long> ids;
+
+	/**
+	 * Initialize committed test data and the service under test.
+	 */
+	@Before
+	public final void setupTestData() {
+		asyncPersonManagementService = new AsyncPersonManagementServiceImpl();
+		asyncPersonManagementService.setPersonManagementService(personManagementService);
+		asyncPersonManagementService.setShardSize(SHARD_SIZE);
+
+		Calendar cal = Calendar.getInstance();
+		cal.set(1969, 6, 2);
+		ids = new ArrayList<Long>();
+		for (int i = 0; i < 5; i++) {
+			ids.add(personManagementService.createPerson("Hans" + i, "Async", cal.getTime())
+					.getId());
+		}
+	}
+
+	/**
+	 * Removes the test data.
+	 */
+	@After
+	public final void cleanup() {
+		personManagementService.deleteAllById(ids);
+	}
+
+	/**
+	 * Verifies that the ids are split into shards of the configured size, each submitted
+	 * to the executor.
+	 */
+	@Test
+	public final void verifyFindAllSplitsIntoShards() {
+		QueueingExecutor executor = new QueueingExecutor();
+		asyncPersonManagementService.setExecutor(executor);
+
+		CompletableFuture<List<Person>> persons = asyncPersonManagementService.findAll(ids);
+		assertThat("Should have submitted one task per shard", executor.tasks.size(), is(3));
+		assertThat("Should not have completed before the shards", persons.isDone(), is(false));
+
+		executor.runAll();
+		assertThat("Should have found all persons", idsOf(persons.join()),
+				containsInAnyOrder(ids.toArray()));
+	}
+
+	/**
+	 * Verifies that the merged result keeps the order of the shards, even if they complete
+	 * in reverse order.
+	 */
+	@Test
+	public final void verifyFindAllKeepsShardOrder() {
+		QueueingExecutor executor = new QueueingExecutor();
+		asyncPersonManagementService.setExecutor(executor);
+
+		CompletableFuture<List<Person>> persons = asyncPersonManagementService.findAll(ids);
+		Collections.reverse(executor.tasks);
+		executor.runAll();
+
+		List<Long> found = idsOf(persons.join());
+		assertThat("Should have found all persons", found.size(), is(ids.size()));
+		for (int from = 0; from < ids.size(); from += SHARD_SIZE) {
+			int to = Math.min(from + SHARD_SIZE, ids.size());
+			assertThat("Should have kept shard at " + from, found.subList(from, to),
+					containsInAnyOrder(ids.subList(from, to).toArray()));
+		}
+	}
+
+	/**
+	 * Verifies that work rejected by the executor completes the future exceptionally
+	 * instead of throwing to the caller.
+	 */
+	@Test
+	public final void verifyRejectedWorkCompletesExceptionally() {
+		asyncPersonManagementService.setExecutor(new Executor() {
+			@Override
+			public void execute(final Runnable command) {
+				throw new RejectedExecutionException("Queue full");
+			}
+		});
+
+		assertRejected(asyncPersonManagementService.findOne(ids.get(0)));
+		assertRejected(asyncPersonManagementService.findAll(ids));
+	}
+
+	/**
+	 * Verifies that the merged result fails if only one of the shards is rejected.
+	 */
+	@Test
+	public final void verifyRejectedShardFailsFindAll() {
+		QueueingExecutor executor = new QueueingExecutor();
+		executor.capacity = 2;
+		asyncPersonManagementService.setExecutor(executor);
+
+		CompletableFuture<List<Person>> persons = asyncPersonManagementService.findAll(ids);
+		executor.runAll();
+		assertRejected(persons);
+	}
+
+	private static void assertRejected(final CompletableFuture<?> future) {
+		assertThat("Should have completed", future.isDone(), is(true));
+		try {
+			future.join();
+			fail("Should have failed on rejected work");
+		} catch (CompletionException ex) {
+			assertThat("Should have passed rejection", ex.getCause(),
+					instanceOf(RejectedExecutionException.class));
+		}
+	}
+
+	private static List<Long> idsOf(final List<Person> persons) {
+		List<Long> result = new ArrayList<Long>();
+		for (Person person : persons) {
+			result.add(person.getId());
+		}
+		return result;
+	}
+
+	/**
+	 * {@link Executor} queueing its tasks until run by the test, rejecting them beyond its
+	 * capacity.
+	 */
+	private static class QueueingExecutor implements Executor {
+		private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+		private int capacity = Integer.MAX_VALUE;
+
+		@Override
+		public void execute(final Runnable command) {
+			if (tasks.size() == capacity) {
+				throw new RejectedExecutionException("Queue full");
+			}
+			tasks.add(command);
+		}
+
+		void runAll() {
+			for (Runnable task : tasks) {
+				task.run();
+			}
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package info.novatec.addressbook;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.monitoring.PersistenceContextMonitor;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration test for the {@link PersistenceContextMonitor} with low thresholds. Not
+ * transactional, as the footprint of a transaction is recorded on its completion.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@TestPropertySource(properties = {
+		"addressbook.persistence-context.warn-threshold=" + PersistenceContextMonitorTests.WARN_THRESHOLD,
+		"addressbook.persistence-context.clear-threshold=" + PersistenceContextMonitorTests.CLEAR_THRESHOLD })
+public class PersistenceContextMonitorTests {
+	static final int WARN_THRESHOLD = 50;
+
+	static final int CLEAR_THRESHOLD = 100;
+
+	private static final int NUMBER_OF_PERSONS = 250;
+
+	@Autowired
+	private PersonManagementService personManagementService;
+
+	@Autowired
+	private PersistenceContextMonitor monitor;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private final List<Long> ids = new ArrayList<Long>();
+
+	/**
+	 * Removes the test data.
+	 */
+	@After
+	public final void cleanup() {
+		personManagementService.deleteAllById(ids);
+	}
+
+	/**
+	 * Verifies that a long transaction is reported once, its persistence context is cleared
+	 * whenever it exceeds the threshold and that no change is lost by clearing.
+	 */
+	@Test
+	public final void verifyLongTransactionIsClearedAndReported() {
+		Map<String, Number> before = metrics();
+		long count = personManagementService.count();
+
+		new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+			@Override
+			protected void doInTransactionWithoutResult(final TransactionStatus status) {
+				Calendar cal = Calendar.getInstance();
+				cal.set(1969, 6, 2);
+				for (int i = 0; i < NUMBER_OF_PERSONS; i++) {
+					Person person = personManagementService.createPerson("Hans", "Monitored" + i,
+							cal.getTime(), new Address("Hauptstr." + i, null, "55555", "Freiburg",
+									Country.DE));
+					ids.add(person.getId());
+				}
+			}
+		});
+
+		Map<String, Number> after = metrics();
+		assertThat("Should have stored all persons", personManagementService.count(),
+				is(count + NUMBER_OF_PERSONS));
+		assertThat("Should have cleared persistence context repeatedly",
+				delta(before, after, "clears"), greaterThanOrEqualTo(4L));
+		assertThat("Should have warned once for the transaction",
+				delta(before, after, "warnings"), is(1L));
+		assertThat("Should have bounded managed entities",
+				after.get("addressbook.persistence-context.entities.max").longValue(),
+				lessThanOrEqualTo((long) CLEAR_THRESHOLD + 1));
+		assertThat("Should have recorded flushes", delta(before, after, "flushes"),
+				greaterThan(0L));
+		assertThat("Should have recorded flush time",
+				after.get("addressbook.persistence-context.flush.time").doubleValue(),
+				greaterThan(0.0));
+	}
+
+	private Map<String, Number> metrics() {
+		Map<String, Number> metrics = new HashMap<String, Number>();
+		for (Metric<?> metric : monitor.metrics()) {
+			metrics.put(metric.getName(), metric.getValue());
+		}
+		return metrics;
+	}
+
+	private static long delta(final Map<String, Number> before, final Map<String, Number> after,
+			final String name) {
+		return after.get("addressbook.persistence-context." + name).longValue()
+				- before.get("addressbook.persistence-context." + name).longValue();
+	}
+}
@@ -0,0 +1,110 @@
+package info.novatec.addressbook;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.repository.PersonAgeSpecifications;
+import info.novatec.addressbook.repository.PersonRepository;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+import javax.transaction.Transactional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Integration test verifying the age specifications and predicates of
+ * {@link PersonAgeSpecifications} at the boundary: a {@link Person} having the 18th
+ * birthday today is of age, one turning 18 tomorrow is minor. The day is fixed by the
+ * {@link Clock} of the specifications.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@Transactional
+public class PersonAgeBoundaryTests {
+	private static final ZoneId ZONE = ZoneId.systemDefault();
+
+	private static final LocalDate TODAY = LocalDate.of(2015, 10, 5);
+
+	@Autowired
+	private PersonManagementService personManagementService;
+
+	@Autowired
+	private PersonRepository personRepository;
+
+	private PersonAgeSpecifications specifications;
+
+	private Person birthdayToday;
+
+	private Person birthdayTomorrow;
+
+	/**
+	 * Initialize test data and specifications at noon of the fixed day.
+	 */
+	@Before
+	public final void setupTestData() {
+		specifications = new PersonAgeSpecifications(Clock.fixed(
+				TODAY.atTime(12, 0).atZone(ZONE).toInstant(), ZONE));
+		birthdayToday = personManagementService.createPerson("Hans", "Birthday",
+				date(TODAY.minusYears(18)),
+				new Address("Hauptstr.3", null, "55555", "Freiburg", Country.DE));
+		birthdayTomorrow = personManagementService.createPerson("Jogi", "Birthday",
+				date(TODAY.minusYears(18).plusDays(1)),
+				new Address("Hauptstr.4", null, "55555", "Freiburg", Country.DE));
+	}
+
+	/**
+	 * Verifies the boundary of the Criteria API specifications.
+	 */
+	@Test
+	public final void verifySpecificationsIncludeBirthday() {
+		assertThat("Should be of age on 18th birthday",
+				personRepository.findAll(specifications.isOfAge()), hasItem(birthdayToday));
+		assertThat("Should be minor before 18th birthday",
+				personRepository.findAll(specifications.isOfAge()), not(hasItem(birthdayTomorrow)));
+		assertThat("Should not be minor on 18th birthday",
+				personRepository.findAll(specifications.isMinor()), not(hasItem(birthdayToday)));
+		assertThat("Should be minor before 18th birthday",
+				personRepository.findAll(specifications.isMinor()), hasItem(birthdayTomorrow));
+	}
+
+	/**
+	 * Verifies the boundary of the QueryDSL predicates, including the one joining addresses.
+	 */
+	@Test
+	public final void verifyPredicatesIncludeBirthday() {
+		assertThat("Should be of age on 18th birthday",
+				personRepository.findAll(specifications.isOfAgePredicate()), hasItem(birthdayToday));
+		assertThat("Should be minor before 18th birthday",
+				personRepository.findAll(specifications.isOfAgePredicate()),
+				not(hasItem(birthdayTomorrow)));
+		assertThat("Should be of age with address on 18th birthday",
+				personRepository.findAll(specifications.isOfAgeAndHasAnAddressPredicate()),
+				hasItem(birthdayToday));
+		assertThat("Should be minor with address before 18th birthday",
+				personRepository.findAll(specifications.isOfAgeAndHasAnAddressPredicate()),
+				not(hasItem(birthdayTomorrow)));
+		assertThat("Should not be minor on 18th birthday",
+				personRepository.findAll(specifications.isMinorPredicate()),
+				not(hasItem(birthdayToday)));
+		assertThat("Should be minor before 18th birthday",
+				personRepository.findAll(specifications.isMinorPredicate()),
+				hasItem(birthdayTomorrow));
+	}
+
+	private static Date date(final LocalDate day) {
+		return Date.from(day.atStartOfDay(ZONE).toInstant());
+	}
+}
@@ -0,0 +1,155 @@
+package info.novatec.addressbook;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.monitoring.PersonCacheMetrics;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Integration test for the second-level cache of {@link Person}s and the
+ * {@link PersonCacheMetrics}. Not transactional, as cache entries are only shared between
+ * transactions after commit.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@TestPropertySource(properties = "addressbook.cache.enabled=true")
+public class PersonCacheTests {
+
+	@Autowired
+	private PersonManagementService personManagementService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private List<PublicMetrics> publicMetrics;
+
+	private SessionFactory sessionFactory;
+
+	private Long id;
+
+	/**
+	 * Initialize committed test data with an empty cache.
+	 */
+	@Before
+	public final void setupTestData() {
+		sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+		Calendar cal = Calendar.getInstance();
+		cal.set(1969, 6, 2);
+		id = personManagementService.createPerson("Hans", "Cached", cal.getTime(),
+				new Address("Hauptstr.3", null, "55555", "Freiburg", Country.DE)).getId();
+		sessionFactory.getCache().evictEntityRegions();
+	}
+
+	/**
+	 * Removes the test data.
+	 */
+	@After
+	public final void cleanup() {
+		personManagementService.deleteAllById(Collections.singletonList(id));
+	}
+
+	/**
+	 * Verifies that a {@link Person} read again in another transaction is taken from the
+	 * cache.
+	 */
+	@Test
+	public final void verifyFindOneHitsCache() {
+		long hits = personStatistics().getHitCount();
+		personManagementService.findOne(id);
+		assertThat("Should have put person into cache",
+				sessionFactory.getCache().containsEntity(Person.class, id), is(true));
+
+		assertThat("Should have found person", personManagementService.findOne(id),
+				is(notNullValue()));
+		assertThat("Should have hit cache", personStatistics().getHitCount(), greaterThan(hits));
+	}
+
+	/**
+	 * Verifies that a cached {@link Person} is not read stale after an update.
+	 */
+	@Test
+	public final void verifyUpdateRefreshesCache() {
+		personManagementService.findOne(id);
+		personManagementService.updateAll(Collections.singletonList(id), new Consumer<Person>() {
+			@Override
+			public void accept(final Person person) {
+				person.setFirstName("Johann");
+			}
+		});
+		assertThat("Should have read updated person", personManagementService.findOne(id)
+				.getFirstName(), is("Johann"));
+	}
+
+	/**
+	 * Verifies that a deleted {@link Person} is evicted from the cache.
+	 */
+	@Test
+	public final void verifyDeleteEvictsCache() {
+		personManagementService.findOne(id);
+		personManagementService.deleteAllById(Collections.singletonList(id));
+		Cache cache = sessionFactory.getCache();
+		assertThat("Should have evicted deleted person", cache.containsEntity(Person.class, id),
+				is(false));
+		assertThat("Should not have found deleted person", personManagementService.findOne(id),
+				is(nullValue()));
+	}
+
+	/**
+	 * Verifies that the cache statistics are exposed as metrics.
+	 */
+	@Test
+	public final void verifyCacheMetrics() {
+		personManagementService.findOne(id);
+		personManagementService.findOne(id);
+		assertThat("Should have exposed cache hits", metric("addressbook.cache.person.hits"),
+				greaterThan(0L));
+		assertThat("Should have exposed cache puts", metric("addressbook.cache.person.puts"),
+				greaterThan(0L));
+		assertThat("Should have exposed evictions of the cache region",
+				metric("addressbook.cache.person.evictions"), is(notNullValue()));
+	}
+
+	private SecondLevelCacheStatistics personStatistics() {
+		return sessionFactory.getStatistics().getSecondLevelCacheStatistics(
+				Person.class.getName());
+	}
+
+	private Long metric(final String name) {
+		for (PublicMetrics metrics : publicMetrics) {
+			for (Metric<?> metric : metrics.metrics()) {
+				if (metric.getName().equals(name)) {
+					return metric.getValue().longValue();
+				}
+			}
+		}
+		return null;
+	}
+}
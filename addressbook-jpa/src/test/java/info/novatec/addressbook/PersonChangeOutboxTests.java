@@ -0,0 +1,260 @@
+package info.novatec.addressbook;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.outbox.PersonChange;
+import info.novatec.addressbook.outbox.PersonChange.Operation;
+import info.novatec.addressbook.outbox.PersonChangeLog;
+import info.novatec.addressbook.outbox.PersonChangeRelay;
+import info.novatec.addressbook.outbox.QueuePersonChangeSink;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration test for the outbox of person changes and their relay to the queue sink.
+ * Not transactional, as changes are only recorded on commit; the relay is run by the
+ * test rather than scheduled.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@TestPropertySource(properties = {
+		"addressbook.outbox.queue-capacity=10000",
+		"addressbook.outbox.relay-interval=3600000" })
+public class PersonChangeOutboxTests {
+	private static final int REGENERATED_PERSONS = 60;
+
+	@Autowired
+	private PersonManagementService personManagementService;
+
+	@Autowired
+	private PersonChangeRelay relay;
+
+	@Autowired
+	private PersonChangeLog changeLog;
+
+	@Autowired
+	private QueuePersonChangeSink queue;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * Skips changes left over by other tests.
+	 */
+	@Before
+	public final void skipPreviousChanges() {
+		relay.relay();
+		relay.replay(queue.getName(), changeLog.getLastOffset() + 1);
+		queue.drainTo(new ArrayList<PersonChange>(), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Verifies that creating, updating and deleting a {@link Person} is published in order
+	 * with gapless offsets and can be replayed.
+	 */
+	@Test
+	public final void verifyChangesArePublishedInOrderAndReplayed() {
+		final Long id = createPerson("Outbox").getId();
+		personManagementService.updateAll(Collections.singletonList(id), new Consumer<Person>() {
+			@Override
+			public void accept(final Person person) {
+				person.setFirstName("Hansi");
+			}
+		});
+		personManagementService.deleteAllById(Collections.singletonList(id));
+
+		relay.relay();
+		List<PersonChange> changes = published(id);
+		assertThat("Should have published changes in order", operations(changes),
+				contains(Operation.CREATED, Operation.UPDATED, Operation.DELETED));
+		assertThat("Should have published state after creation", changes.get(0).getPayload(),
+				containsString("\"city\":\"Freiburg\""));
+		assertThat("Should have published state after update", changes.get(1).getPayload(),
+				containsString("\"firstName\":\"Hansi\""));
+		assertThat("Should have assigned consecutive offsets", changes.get(2).getOffset(),
+				is(changes.get(0).getOffset() + 2));
+
+		long from = changes.get(0).getOffset();
+		assertThat("Should read changes from log", offsets(changeLog.read(from - 1, 3)),
+				contains(from, from + 1, from + 2));
+
+		relay.replay(queue.getName(), from);
+		relay.relay();
+		assertThat("Should have published changes again", offsets(published(id)),
+				contains(from, from + 1, from + 2));
+	}
+
+	/**
+	 * Verifies that a {@link Person} created and deleted within one transaction is not
+	 * published, and that nothing of a rolled back transaction is.
+	 */
+	@Test
+	public final void verifyTransactionChangesAreCoalesced() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		final Long deletedId = transactionTemplate.execute(new TransactionCallback<Long>() {
+			@Override
+			public Long doInTransaction(final TransactionStatus status) {
+				Person person = createPerson("Transient");
+				personManagementService.delete(person);
+				return person.getId();
+			}
+		});
+		final Long rolledBackId = transactionTemplate.execute(new TransactionCallback<Long>() {
+			@Override
+			public Long doInTransaction(final TransactionStatus status) {
+				status.setRollbackOnly();
+				return createPerson("Rollback").getId();
+			}
+		});
+
+		relay.relay();
+		assertThat("Should not have published deleted person", published(deletedId), is(empty()));
+		assertThat("Should not have published rolled back person", published(rolledBackId),
+				is(empty()));
+	}
+
+	/**
+	 * Verifies that {@link Person}s of a bulk import, only passed by id, are reloaded to
+	 * record their state.
+	 */
+	@Test
+	public final void verifyImportedPersonsAreReloaded() {
+		Calendar cal = Calendar.getInstance();
+		cal.set(1980, 1, 1);
+		List<Person> persons = new ArrayList<Person>();
+		for (int i = 0; i < 3; i++) {
+			Person person = new Person("First" + i, "Imported", cal.getTime(),
+					new HashSet<Address>());
+			person.addAddress(new Address("Hauptstr." + i, null, "55555", "Freiburg", Country.DE));
+			persons.add(person);
+		}
+		personManagementService.importPersons(persons);
+		List<Long> ids = new ArrayList<Long>();
+		for (Person person : persons) {
+			ids.add(person.getId());
+		}
+		personManagementService.deleteAllById(ids);
+
+		relay.relay();
+		List<PersonChange> all = new ArrayList<PersonChange>();
+		queue.drainTo(all, Integer.MAX_VALUE);
+		for (Person person : persons) {
+			List<PersonChange> changes = new ArrayList<PersonChange>();
+			for (PersonChange change : all) {
+				if (person.getId().equals(change.getPersonId())) {
+					changes.add(change);
+				}
+			}
+			assertThat("Should have published creation", operations(changes),
+					contains(Operation.CREATED, Operation.DELETED));
+			assertThat("Should have published reloaded state", changes.get(0).getPayload(),
+					containsString("\"firstName\":\"" + person.getFirstName() + "\""));
+			assertThat("Should have published reloaded addresses", changes.get(0).getPayload(),
+					containsString("\"city\":\"Freiburg\""));
+		}
+	}
+
+	/**
+	 * Verifies that an import of an {@link Iterable} creating new {@link Person}s on every
+	 * iteration, spanning several batches, is iterated once and published with the ids
+	 * assigned by the import.
+	 */
+	@Test
+	public final void verifyRegeneratingImportIsPublishedById() {
+		final Calendar cal = Calendar.getInstance();
+		cal.set(1980, 1, 1);
+		final AtomicInteger iterations = new AtomicInteger();
+		personManagementService.importPersons(new Iterable<Person>() {
+			@Override
+			public Iterator<Person> iterator() {
+				iterations.incrementAndGet();
+				List<Person> persons = new ArrayList<Person>();
+				for (int i = 0; i < REGENERATED_PERSONS; i++) {
+					persons.add(new Person("First" + i, "Regenerated", cal.getTime(),
+							new HashSet<Address>()));
+				}
+				return persons.iterator();
+			}
+		});
+		assertThat("Should have iterated persons once", iterations.get(), is(1));
+
+		relay.relay();
+		List<PersonChange> all = new ArrayList<PersonChange>();
+		queue.drainTo(all, Integer.MAX_VALUE);
+		List<Long> ids = new ArrayList<Long>();
+		for (PersonChange change : all) {
+			if (change.getPayload() != null && change.getPayload().contains("Regenerated")) {
+				assertThat("Should have published creation", change.getOperation(),
+						is(Operation.CREATED));
+				assertThat("Should have published assigned id", change.getPersonId(),
+						is(notNullValue()));
+				ids.add(change.getPersonId());
+			}
+		}
+		personManagementService.deleteAllById(ids);
+		assertThat("Should have published every imported person", ids.size(),
+				is(REGENERATED_PERSONS));
+	}
+
+	private Person createPerson(final String lastName) {
+		Calendar cal = Calendar.getInstance();
+		cal.set(1969, 6, 2);
+		return personManagementService.createPerson("Hans", lastName, cal.getTime(),
+				new Address("Hauptstr.3", null, "55555", "Freiburg", Country.DE));
+	}
+
+	private List<PersonChange> published(final Long personId) {
+		List<PersonChange> all = new ArrayList<PersonChange>();
+		queue.drainTo(all, Integer.MAX_VALUE);
+		List<PersonChange> changes = new ArrayList<PersonChange>();
+		for (PersonChange change : all) {
+			if (personId.equals(change.getPersonId())) {
+				changes.add(change);
+			}
+		}
+		return changes;
+	}
+
+	private static List<Operation> operations(final List<PersonChange> changes) {
+		List<Operation> operations = new ArrayList<Operation>();
+		for (PersonChange change : changes) {
+			operations.add(change.getOperation());
+		}
+		return operations;
+	}
+
+	private static List<Long> offsets(final List<PersonChange> changes) {
+		List<Long> offsets = new ArrayList<Long>();
+		for (PersonChange change : changes) {
+			offsets.add(change.getOffset());
+		}
+		return offsets;
+	}
+}
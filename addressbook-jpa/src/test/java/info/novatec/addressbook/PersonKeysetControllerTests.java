@@ -0,0 +1,94 @@
+package info.novatec.addressbook;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import info.novatec.addressbook.boundary.PersonKeysetController;
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+
+import java.util.Calendar;
+
+import javax.transaction.Transactional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Integration test for the keyset paginated resources of {@link PersonKeysetController}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@Transactional
+public class PersonKeysetControllerTests {
+	private static final String CITY = "Keysetstadt";
+
+	@Autowired
+	private WebApplicationContext context;
+
+	@Autowired
+	private PersonManagementService personManagementService;
+
+	private MockMvc mockMvc;
+
+	/**
+	 * Initialize test data and the mock servlet environment.
+	 */
+	@Before
+	public final void setupTestData() {
+		mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+
+		Calendar cal = Calendar.getInstance();
+		cal.set(1969, 6, 2);
+		personManagementService.createPerson("Hans", "Aaa-Keyset", cal.getTime(),
+				new Address("Hauptstr.3", null, "55555", CITY, Country.DE));
+		personManagementService.createPerson("Jogi", "Bbb-Keyset", cal.getTime(),
+				new Address("Hauptstr.4", null, "55555", CITY, Country.DE));
+	}
+
+	/**
+	 * Verifies that the first page links to the next one with a continuation token, and
+	 * that the last page holds the remaining {@link info.novatec.addressbook.entity.Person}s
+	 * without linking further.
+	 */
+	@Test
+	public final void verifyPagingThroughPersonsLivingInCity() throws Exception {
+		String firstPage = mockMvc.perform(get("/person/search/keyset/livingInCity")
+				.param("city", CITY).param("size", "1"))
+				.andExpect(status().isOk())
+				.andExpect(content().string(containsString("Aaa-Keyset")))
+				.andExpect(content().string(not(containsString("Bbb-Keyset"))))
+				.andExpect(content().string(containsString("continuation=")))
+				.andReturn().getResponse().getContentAsString();
+
+		String continuation = firstPage.replaceFirst("(?s).*continuation=([A-Za-z0-9_=-]+).*",
+				"$1");
+		mockMvc.perform(get("/person/search/keyset/livingInCity")
+				.param("city", CITY).param("size", "1").param("continuation", continuation))
+				.andExpect(status().isOk())
+				.andExpect(content().string(containsString("Bbb-Keyset")))
+				.andExpect(content().string(not(containsString("Aaa-Keyset"))))
+				.andExpect(content().string(not(containsString("\"next\""))));
+	}
+
+	/**
+	 * Verifies that an invalid continuation token is rejected as bad request.
+	 */
+	@Test
+	public final void verifyInvalidContinuationToken() throws Exception {
+		mockMvc.perform(get("/person/search/keyset").param("continuation", "invalid"))
+				.andExpect(status().isBadRequest());
+	}
+}
@@ -0,0 +1,145 @@
+package info.novatec.addressbook;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.control.BatchUpdateResult;
+import info.novatec.addressbook.entity.Person;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Integration test for batched updates of {@link Person}s conflicting with concurrent
+ * writers. Not transactional, as every chunk of a batched update commits on its own;
+ * concurrent writes are simulated by plain JDBC updates from another thread.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+public class PersonOptimisticLockingTests {
+	private static final String CONCURRENT_LAST_NAME = "Concurrent";
+
+	@Autowired
+	private PersonManagementService personManagementService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final ExecutorService concurrentWriter = Executors.newSingleThreadExecutor();
+
+	private List<Long> ids;
+
+	/**
+	 * Initialize committed test data.
+	 */
+	@Before
+	public final void setupTestData() {
+		Calendar cal = Calendar.getInstance();
+		cal.set(1969, 6, 2);
+		Person person1 = personManagementService.createPerson("Hans", "Mustermann", cal.getTime());
+		Person person2 = personManagementService.createPerson("Hansi", "Müller", cal.getTime());
+		Person person3 = personManagementService.createPerson("Toni", "Kroos", cal.getTime());
+		ids = Arrays.asList(person1.getId(), person2.getId(), person3.getId());
+	}
+
+	/**
+	 * Removes the test data and stops the concurrent writer.
+	 */
+	@After
+	public final void cleanup() {
+		concurrentWriter.shutdownNow();
+		personManagementService.deleteAllById(ids);
+	}
+
+	/**
+	 * Verifies that only the {@link Person} modified by a concurrent writer is updated again
+	 * and that the concurrent modification is not overwritten.
+	 */
+	@Test
+	public final void verifyUpdateRetriesConflictingPersonOnly() {
+		final Long conflicting = ids.get(1);
+		BatchUpdateResult result = personManagementService.updateAll(ids, new Consumer<Person>() {
+			private boolean modified;
+
+			@Override
+			public void accept(final Person person) {
+				if (person.getId().equals(conflicting) && !modified) {
+					modified = true;
+					modifyConcurrently(conflicting);
+				}
+				person.setFirstName(person.getFirstName().toUpperCase());
+			}
+		});
+
+		assertThat("Should have updated all persons", result.getUpdatedIds(),
+				containsInAnyOrder(ids.toArray()));
+		assertThat("Should have detected conflict", result.getConflicts(), greaterThan(0L));
+		assertThat("Should not have given up any person", result.getFailedIds().isEmpty(),
+				is(true));
+
+		Person person = personManagementService.findOne(conflicting);
+		assertThat("Should have kept concurrent modification", person.getLastName(),
+				is(CONCURRENT_LAST_NAME));
+		assertThat("Should have applied change again", person.getFirstName(), is("HANSI"));
+		assertThat("Should have incremented version twice", person.getVersion(), is(2L));
+		assertThat("Should have incremented version once",
+				personManagementService.findOne(ids.get(0)).getVersion(), is(1L));
+	}
+
+	/**
+	 * Verifies that a {@link Person} conflicting on every attempt is reported as failed
+	 * without preventing the update of the others.
+	 */
+	@Test
+	public final void verifyUpdateGivesUpPermanentlyConflictingPerson() {
+		final Long conflicting = ids.get(0);
+		BatchUpdateResult result = personManagementService.updateAll(ids, new Consumer<Person>() {
+			@Override
+			public void accept(final Person person) {
+				if (person.getId().equals(conflicting)) {
+					modifyConcurrently(conflicting);
+				}
+				person.setLastName(person.getLastName().toUpperCase());
+			}
+		});
+
+		assertThat("Should have given up conflicting person", result.getFailedIds(),
+				contains(conflicting));
+		assertThat("Should have updated other persons", result.getUpdatedIds(),
+				containsInAnyOrder(ids.get(1), ids.get(2)));
+		assertThat("Should have kept concurrent modification",
+				personManagementService.findOne(conflicting).getLastName(),
+				is(CONCURRENT_LAST_NAME));
+	}
+
+	private void modifyConcurrently(final Long id) {
+		try {
+			concurrentWriter.submit(new Runnable() {
+				@Override
+				public void run() {
+					jdbcTemplate.update("UPDATE person SET last_name = ?, version = version + 1 "
+							+ "WHERE id = ?", CONCURRENT_LAST_NAME, id);
+				}
+			}).get();
+		} catch (InterruptedException | ExecutionException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package info.novatec.addressbook;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+
+import java.util.Calendar;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Integration test counting the SQL statements executed by {@link PersonManagementService} 
+ * queries, so N+1 loading of {@link Address}es fails the build.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+public class PersonQueryStatementCountTests {
+	private static final int NUMBER_OF_PERSONS = 20;
+	
+	private static final int NUMBER_OF_MINORS = 5;
+	
+	private static final int YEARS_BETWEEN_PERSONS = 4;
+	
+	private static final long SINGLE_STATEMENT = 1L;
+	
+	private static final long BATCH_FETCH_STATEMENTS = 2L;
+
+	@Autowired
+	private PersonManagementService personManagementService;
+	
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	private Statistics statistics;
+
+	/**
+	 * Initialize test data and reset statistics.
+	 */
+	@Before
+	public final void setupTestData() {
+		Calendar cal = Calendar.getInstance();
+		cal.add(Calendar.DAY_OF_YEAR, -1);
+		for (int i = 0; i < NUMBER_OF_PERSONS; i++) {
+			cal.add(Calendar.YEAR, i == 0 ? 0 : -YEARS_BETWEEN_PERSONS);
+			personManagementService.createPerson("First" + i, "Last" + i, cal.getTime(), 
+					new Address("Hauptstr." + i, null, "55555", "Freiburg", Country.DE),
+					new Address("Bernerstr." + i, null, "12345", i % 2 == 0 ? "Bern" : "Basel", 
+							Country.CH));
+		}
+		entityManager.flush();
+		entityManager.clear();
+		
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	/**
+	 * Verifies that all {@link Person}s are retrieved together with their {@link Address}es 
+	 * by a single statement.
+	 */
+	@Test
+	public final void verifyFindAllWithAddresses() {
+		assertStatements(personManagementService.findAllWithAddresses(), NUMBER_OF_PERSONS, 
+				SINGLE_STATEMENT);
+	}
+
+	/**
+	 * Verifies that {@link Person}s living in a city are retrieved together with their 
+	 * {@link Address}es by a single statement.
+	 */
+	@Test
+	public final void verifyFindAllLivingInCityWithAddresses() {
+		assertStatements(personManagementService.findAllLivingInCityWithAddresses("Bern"), 
+				NUMBER_OF_PERSONS / 2, SINGLE_STATEMENT);
+	}
+
+	/**
+	 * Verifies that {@link Person}s retrieved by Criteria and QueryDSL specifications are 
+	 * retrieved together with their {@link Address}es by a single statement.
+	 */
+	@Test
+	public final void verifyFindAllBySpecificationWithAddresses() {
+		assertStatements(personManagementService.findAllMinorsWithAddresses(), NUMBER_OF_MINORS, 
+				SINGLE_STATEMENT);
+		
+		statistics.clear();
+		assertStatements(personManagementService.findAllOfAgeWithAddresses(), 
+				NUMBER_OF_PERSONS - NUMBER_OF_MINORS, SINGLE_STATEMENT);
+	}
+
+	/**
+	 * Verifies that lazily loaded {@link Address}es of a list of {@link Person}s are 
+	 * fetched in batches instead of one statement per {@link Person}.
+	 */
+	@Test
+	public final void verifyFindAllBatchFetchesAddresses() {
+		assertStatements(personManagementService.findAll(), NUMBER_OF_PERSONS, 
+				BATCH_FETCH_STATEMENTS);
+	}
+
+	private void assertStatements(final List<Person> persons, final int expectedPersons, 
+			final long maxStatements) {
+		int addresses = 0;
+		for (Person person : persons) {
+			addresses += person.getAddresses().size();
+		}
+		assertThat("Should have retrieved expected number of persons", persons.size(), 
+				is(expectedPersons));
+		assertThat("Should have retrieved all addresses", addresses, is(2 * expectedPersons));
+		assertThat("Should not have executed a statement per person", 
+				statistics.getPrepareStatementCount(), lessThanOrEqualTo(maxStatements));
+	}
+}
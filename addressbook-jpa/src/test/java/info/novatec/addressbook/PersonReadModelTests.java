@@ -0,0 +1,126 @@
+package info.novatec.addressbook;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.outbox.PersonChangeRelay;
+import info.novatec.addressbook.readmodel.PersonReadModel;
+import info.novatec.addressbook.readmodel.PersonRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Integration test for the {@link PersonReadModel} following committed changes through
+ * the outbox. Not transactional, as changes are only relayed after commit; relay and
+ * refresh are run by the test rather than scheduled.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@TestPropertySource(properties = {
+		"addressbook.read-model.enabled=true",
+		"addressbook.read-model.refresh-interval=3600000",
+		"addressbook.outbox.relay-interval=3600000" })
+public class PersonReadModelTests {
+	private static final String CITY = "Readmodelstadt";
+
+	@Autowired
+	private PersonManagementService personManagementService;
+
+	@Autowired
+	private PersonChangeRelay relay;
+
+	@Autowired
+	private PersonReadModel readModel;
+
+	private List<Long> ids;
+
+	/**
+	 * Initialize committed test data and load the read model before it.
+	 */
+	@Before
+	public final void setupTestData() {
+		relay.relay();
+		readModel.rebuild();
+
+		Calendar cal = Calendar.getInstance();
+		cal.set(1969, 6, 2);
+		Person adult = personManagementService.createPerson("Hans", "Readmodel", cal.getTime(),
+				new Address("Hauptstr.3", null, "55555", CITY, Country.DE),
+				new Address("Bernerstr.33", null, "12345", CITY, Country.DE));
+		cal.set(2010, 10, 5);
+		Person minor = personManagementService.createPerson("Sami", "Readmodel", cal.getTime(),
+				new Address("Bernerstr.1", null, "12345", CITY, Country.DE));
+		ids = new ArrayList<Long>(Arrays.asList(adult.getId(), minor.getId()));
+	}
+
+	/**
+	 * Removes the test data.
+	 */
+	@After
+	public final void cleanup() {
+		personManagementService.deleteAllById(ids);
+	}
+
+	/**
+	 * Verifies that created, updated and deleted persons are reflected after a refresh.
+	 */
+	@Test
+	public final void verifyChangesAreRefreshed() {
+		refresh();
+		PersonRecord adult = readModel.findByFirstNameAndLastName("Hans", "Readmodel");
+		assertThat("Should have found created person", adult.getId(), is(ids.get(0)));
+		assertThat("Should have loaded addresses", adult.getAddresses().size(), is(2));
+		assertThat("Should have found persons living in city once",
+				recordIds(readModel.findAllLivingInCity(CITY)), contains(ids.get(0), ids.get(1)));
+		assertThat("Should not have found minor of age",
+				recordIds(readModel.findAllOfAge()).contains(ids.get(1)), is(false));
+
+		personManagementService.updateAll(Collections.singletonList(ids.get(0)),
+				new Consumer<Person>() {
+					@Override
+					public void accept(final Person person) {
+						person.setFirstName("Hansi");
+					}
+				});
+		personManagementService.deleteAllById(Collections.singletonList(ids.get(1)));
+		refresh();
+		assertThat("Should not have found previous name",
+				readModel.findByFirstNameAndLastName("Hans", "Readmodel"), is(nullValue()));
+		assertThat("Should have found updated name",
+				readModel.findByFirstNameAndLastName("Hansi", "Readmodel").getId(), is(ids.get(0)));
+		assertThat("Should have removed deleted person",
+				recordIds(readModel.findAllLivingInCity(CITY)), contains(ids.get(0)));
+	}
+
+	private void refresh() {
+		relay.relay();
+		readModel.refresh();
+	}
+
+	private static List<Long> recordIds(final List<PersonRecord> persons) {
+		List<Long> ids = new ArrayList<Long>();
+		for (PersonRecord person : persons) {
+			ids.add(person.getId());
+		}
+		return ids;
+	}
+}
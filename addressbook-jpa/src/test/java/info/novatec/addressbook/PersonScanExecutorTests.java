@@ -0,0 +1,109 @@
+package info.novatec.addressbook;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.entity.QPerson;
+import info.novatec.addressbook.repository.PersonSpecifications;
+import info.novatec.addressbook.scan.PersonScanExecutor;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Integration test for {@link PersonScanExecutor}. Not transactional, as partitions are
+ * scanned in transactions of their own and only see committed {@link Person}s.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@TestPropertySource(properties = {
+		"addressbook.scan.parallelism=2",
+		"addressbook.scan.partitions=5" })
+public class PersonScanExecutorTests {
+	private static final String CITY = "Scanstadt";
+
+	private static final String LAST_NAME = "Scanner";
+
+	private static final int PERSONS = 20;
+
+	@Autowired
+	private PersonManagementService personManagementService;
+
+	@Autowired
+	private PersonScanExecutor personScanExecutor;
+
+	private List<Long> ids;
+
+	/**
+	 * Initialize committed test data, every other person living in the test city.
+	 */
+	@Before
+	public final void setupTestData() {
+		Calendar cal = Calendar.getInstance();
+		cal.set(1969, 6, 2);
+		ids = new ArrayList<Long>();
+		for (int i = 0; i < PERSONS; i++) {
+			ids.add(personManagementService.createPerson("Hans" + i, LAST_NAME, cal.getTime(),
+					new Address("Hauptstr." + i, null, "55555", i % 2 == 0 ? CITY : "Freiburg",
+							Country.DE)).getId());
+		}
+	}
+
+	/**
+	 * Removes the test data.
+	 */
+	@After
+	public final void cleanup() {
+		personManagementService.deleteAllById(ids);
+	}
+
+	/**
+	 * Verifies that the results of all partitions are combined in id order.
+	 */
+	@Test
+	public final void verifyScanBySpecification() {
+		List<Long> expected = new ArrayList<Long>();
+		for (int i = 0; i < PERSONS; i += 2) {
+			expected.add(ids.get(i));
+		}
+		List<Long> found = personScanExecutor.scan(PersonSpecifications.livesIn(CITY),
+				Collectors.mapping(Person::getId, Collectors.toList()));
+		assertThat("Should have found persons living in city in id order", found,
+				contains(expected.toArray()));
+	}
+
+	/**
+	 * Verifies that the callback is passed every matching {@link Person} with its addresses
+	 * accessible.
+	 */
+	@Test
+	public final void verifyForEachByQueryDslPredicate() {
+		final LongAdder addresses = new LongAdder();
+		long count = personScanExecutor.forEach(QPerson.person.lastName.eq(LAST_NAME),
+				new Consumer<Person>() {
+					@Override
+					public void accept(final Person person) {
+						addresses.add(person.getAddresses().size());
+					}
+				});
+		assertThat("Should have passed all persons", count, is((long) PERSONS));
+		assertThat("Should have loaded addresses", addresses.sum(), is((long) PERSONS));
+	}
+}
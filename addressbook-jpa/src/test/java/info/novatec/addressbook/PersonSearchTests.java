@@ -0,0 +1,203 @@
+package info.novatec.addressbook;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.boundary.PersonSearchController;
+import info.novatec.addressbook.control.PersonChangeEvent;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.repository.KeysetOrder;
+import info.novatec.addressbook.search.PersonSearchHit;
+import info.novatec.addressbook.search.PersonSearchIndex;
+import info.novatec.addressbook.search.PersonSearchIndexUpdater;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Integration test for keeping the {@link PersonSearchIndex} in sync by the
+ * {@link PersonSearchIndexUpdater} and for the search resource of
+ * {@link PersonSearchController}. Not transactional, as the index is only updated after
+ * commit.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+public class PersonSearchTests {
+	private static final int MAX_RESULTS = 10;
+
+	@Autowired
+	private WebApplicationContext context;
+
+	@Autowired
+	private PersonManagementService personManagementService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private MockMvc mockMvc;
+
+	private List<Long> ids;
+
+	/**
+	 * Initialize committed test data and the mock servlet environment.
+	 */
+	@Before
+	public final void setupTestData() {
+		mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+		ids = new ArrayList<Long>();
+		ids.add(createPerson("Zacharias", "Quastenflosser").getId());
+	}
+
+	/**
+	 * Removes the test data.
+	 */
+	@After
+	public final void cleanup() {
+		personManagementService.deleteAllById(ids);
+	}
+
+	/**
+	 * Verifies that created, updated, imported and deleted {@link Person}s are found
+	 * accordingly once committed.
+	 */
+	@Test
+	public final void verifyIndexFollowsCommittedChanges() {
+		assertThat("Should have found created person", search("Quastenflosser"),
+				is(not(empty())));
+
+		personManagementService.updateAll(ids, new Consumer<Person>() {
+			@Override
+			public void accept(final Person person) {
+				person.setLastName("Schnabeltier");
+			}
+		});
+		assertThat("Should have found updated person", search("Schnabeltier"), is(not(empty())));
+		assertThat("Should not have found previous name", search("Quastenflosser"), is(empty()));
+
+		Calendar cal = Calendar.getInstance();
+		cal.set(1980, 1, 1);
+		Person imported = new Person("Kunigunde", "Ameisenbaer", cal.getTime(),
+				new HashSet<Address>());
+		personManagementService.importPersons(Collections.singletonList(imported));
+		ids.add(imported.getId());
+		assertThat("Should have found imported person", search("Ameisenbaer"), is(not(empty())));
+
+		personManagementService.deleteAllById(ids);
+		assertThat("Should not have found deleted person", search("Schnabeltier"), is(empty()));
+		assertThat("Should not have found deleted import", search("Ameisenbaer"), is(empty()));
+	}
+
+	/**
+	 * Verifies that a rebuild does not index a {@link Person} of a page read before the
+	 * {@link Person} was changed.
+	 */
+	@Test
+	public final void verifyRebuildSkipsPersonsChangedMeanwhile() {
+		PersonSearchIndex index = new PersonSearchIndex();
+		racingUpdater(index, PersonChangeEvent.deleted(ids.get(0))).rebuild();
+
+		assertThat("Should not have indexed person deleted meanwhile",
+				index.search("Quastenflosser", MAX_RESULTS), is(empty()));
+	}
+
+	/**
+	 * Verifies that a rebuild stops if all {@link Person}s are deleted meanwhile.
+	 */
+	@Test
+	public final void verifyRebuildStopsOnAllDeleted() {
+		PersonSearchIndex index = new PersonSearchIndex();
+		racingUpdater(index, PersonChangeEvent.allDeleted()).rebuild();
+
+		assertThat("Should not have indexed persons deleted meanwhile", index.size(), is(0));
+	}
+
+	/**
+	 * Verifies that the search resource finds {@link Person}s despite typos and links to
+	 * them.
+	 */
+	@Test
+	public final void verifyFuzzySearchResource() throws Exception {
+		mockMvc.perform(get("/person/search/fuzzy").param("q", "Quastenflosse"))
+				.andExpect(status().isOk())
+				.andExpect(content().string(containsString("Quastenflosser")))
+				.andExpect(content().string(containsString("/person/" + ids.get(0))));
+	}
+
+	/**
+	 * Creates an updater of the given index, receiving the given change after reading
+	 * each page of a rebuild and before indexing it.
+	 */
+	private PersonSearchIndexUpdater racingUpdater(final PersonSearchIndex index,
+			final PersonChangeEvent change) {
+		final PersonSearchIndexUpdater updater = new PersonSearchIndexUpdater();
+		PersonManagementService racing = (PersonManagementService) Proxy.newProxyInstance(
+				PersonManagementService.class.getClassLoader(),
+				new Class<?>[] {PersonManagementService.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(final Object proxy, final Method method,
+							final Object[] args) throws Throwable {
+						Object result;
+						try {
+							result = method.invoke(personManagementService, args);
+						} catch (InvocationTargetException ex) {
+							throw ex.getCause();
+						}
+						if (method.getName().equals("findAll") && args != null
+								&& args.length == 3 && args[0] == KeysetOrder.ID) {
+							updater.onPersonChange(change);
+						}
+						return result;
+					}
+				});
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setReadOnly(true);
+		transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		updater.setPersonSearchIndex(index);
+		updater.setPersonManagementService(racing);
+		updater.setTransactionTemplate(transactionTemplate);
+		return updater;
+	}
+
+	private List<PersonSearchHit> search(final String query) {
+		return personManagementService.search(query, MAX_RESULTS);
+	}
+
+	private Person createPerson(final String firstName, final String lastName) {
+		Calendar cal = Calendar.getInstance();
+		cal.set(1969, 6, 2);
+		return personManagementService.createPerson(firstName, lastName, cal.getTime(),
+				new Address("Hauptstr.3", null, "55555", "Freiburg", Country.DE));
+	}
+}
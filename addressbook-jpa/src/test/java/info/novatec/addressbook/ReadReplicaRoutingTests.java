@@ -0,0 +1,119 @@
+package info.novatec.addressbook;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.routing.ReadWriteRoutingDataSource;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Integration test for routing read-only transactions to a read replica, using a second
+ * in-memory H2 database without replication as replica. Writes are therefore only
+ * visible to reads routed to the primary. Not transactional, as routing depends on the
+ * transactions of the service.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@TestPropertySource(properties = {
+		"addressbook.datasource.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+		"addressbook.datasource.replica.migrate=true",
+		"addressbook.datasource.replica.read-your-writes-window=60000" })
+public class ReadReplicaRoutingTests {
+
+	@Autowired
+	private PersonManagementService personManagementService;
+
+	@Autowired
+	private ReadWriteRoutingDataSource routingDataSource;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Person person;
+
+	/**
+	 * Removes the test data from the primary.
+	 */
+	@After
+	public final void cleanup() {
+		if (person != null) {
+			personManagementService.deleteAllById(Collections.singletonList(person.getId()));
+		}
+	}
+
+	/**
+	 * Verifies that writes go to the primary and read-only transactions of other threads
+	 * to the replica.
+	 */
+	@Test
+	public final void verifyReadOnlyTransactionsUseReplica() throws Exception {
+		long replicaRoutes = routes().get("addressbook.datasource.route.replica").longValue();
+		person = createPerson();
+
+		assertThat("Should have written to primary",
+				jdbcTemplate.queryForObject("SELECT COUNT(*) FROM person WHERE id = ?", Long.class,
+						person.getId()), is(1L));
+		ExecutorService reader = Executors.newSingleThreadExecutor();
+		try {
+			assertThat("Should have read from replica", reader.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					return personManagementService.exists(person.getId());
+				}
+			}).get(), is(false));
+		} finally {
+			reader.shutdown();
+		}
+		assertThat("Should have counted replica route",
+				routes().get("addressbook.datasource.route.replica").longValue(),
+				greaterThan(replicaRoutes));
+	}
+
+	/**
+	 * Verifies that reads of a thread that has just written stay on the primary.
+	 */
+	@Test
+	public final void verifyReadYourWritesGuardUsesPrimary() {
+		long guardedRoutes = routes().get("addressbook.datasource.route.guarded").longValue();
+		person = createPerson();
+
+		assertThat("Should have read own write from primary",
+				personManagementService.exists(person.getId()), is(true));
+		assertThat("Should have counted guarded route",
+				routes().get("addressbook.datasource.route.guarded").longValue(),
+				greaterThan(guardedRoutes));
+	}
+
+	private Person createPerson() {
+		Calendar cal = Calendar.getInstance();
+		cal.set(1969, 6, 2);
+		return personManagementService.createPerson("Hans", "Replica", cal.getTime());
+	}
+
+	private Map<String, Number> routes() {
+		Map<String, Number> metrics = new HashMap<String, Number>();
+		for (Metric<?> metric : routingDataSource.metrics()) {
+			metrics.put(metric.getName(), metric.getValue());
+		}
+		return metrics;
+	}
+}
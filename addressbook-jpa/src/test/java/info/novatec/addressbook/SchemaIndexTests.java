@@ -0,0 +1,152 @@
+package info.novatec.addressbook;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import info.novatec.addressbook.boundary.PersonManagementService;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.monitoring.JdbcCounters;
+import info.novatec.addressbook.repository.PersonAgeSpecifications;
+import info.novatec.addressbook.repository.PersonRepository;
+import info.novatec.addressbook.repository.PersonSpecifications;
+
+import java.util.Calendar;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Integration test verifying by <code>EXPLAIN</code> that the queries of
+ * {@link PersonRepository} and the person specifications are answered using the indexes
+ * of the Flyway managed schema. The SQL explained is the one generated by Hibernate,
+ * as recorded by the {@link info.novatec.addressbook.monitoring.JdbcStatementInterceptor}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@Transactional
+public class SchemaIndexTests {
+
+	@Autowired
+	private PersonManagementService personManagementService;
+
+	@Autowired
+	private PersonRepository personRepository;
+
+	@Autowired
+	private PersonAgeSpecifications ageSpecifications;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private Long id;
+
+	/**
+	 * Initialize test data, not kept in the persistence context.
+	 */
+	@Before
+	public final void setupTestData() {
+		Calendar cal = Calendar.getInstance();
+		cal.set(1969, 6, 2);
+		id = personManagementService.createPerson("Hans", "Mustermann", cal.getTime(),
+				new Address("Hauptstr.3", null, "55555", "Freiburg", Country.DE)).getId();
+		cal.set(2008, 9, 15);
+		personManagementService.createPerson("Jogi", "Löw", cal.getTime(),
+				new Address("Bernerstr.33", null, "12345", "Bern", Country.CH));
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	/**
+	 * Verifies <code>findByFirstNameAndLastName</code> uses the name index.
+	 */
+	@Test
+	public final void verifyFindByFirstNameAndLastNameUsesIndex() {
+		assertThat("Should have found person",
+				personRepository.findByFirstNameAndLastName("Hans", "Mustermann"),
+				is(notNullValue()));
+		assertLastSqlUsesIndex("IDX_PERSON_NAME", "'Hans'", "'Mustermann'");
+	}
+
+	/**
+	 * Verifies the last name prefix specification uses the name index.
+	 */
+	@Test
+	public final void verifyLastNamePrefixUsesIndex() {
+		assertThat("Should have found person", personRepository.findAll(
+				PersonSpecifications.lastNameIs("Must")), is(not(empty())));
+		assertLastSqlUsesIndex("IDX_PERSON_NAME", "'Must%'");
+	}
+
+	/**
+	 * Verifies the of age and minor specifications use the birth date index.
+	 */
+	@Test
+	public final void verifyBirthDateUsesIndex() {
+		assertThat("Should have found person of age",
+				personRepository.findAll(ageSpecifications.isOfAge()), is(not(empty())));
+		assertLastSqlUsesIndex("IDX_PERSON_BIRTH_DATE", "DATE '1998-01-01'");
+		assertThat("Should have found minor",
+				personRepository.findAll(ageSpecifications.isMinor()), is(not(empty())));
+		assertLastSqlUsesIndex("IDX_PERSON_BIRTH_DATE", "DATE '1998-01-01'");
+	}
+
+	/**
+	 * Verifies the bulk update of a city, restricting addresses by city only, uses the city
+	 * index.
+	 */
+	@Test
+	public final void verifyCityUsesIndex() {
+		assertThat("Should have updated address", personRepository.updateCity("Bern", "Bern"),
+				is(1));
+		assertLastSqlUsesIndex("IDX_ADDRESS_CITY", "'Bern'");
+	}
+
+	/**
+	 * Verifies loading the addresses of a person uses the person index.
+	 */
+	@Test
+	public final void verifyAddressesOfPersonUseIndex() {
+		Person person = personRepository.findOne(id);
+		assertThat("Should have loaded addresses", person.getAddresses(), hasSize(1));
+		assertLastSqlUsesIndex("IDX_ADDRESS_PERSON", String.valueOf(id));
+	}
+
+	/**
+	 * Explains the last statement prepared by this thread, with its parameters replaced by
+	 * the given SQL literals in order. The last literal is used for any further parameters,
+	 * as of the batch loading of collections.
+	 */
+	private void assertLastSqlUsesIndex(final String index, final String... literals) {
+		String sql = JdbcCounters.current().getLastSql();
+		StringBuilder explained = new StringBuilder("EXPLAIN ");
+		int parameter = 0;
+		for (char c : sql.toCharArray()) {
+			if (c == '?') {
+				explained.append(literals[Math.min(parameter++, literals.length - 1)]);
+			} else {
+				explained.append(c);
+			}
+		}
+		String plan = jdbcTemplate.queryForObject(explained.toString(), String.class);
+		assertThat("Query should use index " + index + ": " + sql, plan.toUpperCase(),
+				containsString(index));
+	}
+}
@@ -0,0 +1,188 @@
+package info.novatec.addressbook;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+import info.novatec.addressbook.repository.PersonAgeSpecifications;
+import info.novatec.addressbook.sharding.ShardedPersonRepository;
+import info.novatec.addressbook.sharding.ShardingStrategy;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Integration test for {@link ShardedPersonRepository} on three in-memory H2 databases,
+ * sharded by the country of the primary address.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@TestPropertySource(properties = {
+		"addressbook.sharding.urls=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1,"
+				+ "jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1",
+		"addressbook.sharding.strategy=country",
+		"addressbook.sharding.countries=DE=0,CH=1,AT=2" })
+public class ShardedPersonRepositoryTests {
+
+	@Autowired
+	private ShardedPersonRepository repository;
+
+	@Autowired
+	private ShardingStrategy strategy;
+
+	private static final ZoneId ZONE = ZoneId.systemDefault();
+
+	private static final LocalDate TODAY = LocalDate.of(2015, 10, 5);
+
+	private Person mustermann, mueller, khedira, loew, lahm;
+
+	/**
+	 * Initialize test data spread over all shards and the age specifications at noon of the
+	 * fixed day.
+	 */
+	@Before
+	public final void setupTestData() {
+		repository.setAgeSpecifications(new PersonAgeSpecifications(Clock.fixed(
+				TODAY.atTime(12, 0).atZone(ZONE).toInstant(), ZONE)));
+		Calendar cal = Calendar.getInstance();
+		cal.set(1969, 6, 2);
+		mustermann = save("Hans", "Mustermann", cal, Country.DE, "Freiburg");
+		cal.set(1972, 8, 20);
+		mueller = save("Hansi", "Müller", cal, Country.CH, "Bern");
+		cal.set(2010, 10, 5);
+		khedira = save("Sami", "Khedira", cal, Country.AT, "Wien");
+		cal.set(2008, 9, 15);
+		loew = save("Jogi", "Löw", cal, Country.CH, "Bern");
+		cal.set(2000, 3, 6);
+		lahm = save("Phillip", "Lahm", cal, null, null);
+	}
+
+	/**
+	 * Removes the test data from all shards.
+	 */
+	@After
+	public final void cleanup() {
+		for (Long id : ids(repository.findAll())) {
+			repository.delete(id);
+		}
+		repository.setAgeSpecifications(new PersonAgeSpecifications(Clock.systemDefaultZone()));
+	}
+
+	/**
+	 * Verifies that {@link Person}s are stored in the shard of their country and found
+	 * there by id.
+	 */
+	@Test
+	public final void verifySingleShardLookup() {
+		assertThat("Should have stored person in shard of its country",
+				strategy.shardOf(mueller.getId()), is(1));
+		assertThat("Should have stored person in shard of its country",
+				strategy.shardOf(khedira.getId()), is(2));
+		assertThat("Should have stored person without address in first shard",
+				strategy.shardOf(lahm.getId()), is(0));
+
+		Person person = repository.findOneWithAddresses(loew.getId());
+		assertThat("Should have retrieved person", person, is(notNullValue()));
+		assertThat("Should have retrieved addresses", person.getAddresses().size(), is(1));
+		assertThat("Should have retrieved person", repository.findOne(mustermann.getId())
+				.getLastName(), is("Mustermann"));
+	}
+
+	/**
+	 * Verifies that queries over all shards are merged in name order.
+	 */
+	@Test
+	public final void verifyFanOutQueries() {
+		assertThat("Should have counted persons of all shards", repository.count(), is(5L));
+		assertThat("Should have merged persons in name order", ids(repository.findAll()),
+				contains(khedira.getId(), lahm.getId(), loew.getId(), mustermann.getId(),
+						mueller.getId()));
+		assertThat("Should have merged persons of age", ids(repository.findAllOfAge()),
+				contains(mustermann.getId(), mueller.getId()));
+		assertThat("Should have merged persons living in city",
+				ids(repository.findAllLivingInCity("Bern")), contains(loew.getId(),
+						mueller.getId()));
+	}
+
+	/**
+	 * Verifies that a merged stream closed before being consumed completely releases the
+	 * cursors of the shards, so the shards can be written afterwards.
+	 */
+	@Test
+	public final void verifyClosingPartiallyReadStream() {
+		try (Stream<Person> persons = repository.findAll()) {
+			assertThat("Should have read first person in name order",
+					persons.findFirst().get().getId(), is(khedira.getId()));
+		}
+		repository.delete(khedira.getId());
+		assertThat("Should have deleted person", repository.findOne(khedira.getId()),
+				is(nullValue()));
+	}
+
+	/**
+	 * Verifies that an import spanning several batches per shard saves every
+	 * {@link Person} in the shard of its country.
+	 */
+	@Test
+	public final void verifyImportInBatches() {
+		Calendar cal = Calendar.getInstance();
+		cal.set(1980, 1, 1);
+		List<Person> persons = new ArrayList<Person>();
+		Country[] countries = {Country.DE, Country.CH, Country.AT };
+		for (int i = 0; i < 7; i++) {
+			Person person = new Person("First" + i, "Imported", cal.getTime(),
+					new HashSet<Address>());
+			person.addAddress(new Address("Hauptstr." + i, null, "12345", "Stadt",
+					countries[i % countries.length]));
+			persons.add(person);
+		}
+
+		assertThat("Should have imported all persons", repository.importPersons(persons, 2)
+				.getCount(), is(7L));
+		assertThat("Should have counted imported persons", repository.count(), is(12L));
+		for (int i = 0; i < persons.size(); i++) {
+			assertThat("Should have stored person in shard of its country",
+					strategy.shardOf(persons.get(i).getId()), is(i % countries.length));
+		}
+	}
+
+	private Person save(final String firstName, final String lastName, final Calendar birthDate,
+			final Country country, final String city) {
+		Person person = new Person(firstName, lastName, birthDate.getTime(),
+				new HashSet<Address>());
+		if (country != null) {
+			person.addAddress(new Address("Hauptstr.3", null, "12345", city, country));
+		}
+		return repository.save(person);
+	}
+
+	private static List<Long> ids(final Stream<Person> persons) {
+		try (Stream<Person> closed = persons) {
+			List<Long> ids = new ArrayList<Long>();
+			for (Person person : closed.collect(Collectors.toList())) {
+				ids.add(person.getId());
+			}
+			return ids;
+		}
+	}
+}
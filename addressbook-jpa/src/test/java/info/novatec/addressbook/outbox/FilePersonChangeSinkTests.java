@@ -0,0 +1,81 @@
+package info.novatec.addressbook.outbox;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import info.novatec.addressbook.outbox.PersonChange.Operation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit test verifying that {@link FilePersonChangeSink} appends every change once, also
+ * across restarts and redeliveries.
+ */
+public class FilePersonChangeSinkTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path file;
+
+	/**
+	 * Initialize file.
+	 */
+	@Before
+	public final void setupFile() throws IOException {
+		file = folder.newFolder().toPath().resolve("changes.ndjson");
+	}
+
+	/**
+	 * Verifies that changes passed again are skipped, also by a new sink on the same file.
+	 */
+	@Test
+	public final void verifyRedeliveredChangesAreSkipped() throws IOException {
+		FilePersonChangeSink sink = new FilePersonChangeSink(file);
+		sink.publish(Arrays.asList(change(1, Operation.CREATED), change(2, Operation.UPDATED)));
+		sink.publish(Arrays.asList(change(2, Operation.UPDATED), change(3, Operation.DELETED)));
+
+		FilePersonChangeSink restarted = new FilePersonChangeSink(file);
+		assertThat("Should have taken offset of last line", restarted.getPublishedOffset(), is(3L));
+		restarted.publish(Arrays.asList(change(3, Operation.DELETED), change(4, Operation.ALL_DELETED)));
+
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		assertThat("Should have appended every change once", lines.size(), is(4));
+		assertThat("Should have written person state", lines.get(0),
+				startsWith("{\"offset\":1,\"operation\":\"CREATED\",\"personId\":7,"));
+		assertThat("Should have written last change", lines.get(3),
+				startsWith("{\"offset\":4,\"operation\":\"ALL_DELETED\","));
+	}
+
+	/**
+	 * Verifies that rewinding publishes changes again.
+	 */
+	@Test
+	public final void verifyRewindPublishesAgain() throws IOException {
+		FilePersonChangeSink sink = new FilePersonChangeSink(file);
+		sink.publish(Arrays.asList(change(1, Operation.CREATED), change(2, Operation.UPDATED)));
+		sink.rewind(1);
+		sink.publish(Arrays.asList(change(2, Operation.UPDATED)));
+
+		assertThat("Should have appended rewound change again",
+				Files.readAllLines(file, StandardCharsets.UTF_8).size(), is(3));
+	}
+
+	private static PersonChange change(final long offset, final Operation operation) {
+		boolean allPersons = operation == Operation.ALL_DELETED;
+		String payload = operation == Operation.CREATED || operation == Operation.UPDATED
+				? "{\"id\":7,\"lastName\":\"Müller\"}" : null;
+		return new PersonChange(offset, operation, allPersons ? null : 7L, payload, new Date());
+	}
+}
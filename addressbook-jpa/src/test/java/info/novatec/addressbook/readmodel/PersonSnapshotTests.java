@@ -0,0 +1,136 @@
+package info.novatec.addressbook.readmodel;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import info.novatec.addressbook.entity.Country;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test verifying the lookups of {@link PersonSnapshot} and creating snapshots with
+ * changes.
+ */
+public class PersonSnapshotTests {
+	private static final LocalDate TODAY = LocalDate.of(2015, 9, 1);
+
+	private PersonSnapshot snapshot;
+
+	/**
+	 * Initialize snapshot.
+	 */
+	@Before
+	public final void setupSnapshot() {
+		snapshot = new PersonSnapshotBuilder()
+				.addPerson(1, "Hans", "Mustermann", LocalDate.of(1969, 7, 2))
+				.addAddress("Hauptstr.3", null, "55555", "Freiburg", Country.DE)
+				.addPerson(2, "Jogi", "Löw", LocalDate.of(1997, 9, 1))
+				.addAddress("Hauptstr.3", null, "55555", "Freiburg", Country.DE)
+				.addAddress("Bernerstr.33", null, "12345", "Wien", Country.AT)
+				.addPerson(3, "Sami", "Khedira", LocalDate.of(1997, 9, 2))
+				.addAddress("Bernerstr.1", null, "12345", "Bern", Country.CH)
+				.addAddress(null, "4711", "12346", "Bern", Country.CH)
+				.addPerson(4, "Hans", "Mustermann", LocalDate.of(2010, 11, 5))
+				.build(42);
+	}
+
+	/**
+	 * Verifies lookups by name, with duplicate names resolving to the lowest id.
+	 */
+	@Test
+	public final void verifyFindByFirstNameAndLastName() {
+		PersonRecord person = snapshot.findByFirstNameAndLastName("Jogi", "Löw");
+		assertThat("Should have found person", person.getId(), is(2L));
+		assertThat("Should have decoded birth date", person.getBirthDate(),
+				is(LocalDate.of(1997, 9, 1)));
+		assertThat("Should have decoded addresses", person.getAddresses().get(1).getCountry(),
+				is(Country.AT));
+		assertThat("Should have found lowest id of duplicate name",
+				snapshot.findByFirstNameAndLastName("Hans", "Mustermann").getId(), is(1L));
+		assertThat("Should not have mixed up first and last name",
+				snapshot.findByFirstNameAndLastName("Löw", "Jogi"), is(nullValue()));
+		assertThat("Should not have found unknown name",
+				snapshot.findByFirstNameAndLastName("Jogi", "Unknown"), is(nullValue()));
+	}
+
+	/**
+	 * Verifies that persons living in a city are found once however many addresses they
+	 * have there.
+	 */
+	@Test
+	public final void verifyFindAllLivingInCity() {
+		assertThat("Should have found persons in Freiburg",
+				ids(snapshot.findAllLivingInCity("Freiburg")), contains(1L, 2L));
+		assertThat("Should have found person with two addresses in Bern once",
+				ids(snapshot.findAllLivingInCity("Bern")), contains(3L));
+		assertThat("Should have found nobody in unknown city",
+				snapshot.findAllLivingInCity("Paris"), is(empty()));
+	}
+
+	/**
+	 * Verifies that persons turning 18 today are of age, consistent with the database
+	 * queries.
+	 */
+	@Test
+	public final void verifyFindAllOfAge() {
+		assertThat("Should have found persons born on or before cutoff ordered by birth date",
+				ids(snapshot.findAllOfAge(TODAY)), contains(1L, 2L));
+		assertThat("Should not have found person one day before 18th birthday",
+				ids(snapshot.findAllOfAge(TODAY.minusDays(1))), contains(1L));
+		assertThat("Should have found persons of age one day later",
+				ids(snapshot.findAllOfAge(TODAY.plusDays(1))), contains(1L, 2L, 3L));
+	}
+
+	/**
+	 * Verifies that changed persons are replaced, deleted persons removed and new persons
+	 * added in id order.
+	 */
+	@Test
+	public final void verifyWithChanges() {
+		PersonSnapshot changed = new PersonSnapshotBuilder()
+				.addPerson(2, "Joachim", "Löw", LocalDate.of(1960, 2, 3))
+				.addPerson(5, "Toni", "Kroos", LocalDate.of(1990, 1, 4))
+				.addAddress("Hauptstr.1", null, "55555", "Freiburg", Country.DE)
+				.build(0);
+		PersonSnapshot next = snapshot.withChanges(changed, Arrays.asList(2L, 3L, 5L), 43);
+
+		assertThat("Should have kept order by id", ids(next.findAll()), contains(1L, 2L, 4L, 5L));
+		assertThat("Should have replaced changed person",
+				next.findByFirstNameAndLastName("Joachim", "Löw").getAddresses(), is(empty()));
+		assertThat("Should have removed deleted person", next.findOne(3), is(nullValue()));
+		assertThat("Should have indexed changed addresses",
+				ids(next.findAllLivingInCity("Freiburg")), contains(1L, 5L));
+		assertThat("Should have taken offset", next.getOffset(), is(43L));
+		assertThat("Should not have changed previous snapshot",
+				snapshot.findByFirstNameAndLastName("Jogi", "Löw").getId(), is(2L));
+		assertThat("Should not have added new names to previous snapshot",
+				snapshot.findByFirstNameAndLastName("Toni", "Kroos"), is(nullValue()));
+		assertThat("Should have kept unchanged rows", next.findOne(4).getBirthDate(),
+				is(LocalDate.of(2010, 11, 5)));
+	}
+
+	/**
+	 * Verifies that persons must be added in id order.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public final void verifyPersonsMustBeOrderedById() {
+		new PersonSnapshotBuilder().addPerson(2, "Jogi", "Löw", TODAY)
+				.addPerson(1, "Hans", "Mustermann", TODAY);
+	}
+
+	private static List<Long> ids(final List<PersonRecord> persons) {
+		List<Long> ids = new ArrayList<Long>();
+		for (PersonRecord person : persons) {
+			ids.add(person.getId());
+		}
+		return ids;
+	}
+}
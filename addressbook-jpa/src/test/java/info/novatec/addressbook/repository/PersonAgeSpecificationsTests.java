@@ -0,0 +1,100 @@
+package info.novatec.addressbook.repository;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test verifying the daily cutoff of {@link PersonAgeSpecifications}.
+ */
+public class PersonAgeSpecificationsTests {
+	private static final ZoneId ZONE = ZoneOffset.UTC;
+	
+	private MutableClock clock;
+	
+	private PersonAgeSpecifications specifications;
+	
+	/**
+	 * Initialize registry one second before midnight.
+	 */
+	@Before
+	public final void setupSpecifications() {
+		clock = new MutableClock(LocalDateTime.of(2015, 10, 5, 23, 59, 59).atZone(ZONE).toInstant());
+		specifications = new PersonAgeSpecifications(clock);
+	}
+	
+	/**
+	 * Verifies that specifications are reused during a day.
+	 */
+	@Test
+	public final void verifySpecificationsReusedDuringDay() {
+		assertThat("Should have reused specification", specifications.isOfAge(), 
+				is(sameInstance(specifications.isOfAge())));
+		assertThat("Should have reused predicate", specifications.isMinorPredicate(), 
+				is(sameInstance(specifications.isMinorPredicate())));
+		assertThat("Should have computed cutoff at start of day", specifications.getCutoff(), 
+				is(date(1997, 10, 5)));
+	}
+	
+	/**
+	 * Verifies that cutoff and specifications change at midnight.
+	 */
+	@Test
+	public final void verifyCutoffChangesAtMidnight() {
+		Object ofAge = specifications.isOfAge();
+		Object ofAgePredicate = specifications.isOfAgePredicate();
+		
+		clock.setInstant(LocalDateTime.of(2015, 10, 6, 0, 0, 0).atZone(ZONE).toInstant());
+		assertThat("Should have moved cutoff to next day", specifications.getCutoff(), 
+				is(date(1997, 10, 6)));
+		assertThat("Should have created new specification", specifications.isOfAge(), 
+				is(not(sameInstance(ofAge))));
+		assertThat("Should have created new predicate", specifications.isOfAgePredicate(), 
+				is(not(sameInstance(ofAgePredicate))));
+	}
+	
+	private static Date date(final int year, final int month, final int day) {
+		return Date.from(LocalDateTime.of(year, month, day, 0, 0).atZone(ZONE).toInstant());
+	}
+	
+	/**
+	 * {@link Clock} that can be set by tests.
+	 */
+	private static final class MutableClock extends Clock {
+		private Instant instant;
+
+		private MutableClock(final Instant instant) {
+			this.instant = instant;
+		}
+
+		private void setInstant(final Instant instant) {
+			this.instant = instant;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZONE;
+		}
+
+		@Override
+		public Clock withZone(final ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+	}
+}
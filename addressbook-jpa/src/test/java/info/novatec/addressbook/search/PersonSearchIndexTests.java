@@ -0,0 +1,88 @@
+package info.novatec.addressbook.search;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import info.novatec.addressbook.entity.Address;
+import info.novatec.addressbook.entity.Country;
+import info.novatec.addressbook.entity.Person;
+
+import java.lang.reflect.Field;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.jpa.domain.AbstractPersistable;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Unit test verifying ranking and maintenance of {@link PersonSearchIndex}.
+ */
+public class PersonSearchIndexTests {
+	
+	private PersonSearchIndex index;
+	
+	/**
+	 * Initialize index.
+	 */
+	@Before
+	public final void setupIndex() {
+		index = new PersonSearchIndex();
+		index.index(person(1L, "Thomas", "Müller", 
+				new Address("Säbener Str.51", null, "81547", "München", Country.DE)));
+		index.index(person(2L, "Manuel", "Neuer", 
+				new Address("Ernst-Kuzorra-Weg 1", null, "45891", "Gelsenkirchen", Country.DE)));
+		index.index(person(3L, "Mesut", "Özil", 
+				new Address("Highbury House", null, "N5 1BU", "London", Country.GB)));
+		index.index(person(4L, "Gerd", "Müller"));
+	}
+	
+	/**
+	 * Verifies finding a {@link Person} by misspelled names.
+	 */
+	@Test
+	public final void verifySearchWithTypos() {
+		List<PersonSearchHit> hits = index.search("tomas muler", 10);
+		assertThat("Should have found best match first", hits.get(0).getPersonId(), is(1L));
+		assertThat("Should have found second Müller", hits.get(1).getPersonId(), is(4L));
+	}
+	
+	/**
+	 * Verifies finding {@link Person}s by partial words and address.
+	 */
+	@Test
+	public final void verifySearchPartialAndAddress() {
+		assertThat("Should have found person by name prefix", 
+				index.search("Oez", 10).get(0).getPersonId(), is(3L));
+		assertThat("Should have found person by city", 
+				index.search("gelsenkirchen", 10).get(0).getPersonId(), is(2L));
+	}
+	
+	/**
+	 * Verifies updating and removing {@link Person}s.
+	 */
+	@Test
+	public final void verifyUpdateAndRemove() {
+		index.index(person(2L, "Marc-André", "ter Stegen"));
+		assertThat("Should not find replaced name", index.search("neuer", 10), is(empty()));
+		assertThat("Should find new name", index.search("stegen", 10).get(0).getPersonId(), is(2L));
+		
+		index.remove(2L);
+		assertThat("Should not find removed person", index.search("stegen", 10), is(empty()));
+		assertThat("Should have expected size", index.size(), is(3));
+	}
+	
+	private static Person person(final Long id, final String firstName, final String lastName, 
+			final Address... addresses) {
+		Person person = new Person(firstName, lastName, new Date(), new HashSet<Address>());
+		for (Address address : addresses) {
+			person.addAddress(address);
+		}
+		Field field = ReflectionUtils.findField(AbstractPersistable.class, "id");
+		ReflectionUtils.makeAccessible(field);
+		ReflectionUtils.setField(field, person, id);
+		return person;
+	}
+}